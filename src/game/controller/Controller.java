@@ -3,67 +3,113 @@ package game.controller;
 import java.io.IOException;
 import java.net.ConnectException;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import game.model.EV3Robot;
+import game.model.GameArchive;
+import game.model.GameClock;
+import game.model.GameConfig;
+import game.model.GameRecords;
 import game.model.Highscore;
 import game.model.HighscoreList;
 import game.model.HighscoreListRow;
+import game.model.HighscoreWriter;
+import game.model.LeaderboardWindow;
 import game.model.Player;
-import game.view.View;
-import javafx.application.Platform;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
-import javafx.event.ActionEvent;
-import javafx.scene.control.Button;
-import javafx.scene.input.KeyCode;
-import javafx.scene.input.KeyEvent;
+import game.model.ScoreRankIndex;
+import game.model.SessionReplay;
 
 /**
- * The controller in the MVC-model.
+ * The controller in the MVC-model. The controller does not depend on any
+ * particular user interface: all state changes are reported to a
+ * {@link GameListener} which allows running the game without a display.
  *
  * @author Jose Uusitalo &amp; Ilkka Varjokunnas
  */
 public class Controller
 {
 	/**
-	 * Whether or not to run this program in debug mode which creates a valid
-	 * but "null" remote connection. Used for testing the user interface and
-	 * business logic without access to the robot itself.
+	 * Name of the system property which, when <code>true</code>, records the
+	 * messages sent between the PC and the robot into a capture file for
+	 * every game.
+	 *
+	 * @see SessionReplay
 	 */
-	public static final boolean DEBUG = true;
+	public static final String RECORD_PROPERTY = "cannongame.record";
 
 	/**
-	 * Whether or not to print additional debugging info about GUI and input
-	 * events.
+	 * The maximum number of characters the player's name can have.
 	 */
-	public static final boolean DEBUG_INFO = true;
+	public static final int PLAYER_NAME_MAX_LENGTH = 14;
 
 	/**
-	 * Whether or not to use the shot timer feature.
-	 * 
-	 * Note: This does not work at the moment.
+	 * Time in milliseconds the robot has to get ready for a new game.
 	 */
-	public static final boolean USE_TIMER = false;
+	public static final long START_TIMEOUT = 10000;
 
 	/**
-	 * The maximum number of characters the player's name can have.
+	 * Time in milliseconds between the end of a game and the results being
+	 * recorded, which gives the cannon time to turn back and the last
+	 * cannonball time to be detected.
 	 */
-	public static final int PLAYER_NAME_MAX_LENGTH = 14;
+	public static final long END_GAME_DELAY = 5000;
+
+	/**
+	 * Time in milliseconds to wait for the robot to acknowledge the sensor
+	 * settings. Older robot programs do not acknowledge them, so the game
+	 * starts anyway after this.
+	 */
+	public static final long SETTINGS_TIMEOUT = 1000;
+
+	/**
+	 * Time in milliseconds a turn control has to be held down before the
+	 * cannon starts turning faster.
+	 */
+	public static final long TURN_ACCELERATION_DELAY = 750;
+
+	/**
+	 * Speed the cannon turns at once a turn control has been held down for
+	 * {@link #TURN_ACCELERATION_DELAY}, in percent of the normal speed.
+	 */
+	public static final int TURN_SPEED_FAST = 200;
+
+	/**
+	 * A magic number representing the "Shoot Up" robot control.
+	 */
+	public static final int BUTTON_SHOOT_UP = 0;
+
+	/**
+	 * A magic number representing the "Shoot Down" robot control.
+	 */
+	public static final int BUTTON_SHOOT_DOWN = 1;
 
 	/**
-	 * Time in seconds until the robot shoots automatically.
+	 * A magic number representing the "Turn Left" robot control.
 	 */
-	public static final int SHOT_TIMER = 5;
+	public static final int BUTTON_TURN_LEFT = 2;
 
 	/**
-	 * Constant used in many sleep commands.
+	 * A magic number representing the "Turn Right" robot control.
 	 */
-	public static final long SLEEP_TIME = 50;
+	public static final int BUTTON_TURN_RIGHT = 3;
 
 	/**
 	 * MVC-model view.
 	 */
-	private View view;
+	private GameListener view;
 
 	/**
 	 * An object representing the physical robot.
@@ -76,15 +122,32 @@ public class Controller
 	private Player player;
 
 	/**
-	 * A list of highscores of all players.
+	 * The highscores, game archive and leaderboards, possibly shared with the
+	 * controllers of other robots.
+	 */
+	private final GameRecords records;
+
+	/**
+	 * Whether or not this controller opened the records and closes them on
+	 * shutdown.
+	 */
+	private final boolean ownsRecords;
+
+	/**
+	 * Updates the highscore table when the highscores change.
+	 */
+	private final HighscoreList.ChangeListener highscoreListener;
+
+	/**
+	 * The leaderboard shown in the highscore table.
 	 */
-	private HighscoreList highscores;
+	private volatile LeaderboardWindow leaderboardWindow;
 
 	/**
 	 * Whether or not the wireless connection between the PC and the robot has
 	 * been terminated.
 	 */
-	private boolean connected;
+	private volatile boolean connected;
 
 	/**
 	 * Used for running the robot in demonstration mode.
@@ -94,24 +157,153 @@ public class Controller
 	/**
 	 * Whether or not data has been received from the data reader thread.
 	 */
-	private boolean dataReceived;
+	private volatile boolean dataReceived;
+
+	/**
+	 * Completed when the robot has sent data to the PC, <code>null</code> if
+	 * no game is starting.
+	 */
+	private volatile CompletableFuture<Void> streamsReady;
+
+	/**
+	 * Completed when the robot has acknowledged the sensor settings,
+	 * <code>null</code> if no game is starting.
+	 */
+	private volatile CompletableFuture<Void> settingsAcknowledged;
+
+	/**
+	 * Completed when the game that was started last is ready to be played.
+	 */
+	private CompletableFuture<Void> gameStart;
+
+	/**
+	 * Real time in nanoseconds when the last game was started,
+	 * <code>0</code> after the first robot control has been accepted.
+	 */
+	private volatile long startRequested;
+
+	/**
+	 * Runs timeouts and delayed tasks of the game.
+	 */
+	private final ScheduledExecutorService scheduler;
+
+	private volatile boolean gameOver;
+
+	/**
+	 * Records the results of the game that ended last and resets the user
+	 * interface, <code>null</code> if no game is ending.
+	 */
+	private ScheduledFuture<?> gameEnding;
 
-	private boolean gameOver;
+	/**
+	 * The task run by {@link #gameEnding}, <code>null</code> once it has
+	 * started.
+	 */
+	private Runnable finishGame;
+
+	/**
+	 * Name of the player who will play after the ending game,
+	 * <code>null</code> if nobody is waiting.
+	 */
+	private String queuedPlayer;
+
+	/**
+	 * Completed when the game of the waiting player is ready to be played.
+	 */
+	private CompletableFuture<Void> queuedStart;
+
+	/**
+	 * Which robot controls are held down. A control that is held down ignores
+	 * further presses, such as the key repeats of the operating system, until
+	 * it is released.
+	 */
+	private final boolean[] controlsHeld;
+
+	/**
+	 * Speeds up the turn of the held turn control, <code>null</code> if the
+	 * cannon is not being turned by the player.
+	 */
+	private ScheduledFuture<?> turnAcceleration;
+
+	/**
+	 * Whether or not the cannon is turning faster than normal.
+	 */
+	private boolean turnAccelerated;
+
+	/**
+	 * Number of robot controls pressed and presses ignored because the
+	 * control was already held down.
+	 */
+	private int controlsPressed, pressesIgnored;
+
+	/**
+	 * The source of time for all waiting in the game.
+	 */
+	private final GameClock clock;
+
+	/**
+	 * @param _view
+	 *            Receives the state changes of the game.
+	 * @param _clock
+	 *            The source of time for all waiting in the game.
+	 */
+	public Controller(final GameListener _view, final GameClock _clock)
+	{
+		this(_view, _clock, null);
+	}
 
-	public Controller(final View _view)
+	/**
+	 * @param _view
+	 *            Receives the state changes of the game.
+	 * @param _clock
+	 *            The source of time for all waiting in the game.
+	 * @param _records
+	 *            The records shared with the controllers of other robots,
+	 *            <code>null</code> to open records of this controller's own.
+	 */
+	public Controller(final GameListener _view, final GameClock _clock, final GameRecords _records)
 	{
 		view = _view;
-		highscores = new HighscoreList();
+		clock = _clock;
+		gameOver = true;
+		controlsHeld = new boolean[BUTTON_TURN_RIGHT + 1];
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(final Runnable _task)
+			{
+				Thread thread = new Thread(_task, "GameScheduler");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		ownsRecords = _records == null;
+		records = ownsRecords ? new GameRecords() : _records;
+		highscoreListener = new HighscoreList.ChangeListener()
+		{
+			@Override
+			public void highscoresChanged()
+			{
+				updateHighscores();
+			}
+		};
+		records.addListener(highscoreListener);
+		leaderboardWindow = LeaderboardWindow.ALL_TIME;
 	}
 
 	/**
 	 * Establishes a remote connection between the PC and the robot and enables
 	 * the robot controls in the interface.
+	 *
+	 * @param _ip
+	 *            The IP-address of the robot.
+	 * @param _port
+	 *            The port of the robot.
 	 */
-	public void connect()
+	public void connect(final String _ip, final int _port)
 	{
 		connected = false;
-		robot = new EV3Robot(view.getIP(), view.getPort(), this);
+		robot = new EV3Robot(_ip, _port, this);
 
 		try
 		{
@@ -142,11 +334,16 @@ public class Controller
 	/**
 	 * Creates a valid but fake and non-functional remote connection. Used for
 	 * trying out the user interface without the robot itself.
+	 *
+	 * @param _ip
+	 *            The IP-address of the robot.
+	 * @param _port
+	 *            The port of the robot.
 	 */
-	public void debugConnect()
+	public void debugConnect(final String _ip, final int _port)
 	{
 		connected = false;
-		robot = new EV3Robot(view.getIP(), view.getPort(), this);
+		robot = new EV3Robot(_ip, _port, this);
 
 		robot.openFakeTestingConnection();
 		connected = true;
@@ -189,6 +386,88 @@ public class Controller
 		}
 	}
 
+	/**
+	 * Disconnects from the robot and makes sure all highscores have been
+	 * stored. Called when the program is closed.
+	 */
+	public void shutdown()
+	{
+		Runnable finish;
+
+		synchronized (this)
+		{
+			queuedPlayer = null;
+			finish = finishGame;
+		}
+
+		// Record the game that was ending instead of waiting for the delay.
+		if (finish != null)
+			finish.run();
+
+		synchronized (controlsHeld)
+		{
+			System.out.println("[Controller] " + controlsPressed + " robot controls pressed, " + pressesIgnored
+					+ " repeated presses ignored.");
+		}
+
+		disconnect();
+		scheduler.shutdownNow();
+
+		records.removeListener(highscoreListener);
+
+		if (ownsRecords)
+			records.close();
+	}
+
+	/**
+	 * Runs a task after the given time without blocking the calling thread.
+	 *
+	 * @param _task
+	 *            The task.
+	 * @param _millis
+	 *            Time to wait in milliseconds of game time.
+	 * @return the scheduled task
+	 */
+	public ScheduledFuture<?> schedule(final Runnable _task, final long _millis)
+	{
+		return scheduler.schedule(_task, clock.toRealNanos(_millis), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Fails the given future if it has not been completed in the given time.
+	 *
+	 * @param _future
+	 *            The future.
+	 * @param _millis
+	 *            Time in milliseconds of game time.
+	 * @param _what
+	 *            What the future is waiting for, used in the error message.
+	 * @return the given future
+	 */
+	private <T> CompletableFuture<T> withTimeout(final CompletableFuture<T> _future, final long _millis,
+			final String _what)
+	{
+		final ScheduledFuture<?> timeout = schedule(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				_future.completeExceptionally(new TimeoutException("Timed out waiting for " + _what + "."));
+			}
+		}, _millis);
+
+		_future.whenComplete(new BiConsumer<T, Throwable>()
+		{
+			@Override
+			public void accept(final T _result, final Throwable _error)
+			{
+				timeout.cancel(false);
+			}
+		});
+
+		return _future;
+	}
+
 	/**
 	 * Connections details are in a String array in the following order: <br>
 	 * 0: default robot IP-address<br>
@@ -207,7 +486,7 @@ public class Controller
 	 */
 	public void setConnectionDefaults()
 	{
-		if (DEBUG)
+		if (GameConfig.get().isDebug())
 			view.setConnectionDefaults(new String[] {"DEBUG", "0"});
 		else
 			view.setConnectionDefaults(getConnectionDefaults());
@@ -240,9 +519,8 @@ public class Controller
 	 */
 	public void updateCannonAngleIndicator()
 	{
-		double oldProgress = view.getCannonAngleBarProgress();
 		int angle = robot.getCurrentAngle();
-		double progress = toPercentage(angle, EV3Robot.LIMIT_ANGLE_MIN, EV3Robot.LIMIT_ANGLE_MAX);
+		double progress = toPercentage(angle, GameConfig.get().getAngleMin(), GameConfig.get().getAngleMax());
 		boolean lessThanZero = Double.compare(progress, 0.0) <= 0;
 		boolean moreThanOne = Double.compare(progress, 1.0) >= 0;
 		
@@ -260,22 +538,39 @@ public class Controller
 		
 		view.setCannonAngleIndicator(progress);
 
-		if (DEBUG_INFO)
-			System.out.println("[Controller] Updating angle to: " + angle + "(" + progress + ") old " + oldProgress + " " + progress);
+		if (GameConfig.get().isDebugInfo())
+			System.out.println("[Controller] Updating angle to: " + angle + " (" + progress + ")");
+	}
+
+	/**
+	 * Chooses the leaderboard to show in the highscore table.
+	 *
+	 * @param _window
+	 *            The time window of the leaderboard.
+	 */
+	public void setLeaderboardWindow(final LeaderboardWindow _window)
+	{
+		leaderboardWindow = _window;
+		updateHighscores();
 	}
 
 	/**
-	 * Updates the highscore table in the user interface.
+	 * Updates the highscore table in the user interface with the chosen
+	 * leaderboard.
 	 */
 	public void updateHighscores()
 	{
-		highscores.readFromFile();
-		ObservableList<HighscoreListRow> scores = FXCollections.observableArrayList();
+		List<HighscoreListRow> scores = new ArrayList<HighscoreListRow>();
+		List<Highscore> top;
+
+		if (leaderboardWindow == LeaderboardWindow.ALL_TIME)
+			top = records.getHighscores().getList();
+		else
+			top = records.getLeaderboards().getTop(leaderboardWindow, System.currentTimeMillis());
 
-		int i = 1;
-		for (Highscore h : highscores.getList())
+		for (Highscore h : top)
 		{
-			scores.add(new HighscoreListRow(i++, h.getName(), h.getScore()));
+			scores.add(new HighscoreListRow(h.getName(), h.getScore()));
 		}
 
 		view.setHighscores(scores);
@@ -290,15 +585,7 @@ public class Controller
 	 */
 	public void updateScore(final double _score)
 	{
-		// Some runnable magic Jose found online.
-		Platform.runLater(new Runnable()
-		{
-			@Override
-			public void run()
-			{
-				view.setPlayerScore(String.valueOf(_score) + " p");
-			}
-		});
+		view.setPlayerScore(String.valueOf(_score) + " p");
 	}
 
 	/**
@@ -346,97 +633,233 @@ public class Controller
 	}
 
 	/**
-	 * Processes user interface button presses with the mouse.
+	 * Processes robot control button presses with the mouse. A turn button
+	 * turns the cannon until it is released.
 	 *
-	 * @param guiButtonEvent
-	 *            Button press event.
+	 * @param _button
+	 *            ID of the button that was pressed.
+	 * @see Controller#BUTTON_SHOOT_UP
+	 * @see Controller#mouseRelease(int)
 	 */
-	public void mousePress(ActionEvent guiButtonEvent)
+	public void mousePress(final int _button)
 	{
-		int id = View.BUTTONS.indexOf(((Button) guiButtonEvent.getSource()).getId());
+		pressControl(_button);
+	}
 
-		try
+	/**
+	 * Processes robot control button releases with the mouse.
+	 *
+	 * @param _button
+	 *            ID of the button that was released.
+	 * @see Controller#BUTTON_SHOOT_UP
+	 */
+	public void mouseRelease(final int _button)
+	{
+		releaseControl(_button);
+	}
+
+	/**
+	 * Processes robot control keyboard key press events.
+	 *
+	 * @param _button
+	 *            ID of the robot control the key is bound to.
+	 * @see Controller#BUTTON_SHOOT_UP
+	 */
+	public void keyPress(final int _button)
+	{
+		if (pressControl(_button))
+			view.visualPressControlButton(_button);
+	}
+
+	/**
+	 * Sends the robot the command matching the given robot control once per
+	 * press. Further presses are ignored until the control is released,
+	 * except while the robot is busy so that holding a control down makes the
+	 * robot act as soon as it is ready. Holding a turn control down for
+	 * {@link #TURN_ACCELERATION_DELAY} makes the cannon turn faster.
+	 *
+	 * @param _button
+	 *            ID of the robot control.
+	 * @return <code>true</code> if the ID was valid, <code>false</code>
+	 *         otherwise
+	 */
+	private boolean pressControl(final int _button)
+	{
+		if (_button < 0 || _button >= controlsHeld.length)
+			return controlRobot(_button);
+
+		synchronized (controlsHeld)
 		{
-			if (id > -1)
+			if (controlsHeld[_button])
+			{
+				pressesIgnored++;
+				return true;
+			}
+
+			if (robot.isReady())
 			{
-				switch (id)
+				controlsHeld[_button] = true;
+				controlsPressed++;
+
+				if ((_button == BUTTON_TURN_LEFT || _button == BUTTON_TURN_RIGHT) && turnAcceleration == null)
 				{
-					case View.BUTTON_SHOOT_UP:
-						if (DEBUG_INFO)
-							//System.out.println("[Controller] MOUSE PRESS UP");
-						robot.shootCannonHigh();
-						break;
-					case View.BUTTON_SHOOT_DOWN:
-						if (DEBUG_INFO)
-							//System.out.println("[Controller] MOUSE PRESS DOWN");
-						robot.shootCannonLow();
-						break;
-					case View.BUTTON_TURN_LEFT:
-						if (DEBUG_INFO)
-							//System.out.println("[Controller] MOUSE PRESS LEFT");
-						robot.turnLeft();
-						break;
-					case View.BUTTON_TURN_RIGHT:
-						if (DEBUG_INFO)
-							//System.out.println("[Controller] MOUSE PRESS RIGHT");
-						robot.turnRight();
-						break;
-					default:
-						System.err.println("[Controller] Unknown key!");
-						break;
+					turnAcceleration = schedule(new Runnable()
+					{
+						@Override
+						public void run()
+						{
+							accelerateTurn();
+						}
+					}, TURN_ACCELERATION_DELAY);
 				}
 			}
+
+			return controlRobot(_button);
+		}
+	}
+
+	/**
+	 * Makes the cannon turn faster if a turn control is still held down.
+	 */
+	private void accelerateTurn()
+	{
+		synchronized (controlsHeld)
+		{
+			if (turnAcceleration != null && robot.isReady()
+					&& (controlsHeld[BUTTON_TURN_LEFT] || controlsHeld[BUTTON_TURN_RIGHT]))
+			{
+				turnAccelerated = true;
+				robot.setTurnSpeed(TURN_SPEED_FAST);
+			}
+		}
+	}
+
+	/**
+	 * Releases the given robot control and stops turning the cannon if it was
+	 * a turn control.
+	 *
+	 * @param _button
+	 *            ID of the robot control.
+	 */
+	private void releaseControl(final int _button)
+	{
+		if (_button < 0 || _button >= controlsHeld.length)
+			return;
+
+		synchronized (controlsHeld)
+		{
+			if (!controlsHeld[_button])
+				return;
+
+			controlsHeld[_button] = false;
+
+			if (_button != BUTTON_TURN_LEFT && _button != BUTTON_TURN_RIGHT)
+				return;
+
+			// Keep turning the other way if that control is still held down.
+			if (controlsHeld[BUTTON_TURN_LEFT])
+				robot.turnLeft();
+			else if (controlsHeld[BUTTON_TURN_RIGHT])
+				robot.turnRight();
 			else
 			{
-				throw new Exception("Invalid button ID.");
+				robot.stopTurning();
+
+				if (turnAcceleration != null)
+				{
+					turnAcceleration.cancel(false);
+					turnAcceleration = null;
+				}
+
+				if (turnAccelerated)
+				{
+					turnAccelerated = false;
+					robot.setTurnSpeed(100);
+				}
 			}
-			Thread.sleep(100l);
-			robot.stopTurning();
 		}
-		catch (Exception e)
+	}
+
+	/**
+	 * Forgets the held robot controls without stopping the cannon, for when
+	 * the game ends and the controls are disabled before they are released.
+	 */
+	private void resetControls()
+	{
+		synchronized (controlsHeld)
 		{
-			e.printStackTrace();
+			Arrays.fill(controlsHeld, false);
+
+			if (turnAcceleration != null)
+			{
+				turnAcceleration.cancel(false);
+				turnAcceleration = null;
+			}
+
+			if (turnAccelerated)
+			{
+				turnAccelerated = false;
+				robot.setTurnSpeed(100);
+			}
 		}
 	}
 
 	/**
-	 * Processes user interface keyboard key press events.
-	 *
-	 * @param _keyboardEvent
-	 *            Key press event.
+	 * Releases all robot controls, for example when the window loses focus
+	 * and the key releases can not be seen anymore.
 	 */
-	public void keyPress(KeyEvent _keyboardEvent)
+	public void releaseControls()
 	{
-		KeyCode code = _keyboardEvent.getCode();
-		if (code.isArrowKey())
+		for (int i = 0; i < controlsHeld.length; i++)
 		{
-			switch (code)
+			boolean held;
+
+			synchronized (controlsHeld)
 			{
-				case UP:
-					if (DEBUG_INFO)
-						//System.out.println("[Controller] KEY PRESS: shoot high");
-					robot.shootCannonHigh();
-					break;
-				case DOWN:
-					if (DEBUG_INFO)
-						//System.out.println("[Controller] KEY PRESS: shoot low");
-					robot.shootCannonLow();
-					break;
-				case LEFT:
-					if (DEBUG_INFO)
-						//System.out.println("[Controller] KEY PRESS: turn left");
-					robot.turnLeft();
-					break;
-				case RIGHT:
-					if (DEBUG_INFO)
-						//System.out.println("[Controller] KEY PRESS: turn right");
-					robot.turnRight();
-					break;
-				default:
-					System.err.println("[Controller] Unknown key!");
-					break;
+				held = controlsHeld[i];
 			}
-			view.visualPressControlButton(code);
+
+			if (held)
+				keyRelease(i);
+		}
+	}
+
+	/**
+	 * Sends the robot the command matching the given robot control.
+	 *
+	 * @param _button
+	 *            ID of the robot control.
+	 * @return <code>true</code> if the ID was valid, <code>false</code>
+	 *         otherwise
+	 */
+	private boolean controlRobot(final int _button)
+	{
+		long requested = startRequested;
+
+		if (requested != 0 && robot.isReady())
+		{
+			startRequested = 0;
+			System.out.println("[Controller] First input accepted " + (System.nanoTime() - requested) / 1000000l
+					+ " ms after starting the game.");
+		}
+
+		switch (_button)
+		{
+			case BUTTON_SHOOT_UP:
+				robot.shootCannonHigh();
+				return true;
+			case BUTTON_SHOOT_DOWN:
+				robot.shootCannonLow();
+				return true;
+			case BUTTON_TURN_LEFT:
+				robot.turnLeft();
+				return true;
+			case BUTTON_TURN_RIGHT:
+				robot.turnRight();
+				return true;
+			default:
+				System.err.println("[Controller] Unknown key!");
+				return false;
 		}
 	}
 
@@ -454,146 +877,320 @@ public class Controller
 	}
 
 	/**
-	 * Processes user interface keyboard key release events.
+	 * Processes robot control keyboard key release events.
 	 *
-	 * @param _keyEvent
-	 *            Key release event.
+	 * @param _button
+	 *            ID of the robot control the key is bound to.
+	 * @see Controller#BUTTON_SHOOT_UP
 	 */
-	public void keyRelease(KeyEvent _keyEvent)
+	public void keyRelease(final int _button)
 	{
-		KeyCode code = _keyEvent.getCode();
-		if (code.isArrowKey())
-		{
-			if (DEBUG_INFO)
-			{
-				switch (code)
-				{
-					case UP:
-						//System.out.println("[Controller] KEY RELEASE: shoot up");
-						break;
-					case DOWN:
-						//System.out.println("[Controller] KEY RELEASE: shoot down");
-						break;
-					case LEFT:
-						//System.out.println("[Controller] KEY RELEASE: turn left");
-						break;
-					case RIGHT:
-						//System.out.println("[Controller] KEY RELEASE: turn right");
-						break;
-					default:
-						System.err.println("[Controller] Unknown key!");
-						break;
-				}
-			}
-			robot.stopTurning();
-			view.visualReleaseControlButton(code);
-		}
+		releaseControl(_button);
+		view.visualReleaseControlButton(_button);
 	}
 
 	/**
-	 * The method for starting a game with a new player.
+	 * The method for starting a game with a new player. Returns immediately
+	 * and the game starts in the background once the robot has sent data to
+	 * the PC, acknowledged the sensor settings and is ready to be controlled.
+	 * If the robot is not ready in {@link #START_TIMEOUT} milliseconds the
+	 * game is cancelled.
+	 *
+	 * @param _name
+	 *            Name of the player.
+	 * @return a future completed when the game is ready to be played
 	 */
-	public void startGame()
+	public synchronized CompletableFuture<Void> startGame(final String _name)
 	{
 		System.out.println("[Controller] Connection? " + connected);
 
-		if (connected)
+		if (!connected)
+		{
+			CompletableFuture<Void> failed = new CompletableFuture<Void>();
+			failed.completeExceptionally(new IllegalStateException("Not connected to the robot."));
+			return failed;
+		}
+
+		if (gameStart != null && !gameStart.isDone())
+		{
+			System.out.println("[Controller] A game is already starting.");
+			return gameStart;
+		}
+
+		if (gameEnding != null)
 		{
-			System.out.println("[Controller] START GAME");
+			System.out.println("[Controller] " + _name + " will play after the current game has ended.");
+			queuedPlayer = _name;
+
+			if (queuedStart == null)
+				queuedStart = new CompletableFuture<Void>();
+
+			view.disableGameControls(true);
+			return queuedStart;
+		}
+
+		System.out.println("[Controller] START GAME");
+		startRequested = System.nanoTime();
+
+		view.setDisconnectButtonDisabled(true);
+
+		player = new Player(this);
+
+		player.setName(_name);
+		view.setPlayerName(player.getName());
+		view.setCannonballsLeft(String.valueOf(GameConfig.get().getMaxBalls()));
+		view.setPlayerRank(0, 0);
+		updateScore(player.getScore());
+
+		final CompletableFuture<Void> streams = new CompletableFuture<Void>();
+		final CompletableFuture<Void> settings = new CompletableFuture<Void>();
 
-			view.setDisconnectButtonDisabled(true);
+		streamsReady = streams;
+		settingsAcknowledged = settings;
 
-			player = new Player(this);
+		// The data streams only need to be checked once per connection.
+		if (dataReceived)
+			streams.complete(null);
 
-			player.setName(view.getName());
-			view.setPlayerName(player.getName());
-			view.setCannonballsLeft(String.valueOf(EV3Robot.MAX_BALLS));
-			updateScore(player.getScore());
+		robot.reset(player);
 
-			robot.reset(player);
+		view.disableGameControls(true, true);
+		view.disableRobotControls(false);
 
-			view.disableGameControls(true, true);
-			view.disableRobotControls(false);
+		System.out.println("[Controller] Waiting for robot to initialize data streams...");
 
-			System.out.println("[Controller] Waiting for robot to initialize data streams...");
-			while (!dataReceived)
+		gameStart = streams.thenCompose(new Function<Void, CompletionStage<Void>>()
+		{
+			@Override
+			public CompletionStage<Void> apply(final Void _result)
 			{
-				try
-				{
-					Thread.sleep(Controller.SLEEP_TIME / 2l);
-				}
-				catch (InterruptedException e)
-				{
-					e.printStackTrace();
-				}
+				System.out.println("[Controller] Robot data streams initialized.");
+
+				gameOver = false;
+				robot.setRobotControlEnabled(true);
+				robot.sendMinRedValue();
+
+				return withTimeout(settings, SETTINGS_TIMEOUT, "the sensor settings")
+						.exceptionally(new Function<Throwable, Void>()
+						{
+							@Override
+							public Void apply(final Throwable _error)
+							{
+								System.out.println("[Controller] The robot did not acknowledge the sensor settings.");
+								return null;
+							}
+						});
 			}
-			System.out.println("[Controller] Robot data streams initialized.");
-
-			gameOver = false;
-			robot.setRobotControlEnabled(true);
+		}).thenCompose(new Function<Void, CompletionStage<Void>>()
+		{
+			@Override
+			public CompletionStage<Void> apply(final Void _result)
+			{
+				// The start may have been cancelled while waiting for the settings.
+				if (gameOver)
+					return new CompletableFuture<Void>();
 
-			// robot.sendMaxIRDistance();
-			robot.sendMinRedValue();
-			// robot.setRobotControlEnabled(true);
+				System.out.println("[Controller] Waiting for robot to be ready.");
+				return robot.whenReady();
+			}
+		});
 
-			System.out.println("[Controller] Waiting for robot to be ready.");
-			//robot.turnToAngle(0);
-			while (!robot.isReady())
+		withTimeout(gameStart, START_TIMEOUT, "the robot").whenComplete(new BiConsumer<Void, Throwable>()
+		{
+			@Override
+			public void accept(final Void _result, final Throwable _error)
 			{
-				try
+				streamsReady = null;
+				settingsAcknowledged = null;
+
+				if (_error == null)
 				{
-					Thread.sleep(Controller.SLEEP_TIME / 2l);
+					robot.printState();
+					robot.clearPCBuffer();
+					robot.clearWriteBuffer();
+					System.out.println("[Controller] Ready to play!");
 				}
-				catch (InterruptedException e)
+				else
 				{
-					e.printStackTrace();
+					System.err.println("[Controller] Unable to start the game: " + _error);
+					gameOver = true;
+					startRequested = 0;
+					streams.cancel(false);
+					settings.cancel(false);
+					robot.setRobotControlEnabled(false);
+					robot.deleteDataTransferThreads();
+
+					if (!(_error instanceof CancellationException))
+						view.errorMessage("The robot did not get ready in time.");
+
+					view.setDisconnectButtonDisabled(false);
+					view.disableGameControls(false, true);
+					view.disableRobotControls(true);
 				}
 			}
-			robot.printState();
-			robot.clearPCBuffer();
-			robot.clearWriteBuffer();
-			System.out.println("[Controller] Ready to play!");
-		}
+		});
+
+		return gameStart;
 	}
 
 	/**
-	 * Called when the game is over for the current player.
+	 * Called when the game is over for the current player. Returns
+	 * immediately: the cannon is turned back and the results are recorded
+	 * after {@link #END_GAME_DELAY} milliseconds in the background. The next
+	 * player can start a game in the meantime and it begins once the results
+	 * have been recorded. Ending a game that is still starting cancels it.
 	 */
-	public void endGame()
+	public synchronized void endGame()
 	{
+		if (gameStart != null && !gameStart.isDone())
+		{
+			System.out.println("[Controller] Cancelling the game start.");
+			gameStart.cancel(false);
+			return;
+		}
+
+		if (gameOver || gameEnding != null)
+		{
+			System.out.println("[Controller] No game to end.");
+			return;
+		}
+
 		System.out.println("[Controller] END GAME");
 		gameOver = true;
+		robot.setGameOver();
+		resetControls();
 		robot.forceTurnToAngle(0);
-		view.disableGameControls(true);
+		view.disableRobotControls(true);
 
-		try
-		{
-			Thread.sleep(5000l);
-		}
-		catch (InterruptedException e)
+		// The next player can enter their name during the delay.
+		view.disableGameControls(false);
+
+		final Player endedPlayer = player;
+		final int shots = robot.getShotsFired();
+
+		finishGame = new Runnable()
 		{
-			e.printStackTrace();
-		}
-		view.setDisconnectButtonDisabled(false);
+			@Override
+			public void run()
+			{
+				if (claimFinishGame(this))
+					finishGame(endedPlayer, shots);
+			}
+		};
 
-		if (robot != null)
-			robot.deleteDataTransferThreads();
+		gameEnding = schedule(finishGame, END_GAME_DELAY);
+	}
+
+	/**
+	 * Makes sure the results of a game are only recorded once when the game is
+	 * finished early at shutdown.
+	 *
+	 * @param _task
+	 *            The task that wants to finish the game.
+	 * @return <code>true</code> if the task may finish the game
+	 */
+	private synchronized boolean claimFinishGame(final Runnable _task)
+	{
+		if (finishGame != _task)
+			return false;
+
+		finishGame = null;
+		return true;
+	}
+
+	/**
+	 * Records the results of a game that has ended, resets the user interface
+	 * and starts the game of the next player if one is waiting.
+	 *
+	 * @param _player
+	 *            The player whose game ended.
+	 * @param _shots
+	 *            Number of cannonballs the player fired.
+	 */
+	private void finishGame(final Player _player, final int _shots)
+	{
+		// The robot may have been disconnected while the game was ending, in
+		// which case its controls stay disabled.
+		if (connected)
+			view.setDisconnectButtonDisabled(false);
 
 		if (demo != null)
 			demo.stopRun();
 
+		if (robot != null)
+			robot.deleteDataTransferThreads();
+
+		long now = System.currentTimeMillis();
+		records.getLeaderboards().add(_player.getName(), _player.getScore(), now);
+
+		try
+		{
+			records.getArchive().record(_player.getName(), _player.getScore(), now, _shots);
+
+			ScoreRankIndex ranks = records.getArchive().getRankIndex();
+			view.setPlayerRank(ranks.rankOf(_player.getScore()), ranks.size());
+		}
+		catch (IOException e)
+		{
+			System.err.println("[Controller] Unable to archive the game: " + e);
+		}
+
 		System.out.println("[Controller] Checking for highscore.");
-		if (highscores.addScore(player))
-			System.out.println("[Controller] " + player.getName() + " got a new highscore: " + player.getScore());
+		if (records.getHighscores().addScore(_player, new HighscoreWriter.DurabilityListener()
+		{
+			@Override
+			public void highscoreStored(final Highscore _highscore, final boolean _stored)
+			{
+				if (!_stored)
+					view.errorMessage("Unable to save the highscore of " + _highscore.getName() + ".");
+			}
+		}))
+			System.out.println("[Controller] " + _player.getName() + " got a new highscore: " + _player.getScore());
 		else
 			System.out.println("[Controller] No new highscore.");
 
-		updateHighscores();
+		// Updates the highscore tables of the other robots sharing the records too.
+		records.fireHighscoresChanged();
 
 		view.setPlayerName("");
 		view.setPlayerScore("");
-		view.disableGameControls(false, true);
+
+		if (connected)
+			view.disableGameControls(false, true);
+
 		view.disableRobotControls(true);
+		view.gameEnded(_player.getName(), _player.getScore());
+
+		String next;
+		final CompletableFuture<Void> nextStart;
+
+		synchronized (this)
+		{
+			gameEnding = null;
+			next = queuedPlayer;
+			nextStart = queuedStart;
+			queuedPlayer = null;
+			queuedStart = null;
+		}
+
+		if (next != null && connected)
+		{
+			startGame(next).whenComplete(new BiConsumer<Void, Throwable>()
+			{
+				@Override
+				public void accept(final Void _result, final Throwable _error)
+				{
+					if (_error == null)
+						nextStart.complete(null);
+					else
+						nextStart.completeExceptionally(_error);
+				}
+			});
+		}
+		else if (nextStart != null)
+		{
+			nextStart.cancel(false);
+		}
 	}
 
 	/**
@@ -615,7 +1212,58 @@ public class Controller
 	{
 		demo = new DemoMode(this, robot);
 		demo.startDemo();
-		demo.start();
+		robot.getSession().start("DemoMode", demo);
+	}
+
+	/**
+	 * Replays a recorded session as a game of the given player without a
+	 * robot. The result of the replayed game is not recorded.
+	 *
+	 * @param _replay
+	 *            The recorded session.
+	 * @param _name
+	 *            Name of the player.
+	 * @return the player with the final score
+	 * @throws InterruptedException
+	 *             when the replay was interrupted while waiting
+	 */
+	public Player replay(final SessionReplay _replay, final String _name) throws InterruptedException
+	{
+		synchronized (this)
+		{
+			robot = new EV3Robot("REPLAY", 0, this);
+			player = new Player(_name, this);
+			gameOver = false;
+		}
+
+		try
+		{
+			_replay.replay(robot, player);
+			return player;
+		}
+		finally
+		{
+			synchronized (this)
+			{
+				// The game ended by the replay is not recorded.
+				if (gameEnding != null)
+					gameEnding.cancel(false);
+
+				gameEnding = null;
+				finishGame = null;
+				gameOver = true;
+			}
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the messages sent between the PC and the
+	 *         robot are recorded into a capture file for every game
+	 * @see #RECORD_PROPERTY
+	 */
+	public static boolean isRecordingSessions()
+	{
+		return Boolean.getBoolean(RECORD_PROPERTY);
 	}
 
 	/**
@@ -626,10 +1274,59 @@ public class Controller
 	public void dataReceived()
 	{
 		dataReceived = true;
+
+		CompletableFuture<Void> future = streamsReady;
+
+		if (future != null)
+			future.complete(null);
+	}
+
+	/**
+	 * Called when the robot has acknowledged the sensor settings sent to it.
+	 */
+	public void settingsAcknowledged()
+	{
+		CompletableFuture<Void> future = settingsAcknowledged;
+
+		if (future != null)
+			future.complete(null);
 	}
 
 	public boolean isGameOver()
 	{
 		return gameOver;
 	}
+
+	/**
+	 * @return the source of time for all waiting in the game
+	 */
+	public GameClock getClock()
+	{
+		return clock;
+	}
+
+	/**
+	 * @return the archive of every game played
+	 */
+	public GameArchive getArchive()
+	{
+		return records.getArchive();
+	}
+
+	/**
+	 * @return the list of highscores
+	 */
+	public HighscoreList getHighscores()
+	{
+		return records.getHighscores();
+	}
+
+	/**
+	 * @return the highscores, game archive and leaderboards of this
+	 *         controller
+	 */
+	public GameRecords getRecords()
+	{
+		return records;
+	}
 }
@@ -8,7 +8,7 @@ import game.model.EV3Robot;
  *
  * @author Jose Uusitalo &amp; Ilkka Varjokunnas
  */
-public class DemoMode extends Thread
+public class DemoMode implements Runnable
 {
 	/**
 	 * The angle the cannon should turn to in order to hit the target.
@@ -47,7 +47,7 @@ public class DemoMode extends Thread
 	public void startDemo()
 	{
 		controller.setPlayerNameTextField("DEMO");
-		controller.startGame();
+		controller.startGame("DEMO");
 		startRun();
 	}
 
@@ -66,7 +66,7 @@ public class DemoMode extends Thread
 				System.out.println("TURNING");
 				robot.turnToAngle(targetAngle);
 
-				if (robot.isRobotControlEnabled())
+				if (robot.isReady())
 				{
 					if (robot.getCurrentAngle() >= targetMinAngle && robot.getCurrentAngle() <= targetMaxAngle)
 					{
@@ -82,11 +82,12 @@ public class DemoMode extends Thread
 
 				try
 				{
-					Thread.sleep(100l);
+					controller.getClock().sleep(100l);
 				}
 				catch (InterruptedException e)
 				{
-					e.printStackTrace();
+					// The game session was closed.
+					return;
 				}
 			}
 		}
@@ -0,0 +1,182 @@
+package game.controller;
+
+import java.util.List;
+
+import game.model.HighscoreListRow;
+
+/**
+ * Receives the state changes of the game from the {@link Controller}. The
+ * graphical user interface is one implementation, {@link HeadlessListener} is
+ * another for running the game without a display.
+ *
+ * @author Jose Uusitalo
+ */
+public interface GameListener
+{
+	/**
+	 * Show an error message to the user.
+	 *
+	 * @param _message
+	 *            The message.
+	 */
+	public void errorMessage(final String _message);
+
+	/**
+	 * Disables the remote connection controls and toggles the state of the
+	 * disconnect control.
+	 *
+	 * @param _disabled
+	 *            <code>true</code> to disable the connection controls but
+	 *            enable disconnecting, <code>false</code> the other way around.
+	 */
+	public void disableConnectionControls(final boolean _disabled);
+
+	/**
+	 * Disables the game round controls.
+	 *
+	 * @param _disabled
+	 *            <code>true</code> to disable the controls, <code>false</code>
+	 *            to enable them.
+	 */
+	public void disableGameControls(final boolean _disabled);
+
+	/**
+	 * Disables the game round controls and optionally toggles the state of the
+	 * end game control.
+	 *
+	 * @param _disabled
+	 *            <code>true</code> to disable the controls, <code>false</code>
+	 *            to enable them.
+	 * @param _toggleEndGame
+	 *            <code>true</code> to set the end game control to the opposite
+	 *            state of the rest of the controls.
+	 */
+	public void disableGameControls(final boolean _disabled, final boolean _toggleEndGame);
+
+	/**
+	 * Disables the robot controls.
+	 *
+	 * @param _disabled
+	 *            <code>true</code> to disable the controls, <code>false</code>
+	 *            to enable them.
+	 */
+	public void disableRobotControls(final boolean _disabled);
+
+	/**
+	 * Enable/disable the disconnect control.
+	 *
+	 * @param _value
+	 *            <code>true</code> to disable, <code>false</code> to enable.
+	 */
+	public void setDisconnectButtonDisabled(final boolean _value);
+
+	/**
+	 * Show the default remote connection details.
+	 *
+	 * @param _connectionDefaults
+	 *            The IP-address and the port.
+	 * @see Controller#getConnectionDefaults()
+	 */
+	public void setConnectionDefaults(final String[] _connectionDefaults);
+
+	/**
+	 * Show the cannon angle.
+	 *
+	 * @param _value
+	 *            The angle as a percentage in the range [0.0, 1.0].
+	 * @see Controller#toPercentage(double, double, double)
+	 */
+	public void setCannonAngleIndicator(final double _value);
+
+	/**
+	 * Notify the user that the cannon cannot turn any farther.
+	 */
+	public void flashRobotAngleBar();
+
+	/**
+	 * Show the time left for the current shot.
+	 *
+	 * @param _percentOfTotal
+	 *            A double in the range [0.0, 1.0].
+	 */
+	public void setTimeLeft(final double _percentOfTotal);
+
+	/**
+	 * Show the highscores.
+	 *
+	 * @param _scores
+	 *            The highscores in the order they are ranked.
+	 */
+	public void setHighscores(final List<HighscoreListRow> _scores);
+
+	/**
+	 * Show the player score.
+	 *
+	 * @param _score
+	 *            The score as text.
+	 */
+	public void setPlayerScore(final String _score);
+
+	/**
+	 * Show the player name.
+	 *
+	 * @param _name
+	 *            The player name.
+	 */
+	public void setPlayerName(final String _name);
+
+	/**
+	 * Show the number of cannonballs left.
+	 *
+	 * @param _cannonballsLeft
+	 *            The number of cannonballs as text.
+	 */
+	public void setCannonballsLeft(final String _cannonballsLeft);
+
+	/**
+	 * Fill in the player name for the next game.
+	 *
+	 * @param _name
+	 *            The player name.
+	 */
+	public void setPlayerNameTextField(final String _name);
+
+	/**
+	 * Show a robot control as pressed.
+	 *
+	 * @param _button
+	 *            ID of the control.
+	 * @see Controller#BUTTON_SHOOT_UP
+	 */
+	public void visualPressControlButton(final int _button);
+
+	/**
+	 * Show a robot control as released.
+	 *
+	 * @param _button
+	 *            ID of the control.
+	 * @see Controller#BUTTON_SHOOT_UP
+	 */
+	public void visualReleaseControlButton(final int _button);
+
+	/**
+	 * Shows the place of the player's score among all scores ever achieved.
+	 *
+	 * @param _rank
+	 *            Place of the score, 1 being the best. <code>0</code> clears
+	 *            the rank.
+	 * @param _total
+	 *            Number of scores.
+	 */
+	public void setPlayerRank(final int _rank, final int _total);
+
+	/**
+	 * Called when the game has ended and the highscores have been updated.
+	 *
+	 * @param _name
+	 *            Name of the player.
+	 * @param _score
+	 *            The final score of the player.
+	 */
+	public void gameEnded(final String _name, final double _score);
+}
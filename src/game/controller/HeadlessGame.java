@@ -0,0 +1,261 @@
+package game.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import game.model.GameClock;
+import game.model.GameConfig;
+import game.model.GameRecords;
+import game.model.GameSession;
+import game.model.SystemClock;
+import game.model.VirtualClock;
+
+/**
+ * Plays games without the user interface. Every shot is fired as soon as the
+ * robot is ready. Used for load testing the game logic and for running the
+ * game on a machine without a display.
+ * <p>
+ * Usage:
+ * <code>HeadlessGame [number of games] [speedup] [robot IP] [robot port] ...</code>
+ * <br>
+ * With a speedup greater than 1 the game runs on a {@link VirtualClock} that
+ * many times faster than real time. Without the IP and port the game connects
+ * in debug mode.
+ * </p>
+ * <p>
+ * Every further IP and port adds a station which plays the same number of
+ * games at the same time. In debug mode the number of simulated stations is
+ * set with the system property {@value #STATIONS_PROPERTY}.
+ * </p>
+ *
+ * @author Jose Uusitalo
+ */
+public class HeadlessGame
+{
+	/**
+	 * Maximum time a single game may take in milliseconds.
+	 */
+	private static final long GAME_TIMEOUT = 120000l;
+
+	/**
+	 * Name of the system property which sets the number of stations in debug
+	 * mode.
+	 */
+	public static final String STATIONS_PROPERTY = "cannongame.stations";
+
+	/**
+	 * The controller running the games.
+	 */
+	private final Controller controller;
+
+	/**
+	 * Receives the game state.
+	 */
+	private final HeadlessListener listener;
+
+	/**
+	 * @param _clock
+	 *            The source of time for the games.
+	 */
+	public HeadlessGame(final GameClock _clock)
+	{
+		listener = new HeadlessListener(true);
+		controller = new Controller(listener, _clock);
+	}
+
+	/**
+	 * @param _stations
+	 *            Runs the game as one of its stations.
+	 */
+	public HeadlessGame(final StationManager _stations)
+	{
+		listener = new HeadlessListener(true);
+		controller = _stations.addStation(listener).getController();
+	}
+
+	/**
+	 * @return the controller running the games
+	 */
+	public Controller getController()
+	{
+		return controller;
+	}
+
+	/**
+	 * @return the listener receiving the game state
+	 */
+	public HeadlessListener getListener()
+	{
+		return listener;
+	}
+
+	/**
+	 * Plays a single game by firing high shots until the game is over.
+	 *
+	 * @param _name
+	 *            Name of the player.
+	 * @return <code>true</code> if the game ended in time, <code>false</code>
+	 *         otherwise
+	 * @throws InterruptedException
+	 *             when interrupted while playing
+	 */
+	public boolean play(final String _name) throws InterruptedException
+	{
+		int gamesEnded = listener.getGamesEnded();
+
+		try
+		{
+			controller.startGame(_name).get(GAME_TIMEOUT, TimeUnit.MILLISECONDS);
+		}
+		catch (ExecutionException e)
+		{
+			System.err.println("[HeadlessGame] Unable to start the game: " + e.getCause());
+			return false;
+		}
+		catch (TimeoutException e)
+		{
+			System.err.println("[HeadlessGame] The game did not start in time.");
+			return false;
+		}
+
+		while (!controller.isGameOver())
+		{
+			controller.keyPress(Controller.BUTTON_SHOOT_UP);
+			controller.keyRelease(Controller.BUTTON_SHOOT_UP);
+			controller.getClock().sleep(GameConfig.get().getSleepTime());
+		}
+
+		return listener.awaitGamesEnded(gamesEnded + 1, GAME_TIMEOUT);
+	}
+
+	/**
+	 * Plays the given number of games or until a game does not end in time.
+	 *
+	 * @param _games
+	 *            Number of games.
+	 * @param _prefix
+	 *            Prefix of the player names which tells the stations apart.
+	 * @throws InterruptedException
+	 *             when interrupted while playing
+	 */
+	private void playAll(final int _games, final String _prefix) throws InterruptedException
+	{
+		for (int i = 1; i <= _games; i++)
+		{
+			if (!play(_prefix + "Player " + i))
+			{
+				System.err.println("[HeadlessGame] Game " + i + " of " + Thread.currentThread().getName()
+						+ " did not end in time.");
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Runs the given number of games on every station.
+	 *
+	 * @param args
+	 *            Number of games, speedup, robot IP and robot port of every
+	 *            station.
+	 */
+	public static void main(String[] args)
+	{
+		final int games = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+		double speedup = args.length > 1 ? Double.parseDouble(args[1]) : 1.0;
+		StationManager stations = new StationManager(speedup > 1.0 ? new VirtualClock(speedup) : new SystemClock());
+		List<HeadlessGame> played = new ArrayList<HeadlessGame>();
+
+		if (args.length > 3)
+		{
+			for (int i = 2; i + 1 < args.length; i += 2)
+			{
+				HeadlessGame game = new HeadlessGame(stations);
+				game.controller.connect(args[i], Integer.parseInt(args[i + 1]));
+				played.add(game);
+			}
+		}
+		else
+		{
+			int count = Integer.getInteger(STATIONS_PROPERTY, 1);
+
+			for (int i = 0; i < count; i++)
+			{
+				HeadlessGame game = new HeadlessGame(stations);
+				game.controller.debugConnect("DEBUG", 0);
+				played.add(game);
+			}
+		}
+
+		for (HeadlessGame game : played)
+		{
+			if (!game.controller.isConnected())
+			{
+				stations.shutdown();
+				return;
+			}
+		}
+
+		long start = System.currentTimeMillis();
+		List<Thread> threads = new ArrayList<Thread>();
+
+		for (int i = 0; i < played.size(); i++)
+		{
+			final HeadlessGame game = played.get(i);
+			final String prefix = played.size() == 1 ? "" : "S" + (i + 1) + " ";
+
+			Thread thread = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						game.playAll(games, prefix);
+					}
+					catch (InterruptedException e)
+					{
+						e.printStackTrace();
+					}
+				}
+			}, "HeadlessGame-" + (i + 1));
+
+			thread.start();
+			threads.add(thread);
+		}
+
+		try
+		{
+			for (Thread thread : threads)
+				thread.join();
+		}
+		catch (InterruptedException e)
+		{
+			e.printStackTrace();
+		}
+
+		// Every game closes its session before it is reported as ended.
+		int leaked = GameSession.getRunningInAllCount();
+
+		if (leaked > 0)
+			System.err.println("[HeadlessGame] " + leaked + " game loops are still running after the games.");
+
+		int gamesEnded = 0;
+
+		for (HeadlessGame game : played)
+			gamesEnded += game.listener.getGamesEnded();
+
+		System.out.println("[HeadlessGame] Played " + gamesEnded + " games on " + played.size() + " stations in "
+				+ (System.currentTimeMillis() - start) + " ms.");
+
+		GameRecords records = stations.getRecords();
+		System.out.println("[HeadlessGame] Games in the archive: " + records.getArchive().size());
+		System.out.println("[HeadlessGame] Highscores waiting to be saved: " + records.getHighscores().getPendingWrites()
+				+ ", last save took " + records.getHighscores().getLastPersistLatency() + " ms.");
+
+		stations.shutdown();
+		System.exit(0);
+	}
+}
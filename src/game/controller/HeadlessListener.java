@@ -0,0 +1,271 @@
+package game.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import game.model.HighscoreListRow;
+
+/**
+ * A {@link GameListener} for running the game without a display. Keeps track
+ * of the latest state so that scripts can inspect it.
+ *
+ * @author Jose Uusitalo
+ */
+public class HeadlessListener implements GameListener
+{
+	/**
+	 * The latest player score text.
+	 */
+	private volatile String playerScore;
+
+	/**
+	 * The latest player name.
+	 */
+	private volatile String playerName;
+
+	/**
+	 * The latest number of cannonballs left as text.
+	 */
+	private volatile String cannonballsLeft;
+
+	/**
+	 * The latest cannon angle as a percentage.
+	 */
+	private volatile double cannonAngle;
+
+	/**
+	 * The latest rank of the player, <code>0</code> if none.
+	 */
+	private volatile int playerRank;
+
+	/**
+	 * The latest highscores.
+	 */
+	private volatile List<HighscoreListRow> highscores;
+
+	/**
+	 * Number of games that have ended.
+	 */
+	private int gamesEnded;
+
+	/**
+	 * Whether or not to print the error messages.
+	 */
+	private final boolean printErrors;
+
+	/**
+	 * @param _printErrors
+	 *            <code>true</code> to print the error messages to the standard
+	 *            error stream.
+	 */
+	public HeadlessListener(final boolean _printErrors)
+	{
+		printErrors = _printErrors;
+		playerScore = "";
+		playerName = "";
+		cannonballsLeft = "";
+		cannonAngle = 0.5;
+		highscores = new ArrayList<HighscoreListRow>();
+	}
+
+	@Override
+	public void errorMessage(final String _message)
+	{
+		if (printErrors)
+			System.err.println("[HeadlessListener] " + _message);
+	}
+
+	@Override
+	public void disableConnectionControls(final boolean _disabled)
+	{
+		// No controls.
+	}
+
+	@Override
+	public void disableGameControls(final boolean _disabled)
+	{
+		// No controls.
+	}
+
+	@Override
+	public void disableGameControls(final boolean _disabled, final boolean _toggleEndGame)
+	{
+		// No controls.
+	}
+
+	@Override
+	public void disableRobotControls(final boolean _disabled)
+	{
+		// No controls.
+	}
+
+	@Override
+	public void setDisconnectButtonDisabled(final boolean _value)
+	{
+		// No controls.
+	}
+
+	@Override
+	public void setConnectionDefaults(final String[] _connectionDefaults)
+	{
+		// No controls.
+	}
+
+	@Override
+	public void setCannonAngleIndicator(final double _value)
+	{
+		cannonAngle = _value;
+	}
+
+	@Override
+	public void flashRobotAngleBar()
+	{
+		// Nothing to flash.
+	}
+
+	@Override
+	public void setTimeLeft(final double _percentOfTotal)
+	{
+		// Not tracked.
+	}
+
+	@Override
+	public void setHighscores(final List<HighscoreListRow> _scores)
+	{
+		highscores = _scores;
+	}
+
+	@Override
+	public void setPlayerScore(final String _score)
+	{
+		playerScore = _score;
+	}
+
+	@Override
+	public void setPlayerName(final String _name)
+	{
+		playerName = _name;
+	}
+
+	@Override
+	public void setCannonballsLeft(final String _cannonballsLeft)
+	{
+		cannonballsLeft = _cannonballsLeft;
+	}
+
+	@Override
+	public void setPlayerNameTextField(final String _name)
+	{
+		// No controls.
+	}
+
+	@Override
+	public void visualPressControlButton(final int _button)
+	{
+		// No controls.
+	}
+
+	@Override
+	public void visualReleaseControlButton(final int _button)
+	{
+		// No controls.
+	}
+
+	@Override
+	public void setPlayerRank(final int _rank, final int _total)
+	{
+		playerRank = _rank;
+	}
+
+	@Override
+	public synchronized void gameEnded(final String _name, final double _score)
+	{
+		gamesEnded++;
+		notifyAll();
+	}
+
+	/**
+	 * Waits until the given number of games have ended.
+	 *
+	 * @param _games
+	 *            Total number of games that should have ended.
+	 * @param _timeout
+	 *            Maximum time to wait in milliseconds.
+	 * @return <code>true</code> if the games ended in time, <code>false</code>
+	 *         otherwise
+	 * @throws InterruptedException
+	 *             when interrupted while waiting
+	 */
+	public synchronized boolean awaitGamesEnded(final int _games, final long _timeout) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + _timeout;
+
+		while (gamesEnded < _games)
+		{
+			long wait = deadline - System.currentTimeMillis();
+
+			if (wait <= 0)
+				return false;
+
+			wait(wait);
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return the number of games that have ended
+	 */
+	public synchronized int getGamesEnded()
+	{
+		return gamesEnded;
+	}
+
+	/**
+	 * @return the latest player score text
+	 */
+	public String getPlayerScore()
+	{
+		return playerScore;
+	}
+
+	/**
+	 * @return the latest player name
+	 */
+	public String getPlayerName()
+	{
+		return playerName;
+	}
+
+	/**
+	 * @return the latest number of cannonballs left as text
+	 */
+	public String getCannonballsLeft()
+	{
+		return cannonballsLeft;
+	}
+
+	/**
+	 * @return the latest cannon angle as a percentage
+	 */
+	public double getCannonAngle()
+	{
+		return cannonAngle;
+	}
+
+	/**
+	 * @return the latest rank of the player, <code>0</code> if none
+	 */
+	public int getPlayerRank()
+	{
+		return playerRank;
+	}
+
+	/**
+	 * @return the latest highscores
+	 */
+	public List<HighscoreListRow> getHighscores()
+	{
+		return highscores;
+	}
+}
@@ -0,0 +1,274 @@
+package game.controller;
+
+import java.util.List;
+
+import game.model.GameClock;
+import game.model.GameRecords;
+import game.model.HighscoreListRow;
+
+/**
+ * One robot run by a {@link StationManager}. The station has a controller and
+ * a game of its own and passes the state changes of the game on to its view,
+ * keeping the latest state so that all stations can be shown together.
+ *
+ * @author Jose Uusitalo
+ */
+public class Station implements GameListener
+{
+	/**
+	 * Number of the station, starting from <code>1</code>.
+	 */
+	private final int number;
+
+	/**
+	 * Receives the state changes of the game of this station.
+	 */
+	private final GameListener view;
+
+	/**
+	 * Notified when the state of this station changes.
+	 */
+	private final StationManager manager;
+
+	/**
+	 * The controller of the robot of this station.
+	 */
+	private final Controller controller;
+
+	/**
+	 * The latest player name, empty if no game is being played.
+	 */
+	private volatile String playerName;
+
+	/**
+	 * The latest player score text.
+	 */
+	private volatile String playerScore;
+
+	/**
+	 * The latest number of cannonballs left as text.
+	 */
+	private volatile String cannonballsLeft;
+
+	/**
+	 * Number of games that have ended on this station.
+	 */
+	private volatile int gamesEnded;
+
+	/**
+	 * @param _number
+	 *            Number of the station.
+	 * @param _view
+	 *            Receives the state changes of the game of this station.
+	 * @param _manager
+	 *            The manager running the station.
+	 * @param _clock
+	 *            The source of time for the game.
+	 * @param _records
+	 *            The records shared by all stations.
+	 */
+	Station(final int _number, final GameListener _view, final StationManager _manager, final GameClock _clock,
+			final GameRecords _records)
+	{
+		number = _number;
+		view = _view;
+		manager = _manager;
+		playerName = "";
+		playerScore = "";
+		cannonballsLeft = "";
+		controller = new Controller(this, _clock, _records);
+	}
+
+	@Override
+	public void errorMessage(final String _message)
+	{
+		view.errorMessage("Station " + number + ": " + _message);
+	}
+
+	@Override
+	public void disableConnectionControls(final boolean _disabled)
+	{
+		view.disableConnectionControls(_disabled);
+		manager.stationChanged(this);
+	}
+
+	@Override
+	public void disableGameControls(final boolean _disabled)
+	{
+		view.disableGameControls(_disabled);
+	}
+
+	@Override
+	public void disableGameControls(final boolean _disabled, final boolean _toggleEndGame)
+	{
+		view.disableGameControls(_disabled, _toggleEndGame);
+	}
+
+	@Override
+	public void disableRobotControls(final boolean _disabled)
+	{
+		view.disableRobotControls(_disabled);
+	}
+
+	@Override
+	public void setDisconnectButtonDisabled(final boolean _value)
+	{
+		view.setDisconnectButtonDisabled(_value);
+	}
+
+	@Override
+	public void setConnectionDefaults(final String[] _connectionDefaults)
+	{
+		view.setConnectionDefaults(_connectionDefaults);
+	}
+
+	@Override
+	public void setCannonAngleIndicator(final double _value)
+	{
+		view.setCannonAngleIndicator(_value);
+	}
+
+	@Override
+	public void flashRobotAngleBar()
+	{
+		view.flashRobotAngleBar();
+	}
+
+	@Override
+	public void setTimeLeft(final double _percentOfTotal)
+	{
+		view.setTimeLeft(_percentOfTotal);
+	}
+
+	@Override
+	public void setHighscores(final List<HighscoreListRow> _scores)
+	{
+		view.setHighscores(_scores);
+	}
+
+	@Override
+	public void setPlayerScore(final String _score)
+	{
+		playerScore = _score;
+		view.setPlayerScore(_score);
+		manager.stationChanged(this);
+	}
+
+	@Override
+	public void setPlayerName(final String _name)
+	{
+		playerName = _name;
+		view.setPlayerName(_name);
+		manager.stationChanged(this);
+	}
+
+	@Override
+	public void setCannonballsLeft(final String _cannonballsLeft)
+	{
+		cannonballsLeft = _cannonballsLeft;
+		view.setCannonballsLeft(_cannonballsLeft);
+		manager.stationChanged(this);
+	}
+
+	@Override
+	public void setPlayerNameTextField(final String _name)
+	{
+		view.setPlayerNameTextField(_name);
+	}
+
+	@Override
+	public void visualPressControlButton(final int _button)
+	{
+		view.visualPressControlButton(_button);
+	}
+
+	@Override
+	public void visualReleaseControlButton(final int _button)
+	{
+		view.visualReleaseControlButton(_button);
+	}
+
+	@Override
+	public void setPlayerRank(final int _rank, final int _total)
+	{
+		view.setPlayerRank(_rank, _total);
+	}
+
+	@Override
+	public void gameEnded(final String _name, final double _score)
+	{
+		gamesEnded++;
+		view.gameEnded(_name, _score);
+		manager.stationChanged(this);
+	}
+
+	/**
+	 * @return number of the station, starting from <code>1</code>
+	 */
+	public int getNumber()
+	{
+		return number;
+	}
+
+	/**
+	 * @return the controller of the robot of this station
+	 */
+	public Controller getController()
+	{
+		return controller;
+	}
+
+	/**
+	 * @return the view receiving the state changes of this station
+	 */
+	public GameListener getView()
+	{
+		return view;
+	}
+
+	/**
+	 * @return the latest player name, empty if no game is being played
+	 */
+	public String getPlayerName()
+	{
+		return playerName;
+	}
+
+	/**
+	 * @return the latest player score text
+	 */
+	public String getPlayerScore()
+	{
+		return playerScore;
+	}
+
+	/**
+	 * @return the latest number of cannonballs left as text
+	 */
+	public String getCannonballsLeft()
+	{
+		return cannonballsLeft;
+	}
+
+	/**
+	 * @return the number of games that have ended on this station
+	 */
+	public int getGamesEnded()
+	{
+		return gamesEnded;
+	}
+
+	/**
+	 * @return a short description of the state of the station
+	 */
+	public String getState()
+	{
+		if (!controller.isConnected())
+			return "Not connected";
+
+		if (!controller.isGameOver())
+			return "Playing";
+
+		return "Ready";
+	}
+}
@@ -0,0 +1,247 @@
+package game.controller;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import game.model.FileWatcher;
+import game.model.GameClock;
+import game.model.GameConfig;
+import game.model.GameRecords;
+import game.model.SystemClock;
+
+/**
+ * <p>
+ * Runs several robots from one PC. Every {@link Station} has a controller and
+ * a game of its own, while the highscores, the game archive and the
+ * leaderboards are shared by all of them. The loops reading and writing the
+ * robot data already run on the shared executor of
+ * {@link game.model.GameThreads}.
+ * </p>
+ * <p>
+ * Each controller keeps its own scheduler thread, as the timeouts and the end
+ * of the game of one robot must run in order. The configuration file is
+ * watched once for all stations.
+ * </p>
+ *
+ * @author Jose Uusitalo
+ */
+public class StationManager
+{
+	/**
+	 * Receives the changes in the state of the stations.
+	 */
+	public interface StationListener
+	{
+		/**
+		 * A station was added or removed, or the state of its game changed.
+		 * Called in the thread that changed the state.
+		 *
+		 * @param _station
+		 *            The station.
+		 */
+		void stationChanged(Station _station);
+	}
+
+	/**
+	 * The source of time for the games of every station.
+	 */
+	private final GameClock clock;
+
+	/**
+	 * The highscores, game archive and leaderboards shared by the stations.
+	 */
+	private final GameRecords records;
+
+	/**
+	 * Reloads the configuration when its file changes, <code>null</code> if
+	 * the file can not be watched.
+	 */
+	private FileWatcher configWatcher;
+
+	/**
+	 * The stations in the order they were added.
+	 */
+	private final List<Station> stations;
+
+	/**
+	 * Notified when the state of a station changes.
+	 */
+	private final List<StationListener> listeners;
+
+	/**
+	 * Number of the station added last.
+	 */
+	private int lastNumber;
+
+	public StationManager()
+	{
+		this(new SystemClock());
+	}
+
+	/**
+	 * @param _clock
+	 *            The source of time for the games of every station.
+	 */
+	public StationManager(final GameClock _clock)
+	{
+		clock = _clock;
+		records = new GameRecords();
+		stations = new CopyOnWriteArrayList<Station>();
+		listeners = new CopyOnWriteArrayList<StationListener>();
+
+		try
+		{
+			configWatcher = new FileWatcher(new FileWatcher.ChangeListener()
+			{
+				@Override
+				public void fileChanged()
+				{
+					reloadConfig();
+				}
+			}, GameConfig.getFile());
+			configWatcher.start();
+		}
+		catch (IOException e)
+		{
+			System.err.println("[StationManager] Unable to watch the configuration file: " + e);
+		}
+	}
+
+	/**
+	 * Starts using the configuration file if it has been modified. An invalid
+	 * file is reported on the first station and the current configuration is
+	 * kept.
+	 */
+	private void reloadConfig()
+	{
+		try
+		{
+			if (GameConfig.reloadIfModified())
+				System.out.println("[StationManager] Configuration reloaded.");
+		}
+		catch (IOException | IllegalArgumentException e)
+		{
+			System.err.println("[StationManager] Unable to reload the configuration: " + e);
+
+			List<Station> all = getStations();
+
+			if (!all.isEmpty())
+				all.get(0).getView().errorMessage(
+						"The configuration file is not valid, keeping the current settings.\n\n" + e.getMessage());
+		}
+	}
+
+	/**
+	 * Adds a station which is not connected to a robot yet.
+	 *
+	 * @param _view
+	 *            Receives the state changes of the game of the station.
+	 * @return the new station
+	 */
+	public Station addStation(final GameListener _view)
+	{
+		Station station;
+
+		synchronized (this)
+		{
+			station = new Station(++lastNumber, _view, this, clock, records);
+		}
+
+		stations.add(station);
+		System.out.println("[StationManager] Added station " + station.getNumber() + ", " + stations.size()
+				+ " stations.");
+		stationChanged(station);
+		return station;
+	}
+
+	/**
+	 * Records the game being played on the given station, disconnects its
+	 * robot and removes it.
+	 *
+	 * @param _station
+	 *            The station.
+	 */
+	public void removeStation(final Station _station)
+	{
+		if (!stations.remove(_station))
+			return;
+
+		_station.getController().shutdown();
+		System.out.println("[StationManager] Removed station " + _station.getNumber() + ", " + stations.size()
+				+ " stations.");
+		stationChanged(_station);
+	}
+
+	/**
+	 * Shuts down every station and closes the shared records. Called when the
+	 * program is closed.
+	 */
+	public void shutdown()
+	{
+		for (Station station : stations)
+			removeStation(station);
+
+		if (configWatcher != null)
+			configWatcher.stopWatching();
+
+		listeners.clear();
+		records.close();
+	}
+
+	/**
+	 * Tells the listeners that the state of the given station has changed.
+	 *
+	 * @param _station
+	 *            The station.
+	 */
+	void stationChanged(final Station _station)
+	{
+		for (StationListener listener : listeners)
+			listener.stationChanged(_station);
+	}
+
+	/**
+	 * @param _listener
+	 *            Notified when the state of a station changes.
+	 */
+	public void addListener(final StationListener _listener)
+	{
+		listeners.add(_listener);
+	}
+
+	/**
+	 * @param _listener
+	 *            A listener added earlier.
+	 */
+	public void removeListener(final StationListener _listener)
+	{
+		listeners.remove(_listener);
+	}
+
+	/**
+	 * @return the stations in the order they were added
+	 */
+	public List<Station> getStations()
+	{
+		return new ArrayList<Station>(stations);
+	}
+
+	/**
+	 * @return the highscores, game archive and leaderboards shared by the
+	 *         stations
+	 */
+	public GameRecords getRecords()
+	{
+		return records;
+	}
+
+	/**
+	 * @return the source of time for the games of every station
+	 */
+	public GameClock getClock()
+	{
+		return clock;
+	}
+}
@@ -1,8 +1,8 @@
 package game.model;
 
-import java.io.DataInputStream;
 import java.io.IOException;
 import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -10,11 +10,12 @@ import java.util.List;
 import game.controller.Controller;
 
 /**
- * A thread dedicated to receiving data from the robot.
+ * A loop dedicated to receiving data from the robot.
  *
+ * @see GameThreads
  * @author Jose Uusitalo
  */
-public class DataReaderThread extends Thread
+public class DataReaderThread implements Runnable
 {
 	/**
 	 * <p>
@@ -26,21 +27,23 @@ public class DataReaderThread extends Thread
 	 * c = Color data from the color sensor.<br>
 	 * f = Finished firing the cannon.<br>
 	 * t = Finished turning the cannon.<br>
+	 * k = Sensor setting received.<br>
 	 * z = Debug.
 	 * </p>
 	 */
 	public static final List<Character> dataTypes = Collections
-			.unmodifiableList(Arrays.asList('a', 'i', 'c', 'f', 't', 'z', ' ', '-'));
+			.unmodifiableList(Arrays.asList('a', 'i', 'c', 'f', 't', 'k', 'z', ' ', '-'));
 
 	/**
-	 * The input stream from where the angle is read from.
+	 * Reads the messages from the robot, shared by the readers of every game
+	 * played over the same connection.
 	 */
-	private DataInputStream in;
+	private MessageReader in;
 
 	/**
 	 * Whether or not to read data from the input stream.
 	 */
-	private boolean read;
+	private volatile boolean read;
 
 	/**
 	 * <p>
@@ -94,7 +97,13 @@ public class DataReaderThread extends Thread
 	 */
 	private Player player;
 
-	public DataReaderThread(final DataInputStream _in, final Controller _controller, final EV3Robot _robot,
+	/**
+	 * Where the received messages are recorded to, <code>null</code> if the
+	 * session is not being recorded.
+	 */
+	private SessionCapture capture;
+
+	public DataReaderThread(final MessageReader _in, final Controller _controller, final EV3Robot _robot,
 			final Player _player)
 	{
 		in = _in;
@@ -106,7 +115,7 @@ public class DataReaderThread extends Thread
 	}
 
 	/**
-	 * Starts the thread.
+	 * Reads data until stopped.
 	 */
 	@Override
 	public void run()
@@ -115,59 +124,20 @@ public class DataReaderThread extends Thread
 		{
 			try
 			{
-				if (!Controller.DEBUG)
-					input = in.readUTF();
-
-				if (!input.equals(previousInput))
-				{
-					previousInput = input;
-					id = input.charAt(0);
-
-					if (id != 'c' && id != 'a')
-						System.out.println("[DataReaderThread] Read '" + input + "'");
-
-					if (dataTypes.contains(id))
-					{
-						switch (id)
-						{
-							case 'a':
-								robot.setCurrentAngle(Integer.parseInt(input.substring(1)));
-								break;
-							case 'i':
-								player.scoreIR(Float.parseFloat(input.substring(1)));
-								break;
-							case 'c':
-								player.scoreColor(input.substring(1));
-								break;
-							case 'f':
-								robot.setShootingInProgress(false);
-								break;
-							case 't':
-								robot.setAngleTurnInProgress(false);
-								break;
-							case '-':
-							case ' ':
-								// Pass.
-								break;
-							default:
-								System.err.println("[DataReaderThread] Unknown command character!");
-								break;
-						}
-					}
-					else
-					{
-						System.err.println("[DataReaderThread] Unknown data type ID.");
-					}
-				}
-
-				if (input != null && !dataReceived)
-				{
-					dataReceived = true;
-					controller.dataReceived();
-				}
+				dispatch(in.readMessage());
+			}
+			catch (SocketTimeoutException e)
+			{
+				// No data from the robot, check whether to keep reading. Part of
+				// a message received so far is kept for the next read.
+				continue;
 			}
 			catch (SocketException e)
 			{
+				// The connection was closed because reading was stopped.
+				if (!read)
+					return;
+
 				/*
 				 * This error should not happen because the connection status is
 				 * checked before the code that throws this exception is run,
@@ -178,6 +148,10 @@ public class DataReaderThread extends Thread
 			}
 			catch (IOException e)
 			{
+				// Interrupted because the game session was closed.
+				if (!read)
+					return;
+
 				System.err.println("[DataReaderThread] Error reading data. Robot program shut down.");
 				controller.endGame();
 				controller.disconnect();
@@ -185,13 +159,82 @@ public class DataReaderThread extends Thread
 
 			try
 			{
-				Thread.sleep(Controller.SLEEP_TIME);
+				controller.getClock().sleep(GameConfig.get().getSleepTime());
 			}
 			catch (InterruptedException e)
 			{
-				e.printStackTrace();
+				// The game session was closed.
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Processes a single message received from the robot. This is the same
+	 * path the reading loop uses, which allows recorded sessions to be fed
+	 * back into the game model.
+	 *
+	 * @param _input
+	 *            The message in the format {@literal <ID char><Data>}.
+	 * @see SessionReplay
+	 */
+	public void dispatch(final String _input)
+	{
+		input = _input;
+
+		if (!input.equals(previousInput))
+		{
+			previousInput = input;
+			id = input.charAt(0);
+
+			if (id != 'c' && id != 'a')
+				System.out.println("[DataReaderThread] Read '" + input + "'");
+
+			if (capture != null && id != '-' && id != ' ')
+				capture.record(SessionCapture.INBOUND, input);
+
+			if (dataTypes.contains(id))
+			{
+				switch (id)
+				{
+					case 'a':
+						robot.setCurrentAngle(Integer.parseInt(input.substring(1)));
+						break;
+					case 'i':
+						player.scoreIR(Float.parseFloat(input.substring(1)));
+						break;
+					case 'c':
+						player.scoreColor(input.substring(1));
+						break;
+					case 'f':
+						robot.shotCompleted();
+						break;
+					case 't':
+						robot.turnCompleted();
+						break;
+					case 'k':
+						controller.settingsAcknowledged();
+						break;
+					case '-':
+					case ' ':
+						// Pass.
+						break;
+					default:
+						System.err.println("[DataReaderThread] Unknown command character!");
+						break;
+				}
+			}
+			else
+			{
+				System.err.println("[DataReaderThread] Unknown data type ID.");
 			}
 		}
+
+		if (input != null && !dataReceived)
+		{
+			dataReceived = true;
+			controller.dataReceived();
+		}
 	}
 
 	/**
@@ -213,52 +256,15 @@ public class DataReaderThread extends Thread
 	}
 
 	/**
-	 * <p>
-	 * <b>FOR DEBUG USE ONLY.</b>
-	 * </p>
-	 * <p>
-	 * Fakes data read by this thread to read the given angle value. Will not do
-	 * anything if debug mode is not enabled.
-	 * </p>
-	 *
-	 * @param _angle
-	 *            The integer angle this thread reads.
-	 */
-	public void debugModAngle(final int _angle)
-	{
-		System.out.println("[DataReaderThread] Faking rotation angle to " + _angle);
-		if (Controller.DEBUG)
-			input = "a" + _angle;
-	}
-
-	/**
-	 * <p>
-	 * <b>FOR DEBUG USE ONLY.</b>
-	 * </p>
-	 * <p>
-	 * Fakes data received from the robot.
-	 * Will not do anything if debug mode is not enabled.
-	 * </p>
+	 * Record all messages received from the robot into the given capture.
 	 *
-	 * @param _angle
-	 *            The data this thread reads.
+	 * @param _capture
+	 *            The capture to record to or <code>null</code> to stop
+	 *            recording.
 	 */
-	public void debugWrite(final String _data)
+	public void setCapture(final SessionCapture _capture)
 	{
-		if (Controller.DEBUG)
-		{
-			try
-			{
-				Thread.sleep(Controller.SLEEP_TIME * 2);
-			}
-			catch (InterruptedException e)
-			{
-				e.printStackTrace();
-			}
-			
-			System.out.println("[DataReaderThread] Faking data: " + _data);
-			input = _data;
-		}
+		capture = _capture;
 	}
 
 	/**
@@ -3,17 +3,18 @@ package game.model;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.SocketException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import game.controller.Controller;
 
 /**
- * A thread dedicated to sending commands to the robot.
+ * A loop dedicated to sending commands to the robot.
  *
+ * @see GameThreads
  * @author Jose Uusitalo
  */
-public class DataWriterThread extends Thread
+public class DataWriterThread implements Runnable
 {
 	/**
 	 * The output stream where the data is written to.
@@ -23,12 +24,18 @@ public class DataWriterThread extends Thread
 	/**
 	 * Whether or not to write data to the output stream.
 	 */
-	private boolean write;
+	private volatile boolean write;
 
 	/**
-	 * The command that is sent to the robot.
+	 * Queued to wake up the writing loop when writing is stopped.
 	 */
-	private volatile List<String> commandBuffer;
+	private static final String STOP = new String("!");
+
+	/**
+	 * The commands waiting to be sent to the robot. A blocking queue instead
+	 * of a monitor so that a waiting virtual thread does not pin its carrier.
+	 */
+	private final BlockingQueue<String> commandBuffer;
 
 	/**
 	 * The previous command sent to the robot.
@@ -40,81 +47,89 @@ public class DataWriterThread extends Thread
 	 */
 	private Controller controller;
 
+	/**
+	 * Where the sent commands are recorded to, <code>null</code> if the session
+	 * is not being recorded.
+	 */
+	private SessionCapture capture;
+
 	public DataWriterThread(final DataOutputStream _out, final Controller _controller)
 	{
 		out = _out;
-		commandBuffer = new ArrayList<String>(); // No data.
+		commandBuffer = new LinkedBlockingQueue<String>(); // No data.
 		prevCommandString = "!"; // An unused command char.
 		controller = _controller;
 	}
 
 	/**
-	 * Starts the thread.
+	 * Sends commands until stopped.
 	 */
 	@Override
 	public void run()
 	{
-		while (write)
+		String command;
+
+		// Sleep until there is something to send instead of polling the buffer.
+		while ((command = nextCommand()) != null)
 		{
-			// Don't send anything if there's nothing to send.
-			if (commandBuffer.size() > 0)
+			if (!command.equals(prevCommandString))
 			{
-				// The first element is sometimes null here for some reason.
-				if (commandBuffer.get(0) != null)
+				try
 				{
-					if (!commandBuffer.get(0).equals(prevCommandString))
+					System.out.println("[DataWriterThread] Write: '" + command + "'");
+
+					/*
+					 * This is the first piece of code that throws an error
+					 * (SocketException) when the program is shut down in the
+					 * robot.
+					 */
+					out.writeUTF(command);
+					out.flush();
+
+					prevCommandString = command;
+
+					try
 					{
-						try
-						{
-							if (Controller.DEBUG)
-							{
-								System.out.println("[DataWriterThread] Debug 'write': '" + commandBuffer.get(0) + "'");
-							}
-							else
-							{
-								System.out.println("[DataWriterThread] Write: '" + commandBuffer.get(0) + "'");
-								
-								/*
-								 * This is the first piece of code that throws an
-								 * error (SocketException) when the program is shut
-								 * down in the robot.
-								 */
-								out.writeUTF(prevCommandString);
-								out.flush();
-							}
-							
-							prevCommandString = commandBuffer.get(0);
-							commandBuffer.remove(0);
-							
-							try
-							{
-								Thread.sleep(Controller.SLEEP_TIME);
-							}
-							catch (InterruptedException e)
-							{
-								e.printStackTrace();
-							}
-						}
-						catch (SocketException e)
-						{
-							System.err.println("[DataWriterThread] Robot program closed, disconnecting.");
-							controller.terminateConnection();
-						}
-						catch (IOException e)
-						{
-							System.err.println("[DataWriterThread] Error writing data.");
-							e.printStackTrace();
-						}
+						controller.getClock().sleep(GameConfig.get().getSleepTime());
 					}
-					else
+					catch (InterruptedException e)
 					{
-						commandBuffer.remove(0);
+						// The game session was closed.
+						return;
 					}
 				}
+				catch (SocketException e)
+				{
+					System.err.println("[DataWriterThread] Robot program closed, disconnecting.");
+					controller.terminateConnection();
+				}
+				catch (IOException e)
+				{
+					System.err.println("[DataWriterThread] Error writing data.");
+					e.printStackTrace();
+				}
 			}
 		}
 	}
 
+	/**
+	 * Waits until there is a command to send.
+	 *
+	 * @return the next command, <code>null</code> if writing was stopped
+	 */
+	private String nextCommand()
+	{
+		try
+		{
+			String command = write ? commandBuffer.take() : STOP;
+			return command != STOP && write ? command : null;
+		}
+		catch (InterruptedException e)
+		{
+			return null;
+		}
+	}
+
 	/**
 	 * Begin the data sending loop.
 	 */
@@ -130,16 +145,44 @@ public class DataWriterThread extends Thread
 	public void stopWriting()
 	{
 		write = false;
+		commandBuffer.add(STOP);
+
 		System.out.println("[DataWriterThread] STOPPING");
 	}
 
+	/**
+	 * Adds a command to the end of the command buffer.
+	 *
+	 * @param _command
+	 *            The command to send to the robot.
+	 */
+	private void queue(final String _command)
+	{
+		if (capture != null)
+			capture.record(SessionCapture.OUTBOUND, _command);
+
+		commandBuffer.add(_command);
+	}
+
+	/**
+	 * Record all commands sent to the robot into the given capture.
+	 *
+	 * @param _capture
+	 *            The capture to record to or <code>null</code> to stop
+	 *            recording.
+	 */
+	public void setCapture(final SessionCapture _capture)
+	{
+		capture = _capture;
+	}
+
 	/**
 	 * Send a command to start turning the cannon left. The cannon will continue
 	 * to turn until stopped.
 	 */
 	public void turnLeft()
 	{
-		commandBuffer.add("l");
+		queue("l");
 	}
 
 	/**
@@ -148,7 +191,7 @@ public class DataWriterThread extends Thread
 	 */
 	public void turnRight()
 	{
-		commandBuffer.add("r");
+		queue("r");
 	}
 
 	/**
@@ -156,7 +199,19 @@ public class DataWriterThread extends Thread
 	 */
 	public void stopTurning()
 	{
-		commandBuffer.add("s");
+		queue("s");
+	}
+
+	/**
+	 * Send a command to change the speed the cannon turns at. Also affects
+	 * turning to an angle.
+	 *
+	 * @param _percent
+	 *            Speed in percent of the normal turning speed.
+	 */
+	public void setTurnSpeed(final int _percent)
+	{
+		queue("v" + _percent);
 	}
 
 	/**
@@ -165,7 +220,7 @@ public class DataWriterThread extends Thread
 	 */
 	public void shootCannonHigh()
 	{
-		commandBuffer.add("h");
+		queue("h");
 	}
 
 	/**
@@ -174,7 +229,7 @@ public class DataWriterThread extends Thread
 	 */
 	public void shootCannonLow()
 	{
-		commandBuffer.add("w");
+		queue("w");
 	}
 
 	/**
@@ -185,7 +240,7 @@ public class DataWriterThread extends Thread
 	 */
 	public void timeLeft(final int _timeLeft)
 	{
-		commandBuffer.add(String.valueOf(_timeLeft));
+		queue(String.valueOf(_timeLeft));
 	}
 
 	/**
@@ -196,7 +251,7 @@ public class DataWriterThread extends Thread
 	 */
 	public void turnToAngle(final int _angle)
 	{
-		commandBuffer.add("a" + _angle);
+		queue("a" + _angle);
 	}
 
 	/**
@@ -217,16 +272,16 @@ public class DataWriterThread extends Thread
 	 */
 	public void sendMaxIRDistance(final int _distance)
 	{
-		commandBuffer.add("i" + _distance);
+		queue("i" + _distance);
 	}
 
 	public void sendMaxIRDistance(final double _redValue)
 	{
-		commandBuffer.add("c" + _redValue);
+		queue("c" + _redValue);
 	}
 
 	public void sendClearBufferCommand()
 	{
-		commandBuffer.add("z");
+		queue("z");
 	}
 }
@@ -6,10 +6,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.ConnectException;
-import java.net.InetAddress;
-import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 
 import game.controller.Controller;
 
@@ -20,6 +23,22 @@ import game.controller.Controller;
  */
 public class EV3Robot
 {
+	/**
+	 * Notified when the state of the robot changes.
+	 */
+	public interface StateListener
+	{
+		/**
+		 * Called in the thread that changed the state.
+		 *
+		 * @param _from
+		 *            The previous state.
+		 * @param _to
+		 *            The new state.
+		 */
+		void stateChanged(RobotState _from, RobotState _to);
+	}
+
 	/**
 	 * The IP address of the robot.
 	 */
@@ -36,9 +55,9 @@ public class EV3Robot
 	private Socket socket;
 	
 	/**
-	 * The server socket for debug mode.
+	 * The simulated robot used in debug mode.
 	 */
-	private ServerSocket serversocket;
+	private RobotSimulator simulator;
 	
 	/**
 	 * An input stream through which this program receives the angle of the
@@ -46,6 +65,12 @@ public class EV3Robot
 	 */
 	private DataInputStream in;
 
+	/**
+	 * Reads the messages from {@link #in}. Lives as long as the connection so
+	 * that a message split between two games is not lost.
+	 */
+	private MessageReader messages;
+
 	/**
 	 * An output stream through which this program sends data to the physical
 	 * robot.
@@ -63,58 +88,61 @@ public class EV3Robot
 	private DataWriterThread dataWriter;
 
 	/**
-	 * The {@link Controller}.
+	 * The recording of the current session, <code>null</code> if sessions are
+	 * not being recorded.
+	 *
+	 * @see Controller#RECORD_PROPERTY
 	 */
-	private Controller controller;
+	private SessionCapture capture;
 
 	/**
-	 * The current angle of the main motor of the cannon.
+	 * The loops of the current game, <code>null</code> if the data transfer
+	 * threads have not been created.
 	 */
-	private int currentAngle;
+	private GameSession session;
 
 	/**
-	 * The minimum angle the robot's main motor can rotate to. This is limited
-	 * by the length of the cables. 0 degrees is assumed to be straight forward.
+	 * The {@link Controller}.
 	 */
-	public static final int LIMIT_ANGLE_MIN = -85;
+	private Controller controller;
 
 	/**
-	 * The maximum angle the robot's main motor can rotate to. This is limited
-	 * by the length of the cables. 0 degrees is assumed to be straight forward.
+	 * The current angle of the main motor of the cannon.
 	 */
-	public static final int LIMIT_ANGLE_MAX = 85;
+	private int currentAngle;
 
 	/**
-	 * The number of balls the cannon can shoot every round. (We currently have
-	 * access to six balls although the cannon can hold ten.)
+	 * Time in milliseconds a read from the robot's socket waits for data
+	 * before checking whether the game has ended.
 	 */
-	public static final int MAX_BALLS = 6;
+	public static final int READ_TIMEOUT = 500;
 
 	/**
-	 * Number of balls left in the cannon.
+	 * Time in milliseconds to wait for the loops of a game to end.
 	 */
-	private int ballsLeft;
+	public static final long SESSION_CLOSE_TIMEOUT = 2000;
 
 	/**
-	 * Can the player currently remotely control the robot through the user
-	 * interface?
+	 * Number of balls left in the cannon.
 	 */
-	private boolean robotControlEnabled;
+	private int ballsLeft;
 
 	/**
-	 * Timer for counting seconds.
+	 * The current state of the robot. The user interface, the data reader
+	 * thread, the timer and the demo mode all change the state, so it is only
+	 * changed with compare-and-set.
 	 */
-	private Timer timer;
+	private final AtomicReference<RobotState> state;
 
 	/**
-	 * Is the cannon currently in the process of shooting a cannonball?
+	 * Notified when the state changes.
 	 */
-	private boolean shootingInProgress;
+	private final List<StateListener> stateListeners;
 
 	/**
-	 * Is the cannon currently in the process of rotating to a specific angle?
+	 * Timer for counting seconds.
 	 */
-	private boolean angleTurnInProgress;
+	private Timer timer;
 
 	/**
 	 * The default port for the Lego Mindstorms EV3 robot.
@@ -133,8 +161,9 @@ public class EV3Robot
 		controller = _controller;
 		timer = null;
 		currentAngle = 0;
-		robotControlEnabled = false;
-		ballsLeft = MAX_BALLS;
+		state = new AtomicReference<RobotState>(RobotState.DISABLED);
+		stateListeners = new CopyOnWriteArrayList<StateListener>();
+		ballsLeft = GameConfig.get().getMaxBalls();
 	}
 
 	/**
@@ -152,35 +181,40 @@ public class EV3Robot
 		System.out.println("[EV3Robot] Opening socket...");
 
 		socket = new Socket(ip, port);
+		socket.setSoTimeout(READ_TIMEOUT);
 
 		System.out.println("[EV3Robot] Creating input stream.");
 		in = new DataInputStream(socket.getInputStream());
+		messages = new MessageReader(in);
 
 		System.out.println("[EV3Robot] Creating output stream.");
 		out = new DataOutputStream(socket.getOutputStream());
 	}
 
 	/**
-	 * Creates a fake remote connection for testing and debug purposes.
+	 * Creates an in-process connection to a simulated robot for testing and
+	 * debug purposes. The connection uses the same data format as the real one
+	 * but does not go through the network.
+	 *
+	 * @see RobotSimulator
 	 */
 	public void openFakeTestingConnection()
 	{
-		System.out.println("[EV3Robot] Opening fake socket...");
-		try
-		{
-			serversocket = new ServerSocket(9999, 0, InetAddress.getByName(null));
-			socket = new Socket("127.0.0.1", 9999);
-			
-			System.out.println("[EV3Robot] Creating input stream.");
-			in = new DataInputStream(socket.getInputStream());
+		System.out.println("[EV3Robot] Opening loopback connection to the simulator...");
 
-			System.out.println("[EV3Robot] Creating output stream.");
-			out = new DataOutputStream(socket.getOutputStream());
-		}
-		catch (IOException e)
-		{
-			e.printStackTrace();
-		}
+		LoopbackPipe toRobot = new LoopbackPipe();
+		LoopbackPipe toPC = new LoopbackPipe();
+
+		System.out.println("[EV3Robot] Creating input stream.");
+		in = new DataInputStream(toPC.getInputStream());
+		messages = new MessageReader(in);
+
+		System.out.println("[EV3Robot] Creating output stream.");
+		out = new DataOutputStream(toRobot.getOutputStream());
+
+		simulator = new RobotSimulator(new DataInputStream(toRobot.getInputStream()),
+				new DataOutputStream(toPC.getOutputStream()), controller.getClock());
+		simulator.start();
 	}
 
 	/**
@@ -191,16 +225,39 @@ public class EV3Robot
 	 */
 	public void createDataTransferThreads(final Player _player)
 	{
+		// Never leave the loops of an earlier game reading the same connection.
+		if (session != null)
+			deleteDataTransferThreads();
+
 		System.out.println("[EV3Robot] Creating input/output threads.");
 
-		dataReader = new DataReaderThread(in, controller, this, _player);
+		dataReader = new DataReaderThread(messages, controller, this, _player);
 		dataWriter = new DataWriterThread(out, controller);
 
+		if (Controller.isRecordingSessions())
+		{
+			try
+			{
+				capture = new SessionCapture("session-" + System.currentTimeMillis() + ".capture");
+				dataReader.setCapture(capture);
+				dataWriter.setCapture(capture);
+			}
+			catch (IOException e)
+			{
+				System.err.println("[EV3Robot] Unable to record session.");
+				e.printStackTrace();
+			}
+		}
+
 		dataWriter.startWriting();
 		dataReader.startReading();
 
-		dataReader.start();
-		dataWriter.start();
+		session = new GameSession(_player.getName());
+		session.start("DataReaderThread", dataReader);
+		session.start("DataWriterThread", dataWriter);
+
+		if (timer != null)
+			session.start("Timer", timer);
 	}
 
 	/**
@@ -220,6 +277,41 @@ public class EV3Robot
 			dataReader.stopReading();
 			dataReader = null;
 		}
+
+		if (session != null)
+		{
+			session.close(SESSION_CLOSE_TIMEOUT);
+			session = null;
+		}
+
+		if (capture != null)
+		{
+			capture.close();
+			capture = null;
+		}
+	}
+
+	/**
+	 * Resets the robot state for replaying a recorded session. The data
+	 * transfer threads are created but not started, which means nothing is
+	 * sent to the robot and the returned reader must be fed the recorded
+	 * messages manually.
+	 *
+	 * @param _player
+	 *            The player whose score the replayed messages modify.
+	 * @return the reader whose dispatch path the messages are fed into
+	 * @see SessionReplay
+	 */
+	public DataReaderThread prepareReplay(final Player _player)
+	{
+		System.out.println("[EV3Robot] Preparing replay.");
+		currentAngle = 0;
+		ballsLeft = GameConfig.get().getMaxBalls();
+		forceState(RobotState.IDLE);
+
+		dataReader = new DataReaderThread(null, controller, this, _player);
+		dataWriter = new DataWriterThread(null, controller);
+		return dataReader;
 	}
 
 	/**
@@ -237,8 +329,21 @@ public class EV3Robot
 		deleteDataTransferThreads();
 		out.close();
 		in.close();
-		socket.close();
-		serversocket.close();
+
+		if (socket != null)
+			socket.close();
+
+		if (simulator != null)
+			simulator.stopSimulator();
+	}
+
+	/**
+	 * @return the loops of the current game, <code>null</code> if the game has
+	 *         not started
+	 */
+	public GameSession getSession()
+	{
+		return session;
 	}
 
 	/**
@@ -272,7 +377,7 @@ public class EV3Robot
 	 */
 	public boolean isNotAtMaxAngle()
 	{
-		return (currentAngle < LIMIT_ANGLE_MAX);
+		return (currentAngle < GameConfig.get().getAngleMax());
 	}
 
 	/**
@@ -282,7 +387,7 @@ public class EV3Robot
 	 */
 	public boolean isNotAtMinAngle()
 	{
-		return (currentAngle > LIMIT_ANGLE_MIN);
+		return (currentAngle > GameConfig.get().getAngleMin());
 	}
 
 	/**
@@ -296,18 +401,19 @@ public class EV3Robot
 	{
 		System.out.println("[EV3Robot] Robot reset.");
 		currentAngle = 0;
-		ballsLeft = MAX_BALLS;
-		shootingInProgress = false;
-		angleTurnInProgress = false;
-		robotControlEnabled = false;
-		// createNewTimer();
+		ballsLeft = GameConfig.get().getMaxBalls();
+		forceState(RobotState.DISABLED);
+
+		if (GameConfig.get().isTimerEnabled())
+			createNewTimer();
 
 		// deleteDataTransferThreads();
 		createDataTransferThreads(_player);
 	}
 
 	/**
-	 * Enables/Disables user control over robot movement.
+	 * Enables/Disables user control over robot movement. Control can only be
+	 * enabled when it is disabled, for example after {@link #reset(Player)}.
 	 *
 	 * @param _value
 	 *            A boolean value determining whether or not the user can
@@ -315,7 +421,18 @@ public class EV3Robot
 	 */
 	public void setRobotControlEnabled(final boolean _value)
 	{
-		robotControlEnabled = _value;
+		if (_value)
+			transition(RobotState.DISABLED, RobotState.IDLE);
+		else
+			forceState(RobotState.DISABLED);
+	}
+
+	/**
+	 * Disables the robot until the next game.
+	 */
+	public void setGameOver()
+	{
+		forceState(RobotState.GAME_OVER);
 	}
 
 	/**
@@ -371,13 +488,7 @@ public class EV3Robot
 		if (_newAngle != currentAngle)
 		{
 			currentAngle = _newAngle;
-
-			if (Controller.DEBUG_INFO)
-				// System.out.println("[EV3Robot] setCurrentAngle indicator
-				// update: " + _newAngle);
-
-				controller.updateCannonAngleIndicator();
-
+			controller.updateCannonAngleIndicator();
 		}
 	}
 
@@ -387,7 +498,7 @@ public class EV3Robot
 	 *
 	 * @return <code>true</code> if robot is not at max angle,
 	 *         <code>false</code> if robot is already at max angle
-	 * @see EV3Robot#LIMIT_ANGLE_MAX
+	 * @see GameConfig#getAngleMax()
 	 */
 	public boolean forceTurnLeft()
 	{
@@ -396,13 +507,8 @@ public class EV3Robot
 			System.out.println("[EV3Robot] Force Turning left.");
 			dataWriter.turnLeft();
 
-			if (Controller.DEBUG)
-			{
-				dataReader.debugModAngle(currentAngle + 5);
-				System.out.println("[EV3Robot] DEBUG: turnLeft indicator update");
-			}
 			/*
-			 * Indicator update (in non-debug mode) handled as follows:
+			 * Indicator update handled as follows:
 			 * - command to turn robot
 			 * - robot turns
 			 * - robot reports to PC about angle change
@@ -424,7 +530,7 @@ public class EV3Robot
 	 * @return <code>true</code> if robot is ready and is not at max angle,
 	 *         <code>false</code> if robot is not ready or is already at max
 	 *         angle
-	 * @see EV3Robot#LIMIT_ANGLE_MAX
+	 * @see GameConfig#getAngleMax()
 	 */
 	public boolean turnLeft()
 	{
@@ -435,13 +541,8 @@ public class EV3Robot
 				System.out.println("[EV3Robot] Turning left.");
 				dataWriter.turnLeft();
 
-				if (Controller.DEBUG)
-				{
-					dataReader.debugModAngle(currentAngle + 5);
-					System.out.println("[EV3Robot] DEBUG: turnLeft indicator update");
-				}
 				/*
-				 * Indicator update (in non-debug mode) handled as follows:
+				 * Indicator update handled as follows:
 				 * - command to turn robot
 				 * - robot turns
 				 * - robot reports to PC about angle change
@@ -467,7 +568,7 @@ public class EV3Robot
 	 * @return <code>true</code> if robot is ready and is not at min angle,
 	 *         <code>false</code> if robot is not ready or is already at min
 	 *         angle
-	 * @see EV3Robot#LIMIT_ANGLE_MIN
+	 * @see GameConfig#getAngleMin()
 	 */
 	public boolean turnRight()
 	{
@@ -478,13 +579,8 @@ public class EV3Robot
 				System.out.println("[EV3Robot] Turning right.");
 				dataWriter.turnRight();
 
-				if (Controller.DEBUG)
-				{
-					dataReader.debugModAngle(currentAngle - 5);
-					System.out.println("[EV3Robot] DEBUG: turnRight indicator update");
-				}
 				/*
-				 * Indicator update (in non-debug mode) handled as follows: turn
+				 * Indicator update handled as follows: turn
 				 * robot, robot turns, robot reports to PC about angle change,
 				 * data reader thread gets the new angle and calls
 				 * setCurrentAngle here.
@@ -508,7 +604,7 @@ public class EV3Robot
 	 *
 	 * @return <code>true</code> if robot is not at min angle,
 	 *         <code>false</code> if robot is already at min angle
-	 * @see EV3Robot#LIMIT_ANGLE_MIN
+	 * @see GameConfig#getAngleMin()
 	 */
 	public boolean forceTurnRight()
 	{
@@ -517,13 +613,8 @@ public class EV3Robot
 			System.out.println("[EV3Robot] Force turning right.");
 			dataWriter.turnRight();
 
-			if (Controller.DEBUG)
-			{
-				dataReader.debugModAngle(currentAngle + 5);
-				System.out.println("[EV3Robot] DEBUG: turnRight indicator update");
-			}
 			/*
-			 * Indicator update (in non-debug mode) handled as follows: turn
+			 * Indicator update handled as follows: turn
 			 * robot, robot turns, robot reports to PC about angle change, data
 			 * reader thread gets the new angle and calls setCurrentAngle here.
 			 */
@@ -546,13 +637,27 @@ public class EV3Robot
 		dataWriter.stopTurning();
 	}
 
+	/**
+	 * Changes the speed the cannon turns at. Also affects turning to an angle,
+	 * so the speed should be set back to <code>100</code> when the player
+	 * stops turning.
+	 *
+	 * @param _percent
+	 *            Speed in percent of the normal turning speed.
+	 */
+	public void setTurnSpeed(final int _percent)
+	{
+		System.out.println("[EV3Robot] Turning speed " + _percent + "%.");
+		dataWriter.setTurnSpeed(_percent);
+	}
+
 	/**
 	 * Fires a high shot with the cannon and stops the cannon movement.
 	 */
 	public void shootCannonHigh()
 	{
 		System.out.println("[EV3Robot] Trying to shoot high, cannonballs left: " + ballsLeft);
-		if (isReady() && ballsLeft > 0)
+		if (ballsLeft > 0 && transition(RobotState.IDLE, RobotState.SHOOTING))
 		{
 			System.out.println("[EV3Robot] Shooting high.");
 
@@ -563,10 +668,7 @@ public class EV3Robot
 			modBallsLeft(-1);
 			
 			System.out.println("[EV3Robot] Waiting for a high shot to complete.");
-			setShootingInProgress(true);
-			
-			if (Controller.DEBUG)
-				dataReader.debugWrite("f");
+			shotStarted();
 		}
 		else
 		{
@@ -580,7 +682,7 @@ public class EV3Robot
 	public void shootCannonLow()
 	{
 		System.out.println("[EV3Robot] Trying to shoot low, cannonballs left: " + ballsLeft);
-		if (isReady() && ballsLeft > 0)
+		if (ballsLeft > 0 && transition(RobotState.IDLE, RobotState.SHOOTING))
 		{
 			System.out.println("[EV3Robot] Shooting low.");
 
@@ -591,10 +693,7 @@ public class EV3Robot
 			modBallsLeft(-1);
 
 			System.out.println("[EV3Robot] Waiting for a low shot to complete.");
-			setShootingInProgress(true);
-
-			if (Controller.DEBUG)
-				dataReader.debugWrite("f");
+			shotStarted();
 		}
 		else
 		{
@@ -616,6 +715,14 @@ public class EV3Robot
 		controller.setCannonballsLeft(ballsLeft);
 	}
 	
+	/**
+	 * @return the number of cannonballs fired this round
+	 */
+	public int getShotsFired()
+	{
+		return GameConfig.get().getMaxBalls() - ballsLeft;
+	}
+
 	/**
 	 * Checks if there are cannon balls left to fire. If not, ends the game for
 	 * the current player.
@@ -624,7 +731,7 @@ public class EV3Robot
 	{
 		System.out.println("[EV3Robot] Cannonballs left: " + ballsLeft);
 		// It should never be less than 0 but it doesn't hurt to be sure.
-		if (ballsLeft < 1 && (!shootingInProgress && !angleTurnInProgress))
+		if (ballsLeft < 1 && state.get() == RobotState.IDLE)
 		{
 			controller.endGame();
 		}
@@ -632,74 +739,106 @@ public class EV3Robot
 
 	/**
 	 * Rotates the cannon to the specified angle. Player control of the robot is
-	 * disabled during the execution of this method.
+	 * disabled until the robot reports that the turn has ended.
 	 *
 	 * @param _angle
 	 *            Angle to turn to.
 	 */
 	public void turnToAngle(final int _angle)
 	{
-		if (!angleTurnInProgress)
+		if (transition(RobotState.IDLE, RobotState.TURNING))
 		{
-			setAngleTurnInProgress(true);
 			System.out.println("[EV3Robot] Turning to angle: " + _angle);
 			dataWriter.turnToAngle(_angle);
 		}
 		else
 		{
-			System.out.println("[EV3Robot] Already turning.");
+			System.out.println("[EV3Robot] Unable to turn to angle: robot is " + state.get() + ".");
 		}
 	}
 
+	/**
+	 * Rotates the cannon to the specified angle whatever the robot is doing.
+	 * Does not change the state of the robot.
+	 *
+	 * @param _angle
+	 *            Angle to turn to.
+	 */
 	public void forceTurnToAngle(final int _angle)
 	{
-		setAngleTurnInProgress(true);
 		System.out.println("[EV3Robot] Force turning to angle: " + _angle);
 		dataWriter.turnToAngle(_angle);
 	}
 
 	/**
-	 * Rotates the cannon to a random angle between the limits. Player control
-	 * of the robot is disabled during the execution of this method.
+	 * Rotates the cannon to a random angle between the limits.
 	 */
-	public void turnToAngle()
+	private void turnToRandomAngle()
 	{
-		setAngleTurnInProgress(true);
-		int rand = ((int) Math.round((LIMIT_ANGLE_MAX + Math.abs(LIMIT_ANGLE_MIN)) * Math.random()))
-				- Math.abs(LIMIT_ANGLE_MIN);
+		// Both limits from the same configuration even if it is reloaded now.
+		GameConfig config = GameConfig.get();
+		int rand = ((int) Math.round((config.getAngleMax() + Math.abs(config.getAngleMin())) * Math.random()))
+				- Math.abs(config.getAngleMin());
 
 		System.out.println("[EV3Robot] Turning to random angle: " + rand);
 
 		dataWriter.turnToAngle(rand);
-		
-		if (Controller.DEBUG)
-			dataReader.debugWrite("t");
 	}
 
 	/**
-	 * Set a boolean value that shows whether or not the robot is in the process
-	 * of shooting. Robot control is automatically disabled during shooting.
-	 *
-	 * @param _value
-	 *            <code>true</code> if the robot is currently firing its cannon,
-	 *            <code>false</code> otherwise.
+	 * Turns the cannon to a random angle after a shot has been fired and stops
+	 * the timer until the robot is ready again.
 	 */
-	public void setShootingInProgress(final boolean _value)
+	private void shotStarted()
 	{
-		System.out.println("[EV3Robot] Shooting in progress: " + _value);
+		turnToRandomAngle();
+
+		if (timer != null)
+			timer.stopTimer();
+	}
 
-		shootingInProgress = _value;
+	/**
+	 * Called when the robot reports that a shot has ended.
+	 */
+	public void shotCompleted()
+	{
+		RobotState current;
+		RobotState next;
 
-		if (_value)
+		do
 		{
-			turnToAngle();
-			if (Controller.USE_TIMER)
-				timer.stopTimer();
+			current = state.get();
+			next = current.afterShot();
+
+			if (next == null)
+			{
+				System.out.println("[EV3Robot] Ignoring the end of a shot: robot is " + current + ".");
+				return;
+			}
 		}
-		else
+		while (!transition(current, next));
+	}
+
+	/**
+	 * Called when the robot reports that a turn to an angle has ended.
+	 */
+	public void turnCompleted()
+	{
+		RobotState current;
+		RobotState next;
+
+		do
 		{
-			checkForControl();
+			current = state.get();
+			next = current.afterTurn();
+
+			if (next == null)
+			{
+				System.out.println("[EV3Robot] Ignoring the end of a turn: robot is " + current + ".");
+				return;
+			}
 		}
+		while (!transition(current, next));
 	}
 
 	/**
@@ -708,51 +847,138 @@ public class EV3Robot
 	 */
 	public boolean getShootingInProgress()
 	{
-		return shootingInProgress;
+		return state.get().isShooting();
 	}
 
 	/**
-	 * Change the value of {@link EV3Robot#angleTurnInProgress}.
+	 * Changes the state if it is the expected state and notifies the
+	 * listeners. When the robot becomes idle the shot timer is restarted, and
+	 * after a shot or a turn the game is ended if there are no cannonballs
+	 * left.
 	 *
-	 * @param _value
-	 *            Boolean value signifying whether or not the robot is in the
-	 *            process of turning to a specified angle.
+	 * @param _from
+	 *            The expected state.
+	 * @param _to
+	 *            The new state.
+	 * @return <code>true</code> if the state was changed, <code>false</code> if
+	 *         the state was not the expected one
+	 * @see EV3Robot#checkBalls()
 	 */
-	public void setAngleTurnInProgress(final boolean _value)
+	private boolean transition(final RobotState _from, final RobotState _to)
 	{
-		System.out.println("[EV3Robot] Angle turn in progress: " + _value);
+		if (!state.compareAndSet(_from, _to))
+			return false;
 
-		angleTurnInProgress = _value;
+		stateChanged(_from, _to);
 
-		checkForControl();
+		if (_to == RobotState.IDLE)
+		{
+			if (timer != null)
+			{
+				System.out.println("[EV3Robot] Resetting timer.");
+				timer.resetTimer();
+				timer.startTimer();
+			}
+
+			if (_from != RobotState.DISABLED)
+				checkBalls();
+		}
+
+		return true;
 	}
 
 	/**
-	 * We do not know if random turning or shooting finishes first. If neither
-	 * are in progress: allow robot control, reset timer (if used), and check
-	 * for cannonballs and for game end. If something is in progress disallow
-	 * robot control.
+	 * Changes the state whatever the current state is and notifies the
+	 * listeners.
 	 *
-	 * @see EV3Robot#checkBalls()
+	 * @param _to
+	 *            The new state.
 	 */
-	private void checkForControl()
+	private void forceState(final RobotState _to)
 	{
-		if (!shootingInProgress && !angleTurnInProgress)
+		// Only the idle robot may be fired by the timer.
+		if (timer != null && _to != RobotState.IDLE)
+			timer.stopTimer();
+
+		RobotState from = state.getAndSet(_to);
+
+		if (from != _to)
+			stateChanged(from, _to);
+	}
+
+	/**
+	 * Notifies the listeners of a state change.
+	 *
+	 * @param _from
+	 *            The previous state.
+	 * @param _to
+	 *            The new state.
+	 */
+	private void stateChanged(final RobotState _from, final RobotState _to)
+	{
+		for (StateListener listener : stateListeners)
+			listener.stateChanged(_from, _to);
+	}
+
+	/**
+	 * @param _listener
+	 *            Notified when the state of the robot changes.
+	 */
+	public void addStateListener(final StateListener _listener)
+	{
+		stateListeners.add(_listener);
+	}
+
+	/**
+	 * @param _listener
+	 *            The listener to remove.
+	 */
+	public void removeStateListener(final StateListener _listener)
+	{
+		stateListeners.remove(_listener);
+	}
+
+	/**
+	 * @return the current state of the robot
+	 */
+	public RobotState getState()
+	{
+		return state.get();
+	}
+
+	/**
+	 * @return a future completed when the cannon is ready to be controlled by
+	 *         the player, already completed if it is ready now
+	 */
+	public CompletableFuture<Void> whenReady()
+	{
+		final CompletableFuture<Void> ready = new CompletableFuture<Void>();
+		final StateListener listener = new StateListener()
 		{
-			// Nothing in progress, allow controls and check for balls.
-			robotControlEnabled = true;
-			if (Controller.USE_TIMER)
+			@Override
+			public void stateChanged(final RobotState _from, final RobotState _to)
 			{
-				System.out.println("[EV3Robot] Resetting timer.");
-				timer.resetTimer();
-				timer.startTimer();
+				if (_to == RobotState.IDLE)
+					ready.complete(null);
 			}
-			checkBalls();
-		}
-		else
+		};
+
+		addStateListener(listener);
+
+		// The robot may have become ready before the listener was added.
+		if (isReady())
+			ready.complete(null);
+
+		ready.whenComplete(new BiConsumer<Void, Throwable>()
 		{
-			robotControlEnabled = false;
-		}
+			@Override
+			public void accept(final Void _result, final Throwable _error)
+			{
+				removeStateListener(listener);
+			}
+		});
+
+		return ready;
 	}
 
 	/**
@@ -762,21 +988,21 @@ public class EV3Robot
 	 */
 	public boolean isReady()
 	{
-		printState();
-		return !shootingInProgress && !angleTurnInProgress && robotControlEnabled;
+		return state.get() == RobotState.IDLE;
 	}
 
 	/**
-	 * <b>FOR DEBUG USE ONLY.</b> In hindsight we should have implemented an
-	 * actual state machine...
+	 * <b>FOR DEBUG USE ONLY.</b>
 	 */
 	public void printState()
 	{
-		System.out.println("[EV3Robot] Shooting: " + shootingInProgress + " | Turning: " + angleTurnInProgress + " | Controllable: " + robotControlEnabled);
+		System.out.println("[EV3Robot] State: " + state.get());
 	}
 
 	/**
 	 * Stops the existing timer and creates a new timer but does not start it.
+	 * The timer loop runs in the session created by
+	 * {@link #createDataTransferThreads(Player)}.
 	 */
 	public void createNewTimer()
 	{
@@ -799,15 +1025,7 @@ public class EV3Robot
 
 	public void sendMinRedValue()
 	{
-		dataWriter.sendMaxIRDistance(ScoreMachine.MINIMUM_RED_VALUE);
-	}
-
-	/**
-	 * @return
-	 */
-	public boolean isRobotControlEnabled()
-	{
-		return robotControlEnabled;
+		dataWriter.sendMaxIRDistance(GameConfig.get().getMinimumRedValue());
 	}
 
 	public void clearWriteBuffer()
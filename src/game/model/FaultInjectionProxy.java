@@ -0,0 +1,455 @@
+package game.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * A local TCP proxy that is placed between {@link EV3Robot} and a robot for
+ * testing how the game behaves over an unreliable connection. The faults
+ * injected into the connection are defined by a {@link FaultProfile}.
+ * </p>
+ * <p>
+ * Usage:
+ * <code>FaultInjectionProxy &lt;listen port&gt; &lt;robot IP&gt; &lt;robot port&gt; [profile file]</code>
+ * <br>
+ * Then connect to <code>127.0.0.1</code> and the listen port from the user
+ * interface.
+ * </p>
+ *
+ * @author Jose Uusitalo
+ */
+public class FaultInjectionProxy extends Thread
+{
+	/**
+	 * How often the profile is checked for new steps in milliseconds.
+	 */
+	private static final long PROFILE_UPDATE_INTERVAL = 10;
+
+	/**
+	 * Maximum number of chunks on the way in one direction. When the writer
+	 * falls behind, the reader stops reading and the sender is slowed down like
+	 * over a real slow link.
+	 */
+	private static final int MAX_CHUNKS_ON_THE_WAY = 1024;
+
+	/**
+	 * A piece of data read from one side and the time to release it to the
+	 * other side.
+	 */
+	private static class Chunk
+	{
+		/**
+		 * The data, empty at the end of the connection.
+		 */
+		private final byte[] data;
+
+		/**
+		 * The time to release the data in nanoseconds of
+		 * {@link System#nanoTime()}.
+		 */
+		private final long releaseTime;
+
+		public Chunk(final byte[] _data, final long _releaseTime)
+		{
+			data = _data;
+			releaseTime = _releaseTime;
+		}
+	}
+
+	/**
+	 * Forwards data in one direction applying the active faults.
+	 * <p>
+	 * The pump reads the data and timestamps every chunk as it arrives. A
+	 * separate writer releases each chunk once its latency and jitter have
+	 * passed, so the latency delays the data without limiting how much of it
+	 * gets through. The bandwidth limit is paced by the writer on its own.
+	 * </p>
+	 */
+	private class Pump extends Thread
+	{
+		/**
+		 * Where the data is read from.
+		 */
+		private final InputStream in;
+
+		/**
+		 * Where the data is written to.
+		 */
+		private final OutputStream out;
+
+		/**
+		 * The chunks read but not yet written.
+		 */
+		private final BlockingQueue<Chunk> onTheWay;
+
+		/**
+		 * Release time of the latest chunk in nanoseconds. The jitter never lets
+		 * a chunk overtake an earlier one, as TCP keeps the data in order.
+		 */
+		private long lastRelease;
+
+		public Pump(final String _name, final InputStream _in, final OutputStream _out)
+		{
+			super(_name);
+			in = _in;
+			out = _out;
+			onTheWay = new ArrayBlockingQueue<Chunk>(MAX_CHUNKS_ON_THE_WAY);
+			setDaemon(true);
+		}
+
+		@Override
+		public void run()
+		{
+			Thread writer = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					write();
+				}
+			}, getName() + " writer");
+			writer.setDaemon(true);
+			writer.start();
+
+			byte[] buffer = new byte[1024];
+			int read;
+
+			try
+			{
+				try
+				{
+					while ((read = in.read(buffer)) != -1)
+						onTheWay.put(new Chunk(Arrays.copyOf(buffer, read), releaseTime()));
+				}
+				catch (IOException e)
+				{
+					// Connection closed.
+				}
+
+				// Let the data on the way through before closing.
+				onTheWay.put(new Chunk(new byte[0], lastRelease));
+				writer.join();
+			}
+			catch (InterruptedException e)
+			{
+				// Proxy stopped.
+				writer.interrupt();
+			}
+
+			closeConnection();
+		}
+
+		/**
+		 * @return the time to release a chunk read now in nanoseconds
+		 */
+		private long releaseTime()
+		{
+			long delay = profile.getLatency();
+
+			if (profile.getJitter() > 0)
+				delay += random.nextInt(profile.getJitter() + 1);
+
+			lastRelease = Math.max(lastRelease, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay));
+			return lastRelease;
+		}
+
+		/**
+		 * Writes the chunks at their release times until the end of the
+		 * connection, waiting for the stall and the bandwidth limit.
+		 */
+		private void write()
+		{
+			// The time the bandwidth limit allows the next chunk to be sent.
+			long nextSend = 0;
+
+			try
+			{
+				while (true)
+				{
+					Chunk chunk = onTheWay.take();
+
+					if (chunk.data.length == 0)
+						break;
+
+					sleepUntil(chunk.releaseTime);
+
+					long stall;
+					while ((stall = profile.getStallUntil() - System.currentTimeMillis()) > 0)
+						Thread.sleep(stall);
+
+					if (profile.getBandwidth() > 0)
+					{
+						sleepUntil(nextSend);
+						nextSend = Math.max(nextSend, System.nanoTime())
+								+ chunk.data.length * 1000000000l / profile.getBandwidth();
+					}
+
+					forward(chunk.data);
+				}
+			}
+			catch (IOException e)
+			{
+				// Connection closed.
+			}
+			catch (InterruptedException e)
+			{
+				// Proxy stopped.
+			}
+
+			closeConnection();
+		}
+
+		/**
+		 * Writes the data as a whole or in pieces with the gap between them.
+		 *
+		 * @param _data
+		 *            The data.
+		 * @throws IOException
+		 *             when the connection was closed
+		 * @throws InterruptedException
+		 *             when the proxy was stopped between the pieces
+		 */
+		private void forward(final byte[] _data) throws IOException, InterruptedException
+		{
+			int pieceSize = profile.getPartialWriteSize();
+
+			if (pieceSize <= 0)
+				pieceSize = _data.length;
+
+			for (int offset = 0; offset < _data.length; offset += pieceSize)
+			{
+				if (offset > 0 && profile.getPartialWriteGap() > 0)
+					Thread.sleep(profile.getPartialWriteGap());
+
+				out.write(_data, offset, Math.min(pieceSize, _data.length - offset));
+				out.flush();
+			}
+		}
+	}
+
+	/**
+	 * The local port the game connects to.
+	 */
+	private final int listenPort;
+
+	/**
+	 * The IP address of the robot.
+	 */
+	private final String robotIP;
+
+	/**
+	 * The port of the robot.
+	 */
+	private final int robotPort;
+
+	/**
+	 * The faults to inject.
+	 */
+	private final FaultProfile profile;
+
+	/**
+	 * A random value generator for the jitter.
+	 */
+	private final Random random;
+
+	/**
+	 * The connection from the game.
+	 */
+	private Socket gameSocket;
+
+	/**
+	 * The connection to the robot.
+	 */
+	private Socket robotSocket;
+
+	/**
+	 * Whether or not to keep accepting connections.
+	 */
+	private volatile boolean run;
+
+	public FaultInjectionProxy(final int _listenPort, final String _robotIP, final int _robotPort,
+			final FaultProfile _profile)
+	{
+		super("FaultInjectionProxy");
+		listenPort = _listenPort;
+		robotIP = _robotIP;
+		robotPort = _robotPort;
+		profile = _profile;
+		random = new Random();
+		run = true;
+	}
+
+	/**
+	 * Accepts connections from the game one at a time and forwards them to the
+	 * robot.
+	 */
+	@Override
+	public void run()
+	{
+		ServerSocket server = null;
+
+		try
+		{
+			server = new ServerSocket(listenPort);
+			System.out.println("[FaultInjectionProxy] Listening on port " + listenPort + ", forwarding to " + robotIP
+					+ ":" + robotPort);
+
+			while (run)
+			{
+				gameSocket = server.accept();
+				robotSocket = new Socket(robotIP, robotPort);
+				gameSocket.setTcpNoDelay(true);
+				robotSocket.setTcpNoDelay(true);
+
+				System.out.println("[FaultInjectionProxy] Connection opened.");
+				profile.restart();
+				profile.update(0);
+
+				Pump toRobot = new Pump("Proxy PC->robot", gameSocket.getInputStream(), robotSocket.getOutputStream());
+				Pump toGame = new Pump("Proxy robot->PC", robotSocket.getInputStream(), gameSocket.getOutputStream());
+				toRobot.start();
+				toGame.start();
+
+				long start = System.currentTimeMillis();
+
+				while (toRobot.isAlive() || toGame.isAlive())
+				{
+					profile.update(System.currentTimeMillis() - start);
+
+					if (profile.isResetRequested())
+					{
+						System.out.println("[FaultInjectionProxy] Resetting connection.");
+						resetConnection();
+					}
+
+					Thread.sleep(PROFILE_UPDATE_INTERVAL);
+				}
+
+				System.out.println("[FaultInjectionProxy] Connection closed.");
+			}
+		}
+		catch (IOException e)
+		{
+			System.err.println("[FaultInjectionProxy] Proxy failed.");
+			e.printStackTrace();
+		}
+		catch (InterruptedException e)
+		{
+			// Stopped.
+		}
+		finally
+		{
+			closeConnection();
+
+			if (server != null)
+			{
+				try
+				{
+					server.close();
+				}
+				catch (IOException e)
+				{
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sleeps until the given time.
+	 *
+	 * @param _time
+	 *            The time in nanoseconds of {@link System#nanoTime()}.
+	 * @throws InterruptedException
+	 *             when the proxy was stopped while waiting
+	 */
+	private static void sleepUntil(final long _time) throws InterruptedException
+	{
+		long wait;
+		while ((wait = _time - System.nanoTime()) > 0)
+			TimeUnit.NANOSECONDS.sleep(wait);
+	}
+
+	/**
+	 * Stop accepting new connections after the current one.
+	 */
+	public void stopProxy()
+	{
+		run = false;
+	}
+
+	/**
+	 * Closes both sides of the connection abruptly with a TCP reset.
+	 */
+	private synchronized void resetConnection()
+	{
+		try
+		{
+			if (gameSocket != null)
+				gameSocket.setSoLinger(true, 0);
+
+			if (robotSocket != null)
+				robotSocket.setSoLinger(true, 0);
+		}
+		catch (IOException e)
+		{
+			// Closed anyway.
+		}
+
+		closeConnection();
+	}
+
+	/**
+	 * Closes both sides of the connection.
+	 */
+	private synchronized void closeConnection()
+	{
+		try
+		{
+			if (gameSocket != null)
+				gameSocket.close();
+
+			if (robotSocket != null)
+				robotSocket.close();
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Starts the proxy.
+	 *
+	 * @param args
+	 *            Listen port, robot IP, robot port and an optional profile
+	 *            file.
+	 */
+	public static void main(String[] args)
+	{
+		if (args.length < 3)
+		{
+			System.err.println("Usage: FaultInjectionProxy <listen port> <robot IP> <robot port> [profile file]");
+			return;
+		}
+
+		try
+		{
+			FaultProfile profile = args.length > 3 ? FaultProfile.load(args[3]) : new FaultProfile();
+			new FaultInjectionProxy(Integer.parseInt(args[0]), args[1], Integer.parseInt(args[2]), profile).start();
+		}
+		catch (IOException e)
+		{
+			System.err.println("[FaultInjectionProxy] Unable to read the profile: " + e.getMessage());
+		}
+	}
+}
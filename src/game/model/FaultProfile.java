@@ -0,0 +1,315 @@
+package game.model;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>
+ * A scripted set of network faults for the {@link FaultInjectionProxy}. The
+ * profile consists of steps that change the active faults at the given time
+ * since the start of the connection.
+ * </p>
+ * <p>
+ * The profile file has one step per line in the following format:
+ * {@literal <seconds> <setting>=<value> <setting>=<value> ...}<br>
+ * Empty lines and lines starting with <code>#</code> are ignored.
+ * </p>
+ * <p>
+ * Settings:<br>
+ * latency = Time in milliseconds every chunk of data spends on the way.<br>
+ * jitter = Maximum random time in milliseconds added on top of the latency.
+ * <br>
+ * bandwidth = Maximum bytes per second, 0 for unlimited.<br>
+ * partial = Split writes into pieces of this many bytes, 0 to disable.<br>
+ * gap = Time in milliseconds between the pieces of a split write.<br>
+ * stall = Stop forwarding data for this many milliseconds.<br>
+ * reset = Close the connection. (Takes no value.)
+ * </p>
+ * <p>
+ * Example: <code>10 latency=200 jitter=50 partial=1 gap=5</code>
+ * </p>
+ *
+ * @author Jose Uusitalo
+ */
+public class FaultProfile
+{
+	/**
+	 * A single step in the profile.
+	 */
+	private static class Step
+	{
+		/**
+		 * Milliseconds since the start of the connection.
+		 */
+		private final long time;
+
+		/**
+		 * The settings to apply in the form <code>setting=value</code>.
+		 */
+		private final String[] settings;
+
+		public Step(final long _time, final String[] _settings)
+		{
+			time = _time;
+			settings = _settings;
+		}
+	}
+
+	/**
+	 * The scripted steps sorted by time.
+	 */
+	private final List<Step> steps;
+
+	/**
+	 * Index of the next step to apply.
+	 */
+	private int nextStep;
+
+	/**
+	 * Delay in milliseconds.
+	 */
+	private volatile int latency;
+
+	/**
+	 * Maximum random delay in milliseconds.
+	 */
+	private volatile int jitter;
+
+	/**
+	 * Maximum bytes per second, 0 for unlimited.
+	 */
+	private volatile int bandwidth;
+
+	/**
+	 * Size of the partial write pieces in bytes, 0 for whole writes.
+	 */
+	private volatile int partialWriteSize;
+
+	/**
+	 * Time between the pieces of a partial write in milliseconds.
+	 */
+	private volatile int partialWriteGap;
+
+	/**
+	 * System time in milliseconds until which no data is forwarded.
+	 */
+	private volatile long stallUntil;
+
+	/**
+	 * Whether or not the connection should be reset.
+	 */
+	private volatile boolean resetRequested;
+
+	/**
+	 * Creates a profile without any faults.
+	 */
+	public FaultProfile()
+	{
+		steps = new ArrayList<Step>();
+	}
+
+	/**
+	 * Reads a profile from a file.
+	 *
+	 * @param _filename
+	 *            Name of the profile file.
+	 * @return the profile
+	 * @throws IOException
+	 *             when the file could not be read or is not a valid profile
+	 */
+	public static FaultProfile load(final String _filename) throws IOException
+	{
+		FaultProfile profile = new FaultProfile();
+		BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(_filename), StandardCharsets.UTF_8));
+
+		try
+		{
+			String line;
+			int lineNumber = 0;
+
+			while ((line = reader.readLine()) != null)
+			{
+				lineNumber++;
+				line = line.trim();
+
+				if (line.isEmpty() || line.startsWith("#"))
+					continue;
+
+				String[] parts = line.split("\\s+");
+
+				try
+				{
+					long time = Math.round(Double.parseDouble(parts[0]) * 1000.0);
+					String[] settings = new String[parts.length - 1];
+					System.arraycopy(parts, 1, settings, 0, settings.length);
+
+					// Validate the settings right away instead of in the middle of a test run.
+					new FaultProfile().apply(settings);
+
+					profile.steps.add(new Step(time, settings));
+				}
+				catch (IllegalArgumentException e)
+				{
+					throw new IOException("Invalid profile line " + lineNumber + ": " + e.getMessage());
+				}
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		Collections.sort(profile.steps, new Comparator<Step>()
+		{
+			@Override
+			public int compare(final Step first, final Step second)
+			{
+				return Long.compare(first.time, second.time);
+			}
+		});
+
+		return profile;
+	}
+
+	/**
+	 * Applies all steps that are due.
+	 *
+	 * @param _elapsed
+	 *            Milliseconds since the start of the connection.
+	 */
+	public synchronized void update(final long _elapsed)
+	{
+		while (nextStep < steps.size() && steps.get(nextStep).time <= _elapsed)
+		{
+			System.out.println("[FaultProfile] Step at " + steps.get(nextStep).time + " ms.");
+			apply(steps.get(nextStep).settings);
+			nextStep++;
+		}
+	}
+
+	/**
+	 * Starts the profile from the beginning and clears all active faults.
+	 */
+	public synchronized void restart()
+	{
+		nextStep = 0;
+		latency = 0;
+		jitter = 0;
+		bandwidth = 0;
+		partialWriteSize = 0;
+		partialWriteGap = 0;
+		stallUntil = 0;
+		resetRequested = false;
+	}
+
+	/**
+	 * Changes the active faults.
+	 *
+	 * @param _settings
+	 *            Settings in the form <code>setting=value</code>.
+	 * @throws IllegalArgumentException
+	 *             when a setting is unknown or its value is invalid
+	 */
+	private void apply(final String[] _settings) throws IllegalArgumentException
+	{
+		for (String s : _settings)
+		{
+			if (s.equals("reset"))
+			{
+				resetRequested = true;
+				continue;
+			}
+
+			String[] pair = s.split("=", 2);
+
+			if (pair.length != 2)
+				throw new IllegalArgumentException("Missing value: " + s);
+
+			int value = Integer.parseInt(pair[1]);
+
+			if (value < 0)
+				throw new IllegalArgumentException("Negative value: " + s);
+
+			if (pair[0].equals("latency"))
+				latency = value;
+			else if (pair[0].equals("jitter"))
+				jitter = value;
+			else if (pair[0].equals("bandwidth"))
+				bandwidth = value;
+			else if (pair[0].equals("partial"))
+				partialWriteSize = value;
+			else if (pair[0].equals("gap"))
+				partialWriteGap = value;
+			else if (pair[0].equals("stall"))
+				stallUntil = System.currentTimeMillis() + value;
+			else
+				throw new IllegalArgumentException("Unknown setting: " + pair[0]);
+		}
+	}
+
+	/**
+	 * @return the delay in milliseconds
+	 */
+	public int getLatency()
+	{
+		return latency;
+	}
+
+	/**
+	 * @return the maximum random delay in milliseconds
+	 */
+	public int getJitter()
+	{
+		return jitter;
+	}
+
+	/**
+	 * @return the maximum bytes per second, 0 for unlimited
+	 */
+	public int getBandwidth()
+	{
+		return bandwidth;
+	}
+
+	/**
+	 * @return the size of the partial write pieces in bytes, 0 for whole
+	 *         writes
+	 */
+	public int getPartialWriteSize()
+	{
+		return partialWriteSize;
+	}
+
+	/**
+	 * @return the time between the pieces of a partial write in milliseconds
+	 */
+	public int getPartialWriteGap()
+	{
+		return partialWriteGap;
+	}
+
+	/**
+	 * @return the system time in milliseconds until which no data is forwarded
+	 */
+	public long getStallUntil()
+	{
+		return stallUntil;
+	}
+
+	/**
+	 * @return <code>true</code> if the connection should be reset,
+	 *         <code>false</code> otherwise
+	 */
+	public boolean isResetRequested()
+	{
+		return resetRequested;
+	}
+}
@@ -0,0 +1,213 @@
+package game.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A thread that watches files for changes made by other programs, for example
+ * another copy of the game sharing the same highscore files or an edited
+ * configuration file. The listener is only notified when the modification time
+ * or the size of a watched file has changed. Network folders do not always
+ * report changes made on other computers, so the files are also checked every
+ * {@link FileWatcher#POLL_INTERVAL} milliseconds when nothing has been
+ * reported.
+ *
+ * @see HighscoreList
+ * @see GameConfig
+ * @author Jose Uusitalo
+ */
+public class FileWatcher extends Thread
+{
+	/**
+	 * Called when a watched file has changed.
+	 */
+	public interface ChangeListener
+	{
+		/**
+		 * A watched file was created, modified or deleted.
+		 */
+		void fileChanged();
+	}
+
+	/**
+	 * How long to wait for a file system event before checking the files
+	 * anyway in milliseconds.
+	 */
+	public static final long POLL_INTERVAL = 2000;
+
+	/**
+	 * The watched files.
+	 */
+	private final List<Path> files;
+
+	/**
+	 * The modification time and the size of each watched file when it was
+	 * last checked, both <code>0</code> if the file did not exist.
+	 */
+	private final long[][] stamps;
+
+	/**
+	 * Notified of changes.
+	 */
+	private final ChangeListener listener;
+
+	/**
+	 * Receives the file system events of the folders of the files.
+	 */
+	private final WatchService watchService;
+
+	/**
+	 * @param _listener
+	 *            Notified of changes.
+	 * @param _files
+	 *            The files to watch.
+	 * @throws IOException
+	 *             when the folder of a file can not be watched
+	 */
+	public FileWatcher(final ChangeListener _listener, final Path... _files) throws IOException
+	{
+		super("FileWatcher");
+		files = new ArrayList<Path>();
+		listener = _listener;
+		watchService = FileSystems.getDefault().newWatchService();
+
+		Set<Path> folders = new HashSet<Path>();
+
+		for (Path file : _files)
+		{
+			files.add(file.toAbsolutePath());
+
+			if (folders.add(file.toAbsolutePath().getParent()))
+				file.toAbsolutePath().getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+						StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+		}
+
+		stamps = new long[files.size()][];
+
+		for (int i = 0; i < stamps.length; i++)
+			stamps[i] = stamp(files.get(i));
+	}
+
+	/**
+	 * Starts watching the files in a daemon thread, so that it does not keep the
+	 * program running.
+	 */
+	@Override
+	public synchronized void start()
+	{
+		setDaemon(true);
+		super.start();
+	}
+
+	/**
+	 * @param _file
+	 *            A file.
+	 * @return the modification time and the size of the file, both
+	 *         <code>0</code> if it does not exist
+	 */
+	private static long[] stamp(final Path _file)
+	{
+		File file = _file.toFile();
+		return new long[] { file.lastModified(), file.length() };
+	}
+
+	/**
+	 * Checks the modification times and the sizes of the watched files.
+	 *
+	 * @return <code>true</code> if any of them has changed since the last
+	 *         check, <code>false</code> otherwise
+	 */
+	private boolean checkFiles()
+	{
+		boolean changed = false;
+
+		for (int i = 0; i < stamps.length; i++)
+		{
+			long[] stamp = stamp(files.get(i));
+
+			if (!Arrays.equals(stamp, stamps[i]))
+			{
+				stamps[i] = stamp;
+				changed = true;
+			}
+		}
+
+		return changed;
+	}
+
+	/**
+	 * Waits for file system events until stopped.
+	 */
+	@Override
+	public void run()
+	{
+		try
+		{
+			while (true)
+			{
+				WatchKey key = watchService.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+
+				if (key == null)
+				{
+					if (checkFiles())
+						listener.fileChanged();
+
+					continue;
+				}
+
+				Path folder = (Path) key.watchable();
+				boolean changed = false;
+
+				for (WatchEvent<?> event : key.pollEvents())
+				{
+					if (event.context() instanceof Path && files.contains(folder.resolve((Path) event.context())))
+						changed = true;
+				}
+
+				if (changed && checkFiles())
+					listener.fileChanged();
+
+				if (!key.reset())
+					break;
+			}
+		}
+		catch (ClosedWatchServiceException e)
+		{
+			// Stopped.
+		}
+		catch (InterruptedException e)
+		{
+			// Stopped.
+		}
+
+		System.out.println("[FileWatcher] Stopped watching " + files + ".");
+	}
+
+	/**
+	 * Stops watching the files.
+	 */
+	public void stopWatching()
+	{
+		try
+		{
+			watchService.close();
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,641 @@
+package game.model;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * <p>
+ * An archive of every game ever played. The games are appended to a file of
+ * fixed-size records and indexed in memory by player name and by time, so that
+ * the statistics of a player and the number of games played in a period of
+ * time can be looked up without reading the file.
+ * </p>
+ * <p>
+ * Header: magic number (4 bytes), format version (2 bytes), record size (2
+ * bytes).<br>
+ * Record: a {@link HighscoreFile} record with the name and the score, the time
+ * the game ended in milliseconds since the epoch (8 bytes), the number of
+ * shots fired (4 bytes) and a CRC-32 of all of the above (4 bytes). A
+ * partially written or damaged record at the end of the file is discarded when
+ * the archive is opened. A damaged record before the end is reported and
+ * skipped, but kept in the file so that the records after it stay where they
+ * are.
+ * </p>
+ *
+ * @author Jose Uusitalo
+ */
+public class GameArchive
+{
+	/**
+	 * The first four bytes of an archive file: "CGGA".
+	 */
+	public static final int MAGIC = 0x43474741;
+
+	/**
+	 * The current version of the file format.
+	 */
+	public static final short VERSION = 1;
+
+	/**
+	 * Size of the header in bytes.
+	 */
+	public static final int HEADER_SIZE = 4 + 2 + 2;
+
+	/**
+	 * Size of a single record in bytes.
+	 */
+	public static final int RECORD_SIZE = HighscoreFile.RECORD_SIZE + 8 + 4 + 4;
+
+	/**
+	 * Scores closer to each other than this many points share the same rank.
+	 */
+	public static final double RANK_RESOLUTION = 0.1;
+
+	/**
+	 * A single archived game.
+	 */
+	public static class Entry
+	{
+		/**
+		 * Name of the player.
+		 */
+		private final String name;
+
+		/**
+		 * Score of the player.
+		 */
+		private final double score;
+
+		/**
+		 * Time the game ended in milliseconds since the epoch.
+		 */
+		private final long timestamp;
+
+		/**
+		 * Number of shots fired.
+		 */
+		private final int shots;
+
+		public Entry(final String _name, final double _score, final long _timestamp, final int _shots)
+		{
+			name = _name;
+			score = _score;
+			timestamp = _timestamp;
+			shots = _shots;
+		}
+
+		/**
+		 * @return the name of the player
+		 */
+		public String getName()
+		{
+			return name;
+		}
+
+		/**
+		 * @return the score of the player
+		 */
+		public double getScore()
+		{
+			return score;
+		}
+
+		/**
+		 * @return the time the game ended in milliseconds since the epoch
+		 */
+		public long getTimestamp()
+		{
+			return timestamp;
+		}
+
+		/**
+		 * @return the number of shots fired
+		 */
+		public int getShots()
+		{
+			return shots;
+		}
+	}
+
+	/**
+	 * Statistics of all the games of a single player.
+	 */
+	public static class PlayerStats
+	{
+		/**
+		 * The best score.
+		 */
+		private double best;
+
+		/**
+		 * Number of games played.
+		 */
+		private int count;
+
+		/**
+		 * Sum of all scores.
+		 */
+		private double sum;
+
+		/**
+		 * Number of shots fired in all games.
+		 */
+		private long shots;
+
+		/**
+		 * Includes a game in the statistics.
+		 */
+		private void add(final double _score, final int _shots)
+		{
+			best = count == 0 ? _score : Math.max(best, _score);
+			count++;
+			sum += _score;
+			shots += _shots;
+		}
+
+		/**
+		 * @return the best score of the player
+		 */
+		public double getBest()
+		{
+			return best;
+		}
+
+		/**
+		 * @return the number of games the player has played
+		 */
+		public int getCount()
+		{
+			return count;
+		}
+
+		/**
+		 * @return the average score of the player
+		 */
+		public double getAverage()
+		{
+			return count == 0 ? 0.0 : sum / count;
+		}
+
+		/**
+		 * @return the number of shots the player has fired in all games
+		 */
+		public long getShots()
+		{
+			return shots;
+		}
+	}
+
+	/**
+	 * The archive file.
+	 */
+	private final File file;
+
+	/**
+	 * The open archive file, <code>null</code> if not open.
+	 */
+	private FileChannel channel;
+
+	/**
+	 * Statistics of each player by name.
+	 */
+	private final Map<String, PlayerStats> players;
+
+	/**
+	 * Timestamps of all games in ascending order.
+	 */
+	private long[] times;
+
+	/**
+	 * Record numbers of the games in the same order as {@link #times}.
+	 */
+	private int[] rows;
+
+	/**
+	 * Number of games in the archive.
+	 */
+	private int size;
+
+	/**
+	 * Number of records in the file, the damaged ones included.
+	 */
+	private int records;
+
+	/**
+	 * Number of damaged records skipped when the archive was opened.
+	 */
+	private int damaged;
+
+	/**
+	 * Ranks of all the scores in the archive.
+	 */
+	private ScoreRankIndex rankIndex;
+
+	/**
+	 * @param _filename
+	 *            Name of the archive file.
+	 */
+	public GameArchive(final String _filename)
+	{
+		file = new File(_filename);
+		players = new HashMap<String, PlayerStats>();
+		times = new long[1024];
+		rows = new int[1024];
+		rankIndex = new ScoreRankIndex(ScoreMachine.getMaxGameScore(), RANK_RESOLUTION);
+	}
+
+	/**
+	 * Reads the archive file and builds the indexes. Creates the file if it
+	 * does not exist.
+	 *
+	 * @throws IOException
+	 *             when the file can not be read or is not an archive file
+	 */
+	public synchronized void open() throws IOException
+	{
+		if (channel != null)
+			return;
+
+		players.clear();
+		size = 0;
+		records = 0;
+		damaged = 0;
+		rankIndex = new ScoreRankIndex(ScoreMachine.getMaxGameScore(), RANK_RESOLUTION);
+
+		channel = new RandomAccessFile(file, "rw").getChannel();
+
+		if (channel.size() == 0)
+		{
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC);
+			header.putShort(VERSION);
+			header.putShort((short) RECORD_SIZE);
+			header.flip();
+
+			while (header.hasRemaining())
+				channel.write(header);
+
+			channel.force(false);
+			return;
+		}
+
+		try
+		{
+			readRecords();
+		}
+		catch (IOException e)
+		{
+			channel.close();
+			channel = null;
+			throw e;
+		}
+
+		System.out.println("[GameArchive] " + size + " games in the archive.");
+	}
+
+	/**
+	 * Reads all records in the archive file into the indexes. Damaged records
+	 * are skipped, and the ones at the end of the file are cut off together
+	 * with a partially written record.
+	 *
+	 * @throws IOException
+	 *             when the file can not be read or is not an archive file
+	 */
+	private void readRecords() throws IOException
+	{
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+		List<Integer> skipped = new ArrayList<Integer>();
+		int row = 0;
+
+		try
+		{
+			if (in.readInt() != MAGIC)
+				throw new IOException("Not a game archive file.");
+
+			short version = in.readShort();
+			if (version != VERSION)
+				throw new IOException("Unsupported game archive version: " + version);
+
+			if (in.readShort() != RECORD_SIZE)
+				throw new IOException("Unexpected game archive record size.");
+
+			byte[] record = new byte[RECORD_SIZE];
+			CRC32 crc = new CRC32();
+
+			while (true)
+			{
+				try
+				{
+					in.readFully(record);
+				}
+				catch (EOFException e)
+				{
+					break;
+				}
+
+				Entry entry = null;
+				crc.reset();
+				crc.update(record, 0, RECORD_SIZE - 4);
+
+				if (ByteBuffer.wrap(record, RECORD_SIZE - 4, 4).getInt() == (int) crc.getValue())
+				{
+					try
+					{
+						entry = decode(record);
+					}
+					catch (IOException e)
+					{
+						// Counted as damaged below.
+					}
+				}
+
+				if (entry == null)
+				{
+					skipped.add(row);
+				}
+				else
+				{
+					index(entry, row);
+					records = row + 1;
+				}
+
+				row++;
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+
+		// Damaged records after the last good one were being written when the game stopped.
+		while (!skipped.isEmpty() && skipped.get(skipped.size() - 1) >= records)
+			skipped.remove(skipped.size() - 1);
+
+		damaged = skipped.size();
+
+		if (damaged > 0)
+			System.err.println("[GameArchive] Skipped " + damaged + " damaged records: " + skipped);
+
+		long valid = HEADER_SIZE + (long) records * RECORD_SIZE;
+
+		if (valid < channel.size())
+		{
+			System.out.println("[GameArchive] Discarding " + (channel.size() - valid)
+					+ " bytes of partially written records at the end.");
+			channel.truncate(valid);
+		}
+
+		channel.position(valid);
+	}
+
+	/**
+	 * Adds a game to the archive.
+	 *
+	 * @param _name
+	 *            Name of the player.
+	 * @param _score
+	 *            Score of the player.
+	 * @param _timestamp
+	 *            Time the game ended in milliseconds since the epoch.
+	 * @param _shots
+	 *            Number of shots fired.
+	 * @throws IOException
+	 *             when writing fails
+	 */
+	public synchronized void record(final String _name, final double _score, final long _timestamp, final int _shots)
+			throws IOException
+	{
+		if (channel == null)
+			throw new IOException("Game archive is not open.");
+
+		Entry entry = new Entry(_name, _score, _timestamp, _shots);
+		ByteBuffer buffer = ByteBuffer.wrap(encode(entry));
+
+		channel.position(HEADER_SIZE + (long) records * RECORD_SIZE);
+
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+
+		index(entry, records);
+		records++;
+	}
+
+	/**
+	 * @param _name
+	 *            Name of the player.
+	 * @return the statistics of the player, <code>null</code> if the player
+	 *         has not played any games
+	 */
+	public synchronized PlayerStats getPlayerStats(final String _name)
+	{
+		return players.get(_name);
+	}
+
+	/**
+	 * @param _from
+	 *            Start of the period in milliseconds since the epoch,
+	 *            inclusive.
+	 * @param _to
+	 *            End of the period in milliseconds since the epoch, exclusive.
+	 * @return the number of games that ended during the period
+	 */
+	public synchronized int countGames(final long _from, final long _to)
+	{
+		return Math.max(0, firstIndexAtOrAfter(_to) - firstIndexAtOrAfter(_from));
+	}
+
+	/**
+	 * Reads the games that ended during the given period from the file.
+	 *
+	 * @param _from
+	 *            Start of the period in milliseconds since the epoch,
+	 *            inclusive.
+	 * @param _to
+	 *            End of the period in milliseconds since the epoch, exclusive.
+	 * @return the games in the order they ended
+	 * @throws IOException
+	 *             when reading fails
+	 */
+	public synchronized List<Entry> getGames(final long _from, final long _to) throws IOException
+	{
+		if (channel == null)
+			throw new IOException("Game archive is not open.");
+
+		int first = firstIndexAtOrAfter(_from);
+		int last = firstIndexAtOrAfter(_to);
+		List<Entry> games = new ArrayList<Entry>(Math.max(0, last - first));
+		ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+
+		for (int i = first; i < last; i++)
+		{
+			buffer.clear();
+			long position = HEADER_SIZE + (long) rows[i] * RECORD_SIZE;
+
+			while (buffer.hasRemaining())
+			{
+				if (channel.read(buffer, position + buffer.position()) < 0)
+					throw new EOFException("Game archive is truncated.");
+			}
+
+			games.add(decode(buffer.array()));
+		}
+
+		return games;
+	}
+
+	/**
+	 * @return the ranks of all the scores in the archive
+	 */
+	public synchronized ScoreRankIndex getRankIndex()
+	{
+		return rankIndex;
+	}
+
+	/**
+	 * @return the number of games in the archive
+	 */
+	public synchronized int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return the number of damaged records skipped when the archive was
+	 *         opened
+	 */
+	public synchronized int getDamagedCount()
+	{
+		return damaged;
+	}
+
+	/**
+	 * Syncs the archive to the disk and closes it.
+	 */
+	public synchronized void close()
+	{
+		if (channel != null)
+		{
+			try
+			{
+				channel.force(false);
+				channel.close();
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+
+			channel = null;
+		}
+	}
+
+	/**
+	 * Adds a game to the indexes.
+	 *
+	 * @param _entry
+	 *            The game.
+	 * @param _row
+	 *            Record number of the game in the file.
+	 */
+	private void index(final Entry _entry, final int _row)
+	{
+		PlayerStats stats = players.get(_entry.getName());
+
+		if (stats == null)
+		{
+			stats = new PlayerStats();
+			players.put(_entry.getName(), stats);
+		}
+
+		stats.add(_entry.getScore(), _entry.getShots());
+		rankIndex.add(_entry.getScore());
+
+		if (size == times.length)
+		{
+			times = Arrays.copyOf(times, size * 2);
+			rows = Arrays.copyOf(rows, size * 2);
+		}
+
+		// Games are nearly always added in order, in which case nothing moves.
+		int index = firstIndexAtOrAfter(_entry.getTimestamp() + 1);
+		System.arraycopy(times, index, times, index + 1, size - index);
+		System.arraycopy(rows, index, rows, index + 1, size - index);
+		times[index] = _entry.getTimestamp();
+		rows[index] = _row;
+		size++;
+	}
+
+	/**
+	 * Binary search of the time index.
+	 *
+	 * @param _time
+	 *            Time in milliseconds since the epoch.
+	 * @return the index of the first game that ended at or after the given time
+	 */
+	private int firstIndexAtOrAfter(final long _time)
+	{
+		int low = 0;
+		int high = size;
+
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+
+			if (times[middle] < _time)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+
+		return low;
+	}
+
+	/**
+	 * @param _entry
+	 *            A game.
+	 * @return the game as a record
+	 */
+	private static byte[] encode(final Entry _entry)
+	{
+		byte[] record = new byte[RECORD_SIZE];
+		HighscoreFile.encode(new Highscore(_entry.getName(), _entry.getScore()), record);
+
+		ByteBuffer buffer = ByteBuffer.wrap(record, HighscoreFile.RECORD_SIZE, 16);
+		buffer.putLong(_entry.getTimestamp());
+		buffer.putInt(_entry.getShots());
+
+		CRC32 crc = new CRC32();
+		crc.update(record, 0, RECORD_SIZE - 4);
+		buffer.putInt((int) crc.getValue());
+
+		return record;
+	}
+
+	/**
+	 * @param _record
+	 *            A record.
+	 * @return the game in the record
+	 * @throws IOException
+	 *             when the record is invalid
+	 */
+	private static Entry decode(final byte[] _record) throws IOException
+	{
+		Highscore highscore = HighscoreFile.decode(_record);
+		ByteBuffer buffer = ByteBuffer.wrap(_record, HighscoreFile.RECORD_SIZE, 12);
+
+		return new Entry(highscore.getName(), highscore.getScore(), buffer.getLong(), buffer.getInt());
+	}
+}
@@ -0,0 +1,37 @@
+package game.model;
+
+/**
+ * The source of time for the game. All waiting in the game logic goes through
+ * the clock so that the game can be run faster than real time in tests and
+ * simulations.
+ *
+ * @see SystemClock
+ * @see VirtualClock
+ * @author Jose Uusitalo
+ */
+public interface GameClock
+{
+	/**
+	 * @return the current time in milliseconds
+	 */
+	public long currentTimeMillis();
+
+	/**
+	 * Causes the current thread to wait for the given time.
+	 *
+	 * @param _millis
+	 *            Time to wait in milliseconds of game time.
+	 * @throws InterruptedException
+	 *             when the thread was interrupted while waiting
+	 */
+	public void sleep(final long _millis) throws InterruptedException;
+
+	/**
+	 * Converts game time into real time for scheduling tasks with an executor.
+	 *
+	 * @param _millis
+	 *            Time in milliseconds of game time.
+	 * @return the same time in nanoseconds of real time
+	 */
+	public long toRealNanos(final long _millis);
+}
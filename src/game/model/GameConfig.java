@@ -0,0 +1,501 @@
+package game.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>
+ * The tunable settings of the game, read from a properties file at startup
+ * (by default {@value #DEFAULT_FILENAME} in the working folder, or the file
+ * given with the system property {@value #FILE_PROPERTY}). Settings missing
+ * from the file keep their default values. The settings are
+ * <code>debug</code>, <code>debug.info</code>, <code>timer.enabled</code>,
+ * <code>sleep.time</code>, <code>shot.timer</code>,
+ * <code>color.minimum.red</code>, <code>balls.max</code>,
+ * <code>angle.min</code> and <code>angle.max</code>.
+ * </p>
+ * <p>
+ * A configuration is immutable. The current one is kept in an atomic
+ * reference, so reading a setting never blocks, and {@link #reload()} replaces
+ * it as a whole. Settings that are only read when the game starts, such as
+ * {@link #isDebug()}, are marked restart-only and keep their values on reload.
+ * </p>
+ *
+ * @author Jose Uusitalo
+ */
+public final class GameConfig
+{
+	/**
+	 * Name of the system property with the path of the configuration file.
+	 */
+	public static final String FILE_PROPERTY = "cannongame.config";
+
+	/**
+	 * The configuration file used when {@value #FILE_PROPERTY} is not set.
+	 */
+	public static final String DEFAULT_FILENAME = "cannongame.properties";
+
+	/**
+	 * Time in milliseconds the configuration file must stay unmodified before
+	 * it is reloaded, so that a file is not read while it is being saved.
+	 */
+	public static final long SETTLE_TIME = 500;
+
+	/**
+	 * The configuration used when there is no configuration file.
+	 */
+	public static final GameConfig DEFAULTS = new GameConfig(true, true, false, 50, 5, 0.0095, 6, -85, 85);
+
+	/**
+	 * Modification time and size of the configuration file when it was read
+	 * last, <code>null</code> if it did not exist.
+	 */
+	private static volatile String fileVersion = readFileVersion();
+
+	/**
+	 * The configuration in use.
+	 */
+	private static final AtomicReference<GameConfig> current = new AtomicReference<GameConfig>(loadAtStartup());
+
+	/**
+	 * Whether or not to run this program in debug mode which creates a valid
+	 * but "null" remote connection. Restart-only.
+	 */
+	private final boolean debug;
+
+	/**
+	 * Whether or not to print additional debugging info about GUI and input
+	 * events.
+	 */
+	private final boolean debugInfo;
+
+	/**
+	 * Whether or not to use the shot timer feature, which fires the cannon
+	 * when the player has not fired in time. Restart-only.
+	 */
+	private final boolean timerEnabled;
+
+	/**
+	 * Time in milliseconds the data transfer loops wait between messages.
+	 */
+	private final long sleepTime;
+
+	/**
+	 * Time in seconds until the robot shoots automatically. Restart-only.
+	 */
+	private final int shotTimer;
+
+	/**
+	 * The smallest color sensor red value which counts as a hit.
+	 */
+	private final double minimumRedValue;
+
+	/**
+	 * The number of balls the cannon can shoot every round. Restart-only.
+	 */
+	private final int maxBalls;
+
+	/**
+	 * The minimum angle the robot's main motor can rotate to.
+	 */
+	private final int angleMin;
+
+	/**
+	 * The maximum angle the robot's main motor can rotate to.
+	 */
+	private final int angleMax;
+
+	private GameConfig(final boolean _debug, final boolean _debugInfo, final boolean _timerEnabled,
+			final long _sleepTime, final int _shotTimer, final double _minimumRedValue, final int _maxBalls,
+			final int _angleMin, final int _angleMax)
+	{
+		debug = _debug;
+		debugInfo = _debugInfo;
+		timerEnabled = _timerEnabled;
+		sleepTime = _sleepTime;
+		shotTimer = _shotTimer;
+		minimumRedValue = _minimumRedValue;
+		maxBalls = _maxBalls;
+		angleMin = _angleMin;
+		angleMax = _angleMax;
+	}
+
+	/**
+	 * @return the configuration in use
+	 */
+	public static GameConfig get()
+	{
+		return current.get();
+	}
+
+	/**
+	 * @return the path of the configuration file
+	 */
+	public static Path getFile()
+	{
+		return Paths.get(System.getProperty(FILE_PROPERTY, DEFAULT_FILENAME));
+	}
+
+	/**
+	 * Reads the configuration file, falling back to the defaults if it does
+	 * not exist or is not valid.
+	 *
+	 * @return the configuration to start with
+	 */
+	private static GameConfig loadAtStartup()
+	{
+		Path file = getFile();
+
+		if (!Files.exists(file))
+		{
+			System.out.println("[GameConfig] " + file + " not found, using the default configuration.");
+			return DEFAULTS;
+		}
+
+		try
+		{
+			GameConfig config = load(file, DEFAULTS);
+			System.out.println("[GameConfig] Loaded " + file + ": " + config);
+			return config;
+		}
+		catch (IOException | IllegalArgumentException e)
+		{
+			System.err.println("[GameConfig] Unable to load " + file + ", using the default configuration: " + e);
+			return DEFAULTS;
+		}
+	}
+
+	/**
+	 * @return modification time and size of the configuration file,
+	 *         <code>null</code> if it does not exist
+	 */
+	private static String readFileVersion()
+	{
+		try
+		{
+			Path file = getFile();
+			return Files.getLastModifiedTime(file) + "/" + Files.size(file);
+		}
+		catch (IOException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Reloads the configuration if the file has been modified since it was
+	 * read last. Waits until the file has not been modified for
+	 * {@link #SETTLE_TIME}.
+	 *
+	 * @return <code>true</code> if the configuration was reloaded
+	 * @throws IOException
+	 *             when the file can not be read
+	 * @throws IllegalArgumentException
+	 *             when a setting in the file is not valid
+	 * @see #reload()
+	 */
+	public static synchronized boolean reloadIfModified() throws IOException
+	{
+		String version = readFileVersion();
+
+		if (version == null ? fileVersion == null : version.equals(fileVersion))
+			return false;
+
+		if (version != null && !waitUntilSettled())
+			return false;
+
+		// An invalid file is only reported once, not on every check.
+		version = readFileVersion();
+		fileVersion = version;
+
+		if (version == null)
+		{
+			System.out.println("[GameConfig] " + getFile() + " was removed, keeping the current configuration.");
+			return false;
+		}
+
+		reload();
+		return true;
+	}
+
+	/**
+	 * Waits until the configuration file has not been modified for
+	 * {@link #SETTLE_TIME}.
+	 *
+	 * @return <code>false</code> if the file was removed or the thread was
+	 *         interrupted while waiting
+	 */
+	private static boolean waitUntilSettled()
+	{
+		try
+		{
+			long age;
+
+			while ((age = System.currentTimeMillis()
+					- Files.getLastModifiedTime(getFile()).toMillis()) < SETTLE_TIME)
+				Thread.sleep(SETTLE_TIME - age);
+
+			return true;
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Reads the configuration file again and starts using it. Restart-only
+	 * settings keep their current values. If the file is not valid the current
+	 * configuration is kept.
+	 *
+	 * @return the configuration in use after reloading
+	 * @throws IOException
+	 *             when the file can not be read
+	 * @throws IllegalArgumentException
+	 *             when a setting in the file is not valid
+	 */
+	public static synchronized GameConfig reload() throws IOException
+	{
+		GameConfig old = current.get();
+		GameConfig loaded = load(getFile(), DEFAULTS);
+		GameConfig next = new GameConfig(old.debug, loaded.debugInfo, old.timerEnabled, loaded.sleepTime,
+				old.shotTimer, loaded.minimumRedValue, old.maxBalls, loaded.angleMin, loaded.angleMax);
+
+		Map<String, Object> oldValues = old.toMap();
+		Map<String, Object> loadedValues = loaded.toMap();
+		Map<String, Object> nextValues = next.toMap();
+
+		for (String key : nextValues.keySet())
+		{
+			if (!nextValues.get(key).equals(oldValues.get(key)))
+				System.out.println("[GameConfig] " + key + ": " + oldValues.get(key) + " -> " + nextValues.get(key));
+			else if (!loadedValues.get(key).equals(oldValues.get(key)))
+				System.out.println("[GameConfig] " + key + " only changes after a restart.");
+		}
+
+		current.set(next);
+		return next;
+	}
+
+	/**
+	 * Reads a configuration file.
+	 *
+	 * @param _file
+	 *            The file.
+	 * @param _defaults
+	 *            Values of the settings missing from the file.
+	 * @return the configuration
+	 * @throws IOException
+	 *             when the file can not be read
+	 * @throws IllegalArgumentException
+	 *             when a setting in the file is not valid
+	 */
+	public static GameConfig load(final Path _file, final GameConfig _defaults) throws IOException
+	{
+		Properties properties = new Properties();
+
+		try (InputStream in = Files.newInputStream(_file))
+		{
+			properties.load(in);
+		}
+
+		for (String key : properties.stringPropertyNames())
+		{
+			if (!_defaults.toMap().containsKey(key))
+				throw new IllegalArgumentException("Unknown setting '" + key + "'.");
+		}
+
+		int angleMin = (int) parseLong(properties, "angle.min", _defaults.angleMin, -180, 0);
+		int angleMax = (int) parseLong(properties, "angle.max", _defaults.angleMax, 0, 180);
+
+		if (angleMin >= angleMax)
+			throw new IllegalArgumentException("angle.min must be less than angle.max.");
+
+		return new GameConfig(parseBoolean(properties, "debug", _defaults.debug),
+				parseBoolean(properties, "debug.info", _defaults.debugInfo),
+				parseBoolean(properties, "timer.enabled", _defaults.timerEnabled),
+				parseLong(properties, "sleep.time", _defaults.sleepTime, 1, 1000),
+				(int) parseLong(properties, "shot.timer", _defaults.shotTimer, 1, 60),
+				parseDouble(properties, "color.minimum.red", _defaults.minimumRedValue, 0.0, 1.0),
+				(int) parseLong(properties, "balls.max", _defaults.maxBalls, 1, 10), angleMin, angleMax);
+	}
+
+	private static boolean parseBoolean(final Properties _properties, final String _key, final boolean _default)
+	{
+		String value = _properties.getProperty(_key);
+
+		if (value == null)
+			return _default;
+
+		value = value.trim();
+
+		if (value.equalsIgnoreCase("true"))
+			return true;
+		if (value.equalsIgnoreCase("false"))
+			return false;
+
+		throw new IllegalArgumentException(_key + " must be true or false, was '" + value + "'.");
+	}
+
+	private static long parseLong(final Properties _properties, final String _key, final long _default,
+			final long _min, final long _max)
+	{
+		String value = _properties.getProperty(_key);
+
+		if (value == null)
+			return _default;
+
+		try
+		{
+			long number = Long.parseLong(value.trim());
+
+			if (_min <= number && number <= _max)
+				return number;
+		}
+		catch (NumberFormatException e)
+		{
+			// Reported below.
+		}
+
+		throw new IllegalArgumentException(
+				_key + " must be a whole number from " + _min + " to " + _max + ", was '" + value + "'.");
+	}
+
+	private static double parseDouble(final Properties _properties, final String _key, final double _default,
+			final double _min, final double _max)
+	{
+		String value = _properties.getProperty(_key);
+
+		if (value == null)
+			return _default;
+
+		try
+		{
+			double number = Double.parseDouble(value.trim());
+
+			if (_min <= number && number <= _max)
+				return number;
+		}
+		catch (NumberFormatException e)
+		{
+			// Reported below.
+		}
+
+		throw new IllegalArgumentException(
+				_key + " must be a number from " + _min + " to " + _max + ", was '" + value + "'.");
+	}
+
+	/**
+	 * @return the settings by their names in the configuration file
+	 */
+	private Map<String, Object> toMap()
+	{
+		Map<String, Object> values = new LinkedHashMap<String, Object>();
+		values.put("debug", debug);
+		values.put("debug.info", debugInfo);
+		values.put("timer.enabled", timerEnabled);
+		values.put("sleep.time", sleepTime);
+		values.put("shot.timer", shotTimer);
+		values.put("color.minimum.red", minimumRedValue);
+		values.put("balls.max", maxBalls);
+		values.put("angle.min", angleMin);
+		values.put("angle.max", angleMax);
+		return values;
+	}
+
+	@Override
+	public String toString()
+	{
+		return toMap().toString();
+	}
+
+	/**
+	 * @return <code>true</code> if the program runs in debug mode which
+	 *         creates a valid but "null" remote connection, used for testing
+	 *         without access to the robot itself
+	 */
+	public boolean isDebug()
+	{
+		return debug;
+	}
+
+	/**
+	 * @return <code>true</code> to print additional debugging info about GUI
+	 *         and input events
+	 */
+	public boolean isDebugInfo()
+	{
+		return debugInfo;
+	}
+
+	/**
+	 * @return <code>true</code> to use the shot timer feature
+	 */
+	public boolean isTimerEnabled()
+	{
+		return timerEnabled;
+	}
+
+	/**
+	 * @return time in milliseconds the data transfer loops wait between
+	 *         messages
+	 */
+	public long getSleepTime()
+	{
+		return sleepTime;
+	}
+
+	/**
+	 * @return time in seconds until the robot shoots automatically
+	 */
+	public int getShotTimer()
+	{
+		return shotTimer;
+	}
+
+	/**
+	 * @return the smallest color sensor red value which counts as a hit
+	 */
+	public double getMinimumRedValue()
+	{
+		return minimumRedValue;
+	}
+
+	/**
+	 * @return the number of balls the cannon can shoot every round
+	 */
+	public int getMaxBalls()
+	{
+		return maxBalls;
+	}
+
+	/**
+	 * @return the minimum angle the robot's main motor can rotate to, limited
+	 *         by the length of the cables
+	 */
+	public int getAngleMin()
+	{
+		return angleMin;
+	}
+
+	/**
+	 * @return the maximum angle the robot's main motor can rotate to, limited
+	 *         by the length of the cables
+	 */
+	public int getAngleMax()
+	{
+		return angleMax;
+	}
+}
@@ -0,0 +1,139 @@
+package game.model;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * <p>
+ * The results of every game played on this PC: the highscore list, the game
+ * archive and the leaderboards. When one PC runs several robots all of their
+ * controllers share the same records, since the highscore file can only be
+ * locked once per program.
+ * </p>
+ * <p>
+ * Changes to the highscores, whether made by this program or by others
+ * sharing the file, are reported to every registered listener.
+ * </p>
+ *
+ * @author Jose Uusitalo
+ */
+public class GameRecords
+{
+	/**
+	 * Name of the game archive file.
+	 */
+	public static final String ARCHIVE_FILENAME = "games.archive";
+
+	/**
+	 * A list of highscores of all players.
+	 */
+	private final HighscoreList highscores;
+
+	/**
+	 * An archive of every game played.
+	 */
+	private final GameArchive archive;
+
+	/**
+	 * The best scores of today and this week.
+	 */
+	private final Leaderboards leaderboards;
+
+	/**
+	 * Notified when the highscores change.
+	 */
+	private final List<HighscoreList.ChangeListener> listeners;
+
+	/**
+	 * Opens the highscore list and the game archive.
+	 */
+	public GameRecords()
+	{
+		listeners = new CopyOnWriteArrayList<HighscoreList.ChangeListener>();
+		highscores = new HighscoreList();
+		highscores.reload();
+		highscores.watchFile(new HighscoreList.ChangeListener()
+		{
+			@Override
+			public void highscoresChanged()
+			{
+				fireHighscoresChanged();
+			}
+		});
+
+		archive = new GameArchive(ARCHIVE_FILENAME);
+		leaderboards = new Leaderboards(HighscoreList.HIGHSCORE_LIST_MAX_SIZE);
+
+		try
+		{
+			archive.open();
+			leaderboards.load(archive, System.currentTimeMillis());
+		}
+		catch (IOException e)
+		{
+			System.err.println("[GameRecords] Unable to open the game archive: " + e);
+		}
+	}
+
+	/**
+	 * @param _listener
+	 *            Notified when the highscores change.
+	 */
+	public void addListener(final HighscoreList.ChangeListener _listener)
+	{
+		listeners.add(_listener);
+	}
+
+	/**
+	 * @param _listener
+	 *            A listener added earlier.
+	 */
+	public void removeListener(final HighscoreList.ChangeListener _listener)
+	{
+		listeners.remove(_listener);
+	}
+
+	/**
+	 * Tells every listener that the highscores have changed.
+	 */
+	public void fireHighscoresChanged()
+	{
+		for (HighscoreList.ChangeListener listener : listeners)
+			listener.highscoresChanged();
+	}
+
+	/**
+	 * Stores the highscores waiting to be saved and closes the files.
+	 */
+	public void close()
+	{
+		listeners.clear();
+		highscores.close();
+		archive.close();
+	}
+
+	/**
+	 * @return the list of highscores
+	 */
+	public HighscoreList getHighscores()
+	{
+		return highscores;
+	}
+
+	/**
+	 * @return the archive of every game played
+	 */
+	public GameArchive getArchive()
+	{
+		return archive;
+	}
+
+	/**
+	 * @return the best scores of today and this week
+	 */
+	public Leaderboards getLeaderboards()
+	{
+		return leaderboards;
+	}
+}
@@ -0,0 +1,213 @@
+package game.model;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Owns the loops of a single game, such as reading and writing robot data and
+ * the demo mode. Closing the session cancels every loop and waits for them to
+ * end, so no loop of an old game is left blocked on the connection when the
+ * next game starts.
+ * </p>
+ * <p>
+ * A loop should still check its own stop flag: cancelling interrupts it, but
+ * a read from a network socket only ends when data arrives or the read times
+ * out.
+ * </p>
+ *
+ * @see GameThreads
+ * @author Jose Uusitalo
+ */
+public class GameSession
+{
+	/**
+	 * Number of loops running in all sessions. Should be zero whenever no
+	 * game is being played.
+	 */
+	private static final AtomicInteger runningInAll = new AtomicInteger();
+
+	/**
+	 * Name of the session for the log.
+	 */
+	private final String name;
+
+	/**
+	 * The loops started in this session.
+	 */
+	private final List<Future<?>> loops;
+
+	/**
+	 * The threads running the loops of this session at the moment.
+	 */
+	private final Set<Thread> threads;
+
+	/**
+	 * Whether or not the session has been closed.
+	 */
+	private boolean closed;
+
+	/**
+	 * @param _name
+	 *            Name of the session for the log.
+	 */
+	public GameSession(final String _name)
+	{
+		name = _name;
+		loops = new ArrayList<Future<?>>();
+		threads = new HashSet<Thread>();
+	}
+
+	/**
+	 * Starts running the given loop in this session.
+	 *
+	 * @param _loopName
+	 *            Name of the thread while it runs the loop.
+	 * @param _loop
+	 *            The loop.
+	 * @throws IllegalStateException
+	 *             when the session has been closed
+	 */
+	public synchronized void start(final String _loopName, final Runnable _loop)
+	{
+		if (closed)
+			throw new IllegalStateException("Session " + name + " has been closed.");
+
+		loops.add(GameThreads.start(_loopName, new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				if (enter())
+					_loop.run();
+			}
+		}, new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				// Only once the thread no longer looks like it runs the loop.
+				exit();
+			}
+		}));
+	}
+
+	/**
+	 * Registers the current thread as running a loop of this session.
+	 *
+	 * @return <code>false</code> if the session was closed before the loop
+	 *         got to run
+	 */
+	private synchronized boolean enter()
+	{
+		if (closed)
+			return false;
+
+		threads.add(Thread.currentThread());
+		runningInAll.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Unregisters the current thread when its loop ends, if it got to run.
+	 */
+	private synchronized void exit()
+	{
+		if (!threads.remove(Thread.currentThread()))
+			return;
+
+		runningInAll.decrementAndGet();
+		notifyAll();
+	}
+
+	/**
+	 * Cancels every loop of this session and waits for them to end. A loop
+	 * may close its own session, in which case the other loops are waited
+	 * for.
+	 *
+	 * @param _timeoutMillis
+	 *            Maximum time to wait for the loops in milliseconds of real
+	 *            time.
+	 * @return <code>true</code> if all the loops ended in time,
+	 *         <code>false</code> if some are still running
+	 */
+	public synchronized boolean close(final long _timeoutMillis)
+	{
+		closed = true;
+
+		for (Future<?> loop : loops)
+			loop.cancel(true);
+
+		long deadline = System.currentTimeMillis() + _timeoutMillis;
+		boolean interrupted = false;
+
+		try
+		{
+			long remaining;
+
+			while (!isEnded() && (remaining = deadline - System.currentTimeMillis()) > 0)
+			{
+				try
+				{
+					wait(remaining);
+				}
+				catch (InterruptedException e)
+				{
+					interrupted = true;
+				}
+			}
+		}
+		finally
+		{
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+
+		if (!isEnded())
+		{
+			System.err.println("[GameSession] " + name + ": " + threads.size() + " loops still running after "
+					+ _timeoutMillis + " ms: " + threads);
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return <code>true</code> if no loop other than the one calling this is
+	 *         running
+	 */
+	private boolean isEnded()
+	{
+		return threads.isEmpty() || (threads.size() == 1 && threads.contains(Thread.currentThread()));
+	}
+
+	/**
+	 * @return the number of loops of this session running at the moment
+	 */
+	public synchronized int getRunningCount()
+	{
+		return threads.size();
+	}
+
+	/**
+	 * @return the number of loops running in all sessions, used for detecting
+	 *         loops that were left running after their game
+	 */
+	public static int getRunningInAllCount()
+	{
+		return runningInAll.get();
+	}
+
+	/**
+	 * @return name of the session
+	 */
+	public String getName()
+	{
+		return name;
+	}
+}
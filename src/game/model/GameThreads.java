@@ -0,0 +1,188 @@
+package game.model;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Runs the loops of a game session (reading and writing robot data, the shot
+ * timer, the demo mode and the robot simulator) on one shared executor. These
+ * loops spend nearly all of their time sleeping or waiting for data, so they
+ * can run on virtual threads where the Java runtime supports them.
+ * </p>
+ * <p>
+ * The mode is chosen once at startup with the system property
+ * {@value #MODE_PROPERTY}, either <code>platform</code> (the default) or
+ * <code>virtual</code>. Virtual threads are created through reflection so the
+ * game still builds and runs on older runtimes, which fall back to platform
+ * threads.
+ * </p>
+ *
+ * @author Jose Uusitalo
+ */
+public final class GameThreads
+{
+	/**
+	 * The kinds of threads the loops can run on.
+	 */
+	public enum Mode
+	{
+		/**
+		 * A pool of operating system threads.
+		 */
+		PLATFORM,
+
+		/**
+		 * A new virtual thread for every loop.
+		 */
+		VIRTUAL
+	}
+
+	/**
+	 * Name of the system property which selects the {@link Mode}.
+	 */
+	public static final String MODE_PROPERTY = "cannongame.threads";
+
+	/**
+	 * The mode in use.
+	 */
+	private static final Mode mode;
+
+	/**
+	 * Runs the loops.
+	 */
+	private static final ExecutorService executor;
+
+	/**
+	 * Number of loops running.
+	 */
+	private static final AtomicInteger running = new AtomicInteger();
+
+	static
+	{
+		ExecutorService virtual = null;
+
+		if (Mode.VIRTUAL.name().equalsIgnoreCase(System.getProperty(MODE_PROPERTY)))
+		{
+			try
+			{
+				Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+				virtual = (ExecutorService) factory.invoke(null);
+			}
+			catch (Exception e)
+			{
+				System.err.println("[GameThreads] Virtual threads are not available, using platform threads: " + e);
+			}
+		}
+
+		if (virtual != null)
+		{
+			mode = Mode.VIRTUAL;
+			executor = virtual;
+		}
+		else
+		{
+			mode = Mode.PLATFORM;
+			executor = Executors.newCachedThreadPool(new ThreadFactory()
+			{
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(final Runnable _task)
+				{
+					Thread thread = new Thread(_task, "GameThread-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+
+		System.out.println("[GameThreads] Running game loops on " + mode.name().toLowerCase() + " threads.");
+	}
+
+	private GameThreads()
+	{
+		// Static methods only.
+	}
+
+	/**
+	 * Starts running the given loop.
+	 *
+	 * @param _name
+	 *            Name of the thread while it runs the loop.
+	 * @param _loop
+	 *            The loop.
+	 * @return the running loop, which can be cancelled to interrupt it
+	 */
+	public static Future<?> start(final String _name, final Runnable _loop)
+	{
+		return start(_name, _loop, null);
+	}
+
+	/**
+	 * Starts running the given loop.
+	 *
+	 * @param _name
+	 *            Name of the thread while it runs the loop.
+	 * @param _loop
+	 *            The loop.
+	 * @param _finished
+	 *            Run after the loop has ended and the thread has got its own
+	 *            name back, <code>null</code> if nothing.
+	 * @return the running loop, which can be cancelled to interrupt it
+	 */
+	public static Future<?> start(final String _name, final Runnable _loop, final Runnable _finished)
+	{
+		return executor.submit(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				Thread thread = Thread.currentThread();
+				String poolName = thread.getName();
+
+				thread.setName(_name);
+				running.incrementAndGet();
+
+				try
+				{
+					_loop.run();
+				}
+				catch (RuntimeException e)
+				{
+					// Submitted tasks would swallow the exception otherwise.
+					System.err.println("[GameThreads] " + _name + " failed.");
+					e.printStackTrace();
+				}
+				finally
+				{
+					running.decrementAndGet();
+					thread.setName(poolName);
+
+					if (_finished != null)
+						_finished.run();
+				}
+			}
+		});
+	}
+
+	/**
+	 * @return the mode in use
+	 */
+	public static Mode getMode()
+	{
+		return mode;
+	}
+
+	/**
+	 * @return the number of loops running
+	 */
+	public static int getRunningCount()
+	{
+		return running.get();
+	}
+}
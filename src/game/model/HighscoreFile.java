@@ -0,0 +1,395 @@
+package game.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+import game.controller.Controller;
+
+/**
+ * <p>
+ * The binary file format for storing highscores.
+ * </p>
+ * <p>
+ * Header: magic number (4 bytes), format version (2 bytes), record size (2
+ * bytes), number of records (4 bytes), sequence number of the last journal
+ * entry included in the file (8 bytes, since version 2).<br>
+ * Record: score (8 byte double), name length in bytes (1 byte), UTF-8 encoded
+ * name padded with zeros to {@link HighscoreFile#NAME_BYTES}.<br>
+ * Trailer: CRC-32 of all the records (4 bytes).
+ * </p>
+ *
+ * @see Highscore
+ * @author Jose Uusitalo
+ */
+public class HighscoreFile
+{
+	/**
+	 * The first four bytes of a highscore file: "CGHS".
+	 */
+	public static final int MAGIC = 0x43474853;
+
+	/**
+	 * The current version of the file format.
+	 */
+	public static final short VERSION = 2;
+
+	/**
+	 * Maximum length of a player name in bytes. A UTF-8 character takes at
+	 * most four bytes.
+	 */
+	public static final int NAME_BYTES = Controller.PLAYER_NAME_MAX_LENGTH * 4;
+
+	/**
+	 * Size of a single record in bytes.
+	 */
+	public static final int RECORD_SIZE = 8 + 1 + NAME_BYTES;
+
+	/**
+	 * Size of the header in bytes.
+	 */
+	public static final int HEADER_SIZE = 4 + 2 + 2 + 4 + 8;
+
+	/**
+	 * Reads highscores one at a time.
+	 */
+	public static class Reader implements Closeable
+	{
+		/**
+		 * The stream being read.
+		 */
+		private final DataInputStream in;
+
+		/**
+		 * Number of records in the file.
+		 */
+		private final int count;
+
+		/**
+		 * Sequence number of the last journal entry included in the file.
+		 */
+		private final long sequence;
+
+		/**
+		 * Number of records read so far.
+		 */
+		private int read;
+
+		/**
+		 * Checksum of the records read so far.
+		 */
+		private final CRC32 crc;
+
+		/**
+		 * Buffer for a single record.
+		 */
+		private final byte[] record;
+
+		/**
+		 * Reads the header.
+		 *
+		 * @param _in
+		 *            The stream to read from.
+		 * @throws IOException
+		 *             when the stream is not a highscore file or is of an
+		 *             unsupported version
+		 */
+		public Reader(final InputStream _in) throws IOException
+		{
+			in = new DataInputStream(new BufferedInputStream(_in));
+			crc = new CRC32();
+
+			if (in.readInt() != MAGIC)
+				throw new IOException("Not a highscore file.");
+
+			short version = in.readShort();
+			if (version < 1 || version > VERSION)
+				throw new IOException("Unsupported highscore file version: " + version);
+
+			short recordSize = in.readShort();
+			if (recordSize != RECORD_SIZE)
+				throw new IOException("Unexpected highscore record size: " + recordSize);
+
+			count = in.readInt();
+			if (count < 0)
+				throw new IOException("Invalid highscore count: " + count);
+
+			sequence = version >= 2 ? in.readLong() : 0;
+			record = new byte[RECORD_SIZE];
+		}
+
+		/**
+		 * @return the number of highscores in the file
+		 */
+		public int getCount()
+		{
+			return count;
+		}
+
+		/**
+		 * @return the sequence number of the last journal entry included in the
+		 *         file, <code>0</code> if none
+		 * @see HighscoreJournal
+		 */
+		public long getSequence()
+		{
+			return sequence;
+		}
+
+		/**
+		 * Reads the next highscore. The checksum is verified after the last
+		 * highscore has been read.
+		 *
+		 * @return the next highscore or <code>null</code> if all highscores
+		 *         have been read
+		 * @throws IOException
+		 *             when the file is truncated or the checksum does not match
+		 */
+		public Highscore next() throws IOException
+		{
+			if (read == count)
+				return null;
+
+			in.readFully(record);
+			crc.update(record, 0, RECORD_SIZE);
+			read++;
+
+			if (read == count && in.readInt() != (int) crc.getValue())
+				throw new IOException("Highscore file is corrupted: checksum mismatch.");
+
+			return decode(record);
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Writes highscores one at a time.
+	 */
+	public static class Writer implements Closeable
+	{
+		/**
+		 * The stream being written.
+		 */
+		private final DataOutputStream out;
+
+		/**
+		 * Number of records to write.
+		 */
+		private final int count;
+
+		/**
+		 * Number of records written so far.
+		 */
+		private int written;
+
+		/**
+		 * Whether or not the checksum has been written.
+		 */
+		private boolean finished;
+
+		/**
+		 * Checksum of the records written so far.
+		 */
+		private final CRC32 crc;
+
+		/**
+		 * Buffer for a single record.
+		 */
+		private final byte[] record;
+
+		/**
+		 * Writes the header.
+		 *
+		 * @param _out
+		 *            The stream to write to.
+		 * @param _count
+		 *            The number of highscores that will be written.
+		 * @throws IOException
+		 *             when writing fails
+		 */
+		public Writer(final OutputStream _out, final int _count) throws IOException
+		{
+			this(_out, _count, 0);
+		}
+
+		/**
+		 * Writes the header.
+		 *
+		 * @param _out
+		 *            The stream to write to.
+		 * @param _count
+		 *            The number of highscores that will be written.
+		 * @param _sequence
+		 *            Sequence number of the last journal entry included in the
+		 *            file.
+		 * @throws IOException
+		 *             when writing fails
+		 * @see HighscoreJournal
+		 */
+		public Writer(final OutputStream _out, final int _count, final long _sequence) throws IOException
+		{
+			out = new DataOutputStream(new BufferedOutputStream(_out));
+			count = _count;
+			crc = new CRC32();
+			record = new byte[RECORD_SIZE];
+
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			out.writeShort(RECORD_SIZE);
+			out.writeInt(count);
+			out.writeLong(_sequence);
+		}
+
+		/**
+		 * Writes a highscore.
+		 *
+		 * @param _highscore
+		 *            The highscore to write.
+		 * @throws IOException
+		 *             when writing fails or more highscores are written than
+		 *             were declared
+		 */
+		public void write(final Highscore _highscore) throws IOException
+		{
+			if (written == count)
+				throw new IOException("All " + count + " highscores have already been written.");
+
+			encode(_highscore, record);
+			crc.update(record, 0, RECORD_SIZE);
+			out.write(record);
+			written++;
+		}
+
+		/**
+		 * Writes the checksum and flushes the stream without closing it, so
+		 * that the file can be synced to the disk before closing.
+		 *
+		 * @throws IOException
+		 *             when writing fails or fewer highscores were written than
+		 *             were declared
+		 */
+		public void finish() throws IOException
+		{
+			if (finished)
+				return;
+
+			if (written != count)
+				throw new IOException("Only " + written + " of " + count + " highscores were written.");
+
+			out.writeInt((int) crc.getValue());
+			out.flush();
+			finished = true;
+		}
+
+		/**
+		 * Writes the checksum if not already written and closes the stream.
+		 *
+		 * @throws IOException
+		 *             when writing fails or fewer highscores were written than
+		 *             were declared
+		 */
+		@Override
+		public void close() throws IOException
+		{
+			try
+			{
+				finish();
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+	}
+
+	/**
+	 * Instantiation of this class is not necessary.
+	 */
+	private HighscoreFile()
+	{
+	}
+
+	/**
+	 * Encodes a highscore into a record.
+	 *
+	 * @param _highscore
+	 *            The highscore.
+	 * @param _record
+	 *            A buffer of {@link HighscoreFile#RECORD_SIZE} bytes.
+	 */
+	static void encode(final Highscore _highscore, final byte[] _record)
+	{
+		long bits = Double.doubleToLongBits(_highscore.getScore());
+
+		for (int i = 0; i < 8; i++)
+			_record[i] = (byte) (bits >>> (56 - i * 8));
+
+		byte[] name = truncate(_highscore.getName().getBytes(StandardCharsets.UTF_8));
+
+		_record[8] = (byte) name.length;
+		System.arraycopy(name, 0, _record, 9, name.length);
+
+		for (int i = 9 + name.length; i < RECORD_SIZE; i++)
+			_record[i] = 0;
+	}
+
+	/**
+	 * Decodes a record into a highscore.
+	 *
+	 * @param _record
+	 *            A buffer of {@link HighscoreFile#RECORD_SIZE} bytes.
+	 * @return the highscore
+	 * @throws IOException
+	 *             when the record is invalid
+	 */
+	static Highscore decode(final byte[] _record) throws IOException
+	{
+		long bits = 0;
+
+		for (int i = 0; i < 8; i++)
+			bits = (bits << 8) | (_record[i] & 0xFF);
+
+		int nameLength = _record[8] & 0xFF;
+
+		if (nameLength > NAME_BYTES)
+			throw new IOException("Invalid highscore name length: " + nameLength);
+
+		return new Highscore(new String(_record, 9, nameLength, StandardCharsets.UTF_8), Double.longBitsToDouble(bits));
+	}
+
+	/**
+	 * Cuts a UTF-8 encoded name to fit in a record without splitting a
+	 * character in half.
+	 *
+	 * @param _name
+	 *            UTF-8 encoded name.
+	 * @return the name, shortened if necessary
+	 */
+	private static byte[] truncate(final byte[] _name)
+	{
+		if (_name.length <= NAME_BYTES)
+			return _name;
+
+		int length = NAME_BYTES;
+
+		// Continuation bytes of a multi-byte character start with the bits 10.
+		while (length > 0 && (_name[length] & 0xC0) == 0x80)
+			length--;
+
+		byte[] truncated = new byte[length];
+		System.arraycopy(_name, 0, truncated, 0, length);
+		return truncated;
+	}
+}
@@ -0,0 +1,685 @@
+package game.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * <p>
+ * Crash-safe storage for highscores that can be shared by several copies of
+ * the game, for example by game stations using the same network folder. New
+ * highscores are appended to a journal file instead of rewriting the whole
+ * highscore file. The {@link HighscoreWriter} appends the highscores in batches
+ * and every {@link HighscoreJournal#COMPACT_THRESHOLD} entries the journal is
+ * compacted: the best highscores are written into a temporary file which then
+ * atomically replaces the snapshot file, after which the journal is emptied.
+ * </p>
+ * <p>
+ * The files are only read and written while holding an exclusive lock on a
+ * separate lock file. Before appending, the entries added by the other copies
+ * of the game are read, so the sequence numbers stay unique and compacting
+ * never loses a highscore written by someone else. The entries of the other
+ * copies are handed to the {@link HighscoreList} by
+ * {@link HighscoreJournal#readUpdates()}.
+ * </p>
+ * <p>
+ * Journal entry: sequence number (8 bytes), a {@link HighscoreFile} record and
+ * a CRC-32 of the sequence number and the record (4 bytes). The snapshot
+ * stores the sequence number of the last entry it includes, so entries that
+ * are already in the snapshot are skipped when recovering. A partially written
+ * entry at the end of the journal is discarded.
+ * </p>
+ *
+ * @see HighscoreList
+ * @author Jose Uusitalo
+ */
+public class HighscoreJournal
+{
+	/**
+	 * Number of journal entries after which the journal is compacted into a
+	 * snapshot.
+	 */
+	public static final int COMPACT_THRESHOLD = 50;
+
+	/**
+	 * Size of a single journal entry in bytes.
+	 */
+	public static final int ENTRY_SIZE = 8 + HighscoreFile.RECORD_SIZE + 4;
+
+	/**
+	 * Highscores added by the other copies of the game.
+	 */
+	public static class Updates
+	{
+		/**
+		 * Whether or not the highscores are everything in the files instead of
+		 * only the new highscores.
+		 */
+		private final boolean complete;
+
+		/**
+		 * The highscores in the order they were added.
+		 */
+		private final List<Highscore> highscores;
+
+		private Updates(final boolean _complete, final List<Highscore> _highscores)
+		{
+			complete = _complete;
+			highscores = _highscores;
+		}
+
+		/**
+		 * @return <code>true</code> if another copy of the game compacted or
+		 *         cleared the files and the highscores replace the whole list,
+		 *         <code>false</code> if they are new highscores to add to the
+		 *         list
+		 */
+		public boolean isComplete()
+		{
+			return complete;
+		}
+
+		/**
+		 * @return the highscores in the order they were added
+		 */
+		public List<Highscore> getHighscores()
+		{
+			return highscores;
+		}
+	}
+
+	/**
+	 * The snapshot file.
+	 */
+	private final File snapshotFile;
+
+	/**
+	 * The journal file.
+	 */
+	private final File journalFile;
+
+	/**
+	 * The lock file.
+	 */
+	private final File lockFile;
+
+	/**
+	 * Maximum number of highscores in the snapshot.
+	 */
+	private final int capacity;
+
+	/**
+	 * The open journal file, <code>null</code> if not open.
+	 */
+	private FileChannel journal;
+
+	/**
+	 * The open lock file, <code>null</code> if not open.
+	 */
+	private FileChannel lock;
+
+	/**
+	 * Sequence number of the last entry read or written.
+	 */
+	private long lastSequence;
+
+	/**
+	 * Sequence number stored in the snapshot when this program last read or
+	 * wrote it.
+	 */
+	private long snapshotSequence;
+
+	/**
+	 * Position in the journal up to which all entries have been read or
+	 * written.
+	 */
+	private long position;
+
+	/**
+	 * Number of entries in the journal.
+	 */
+	private int entries;
+
+	/**
+	 * Highscores added by the other copies of the game that have not been
+	 * handed to the highscore list yet.
+	 */
+	private List<Highscore> updates;
+
+	/**
+	 * Whether or not {@link #updates} is everything in the files.
+	 */
+	private boolean updatesComplete;
+
+	/**
+	 * @param _snapshotFilename
+	 *            Name of the snapshot file.
+	 * @param _journalFilename
+	 *            Name of the journal file.
+	 * @param _capacity
+	 *            Maximum number of highscores in the snapshot.
+	 */
+	public HighscoreJournal(final String _snapshotFilename, final String _journalFilename, final int _capacity)
+	{
+		snapshotFile = new File(_snapshotFilename);
+		journalFile = new File(_journalFilename);
+		lockFile = new File(_journalFilename + ".lock");
+		capacity = _capacity;
+		updates = new ArrayList<Highscore>();
+	}
+
+	/**
+	 * @return the snapshot file
+	 */
+	public File getSnapshotFile()
+	{
+		return snapshotFile;
+	}
+
+	/**
+	 * @return the journal file
+	 */
+	public File getJournalFile()
+	{
+		return journalFile;
+	}
+
+	/**
+	 * Reads the snapshot and the journal entries written after it. A partially
+	 * written entry at the end of the journal is removed.
+	 *
+	 * @return the highscores in the snapshot followed by the highscores in the
+	 *         journal in the order they were added
+	 * @throws IOException
+	 *             when reading the files fails
+	 */
+	public synchronized List<Highscore> recover() throws IOException
+	{
+		FileLock fileLock = lock();
+
+		try
+		{
+			List<Highscore> highscores = readAll();
+
+			updates = new ArrayList<Highscore>();
+			updatesComplete = false;
+			return highscores;
+		}
+		finally
+		{
+			fileLock.release();
+		}
+	}
+
+	/**
+	 * Appends new highscores to the journal and syncs it to the disk before
+	 * the other copies of the game can see it.
+	 *
+	 * @param _highscores
+	 *            The new highscores.
+	 * @throws IOException
+	 *             when writing fails
+	 */
+	public synchronized void append(final List<Highscore> _highscores) throws IOException
+	{
+		FileLock fileLock = lock();
+
+		try
+		{
+			catchUp();
+
+			ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE * _highscores.size());
+			byte[] record = new byte[HighscoreFile.RECORD_SIZE];
+			CRC32 crc = new CRC32();
+
+			for (Highscore h : _highscores)
+			{
+				int start = buffer.position();
+
+				HighscoreFile.encode(h, record);
+				buffer.putLong(++lastSequence);
+				buffer.put(record);
+				crc.reset();
+				crc.update(buffer.array(), start, ENTRY_SIZE - 4);
+				buffer.putInt((int) crc.getValue());
+			}
+
+			buffer.flip();
+
+			while (buffer.hasRemaining())
+				position += journal.write(buffer, position);
+
+			journal.force(false);
+			entries += _highscores.size();
+		}
+		finally
+		{
+			fileLock.release();
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the journal has grown long enough to be
+	 *         compacted, <code>false</code> otherwise
+	 */
+	public synchronized boolean needsCompaction()
+	{
+		return entries >= COMPACT_THRESHOLD;
+	}
+
+	/**
+	 * Writes the best highscores in the snapshot and the journal into a new
+	 * snapshot and empties the journal. Highscores added by the other copies
+	 * of the game are included.
+	 *
+	 * @throws IOException
+	 *             when reading or writing fails
+	 */
+	public synchronized void compact() throws IOException
+	{
+		FileLock fileLock = lock();
+
+		try
+		{
+			catchUp();
+
+			TopScores top = new TopScores(capacity);
+
+			for (Highscore h : readAll())
+				top.offer(h);
+
+			writeSnapshot(top.toList());
+		}
+		finally
+		{
+			fileLock.release();
+		}
+	}
+
+	/**
+	 * Writes the given highscore list into the snapshot and empties the
+	 * journal. The highscores added by the other copies of the game since the
+	 * last call to {@link #readUpdates()} are added to the list first. If
+	 * another copy has compacted or cleared the files, their contents replace
+	 * the given list.
+	 *
+	 * @param _list
+	 *            The complete highscore list.
+	 * @return the highscores written into the snapshot
+	 * @throws IOException
+	 *             when reading or writing fails
+	 */
+	public synchronized List<Highscore> compact(final List<Highscore> _list) throws IOException
+	{
+		FileLock fileLock = lock();
+
+		try
+		{
+			catchUp();
+
+			TopScores top = new TopScores(capacity);
+
+			if (!updatesComplete)
+			{
+				for (Highscore h : _list)
+					top.offer(h);
+			}
+
+			for (Highscore h : updates)
+				top.offer(h);
+
+			updates = new ArrayList<Highscore>();
+			updatesComplete = false;
+
+			List<Highscore> highscores = top.toList();
+			writeSnapshot(highscores);
+			return highscores;
+		}
+		finally
+		{
+			fileLock.release();
+		}
+	}
+
+	/**
+	 * Replaces a snapshot written by an older version of the game with the
+	 * given highscores and the entries already in the journal.
+	 *
+	 * @param _legacy
+	 *            The highscores read from the old snapshot.
+	 * @return the highscores written into the snapshot
+	 * @throws IOException
+	 *             when reading or writing fails
+	 */
+	public synchronized List<Highscore> convert(final List<Highscore> _legacy) throws IOException
+	{
+		FileLock fileLock = lock();
+
+		try
+		{
+			// The old snapshot can not be read, so only the journal is caught up with.
+			TopScores top = new TopScores(capacity);
+			List<Highscore> journaled = new ArrayList<Highscore>();
+
+			lastSequence = 0;
+			position = 0;
+			entries = 0;
+			readEntries(0, journaled);
+
+			for (Highscore h : _legacy)
+				top.offer(h);
+
+			for (Highscore h : journaled)
+				top.offer(h);
+
+			updates = new ArrayList<Highscore>();
+			updatesComplete = false;
+
+			List<Highscore> highscores = top.toList();
+			writeSnapshot(highscores);
+			return highscores;
+		}
+		finally
+		{
+			fileLock.release();
+		}
+	}
+
+	/**
+	 * Reads the highscores added by the other copies of the game since the
+	 * last call.
+	 *
+	 * @return the new highscores, or everything in the files if another copy
+	 *         of the game has compacted or cleared them
+	 * @throws IOException
+	 *             when reading fails
+	 */
+	public synchronized Updates readUpdates() throws IOException
+	{
+		FileLock fileLock = lock();
+
+		try
+		{
+			catchUp();
+
+			Updates result = new Updates(updatesComplete, updates);
+			updates = new ArrayList<Highscore>();
+			updatesComplete = false;
+			return result;
+		}
+		finally
+		{
+			fileLock.release();
+		}
+	}
+
+	/**
+	 * Empties the journal and deletes the snapshot file.
+	 *
+	 * @throws IOException
+	 *             when deleting the files fails
+	 */
+	public synchronized void delete() throws IOException
+	{
+		FileLock fileLock = lock();
+
+		try
+		{
+			journal.truncate(0);
+			journal.force(false);
+			Files.deleteIfExists(snapshotFile.toPath());
+
+			lastSequence = 0;
+			snapshotSequence = 0;
+			position = 0;
+			entries = 0;
+		}
+		finally
+		{
+			fileLock.release();
+		}
+	}
+
+	/**
+	 * Closes the journal and the lock file.
+	 */
+	public synchronized void close()
+	{
+		try
+		{
+			if (journal != null)
+				journal.close();
+
+			if (lock != null)
+				lock.close();
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+
+		journal = null;
+		lock = null;
+	}
+
+	/**
+	 * Opens the files if they are not open and waits until no other copy of
+	 * the game is using them.
+	 *
+	 * @return the lock, must be released when done
+	 * @throws IOException
+	 *             when opening or locking the files fails
+	 */
+	private FileLock lock() throws IOException
+	{
+		if (lock == null)
+			lock = new RandomAccessFile(lockFile, "rw").getChannel();
+
+		if (journal == null)
+			journal = new RandomAccessFile(journalFile, "rw").getChannel();
+
+		return lock.lock();
+	}
+
+	/**
+	 * Reads the entries added by the other copies of the game into
+	 * {@link #updates}. If another copy has compacted or cleared the files,
+	 * everything is read again. Must be called while holding the lock.
+	 *
+	 * @throws IOException
+	 *             when reading fails
+	 */
+	private void catchUp() throws IOException
+	{
+		if (readSnapshotSequence() != snapshotSequence || journal.size() < position)
+		{
+			System.out.println("[HighscoreJournal] Highscore files rewritten by another program.");
+			updates = readAll();
+			updatesComplete = true;
+			return;
+		}
+
+		readEntries(snapshotSequence, updates);
+	}
+
+	/**
+	 * Reads the snapshot and the whole journal. Must be called while holding
+	 * the lock.
+	 *
+	 * @return the highscores in the snapshot followed by the highscores in the
+	 *         journal in the order they were added
+	 * @throws IOException
+	 *             when reading fails
+	 */
+	private List<Highscore> readAll() throws IOException
+	{
+		List<Highscore> highscores = new ArrayList<Highscore>();
+
+		snapshotSequence = 0;
+
+		if (snapshotFile.exists())
+		{
+			HighscoreFile.Reader reader = new HighscoreFile.Reader(new FileInputStream(snapshotFile));
+
+			try
+			{
+				Highscore h;
+
+				while ((h = reader.next()) != null)
+					highscores.add(h);
+
+				snapshotSequence = reader.getSequence();
+			}
+			finally
+			{
+				reader.close();
+			}
+		}
+
+		int fromSnapshot = highscores.size();
+
+		lastSequence = snapshotSequence;
+		position = 0;
+		entries = 0;
+		readEntries(snapshotSequence, highscores);
+
+		System.out.println("[HighscoreJournal] Read " + fromSnapshot + " highscores from the snapshot and "
+				+ (highscores.size() - fromSnapshot) + " from the journal.");
+
+		return highscores;
+	}
+
+	/**
+	 * Reads the journal entries after {@link #position}. A partially written
+	 * entry at the end of the journal is removed. Must be called while holding
+	 * the lock.
+	 *
+	 * @param _after
+	 *            Entries with this sequence number or lower are already in the
+	 *            snapshot and skipped.
+	 * @param _highscores
+	 *            Where the highscores are added to.
+	 * @throws IOException
+	 *             when reading fails
+	 */
+	private void readEntries(final long _after, final List<Highscore> _highscores) throws IOException
+	{
+		ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+		byte[] record = new byte[HighscoreFile.RECORD_SIZE];
+		CRC32 crc = new CRC32();
+
+		while (true)
+		{
+			entry.clear();
+
+			while (entry.hasRemaining() && journal.read(entry, position + entry.position()) >= 0)
+			{
+				// Keep reading until the entry is full or the file ends.
+			}
+
+			if (entry.hasRemaining())
+				break;
+
+			entry.flip();
+			crc.reset();
+			crc.update(entry.array(), 0, ENTRY_SIZE - 4);
+
+			long sequence = entry.getLong();
+			entry.get(record);
+
+			if (entry.getInt() != (int) crc.getValue())
+				break;
+
+			if (sequence > _after)
+				_highscores.add(HighscoreFile.decode(record));
+
+			lastSequence = Math.max(lastSequence, sequence);
+			entries++;
+			position += ENTRY_SIZE;
+		}
+
+		// Nobody is writing while the lock is held, so the rest is left over from a crash.
+		if (position < journal.size())
+		{
+			System.out.println("[HighscoreJournal] Discarding " + (journal.size() - position)
+					+ " bytes of a partially written entry.");
+			journal.truncate(position);
+			journal.force(false);
+		}
+	}
+
+	/**
+	 * @return the sequence number stored in the snapshot, <code>0</code> if
+	 *         there is no snapshot
+	 * @throws IOException
+	 *             when reading fails
+	 */
+	private long readSnapshotSequence() throws IOException
+	{
+		if (!snapshotFile.exists())
+			return 0;
+
+		HighscoreFile.Reader reader = new HighscoreFile.Reader(new FileInputStream(snapshotFile));
+
+		try
+		{
+			return reader.getSequence();
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	/**
+	 * Writes the given highscores into the snapshot and empties the journal.
+	 * Must be called while holding the lock.
+	 *
+	 * @param _list
+	 *            The highscores.
+	 * @throws IOException
+	 *             when writing fails
+	 */
+	private void writeSnapshot(final List<Highscore> _list) throws IOException
+	{
+		File temporaryFile = new File(snapshotFile.getPath() + ".tmp");
+		FileOutputStream fileOutput = new FileOutputStream(temporaryFile);
+		HighscoreFile.Writer writer = new HighscoreFile.Writer(fileOutput, _list.size(), lastSequence);
+
+		try
+		{
+			for (Highscore h : _list)
+				writer.write(h);
+
+			writer.finish();
+			fileOutput.getFD().sync();
+		}
+		finally
+		{
+			writer.close();
+		}
+
+		Files.move(temporaryFile.toPath(), snapshotFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING);
+
+		// All entries are now in the snapshot.
+		journal.truncate(0);
+		journal.force(false);
+
+		snapshotSequence = lastSequence;
+		position = 0;
+		entries = 0;
+
+		System.out.println("[HighscoreJournal] Compacted " + _list.size() + " highscores into the snapshot.");
+	}
+}
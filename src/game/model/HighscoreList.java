@@ -1,19 +1,16 @@
 package game.model;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.ObjectStreamConstants;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
-import game.controller.Controller;
 
 /**
  * A List of finite size of highscores sorted by their scores.
@@ -26,7 +23,7 @@ public class HighscoreList
 	/**
 	 * The List of highscores containing the name of the player and their score.
 	 */
-	private List<Highscore> list;
+	private TopScores list;
 
 	/**
 	 * The maximum number of rows the highscore list in the user interface is
@@ -38,233 +35,430 @@ public class HighscoreList
 	public static final int HIGHSCORE_LIST_MAX_SIZE = 20;
 
 	/**
-	 * The name of the highscore file.
+	 * Name of the system property for the folder of the highscore files. Game
+	 * stations that use the same folder, for example on a network drive, share
+	 * the same highscore list.
+	 */
+	public static final String DIRECTORY_PROPERTY = "cannongame.highscores.dir";
+
+	/**
+	 * The name of the highscore snapshot file.
 	 */
 	private final String FILENAME = "highscores.data";
 
+	/**
+	 * The name of the highscore journal file.
+	 */
+	private final String JOURNAL_FILENAME = "highscores.journal";
+
+	/**
+	 * Notified when the highscores were changed by another program.
+	 */
+	public interface ChangeListener
+	{
+		/**
+		 * The highscore list was updated with highscores from the files.
+		 */
+		void highscoresChanged();
+	}
+
+	/**
+	 * Stores the highscores on the disk.
+	 */
+	private final HighscoreJournal journal;
+
+	/**
+	 * Writes new highscores to the journal in the background.
+	 */
+	private final HighscoreWriter writer;
+
+	/**
+	 * Watches the highscore file for changes made by other programs,
+	 * <code>null</code> if not watching.
+	 */
+	private FileWatcher watcher;
+
+	/**
+	 * Held while the list is brought up to date with the files, so that the
+	 * changes are applied in the order they were read. Taken before the
+	 * monitor of this list, which is not held while waiting for the lock on
+	 * the files.
+	 */
+	private final Object refreshLock = new Object();
+
 	public HighscoreList()
 	{
-		list = new ArrayList<Highscore>();
+		list = new TopScores(HIGHSCORE_LIST_MAX_SIZE);
+		String directoryName = System.getProperty(DIRECTORY_PROPERTY);
+		File directory = directoryName == null ? null : new File(directoryName);
+
+		journal = new HighscoreJournal(new File(directory, FILENAME).getPath(),
+				new File(directory, JOURNAL_FILENAME).getPath(), HIGHSCORE_LIST_MAX_SIZE);
+		writer = new HighscoreWriter(journal);
+		writer.start();
 	}
 
 	/**
-	 * @return the List of highscores
+	 * @return a copy of the List of highscores
 	 * @see Highscore
 	 */
-	public List<Highscore> getList()
+	public synchronized List<Highscore> getList()
 	{
-		return list;
+		return list.toList();
 	}
 
 	/**
-	 * Add a player to the list of highscores if there is space on the list and
-	 * their score is greater or equal to the current lowest score. If the score
-	 * was added to the list, the list is written to a file for storage.
+	 * Starts adding the highscores written by other copies of the game to the
+	 * list whenever the highscore files change.
 	 *
-	 * @param _player
-	 *            The Player whose score is to be added to the highscore list.
-	 * @return <code>true</code> if the player's score was added to the list,
-	 *         <code>false</code> otherwise
-	 * @see HighscoreList#writeToFile
+	 * @param _listener
+	 *            Notified after the highscore list has changed.
 	 */
-	public boolean addScore(final Player _player)
+	public synchronized void watchFile(final ChangeListener _listener)
 	{
-		/*
-		 * The size should not be greater than max size but it never hurts to be
-		 * prepared to handle all situations.
-		 */
-		if (list.size() >= HIGHSCORE_LIST_MAX_SIZE)
-		{
-			// List full.
-			double score = _player.getScore();
+		if (watcher != null)
+			return;
 
-			if (score >= getLowestScore())
+		try
+		{
+			watcher = new FileWatcher(new FileWatcher.ChangeListener()
 			{
-				int id = firstScoreIndex(score);
-				if (id >= 0)
-				{
-					list.add(id, new Highscore(_player.getName(), score));
-				}
-				else
+				@Override
+				public void fileChanged()
 				{
-					/*
-					 * Score amount does not exist yet, which means the score is
-					 * greater than the lowest score. Add new highscore to the
-					 * top of the list. The list is later trimmed to maximum
-					 * size and ordered by score in that order, which means the
-					 * last lowest score will be removed.
-					 */
-					list.add(0, new Highscore(_player.getName(), score));
+					if (refresh())
+						_listener.highscoresChanged();
 				}
+			}, journal.getSnapshotFile().toPath(), journal.getJournalFile().toPath());
 
-				System.out.println("[HighscoreList] Trimming list maximum size.");
-				if (list.size() > HIGHSCORE_LIST_MAX_SIZE)
-					list = list.subList(0, HIGHSCORE_LIST_MAX_SIZE);
-			}
-			else
-			{
-				System.out.println("[HighscoreList] Not enought points for a high score.");
-				return false;
-			}
+			watcher.start();
 		}
-		else
+		catch (IOException e)
 		{
-			System.out.println("[HighscoreList] List not yet full, adding score.");
-			list.add(new Highscore(_player.getName(), _player.getScore()));
+			System.err.println("[HighscoreList] Unable to watch the highscore file: " + e);
 		}
-
-		writeToFile();
-		return true;
 	}
 
 	/**
-	 * Does a linear search of the highscore list looking for the specified
-	 * score.
-	 *
-	 * @param _score
-	 *            Score amount to search for.
-	 * @return the first index of the score in the list if found,
-	 *         <code>-1</code> if score does not exist in the list
+	 * Stops watching the highscore file.
 	 */
-	private int firstScoreIndex(final double _score)
+	public synchronized void stopWatchingFile()
 	{
-		double listScore;
-		for (int i = 0; i < list.size() - 1; i++)
+		if (watcher != null)
 		{
-			listScore = list.get(i).getScore();
-			// Found what we're looking for.
-			if (listScore == _score)
-			{
-				return i;
-			}
-			else if (listScore < _score)
-			{
-				/*
-				 * Because the list is in an descending order we already went
-				 * past what we were looking for, thus the score is not in the
-				 * list.
-				 */
-				return -1;
-			}
+			watcher.stopWatching();
+			watcher = null;
 		}
-		return -1;
 	}
 
 	/**
-	 * @return the current lowest highscore
+	 * Stops watching the highscore file and makes sure all highscores have
+	 * been written to the disk.
 	 */
-	private double getLowestScore()
+	public void close()
 	{
-		return list.get(list.size() - 1).getScore();
+		stopWatchingFile();
+		writer.stopWriting();
+		journal.close();
 	}
 
 	/**
-	 * Reads the list of highscores from the binary file "highscores" in the
-	 * same folder as this program and assigns it into a List for later use.
+	 * @return the number of highscores that have not yet been written to the
+	 *         disk
 	 */
-	public void readFromFile()
+	public int getPendingWrites()
 	{
-		FileInputStream fileInput = null;
-		ObjectInputStream objectInput = null;
-		Object o;
-		List<Highscore> old = list;
+		return writer.getPendingWrites();
+	}
 
+	/**
+	 * @return the time it took to write the last batch of highscores to the
+	 *         disk in milliseconds
+	 */
+	public long getLastPersistLatency()
+	{
+		return writer.getLastPersistLatency();
+	}
+
+	/**
+	 * Waits until all new highscores have been written to the disk so that the
+	 * files can be read or rewritten.
+	 */
+	private void awaitWrites()
+	{
 		try
 		{
-			fileInput = new FileInputStream(FILENAME);
-			objectInput = new ObjectInputStream(fileInput);
-			list.clear();
-
-			while ((o = objectInput.readObject()) != null)
-			{
-				if (o instanceof Highscore)
-					list.add((Highscore) o);
-			}
+			writer.awaitIdle();
 		}
-		catch (EOFException e)
+		catch (InterruptedException e)
 		{
-			System.out.println("[HighscoreList] Highscores read from file.");
+			Thread.currentThread().interrupt();
 		}
-		catch (FileNotFoundException e)
+	}
+
+	/**
+	 * Adds the highscores written by other copies of the game to the list. If
+	 * another copy has rewritten the files, the list is rebuilt from them and
+	 * the highscores of this program that are still waiting to be written.
+	 *
+	 * @return <code>true</code> if the list was changed, <code>false</code>
+	 *         otherwise
+	 */
+	public boolean refresh()
+	{
+		synchronized (refreshLock)
 		{
-			System.out.println("[HighscoreList] No highscore file found.");
+			HighscoreJournal.Updates updates;
+			List<Highscore> queued;
+
+			// The writer can not move highscores from its queue to the journal in between.
+			synchronized (journal)
+			{
+				try
+				{
+					updates = journal.readUpdates();
+				}
+				catch (IOException e)
+				{
+					System.err.println("[HighscoreList] Unable to read the highscore files: " + e);
+					return false;
+				}
+
+				queued = writer.getQueuedHighscores();
+			}
+
+			if (updates.isComplete())
+			{
+				TopScores reloaded = new TopScores(HIGHSCORE_LIST_MAX_SIZE);
+
+				for (Highscore h : updates.getHighscores())
+					reloaded.offer(h);
+
+				for (Highscore h : queued)
+					reloaded.offer(h);
+
+				synchronized (this)
+				{
+					list = reloaded;
+				}
+
+				System.out.println("[HighscoreList] Highscores reloaded.");
+				return true;
+			}
+
+			boolean changed = false;
+
+			synchronized (this)
+			{
+				for (Highscore h : updates.getHighscores())
+				{
+					if (list.offer(h) >= 0)
+						changed = true;
+				}
+			}
+
+			if (!updates.getHighscores().isEmpty())
+				System.out.println("[HighscoreList] " + updates.getHighscores().size() + " highscores added by other programs.");
+
+			return changed;
 		}
-		catch (Exception e)
+	}
+
+	/**
+	 * Add a player to the list of highscores if there is space on the list or
+	 * their score is greater than the current lowest score. If the score
+	 * was added to the list, it is written to the highscore journal in the
+	 * background.
+	 *
+	 * @param _player
+	 *            The Player whose score is to be added to the highscore list.
+	 * @return <code>true</code> if the player's score was added to the list,
+	 *         <code>false</code> otherwise
+	 * @see HighscoreWriter
+	 */
+	public boolean addScore(final Player _player)
+	{
+		return addScore(_player, null);
+	}
+
+	/**
+	 * Add a player to the list of highscores if there is space on the list or
+	 * their score is greater than the current lowest score. If the score was
+	 * added to the list, it is written to the highscore journal in the
+	 * background.
+	 *
+	 * @param _player
+	 *            The Player whose score is to be added to the highscore list.
+	 * @param _listener
+	 *            Notified when the score has been stored on the disk, may be
+	 *            <code>null</code>.
+	 * @return <code>true</code> if the player's score was added to the list,
+	 *         <code>false</code> otherwise
+	 * @see HighscoreWriter
+	 */
+	public synchronized boolean addScore(final Player _player, final HighscoreWriter.DurabilityListener _listener)
+	{
+		Highscore highscore = new Highscore(_player.getName(), _player.getScore());
+
+		if (!insert(highscore))
+			return false;
+
+		writer.write(highscore, _listener);
+		return true;
+	}
+
+	/**
+	 * Adds a highscore to the list in memory if it qualifies.
+	 *
+	 * @param _highscore
+	 *            The highscore.
+	 * @return <code>true</code> if the highscore was added to the list,
+	 *         <code>false</code> otherwise
+	 */
+	private boolean insert(final Highscore _highscore)
+	{
+		if (list.offer(_highscore) < 0)
 		{
-			// Rolling back just in case.
-			list = old;
-			System.out.println(e);
+			System.out.println("[HighscoreList] Not enought points for a high score.");
+			return false;
 		}
-		finally
+
+		return true;
+	}
+
+	/**
+	 * @param _score
+	 *            Score to check.
+	 * @return <code>true</code> if the given score would be added to the list,
+	 *         <code>false</code> otherwise
+	 * @see HighscoreList#addScore(Player)
+	 */
+	public synchronized boolean qualifies(final double _score)
+	{
+		return list.qualifies(_score);
+	}
+
+	/**
+	 * Reads the list of highscores from the highscore snapshot file
+	 * "highscores.data" and the highscore journal in the folder given by the
+	 * system property {@value #DIRECTORY_PROPERTY}, the folder of this program
+	 * by default, and replaces the list in memory with it. A file written by an
+	 * older version of the game is converted to the current format. The list in
+	 * memory is kept up to date by this class and {@link #refresh()}, so this
+	 * only needs to be called at startup.
+	 *
+	 * @see HighscoreJournal
+	 */
+	public void reload()
+	{
+		File file = journal.getSnapshotFile();
+
+		synchronized (refreshLock)
 		{
-			if (objectInput != null)
+			synchronized (this)
 			{
+				awaitWrites();
+
 				try
 				{
-					objectInput.close();
+					List<Highscore> recovered;
+
+					if (file.exists() && isLegacyFile(file))
+					{
+						System.out.println("[HighscoreList] Converting the highscore file to the new format.");
+						recovered = journal.convert(readLegacyFile(file));
+					}
+					else
+						recovered = journal.recover();
+
+					replaceList(recovered);
+					System.out.println("[HighscoreList] Highscores read from file.");
 				}
-				catch (IOException e)
+				catch (Exception e)
 				{
-					e.printStackTrace();
+					// The old list is kept.
+					System.out.println(e);
 				}
 			}
 		}
 	}
 
 	/**
-	 * Writes the current list of highscores into a binary file for storing the
-	 * data across program launches.
+	 * Replaces the list in memory with the given highscores. Must be called
+	 * while holding the monitor of this list.
+	 *
+	 * @param _highscores
+	 *            The highscores.
 	 */
-	private void writeToFile()
+	private void replaceList(final List<Highscore> _highscores)
 	{
-		FileOutputStream fileOutput = null;
-		ObjectOutputStream objectOutput = null;
+		list = new TopScores(HIGHSCORE_LIST_MAX_SIZE);
+
+		for (Highscore h : _highscores)
+			list.offer(h);
+	}
 
-		System.out.println("[HighscoreList] Sorting list.");
-		Collections.sort(list, new Comparator<Highscore>()
+	/**
+	 * @param _file
+	 *            The highscore file.
+	 * @return <code>true</code> if the file was written with Java object
+	 *         serialization by an older version of the game
+	 * @throws IOException
+	 *             when reading the file fails
+	 */
+	private static boolean isLegacyFile(final File _file) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new FileInputStream(_file));
+
+		try
 		{
-			@Override
-			public int compare(final Highscore first, final Highscore second)
-			{
-				/*
-				 * Sort the highscore list into descending order by
-				 * score.
-				 */
-				return Double.compare(second.getScore(), first.getScore());
-			}
-		});
+			return in.readShort() == ObjectStreamConstants.STREAM_MAGIC;
+		}
+		catch (EOFException e)
+		{
+			return false;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
 
-		System.out.println("[HighscoreList] Done sorting.");
+	/**
+	 * Reads a highscore file written with Java object serialization.
+	 *
+	 * @param _file
+	 *            The highscore file.
+	 * @return the highscores in the file
+	 * @throws IOException
+	 *             when the file can not be read
+	 * @throws ClassNotFoundException
+	 *             when the file contains unknown objects
+	 */
+	private static List<Highscore> readLegacyFile(final File _file) throws IOException, ClassNotFoundException
+	{
+		ObjectInputStream objectInput = new ObjectInputStream(new BufferedInputStream(new FileInputStream(_file)));
+		List<Highscore> highscores = new ArrayList<Highscore>();
+		Object o;
 
 		try
 		{
-			fileOutput = new FileOutputStream(FILENAME);
-			objectOutput = new ObjectOutputStream(fileOutput);
-			for (Highscore h : list)
+			while ((o = objectInput.readObject()) != null)
 			{
-				objectOutput.writeObject(h);
+				if (o instanceof Highscore)
+					highscores.add((Highscore) o);
 			}
 		}
-		catch (Exception e)
+		catch (EOFException e)
 		{
-			System.err.println(e);
+			// End of file.
 		}
 		finally
 		{
-			if (objectOutput != null)
-			{
-				try
-				{
-					objectOutput.close();
-				}
-				catch (IOException e)
-				{
-					e.printStackTrace();
-				}
-			}
+			objectInput.close();
 		}
 
-		System.out.println("[HighscoreList] Highscores written to the file.");
+		return highscores;
 	}
 
 	/**
@@ -272,38 +466,58 @@ public class HighscoreList
 	 * <b>FOR DEBUG USE ONLY.</b>
 	 * </p>
 	 * <p>
-	 * Delete the highscore file and remove all entries from the current
+	 * Delete the highscore files and remove all entries from the current
 	 * highscore list. Will not do anything if debug mode is not enabled.
 	 * </p>
 	 */
 	public void debugClearHighscores()
 	{
-		if (Controller.DEBUG)
+		if (GameConfig.get().isDebug())
 		{
-			list.clear();
-			File file = new File(FILENAME);
-
-			if (!file.exists())
-				throw new IllegalArgumentException("Can't find the highscore file!");
-
-			if (!file.canWrite())
-				throw new IllegalArgumentException("Can't write to the highscore file!");
+			synchronized (refreshLock)
+			{
+				synchronized (this)
+				{
+					list.clear();
+					awaitWrites();
 
-			if (!file.delete())
-				throw new IllegalArgumentException("Deleting highscore file failed!");
+					try
+					{
+						journal.delete();
+					}
+					catch (IOException e)
+					{
+						throw new IllegalArgumentException("Deleting highscore files failed!", e);
+					}
+				}
+			}
 		}
 	}
 
 	public void debugRemoveHighscoreByIndex(final int _index)
 	{
-		readFromFile();
-		list.remove(_index);
-		writeToFile();
+		synchronized (refreshLock)
+		{
+			synchronized (this)
+			{
+				list.remove(_index);
+				awaitWrites();
+
+				try
+				{
+					// The highscores added by other programs are kept in the snapshot.
+					replaceList(journal.compact(list.toList()));
+				}
+				catch (IOException e)
+				{
+					e.printStackTrace();
+				}
+			}
+		}
 	}
 
-	public void debugPrintHighscores()
+	public synchronized void debugPrintHighscores()
 	{
-		readFromFile();
 		for (int i = 0; i < list.size(); i++)
 		{
 			System.out.println(i + ": " + list.get(i).getName() + " " + list.get(i).getScore());
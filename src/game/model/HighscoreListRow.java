@@ -2,17 +2,13 @@ package game.model;
 
 /**
  * A dummy model for displaying the highscores in the user interface highscore
- * list.
+ * list. The position of a row is its index in the table, so rows can be
+ * inserted without renumbering the others.
  *
  * @author Jose Uusitalo
  */
 public class HighscoreListRow
 {
-	/**
-	 * The integer signifying the position of the highscore in the list.
-	 */
-	private int position;
-
 	/**
 	 * Name of the player who made the {@link Highscore}.
 	 */
@@ -23,22 +19,12 @@ public class HighscoreListRow
 	 */
 	private double score;
 
-	public HighscoreListRow(final int _position, final String _name, double _score)
+	public HighscoreListRow(final String _name, double _score)
 	{
-		position = _position;
 		name = _name;
 		score = _score;
 	}
 
-	/**
-	 * @return the position of this highscore in the list in the range [1,
-	 *         {@link model.HighscoreList#HIGHSCORE_LIST_MAX_SIZE}]
-	 */
-	public int getPosition()
-	{
-		return position;
-	}
-
 	/**
 	 * @return the player name who made this highscore
 	 */
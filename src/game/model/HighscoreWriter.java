@@ -0,0 +1,293 @@
+package game.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A thread dedicated to storing new highscores on the disk. Highscores are
+ * queued by {@link HighscoreList} and written to the {@link HighscoreJournal}
+ * in batches, so the game never waits for the disk or for the other copies of
+ * the game sharing the files. Every batch is synced to the disk at once and
+ * the journal is compacted when it grows long enough.
+ *
+ * @author Jose Uusitalo
+ */
+public class HighscoreWriter extends Thread
+{
+	/**
+	 * Notified when a highscore has been stored on the disk.
+	 */
+	public interface DurabilityListener
+	{
+		/**
+		 * @param _highscore
+		 *            The highscore.
+		 * @param _stored
+		 *            <code>true</code> if the highscore is now on the disk,
+		 *            <code>false</code> if storing it failed
+		 */
+		void highscoreStored(Highscore _highscore, boolean _stored);
+	}
+
+	/**
+	 * How long to wait for more highscores before writing a batch in
+	 * milliseconds.
+	 */
+	public static final long BATCH_DELAY = 100;
+
+	/**
+	 * A highscore waiting to be written.
+	 */
+	private static class PendingWrite
+	{
+		/**
+		 * The highscore.
+		 */
+		private final Highscore highscore;
+
+		/**
+		 * Notified when the highscore is stored, may be <code>null</code>.
+		 */
+		private final DurabilityListener listener;
+
+		/**
+		 * Time the highscore was queued in milliseconds.
+		 */
+		private final long queued;
+
+		private PendingWrite(final Highscore _highscore, final DurabilityListener _listener)
+		{
+			highscore = _highscore;
+			listener = _listener;
+			queued = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Where the highscores are written to.
+	 */
+	private final HighscoreJournal journal;
+
+	/**
+	 * Highscores waiting to be written.
+	 */
+	private final List<PendingWrite> queue;
+
+	/**
+	 * Number of highscores taken from the queue but not yet written.
+	 */
+	private int writing;
+
+	/**
+	 * Time from queueing the oldest highscore of the last batch to the batch
+	 * being on the disk in milliseconds.
+	 */
+	private volatile long lastPersistLatency;
+
+	/**
+	 * Whether or not to keep running.
+	 */
+	private boolean run;
+
+	/**
+	 * @param _journal
+	 *            Where the highscores are written to.
+	 */
+	public HighscoreWriter(final HighscoreJournal _journal)
+	{
+		super("HighscoreWriter");
+		journal = _journal;
+		queue = new ArrayList<PendingWrite>();
+		run = true;
+	}
+
+	/**
+	 * Starts writing the highscores in a daemon thread, so that it does not
+	 * keep the program running.
+	 */
+	@Override
+	public synchronized void start()
+	{
+		setDaemon(true);
+		super.start();
+	}
+
+	/**
+	 * Queues a highscore to be written.
+	 *
+	 * @param _highscore
+	 *            The highscore.
+	 * @param _listener
+	 *            Notified when the highscore has been stored, may be
+	 *            <code>null</code>.
+	 */
+	public synchronized void write(final Highscore _highscore, final DurabilityListener _listener)
+	{
+		queue.add(new PendingWrite(_highscore, _listener));
+		notifyAll();
+	}
+
+	/**
+	 * Writes the queued highscores in batches until stopped.
+	 */
+	@Override
+	public void run()
+	{
+		try
+		{
+			while (true)
+			{
+				synchronized (this)
+				{
+					while (run && queue.isEmpty())
+						wait();
+
+					if (!run && queue.isEmpty())
+						break;
+				}
+
+				// Give other highscores a chance to be written in the same batch.
+				if (run)
+					Thread.sleep(BATCH_DELAY);
+
+				writeBatch();
+
+				synchronized (this)
+				{
+					writing = 0;
+					notifyAll();
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			// Stopped.
+		}
+
+		System.out.println("[HighscoreWriter] Stopped.");
+	}
+
+	/**
+	 * Takes the queued highscores, appends them to the journal, syncs it and
+	 * notifies the listeners. The journal is held from taking the queue to the
+	 * end of the append, so a queued highscore is always either in the queue
+	 * or in the journal when {@link HighscoreList} looks at them.
+	 */
+	private void writeBatch()
+	{
+		List<PendingWrite> batch;
+		List<Highscore> highscores = new ArrayList<Highscore>();
+		boolean stored;
+
+		synchronized (journal)
+		{
+			synchronized (this)
+			{
+				batch = new ArrayList<PendingWrite>(queue);
+				writing = batch.size();
+				queue.clear();
+			}
+
+			for (PendingWrite w : batch)
+				highscores.add(w.highscore);
+
+			try
+			{
+				journal.append(highscores);
+				stored = true;
+			}
+			catch (IOException e)
+			{
+				System.err.println("[HighscoreWriter] Unable to store highscores: " + e);
+				stored = false;
+			}
+		}
+
+		lastPersistLatency = System.currentTimeMillis() - batch.get(0).queued;
+		System.out.println("[HighscoreWriter] Wrote " + batch.size() + " highscores in " + lastPersistLatency + " ms.");
+
+		for (PendingWrite w : batch)
+		{
+			if (w.listener != null)
+				w.listener.highscoreStored(w.highscore, stored);
+		}
+
+		if (stored && journal.needsCompaction())
+		{
+			try
+			{
+				journal.compact();
+			}
+			catch (IOException e)
+			{
+				System.err.println("[HighscoreWriter] Unable to compact the highscore journal: " + e);
+			}
+		}
+	}
+
+	/**
+	 * Waits until all queued highscores have been written.
+	 *
+	 * @throws InterruptedException
+	 *             when interrupted while waiting
+	 */
+	public synchronized void awaitIdle() throws InterruptedException
+	{
+		while (!queue.isEmpty() || writing > 0)
+			wait();
+	}
+
+	/**
+	 * Writes the remaining highscores and stops the thread.
+	 */
+	public void stopWriting()
+	{
+		synchronized (this)
+		{
+			run = false;
+			notifyAll();
+		}
+
+		try
+		{
+			join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return the highscores in the queue that have not been taken for
+	 *         writing yet
+	 */
+	public synchronized List<Highscore> getQueuedHighscores()
+	{
+		List<Highscore> highscores = new ArrayList<Highscore>(queue.size());
+
+		for (PendingWrite w : queue)
+			highscores.add(w.highscore);
+
+		return highscores;
+	}
+
+	/**
+	 * @return the number of highscores that have not yet been written to the
+	 *         disk
+	 */
+	public synchronized int getPendingWrites()
+	{
+		return queue.size() + writing;
+	}
+
+	/**
+	 * @return the time from queueing the oldest highscore of the last batch to
+	 *         the batch being on the disk in milliseconds
+	 */
+	public long getLastPersistLatency()
+	{
+		return lastPersistLatency;
+	}
+}
@@ -0,0 +1,57 @@
+package game.model;
+
+/**
+ * The periods of time the leaderboards are kept for.
+ *
+ * @see Leaderboards
+ * @author Jose Uusitalo
+ */
+public enum LeaderboardWindow
+{
+	/**
+	 * Games played today.
+	 */
+	DAY("Today", 1),
+
+	/**
+	 * Games played today and during the previous six days.
+	 */
+	WEEK("This week", 7),
+
+	/**
+	 * All games ever played.
+	 */
+	ALL_TIME("All time", 0);
+
+	/**
+	 * Name of the window shown in the user interface.
+	 */
+	private final String title;
+
+	/**
+	 * Length of the window in days, <code>0</code> if unlimited.
+	 */
+	private final int days;
+
+	private LeaderboardWindow(final String _title, final int _days)
+	{
+		title = _title;
+		days = _days;
+	}
+
+	/**
+	 * @return the name of the window shown in the user interface
+	 */
+	public String getTitle()
+	{
+		return title;
+	}
+
+	/**
+	 * @return the length of the window in days, <code>0</code> if unlimited
+	 */
+	public int getDays()
+	{
+		return days;
+	}
+}
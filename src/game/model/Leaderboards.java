@@ -0,0 +1,176 @@
+package game.model;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+/**
+ * <p>
+ * Leaderboards of the games played today and this week. Each day has its own
+ * bounded list of the best scores of that day. A window is the combination of
+ * the lists of the days it covers, so a new score only updates the list of its
+ * own day and old scores expire by dropping whole days instead of going through
+ * the scores.
+ * </p>
+ * <p>
+ * The all-time leaderboard is the {@link HighscoreList}.
+ * </p>
+ *
+ * @see LeaderboardWindow
+ * @author Jose Uusitalo
+ */
+public class Leaderboards
+{
+	/**
+	 * Length of a day in milliseconds.
+	 */
+	private static final long DAY = 24l * 60l * 60l * 1000l;
+
+	/**
+	 * Number of days to keep.
+	 */
+	private static final int DAYS_KEPT = LeaderboardWindow.WEEK.getDays();
+
+	/**
+	 * The best scores of each day by the number of the day.
+	 */
+	private final TreeMap<Long, TopScores> days;
+
+	/**
+	 * Number of scores on each leaderboard.
+	 */
+	private final int size;
+
+	/**
+	 * Used for finding the start of a day in local time.
+	 */
+	private final TimeZone timeZone;
+
+	/**
+	 * @param _size
+	 *            Number of scores on each leaderboard.
+	 */
+	public Leaderboards(final int _size)
+	{
+		size = _size;
+		days = new TreeMap<Long, TopScores>();
+		timeZone = TimeZone.getDefault();
+	}
+
+	/**
+	 * Fills the leaderboards with the games of the past week from the archive.
+	 *
+	 * @param _archive
+	 *            The game archive.
+	 * @param _now
+	 *            Current time in milliseconds since the epoch.
+	 * @throws IOException
+	 *             when reading the archive fails
+	 */
+	public synchronized void load(final GameArchive _archive, final long _now) throws IOException
+	{
+		days.clear();
+
+		long from = startOfDay(dayOf(_now) - DAYS_KEPT + 1);
+
+		for (GameArchive.Entry game : _archive.getGames(from, Long.MAX_VALUE))
+			add(game.getName(), game.getScore(), game.getTimestamp());
+	}
+
+	/**
+	 * Adds a score to the leaderboard of the day it was achieved on.
+	 *
+	 * @param _name
+	 *            Name of the player.
+	 * @param _score
+	 *            Score of the player.
+	 * @param _timestamp
+	 *            Time the game ended in milliseconds since the epoch.
+	 */
+	public synchronized void add(final String _name, final double _score, final long _timestamp)
+	{
+		long day = dayOf(_timestamp);
+		TopScores top = days.get(day);
+
+		if (top == null)
+		{
+			top = new TopScores(size);
+			days.put(day, top);
+		}
+
+		top.offer(new Highscore(_name, _score));
+		expire(days.lastKey());
+	}
+
+	/**
+	 * @param _window
+	 *            The time window, {@link LeaderboardWindow#ALL_TIME} is not
+	 *            kept by this class.
+	 * @param _now
+	 *            Current time in milliseconds since the epoch.
+	 * @return the best scores in the window in descending order by score
+	 */
+	public synchronized List<Highscore> getTop(final LeaderboardWindow _window, final long _now)
+	{
+		if (_window == LeaderboardWindow.ALL_TIME)
+			throw new IllegalArgumentException("The all-time leaderboard is the highscore list.");
+
+		long today = dayOf(_now);
+		expire(today);
+
+		TopScores top = new TopScores(size);
+
+		for (Map.Entry<Long, TopScores> day : days.tailMap(today - _window.getDays() + 1).entrySet())
+		{
+			if (day.getKey() > today)
+				break;
+
+			for (Highscore h : day.getValue().toList())
+			{
+				// The rest of the day can not make it to the list either.
+				if (top.offer(h) < 0)
+					break;
+			}
+		}
+
+		return top.toList();
+	}
+
+	/**
+	 * Drops the days that have fallen out of the longest window.
+	 *
+	 * @param _today
+	 *            Number of the current day.
+	 */
+	private void expire(final long _today)
+	{
+		Iterator<Long> iterator = days.keySet().iterator();
+
+		while (iterator.hasNext() && iterator.next() <= _today - DAYS_KEPT)
+			iterator.remove();
+	}
+
+	/**
+	 * @param _time
+	 *            Time in milliseconds since the epoch.
+	 * @return number of the day in local time
+	 */
+	private long dayOf(final long _time)
+	{
+		return Math.floorDiv(_time + timeZone.getOffset(_time), DAY);
+	}
+
+	/**
+	 * @param _day
+	 *            Number of a day in local time.
+	 * @return the time the day starts in milliseconds since the epoch
+	 */
+	private long startOfDay(final long _day)
+	{
+		long time = _day * DAY;
+		return time - timeZone.getOffset(time);
+	}
+}
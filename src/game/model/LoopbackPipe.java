@@ -0,0 +1,266 @@
+package game.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>
+ * An in-process one-way byte stream between two threads. The data is passed
+ * through a lock-free ring buffer, so transferring data does not need any
+ * system calls or locks. Used for connecting {@link EV3Robot} to the
+ * {@link RobotSimulator} in debug mode.
+ * </p>
+ * <p>
+ * The pipe supports exactly one writing thread and one reading thread at a
+ * time.
+ * </p>
+ *
+ * @author Jose Uusitalo
+ */
+public class LoopbackPipe
+{
+	/**
+	 * Default size of the buffer in bytes.
+	 */
+	public static final int DEFAULT_CAPACITY = 8192;
+
+	/**
+	 * Number of times to check for data or space before parking the thread.
+	 */
+	private static final int SPIN_COUNT = 100;
+
+	/**
+	 * How long to park the thread the first time while waiting in
+	 * nanoseconds.
+	 */
+	private static final long PARK_NANOS = 50000l;
+
+	/**
+	 * The longest time to park the thread at a time while waiting in
+	 * nanoseconds. The time doubles every time the thread is parked, so an
+	 * idle pipe does not keep waking its reader up, which matters when
+	 * several robots are simulated at once.
+	 */
+	private static final long PARK_NANOS_MAX = 1000000l;
+
+	/**
+	 * The ring buffer.
+	 */
+	private final byte[] buffer;
+
+	/**
+	 * Capacity - 1, the capacity is a power of two.
+	 */
+	private final int mask;
+
+	/**
+	 * Total number of bytes read. Only modified by the reading thread.
+	 */
+	private final AtomicLong head;
+
+	/**
+	 * Total number of bytes written. Only modified by the writing thread.
+	 */
+	private final AtomicLong tail;
+
+	/**
+	 * Whether or not the pipe has been closed.
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * The reading end of the pipe.
+	 */
+	private final InputStream inputStream;
+
+	/**
+	 * The writing end of the pipe.
+	 */
+	private final OutputStream outputStream;
+
+	public LoopbackPipe()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param _capacity
+	 *            Size of the buffer in bytes, rounded up to a power of two.
+	 */
+	public LoopbackPipe(final int _capacity)
+	{
+		int capacity = Integer.highestOneBit(Math.max(_capacity, 2) - 1) << 1;
+
+		buffer = new byte[capacity];
+		mask = capacity - 1;
+		head = new AtomicLong();
+		tail = new AtomicLong();
+
+		inputStream = new InputStream()
+		{
+			@Override
+			public int read() throws IOException
+			{
+				byte[] b = new byte[1];
+				return read(b, 0, 1) == -1 ? -1 : (b[0] & 0xFF);
+			}
+
+			@Override
+			public int read(final byte[] _b, final int _offset, final int _length) throws IOException
+			{
+				return readBytes(_b, _offset, _length);
+			}
+
+			@Override
+			public int available()
+			{
+				return (int) (tail.get() - head.get());
+			}
+
+			@Override
+			public void close()
+			{
+				LoopbackPipe.this.close();
+			}
+		};
+
+		outputStream = new OutputStream()
+		{
+			@Override
+			public void write(final int _b) throws IOException
+			{
+				write(new byte[] { (byte) _b }, 0, 1);
+			}
+
+			@Override
+			public void write(final byte[] _b, final int _offset, final int _length) throws IOException
+			{
+				writeBytes(_b, _offset, _length);
+			}
+
+			@Override
+			public void close()
+			{
+				LoopbackPipe.this.close();
+			}
+		};
+	}
+
+	/**
+	 * Reads at least one byte, waiting for data if there is none.
+	 *
+	 * @return the number of bytes read or <code>-1</code> if the pipe has been
+	 *         closed and all data has been read
+	 */
+	private int readBytes(final byte[] _b, final int _offset, final int _length) throws IOException
+	{
+		if (_length == 0)
+			return 0;
+
+		long h = head.get();
+		long available;
+		int spins = 0;
+
+		while ((available = tail.get() - h) == 0)
+		{
+			// Data may have been written just before closing.
+			if (closed && tail.get() == h)
+				return -1;
+
+			waitFor(spins++);
+		}
+
+		int n = (int) Math.min(available, _length);
+
+		for (int i = 0; i < n; i++)
+			_b[_offset + i] = buffer[(int) ((h + i) & mask)];
+
+		head.lazySet(h + n);
+		return n;
+	}
+
+	/**
+	 * Writes all the bytes, waiting for space in the buffer if necessary.
+	 */
+	private void writeBytes(final byte[] _b, final int _offset, final int _length) throws IOException
+	{
+		int written = 0;
+		int spins = 0;
+
+		while (written < _length)
+		{
+			if (closed)
+				throw new IOException("Pipe closed.");
+
+			long t = tail.get();
+			int space = (int) (buffer.length - (t - head.get()));
+
+			if (space == 0)
+			{
+				waitFor(spins++);
+				continue;
+			}
+
+			int n = Math.min(space, _length - written);
+
+			for (int i = 0; i < n; i++)
+				buffer[(int) ((t + i) & mask)] = _b[_offset + written + i];
+
+			tail.lazySet(t + n);
+			written += n;
+			spins = 0;
+		}
+	}
+
+	/**
+	 * Spins for a while and then parks the thread for longer and longer.
+	 *
+	 * @param _spins
+	 *            Number of times the thread has already waited.
+	 * @throws IOException
+	 *             when the thread was interrupted
+	 */
+	private void waitFor(final int _spins) throws IOException
+	{
+		if (_spins < SPIN_COUNT)
+		{
+			Thread.yield();
+		}
+		else
+		{
+			int parks = Math.min(_spins - SPIN_COUNT, 5);
+			LockSupport.parkNanos(Math.min(PARK_NANOS << parks, PARK_NANOS_MAX));
+
+			if (Thread.currentThread().isInterrupted())
+				throw new InterruptedIOException("Interrupted while waiting for the pipe.");
+		}
+	}
+
+	/**
+	 * Closes the pipe. Data already written can still be read.
+	 */
+	public void close()
+	{
+		closed = true;
+	}
+
+	/**
+	 * @return the reading end of the pipe
+	 */
+	public InputStream getInputStream()
+	{
+		return inputStream;
+	}
+
+	/**
+	 * @return the writing end of the pipe
+	 */
+	public OutputStream getOutputStream()
+	{
+		return outputStream;
+	}
+}
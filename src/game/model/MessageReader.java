@@ -0,0 +1,107 @@
+package game.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <p>
+ * Reads the messages the robot sends with
+ * {@link java.io.DataOutputStream#writeUTF(String)}: a two byte length
+ * followed by that many bytes of modified UTF-8.
+ * </p>
+ * <p>
+ * Unlike {@link DataInputStream#readUTF()}, a read that times out or is
+ * interrupted in the middle of a message keeps the bytes received so far and
+ * the next read continues the same message. The connection to the robot has a
+ * read timeout so that the reader can notice the game ending, and a slow link
+ * may split a message at any byte.
+ * </p>
+ * <p>
+ * One reader is used for the whole connection and by one thread at a time.
+ * </p>
+ *
+ * @author Jose Uusitalo
+ */
+public class MessageReader
+{
+	/**
+	 * Number of bytes in the length of a message.
+	 */
+	private static final int LENGTH_SIZE = 2;
+
+	/**
+	 * The stream from the robot.
+	 */
+	private final InputStream in;
+
+	/**
+	 * The message being read, its length included.
+	 */
+	private byte[] message;
+
+	/**
+	 * Number of bytes of {@link #message} received so far.
+	 */
+	private int received;
+
+	/**
+	 * @param _in
+	 *            The stream from the robot.
+	 */
+	public MessageReader(final InputStream _in)
+	{
+		in = _in;
+		message = new byte[LENGTH_SIZE];
+		received = 0;
+	}
+
+	/**
+	 * Reads the next message, continuing a message an earlier read left
+	 * unfinished.
+	 *
+	 * @return the message
+	 * @throws java.net.SocketTimeoutException
+	 *             when no more data arrived in time, the bytes received so far
+	 *             are kept
+	 * @throws EOFException
+	 *             when the connection was closed
+	 * @throws IOException
+	 *             when the message could not be read
+	 */
+	public String readMessage() throws IOException
+	{
+		while (true)
+		{
+			// Every read either returns bytes or throws without consuming any.
+			int count = in.read(message, received, message.length - received);
+
+			if (count < 0)
+				throw new EOFException("The connection was closed.");
+
+			received += count;
+
+			if (received < message.length)
+				continue;
+
+			if (message.length == LENGTH_SIZE)
+			{
+				int length = (message[0] & 0xff) << 8 | message[1] & 0xff;
+				byte[] full = new byte[LENGTH_SIZE + length];
+				full[0] = message[0];
+				full[1] = message[1];
+				message = full;
+
+				if (length > 0)
+					continue;
+			}
+
+			byte[] full = message;
+			message = new byte[LENGTH_SIZE];
+			received = 0;
+			return DataInputStream.readUTF(new DataInputStream(new ByteArrayInputStream(full)));
+		}
+	}
+}
@@ -0,0 +1,378 @@
+package game.model;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * A simulated robot used in debug mode. Speaks the same protocol as the
+ * program in the robot package: reads commands and reports the cannon angle,
+ * color sensor readings and finished shots and turns.
+ *
+ * @see LoopbackPipe
+ * @author Jose Uusitalo
+ */
+public class RobotSimulator implements Runnable
+{
+	/**
+	 * Speed of the turning motor in degrees per second.
+	 */
+	private static final double TURN_SPEED = 60.0;
+
+	/**
+	 * Time it takes to fire a shot in milliseconds. The shooting motor turns
+	 * 1080 degrees at 500 degrees per second.
+	 */
+	private static final long SHOT_DURATION = 2160;
+
+	/**
+	 * Time it takes for a cannonball to roll past the color sensor after it has
+	 * been fired in milliseconds.
+	 */
+	private static final long BALL_ROLL_TIME = 1000;
+
+	/**
+	 * The angle where the target is.
+	 */
+	private static final int TARGET_ANGLE = 8;
+
+	/**
+	 * How many degrees the cannon may be off the target and still hit it.
+	 */
+	private static final int TARGET_TOLERANCE = 5;
+
+	/**
+	 * Red value reported when a ball passes the color sensor.
+	 */
+	private static final double BALL_RED_VALUE = 0.05;
+
+	/**
+	 * Red value reported when there is no ball at the color sensor.
+	 */
+	private static final double EMPTY_RED_VALUE = 0.002;
+
+	/**
+	 * How often the simulated robot sends data to the PC in milliseconds.
+	 */
+	private static final long WRITE_INTERVAL = 50;
+
+	/**
+	 * Where the commands from the PC are read from.
+	 */
+	private final DataInputStream in;
+
+	/**
+	 * Where the data for the PC is written to.
+	 */
+	private final DataOutputStream out;
+
+	/**
+	 * The source of time for the simulation.
+	 */
+	private final GameClock clock;
+
+	/**
+	 * Reads the commands from the PC, <code>null</code> if not started.
+	 */
+	private volatile Future<?> readerLoop;
+
+	/**
+	 * Sends data to the PC, <code>null</code> if not started.
+	 */
+	private volatile Future<?> writerLoop;
+
+	/**
+	 * Data waiting to be sent to the PC.
+	 */
+	private final List<String> data;
+
+	/**
+	 * The current angle of the cannon.
+	 */
+	private volatile double angle;
+
+	/**
+	 * Direction the cannon is turning in: 1 for left, -1 for right and 0 for
+	 * not turning.
+	 */
+	private volatile int direction;
+
+	/**
+	 * Speed of the turning motor in percent of {@link #TURN_SPEED}.
+	 */
+	private volatile int turnSpeed;
+
+	/**
+	 * Game time in milliseconds when a ball should pass the color sensor,
+	 * <code>0</code> if there is no ball on the way.
+	 */
+	private volatile long ballArrivalTime;
+
+	/**
+	 * Whether or not the fired ball hits the target.
+	 */
+	private volatile boolean ballHits;
+
+	/**
+	 * Whether or not to keep running the simulation.
+	 */
+	private volatile boolean run;
+
+	/**
+	 * @param _in
+	 *            Where the commands from the PC are read from.
+	 * @param _out
+	 *            Where the data for the PC is written to.
+	 * @param _clock
+	 *            The source of time for the simulation.
+	 */
+	public RobotSimulator(final DataInputStream _in, final DataOutputStream _out, final GameClock _clock)
+	{
+		in = _in;
+		out = _out;
+		clock = _clock;
+		data = new ArrayList<String>();
+		run = true;
+		turnSpeed = 100;
+	}
+
+	/**
+	 * Starts reading commands and sending data.
+	 *
+	 * @see GameThreads
+	 */
+	public synchronized void start()
+	{
+		writerLoop = GameThreads.start("RobotSimulator writer", new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				writeData();
+			}
+		});
+
+		readerLoop = GameThreads.start("RobotSimulator reader", this);
+	}
+
+	/**
+	 * Reads and executes commands from the PC one at a time like the real
+	 * robot does.
+	 */
+	@Override
+	public void run()
+	{
+		try
+		{
+			while (run)
+				parseCommand(in.readUTF());
+		}
+		catch (IOException e)
+		{
+			// PC closed the connection.
+		}
+		catch (InterruptedException e)
+		{
+			// Simulation stopped.
+		}
+
+		stopSimulator();
+	}
+
+	/**
+	 * Executes a single command.
+	 *
+	 * @param _input
+	 *            The command.
+	 * @throws InterruptedException
+	 *             when the simulation was stopped during a shot or a turn
+	 */
+	private void parseCommand(final String _input) throws InterruptedException
+	{
+		System.out.println("[RobotSimulator] Read '" + _input + "'");
+
+		switch (_input.charAt(0))
+		{
+			case 's':
+				direction = 0;
+				break;
+			case 'l':
+				direction = 1;
+				break;
+			case 'r':
+				direction = -1;
+				break;
+			case 'v':
+				turnSpeed = Integer.parseInt(_input.substring(1));
+				break;
+			case 'w':
+			case 'h':
+				direction = 0;
+				ballHits = Math.abs(angle - TARGET_ANGLE) <= TARGET_TOLERANCE;
+				clock.sleep(SHOT_DURATION);
+				ballArrivalTime = clock.currentTimeMillis() + BALL_ROLL_TIME;
+				send("f");
+				break;
+			case 'a':
+				rotateTo(Integer.parseInt(_input.substring(1)));
+				send("t");
+				break;
+			case 'i':
+			case 'c':
+				send("k");
+				break;
+			case 'z':
+				synchronized (data)
+				{
+					data.clear();
+				}
+				break;
+			default:
+				// Sounds and sensor settings do not affect the simulation.
+				break;
+		}
+	}
+
+	/**
+	 * Turns the cannon to the given angle and waits until it gets there.
+	 *
+	 * @param _target
+	 *            Angle to turn to.
+	 * @throws InterruptedException
+	 *             when the simulation was stopped during the turn
+	 */
+	private void rotateTo(final int _target) throws InterruptedException
+	{
+		double step = TURN_SPEED * turnSpeed / 100.0 * WRITE_INTERVAL / 1000.0;
+
+		direction = 0;
+
+		while (run && Math.abs(_target - angle) > step)
+		{
+			angle += Math.signum(_target - angle) * step;
+			clock.sleep(WRITE_INTERVAL);
+		}
+
+		angle = _target;
+	}
+
+	/**
+	 * Sends the angle and color sensor readings and any other pending data at
+	 * regular intervals like the real robot does.
+	 */
+	private void writeData()
+	{
+		String previousAngle = "";
+		String previousColor = "";
+
+		try
+		{
+			while (run)
+			{
+				angle += direction * TURN_SPEED * turnSpeed / 100.0 * WRITE_INTERVAL / 1000.0;
+
+				// Like the real robot, only send the readings when they change.
+				String currentAngle = "a" + Math.round(angle);
+				String currentColor = "c" + readColor();
+
+				if (!currentAngle.equals(previousAngle))
+				{
+					previousAngle = currentAngle;
+					send(currentAngle);
+				}
+
+				if (!currentColor.equals(previousColor))
+				{
+					previousColor = currentColor;
+					send(currentColor);
+				}
+
+				String next = null;
+
+				synchronized (data)
+				{
+					if (!data.isEmpty())
+						next = data.remove(0);
+				}
+
+				if (next != null)
+				{
+					out.writeUTF(next);
+					out.flush();
+				}
+
+				clock.sleep(WRITE_INTERVAL);
+			}
+		}
+		catch (IOException e)
+		{
+			// PC closed the connection.
+		}
+		catch (InterruptedException e)
+		{
+			// Simulation stopped.
+		}
+
+		stopSimulator();
+	}
+
+	/**
+	 * @return the simulated color sensor reading
+	 */
+	private double readColor()
+	{
+		if (ballArrivalTime > 0 && clock.currentTimeMillis() >= ballArrivalTime)
+		{
+			ballArrivalTime = 0;
+
+			if (ballHits)
+				return BALL_RED_VALUE;
+		}
+
+		return EMPTY_RED_VALUE;
+	}
+
+	/**
+	 * Queues data to be sent to the PC.
+	 *
+	 * @param _data
+	 *            The data.
+	 */
+	private void send(final String _data)
+	{
+		synchronized (data)
+		{
+			data.add(_data);
+		}
+	}
+
+	/**
+	 * Stops the simulation and closes the streams.
+	 */
+	public void stopSimulator()
+	{
+		if (!run)
+			return;
+
+		run = false;
+
+		if (writerLoop != null)
+			writerLoop.cancel(true);
+
+		if (readerLoop != null)
+			readerLoop.cancel(true);
+
+		try
+		{
+			in.close();
+			out.close();
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+}
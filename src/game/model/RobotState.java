@@ -0,0 +1,94 @@
+package game.model;
+
+/**
+ * <p>
+ * The states of the robot during a game. The player can only control the
+ * robot when it is {@link #IDLE}.
+ * </p>
+ * <p>
+ * Firing a shot also turns the cannon to a random angle. The robot reports
+ * the end of the shot and the end of the turn separately and in either order,
+ * so {@link #SHOOTING} is followed by {@link #TURNING} or
+ * {@link #SHOT_PENDING} depending on which one ends first.
+ * </p>
+ *
+ * @see EV3Robot
+ * @author Jose Uusitalo
+ */
+public enum RobotState
+{
+	/**
+	 * The player can not control the robot, for example before the game has
+	 * started.
+	 */
+	DISABLED,
+
+	/**
+	 * Waiting for the player.
+	 */
+	IDLE,
+
+	/**
+	 * Turning to an angle.
+	 */
+	TURNING,
+
+	/**
+	 * Firing a shot and turning to a random angle.
+	 */
+	SHOOTING,
+
+	/**
+	 * The turn after a shot has ended but the shot has not.
+	 */
+	SHOT_PENDING,
+
+	/**
+	 * The game has ended, only a new game can enable the robot again.
+	 */
+	GAME_OVER;
+
+	/**
+	 * @return the state after the robot reports that a shot has ended,
+	 *         <code>null</code> if the robot should not be shooting in this
+	 *         state
+	 */
+	public RobotState afterShot()
+	{
+		switch (this)
+		{
+			case SHOOTING:
+				return TURNING;
+			case SHOT_PENDING:
+				return IDLE;
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * @return the state after the robot reports that a turn to an angle has
+	 *         ended, <code>null</code> if the robot should not be turning in
+	 *         this state
+	 */
+	public RobotState afterTurn()
+	{
+		switch (this)
+		{
+			case SHOOTING:
+				return SHOT_PENDING;
+			case TURNING:
+				return IDLE;
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if a shot has been fired and has not ended
+	 */
+	public boolean isShooting()
+	{
+		return this == SHOOTING || this == SHOT_PENDING;
+	}
+}
@@ -1,7 +1,5 @@
 package game.model;
 
-import game.controller.Controller;
-
 /**
  * A class containing various methods and values used for scoring cannon shots.
  * Instatiation of this class is not necessary.
@@ -16,14 +14,22 @@ public class ScoreMachine
 	 */
 	public final static int MAX_BALL_IR_DISTANCE = 15;
 
-	public final static double MINIMUM_RED_VALUE = 0.0095;
-
 	/**
 	 * The score received when a canonball is detected in a channel. The index
 	 * number of the score value is the number of channel - 1.
 	 */
 	private final static double BALL_SCORE = 10.0;
 
+	/**
+	 * @return the highest possible score of a single game with the current
+	 *         configuration: every cannonball hits the target and is fired
+	 *         with all of the aiming time left
+	 */
+	public static double getMaxGameScore()
+	{
+		return GameConfig.get().getMaxBalls() * 2 * BALL_SCORE;
+	}
+
 	/**
 	 * Score a player's shot based in the number of seconds left in the timer.
 	 *
@@ -33,7 +39,7 @@ public class ScoreMachine
 	 */
 	public static double scoreShot(final int _timeLeft)
 	{
-		double score = (double) (_timeLeft) / (double) (Controller.SHOT_TIMER) * BALL_SCORE;
+		double score = (double) (_timeLeft) / (double) (GameConfig.get().getShotTimer()) * BALL_SCORE;
 		System.out.println("[ScoreMachine] TIME BONUS: + " + score);
 		return score;
 	}
@@ -60,7 +66,7 @@ public class ScoreMachine
 	public static double scoreColor(double _redValue)
 	{
 		System.out.println("red " + _redValue);
-		if (_redValue >= MINIMUM_RED_VALUE)
+		if (_redValue >= GameConfig.get().getMinimumRedValue())
 		{
 			System.out.println("[ScoreMachine] Ball detected!");
 			return BALL_SCORE;
@@ -0,0 +1,162 @@
+package game.model;
+
+/**
+ * <p>
+ * Counts of all scores ever achieved for answering "what place did this score
+ * get" and "what score is needed to be in the top 10 percent" without going
+ * through the scores. Scores are rounded down into buckets of
+ * {@link ScoreRankIndex#getResolution()} points whose counts are kept in a
+ * Fenwick tree, so adding a score and both queries take logarithmic time in
+ * the number of buckets.
+ * </p>
+ * <p>
+ * Scores below zero are counted in the first bucket and scores above the
+ * maximum in the last bucket.
+ * </p>
+ *
+ * @see GameArchive
+ * @author Jose Uusitalo
+ */
+public class ScoreRankIndex
+{
+	/**
+	 * Fenwick tree of bucket counts, index 0 is unused.
+	 */
+	private final int[] tree;
+
+	/**
+	 * Number of buckets.
+	 */
+	private final int buckets;
+
+	/**
+	 * Size of a bucket in points.
+	 */
+	private final double resolution;
+
+	/**
+	 * Number of scores in the index.
+	 */
+	private int total;
+
+	/**
+	 * @param _maxScore
+	 *            The highest possible score.
+	 * @param _resolution
+	 *            Size of a bucket in points. Scores closer to each other than
+	 *            this may share the same rank.
+	 */
+	public ScoreRankIndex(final double _maxScore, final double _resolution)
+	{
+		if (_maxScore <= 0 || _resolution <= 0)
+			throw new IllegalArgumentException("Maximum score and resolution must be positive.");
+
+		resolution = _resolution;
+		buckets = (int) Math.floor(_maxScore / _resolution) + 1;
+		tree = new int[buckets + 1];
+	}
+
+	/**
+	 * @param _score
+	 *            A score.
+	 * @return the bucket of the score starting from 1
+	 */
+	private int bucketOf(final double _score)
+	{
+		// The small epsilon keeps scores like 0.3 from falling into the bucket below.
+		int bucket = (int) Math.floor(_score / resolution + 1e-9) + 1;
+		return Math.max(1, Math.min(buckets, bucket));
+	}
+
+	/**
+	 * @param _bucket
+	 *            A bucket starting from 1.
+	 * @return the number of scores in the buckets up to and including the given
+	 *         one
+	 */
+	private int countUpTo(final int _bucket)
+	{
+		int count = 0;
+
+		for (int i = _bucket; i > 0; i -= i & -i)
+			count += tree[i];
+
+		return count;
+	}
+
+	/**
+	 * Adds a score to the index.
+	 *
+	 * @param _score
+	 *            The score.
+	 */
+	public synchronized void add(final double _score)
+	{
+		for (int i = bucketOf(_score); i <= buckets; i += i & -i)
+			tree[i]++;
+
+		total++;
+	}
+
+	/**
+	 * @param _score
+	 *            A score.
+	 * @return the place of the score among all scores, 1 being the best. Equal
+	 *         scores share the same place.
+	 */
+	public synchronized int rankOf(final double _score)
+	{
+		return total - countUpTo(bucketOf(_score)) + 1;
+	}
+
+	/**
+	 * @param _percentile
+	 *            Percentage of scores, between 0 and 100.
+	 * @return the lowest score that is at least as high as the given percentage
+	 *         of all scores, rounded down to the resolution. <code>0</code> if
+	 *         there are no scores.
+	 */
+	public synchronized double scoreAtPercentile(final double _percentile)
+	{
+		if (total == 0)
+			return 0.0;
+
+		int target = (int) Math.ceil(Math.max(0.0, Math.min(100.0, _percentile)) / 100.0 * total);
+
+		if (target < 1)
+			target = 1;
+
+		// Find the first bucket whose cumulative count reaches the target.
+		int position = 0;
+		int remaining = target;
+
+		for (int step = Integer.highestOneBit(buckets); step > 0; step >>= 1)
+		{
+			int next = position + step;
+
+			if (next <= buckets && tree[next] < remaining)
+			{
+				position = next;
+				remaining -= tree[next];
+			}
+		}
+
+		return position * resolution;
+	}
+
+	/**
+	 * @return the number of scores in the index
+	 */
+	public synchronized int size()
+	{
+		return total;
+	}
+
+	/**
+	 * @return the size of a bucket in points
+	 */
+	public double getResolution()
+	{
+		return resolution;
+	}
+}
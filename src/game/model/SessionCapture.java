@@ -0,0 +1,215 @@
+package game.model;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * A recording of the messages sent between the PC and the robot during a game
+ * session. Recorded sessions can be fed back into the game with
+ * {@link SessionReplay}.
+ * </p>
+ * <p>
+ * The capture file is a text file with one message per line in the following
+ * format: {@literal <milliseconds since start><tab><direction><tab><message>}
+ * </p>
+ * <p>
+ * Example: <code>1520	&lt;	a12</code>
+ * </p>
+ *
+ * @author Jose Uusitalo
+ */
+public class SessionCapture
+{
+	/**
+	 * Direction character of messages received from the robot.
+	 */
+	public static final char INBOUND = '<';
+
+	/**
+	 * Direction character of commands sent to the robot.
+	 */
+	public static final char OUTBOUND = '>';
+
+	/**
+	 * A single recorded message.
+	 */
+	public static class Entry
+	{
+		/**
+		 * Milliseconds since the start of the recording.
+		 */
+		private final long time;
+
+		/**
+		 * Either {@link SessionCapture#INBOUND} or
+		 * {@link SessionCapture#OUTBOUND}.
+		 */
+		private final char direction;
+
+		/**
+		 * The message itself.
+		 */
+		private final String message;
+
+		public Entry(final long _time, final char _direction, final String _message)
+		{
+			time = _time;
+			direction = _direction;
+			message = _message;
+		}
+
+		/**
+		 * @return milliseconds since the start of the recording
+		 */
+		public long getTime()
+		{
+			return time;
+		}
+
+		/**
+		 * @return the direction character of this message
+		 */
+		public char getDirection()
+		{
+			return direction;
+		}
+
+		/**
+		 * @return the message
+		 */
+		public String getMessage()
+		{
+			return message;
+		}
+	}
+
+	/**
+	 * The file being recorded into.
+	 */
+	private BufferedWriter writer;
+
+	/**
+	 * System time in milliseconds when the recording was started.
+	 */
+	private long startTime;
+
+	/**
+	 * Starts recording into the given file. Any existing file is overwritten.
+	 *
+	 * @param _filename
+	 *            Name of the capture file.
+	 * @throws IOException
+	 *             when the file could not be opened
+	 */
+	public SessionCapture(final String _filename) throws IOException
+	{
+		writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(_filename), StandardCharsets.UTF_8));
+		startTime = System.currentTimeMillis();
+		System.out.println("[SessionCapture] Recording session to: " + _filename);
+	}
+
+	/**
+	 * Records a single message.
+	 *
+	 * @param _direction
+	 *            Either {@link SessionCapture#INBOUND} or
+	 *            {@link SessionCapture#OUTBOUND}.
+	 * @param _message
+	 *            The message.
+	 */
+	public synchronized void record(final char _direction, final String _message)
+	{
+		if (writer == null)
+			return;
+
+		try
+		{
+			writer.write((System.currentTimeMillis() - startTime) + "\t" + _direction + "\t" + _message);
+			writer.newLine();
+		}
+		catch (IOException e)
+		{
+			System.err.println("[SessionCapture] Unable to record message, recording stopped.");
+			e.printStackTrace();
+			close();
+		}
+	}
+
+	/**
+	 * Stops recording and closes the capture file.
+	 */
+	public synchronized void close()
+	{
+		if (writer != null)
+		{
+			try
+			{
+				writer.close();
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+			writer = null;
+		}
+	}
+
+	/**
+	 * Reads a capture file.
+	 *
+	 * @param _filename
+	 *            Name of the capture file.
+	 * @return the recorded messages in the order they were recorded
+	 * @throws IOException
+	 *             when the file could not be read or is not a valid capture
+	 */
+	public static List<Entry> load(final String _filename) throws IOException
+	{
+		List<Entry> entries = new ArrayList<Entry>();
+		BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(_filename), StandardCharsets.UTF_8));
+
+		try
+		{
+			String line;
+			int lineNumber = 0;
+
+			while ((line = reader.readLine()) != null)
+			{
+				lineNumber++;
+
+				if (line.isEmpty())
+					continue;
+
+				String[] parts = line.split("\t", 3);
+
+				if (parts.length != 3 || parts[1].length() != 1 || parts[2].isEmpty())
+					throw new IOException("Invalid capture line " + lineNumber + ": " + line);
+
+				try
+				{
+					entries.add(new Entry(Long.parseLong(parts[0]), parts[1].charAt(0), parts[2]));
+				}
+				catch (NumberFormatException e)
+				{
+					throw new IOException("Invalid capture time on line " + lineNumber + ": " + line);
+				}
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		return entries;
+	}
+}
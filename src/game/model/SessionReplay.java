@@ -0,0 +1,244 @@
+package game.model;
+
+import java.io.IOException;
+import java.util.List;
+
+import game.controller.Controller;
+import game.controller.HeadlessListener;
+
+/**
+ * Feeds a recorded session back into the game model through the same dispatch
+ * path the {@link DataReaderThread} uses for live data. Commands the player
+ * sent to the robot are replayed as player input. Used for reproducing
+ * recorded games and for measuring the throughput of the dispatch path.
+ * <p>
+ * Sessions are recorded with the system property
+ * {@value Controller#RECORD_PROPERTY} and checked with:
+ * <code>SessionReplay [capture file] [expected score] [expected highscore] [speed]</code>
+ * <br>
+ * The expected highscore is <code>true</code> or <code>false</code> and is
+ * checked against the highscore list of the working directory. The speed
+ * defaults to as fast as possible. The program exits with status 1 when the
+ * outcome is not the expected one.
+ * </p>
+ *
+ * @see SessionCapture
+ * @author Jose Uusitalo
+ */
+public class SessionReplay
+{
+	/**
+	 * Replay speed for feeding the messages without any delays.
+	 */
+	public static final double AS_FAST_AS_POSSIBLE = 0.0;
+
+	/**
+	 * The recorded messages.
+	 */
+	private final List<SessionCapture.Entry> entries;
+
+	/**
+	 * Replay speed multiplier. 1.0 replays at the original speed.
+	 */
+	private final double speed;
+
+	/**
+	 * Number of messages replayed in the last replay.
+	 */
+	private int messagesReplayed;
+
+	/**
+	 * Duration of the last replay in nanoseconds.
+	 */
+	private long elapsedNanos;
+
+	/**
+	 * @param _entries
+	 *            The recorded messages.
+	 * @param _speed
+	 *            Replay speed multiplier: 1.0 for the original speed, 2.0 for
+	 *            double speed and so on, or
+	 *            {@link SessionReplay#AS_FAST_AS_POSSIBLE}.
+	 */
+	public SessionReplay(final List<SessionCapture.Entry> _entries, final double _speed)
+	{
+		if (_speed < 0.0)
+			throw new IllegalArgumentException("Replay speed must not be negative.");
+
+		entries = _entries;
+		speed = _speed;
+	}
+
+	/**
+	 * Replays the session.
+	 *
+	 * @param _robot
+	 *            The robot the session is replayed into.
+	 * @param _player
+	 *            The player whose score the replay modifies.
+	 * @return the final score of the player
+	 * @throws InterruptedException
+	 *             when the replay was interrupted while waiting
+	 */
+	public double replay(final EV3Robot _robot, final Player _player) throws InterruptedException
+	{
+		DataReaderThread reader = _robot.prepareReplay(_player);
+		long previousTime = entries.isEmpty() ? 0 : entries.get(0).getTime();
+		long start = System.nanoTime();
+
+		messagesReplayed = 0;
+
+		for (SessionCapture.Entry e : entries)
+		{
+			if (speed > 0.0)
+			{
+				long wait = Math.round((e.getTime() - previousTime) / speed);
+				if (wait > 0)
+					Thread.sleep(wait);
+			}
+			previousTime = e.getTime();
+
+			if (e.getDirection() == SessionCapture.INBOUND)
+				reader.dispatch(e.getMessage());
+			else
+				replayCommand(_robot, e.getMessage());
+
+			messagesReplayed++;
+		}
+
+		elapsedNanos = System.nanoTime() - start;
+
+		System.out.println("[SessionReplay] Replayed " + messagesReplayed + " messages in " + (elapsedNanos / 1000000l)
+				+ " ms (" + Math.round(getMessagesPerSecond()) + " messages/s).");
+
+		return _player.getScore();
+	}
+
+	/**
+	 * Repeats a recorded player command. Commands that the game sends on its
+	 * own (such as turning to a random angle after a shot) are skipped because
+	 * replaying the player commands makes the game send them again.
+	 *
+	 * @param _robot
+	 *            The robot to control.
+	 * @param _command
+	 *            The recorded command.
+	 */
+	private void replayCommand(final EV3Robot _robot, final String _command)
+	{
+		switch (_command.charAt(0))
+		{
+			case 'h':
+				_robot.shootCannonHigh();
+				break;
+			case 'w':
+				_robot.shootCannonLow();
+				break;
+			case 'l':
+				_robot.turnLeft();
+				break;
+			case 'r':
+				_robot.turnRight();
+				break;
+			case 's':
+				_robot.stopTurning();
+				break;
+			case 'v':
+				_robot.setTurnSpeed(Integer.parseInt(_command.substring(1)));
+				break;
+			default:
+				// Not a player command.
+				break;
+		}
+	}
+
+	/**
+	 * Checks the outcome of the replayed game.
+	 *
+	 * @param _player
+	 *            The player the session was replayed for.
+	 * @param _highscores
+	 *            The highscore list to check against.
+	 * @param _expectedScore
+	 *            The score the player should have.
+	 * @param _expectedHighscore
+	 *            Whether or not the score should make it to the highscore list.
+	 * @throws IllegalStateException
+	 *             when the outcome does not match the expected outcome
+	 */
+	public static void verify(final Player _player, final HighscoreList _highscores, final double _expectedScore,
+			final boolean _expectedHighscore) throws IllegalStateException
+	{
+		if (Double.compare(_player.getScore(), _expectedScore) != 0)
+			throw new IllegalStateException(
+					"Expected a score of " + _expectedScore + " but the replay scored " + _player.getScore() + ".");
+
+		if (_highscores.qualifies(_player.getScore()) != _expectedHighscore)
+			throw new IllegalStateException("Expected the score to " + (_expectedHighscore ? "" : "not ")
+					+ "be a highscore.");
+	}
+
+	/**
+	 * @return the number of messages replayed in the last replay
+	 */
+	public int getMessagesReplayed()
+	{
+		return messagesReplayed;
+	}
+
+	/**
+	 * @return the dispatch throughput of the last replay in messages per
+	 *         second
+	 */
+	public double getMessagesPerSecond()
+	{
+		if (elapsedNanos == 0)
+			return 0.0;
+
+		return messagesReplayed / (elapsedNanos / 1000000000.0);
+	}
+
+	/**
+	 * Replays a recorded session and checks its outcome.
+	 *
+	 * @param args
+	 *            Capture file, expected score, expected highscore and speed.
+	 */
+	public static void main(String[] args)
+	{
+		if (args.length < 3)
+		{
+			System.err.println("Usage: SessionReplay [capture file] [expected score] [expected highscore] [speed]");
+			System.exit(2);
+		}
+
+		double speed = args.length > 3 ? Double.parseDouble(args[3]) : AS_FAST_AS_POSSIBLE;
+		Controller controller = new Controller(new HeadlessListener(true), new SystemClock());
+		int status = 1;
+
+		try
+		{
+			SessionReplay replay = new SessionReplay(SessionCapture.load(args[0]), speed);
+			Player player = controller.replay(replay, "Replay");
+
+			verify(player, controller.getHighscores(), Double.parseDouble(args[1]), Boolean.parseBoolean(args[2]));
+			System.out.println("[SessionReplay] The replay scored " + player.getScore() + " as expected.");
+			status = 0;
+		}
+		catch (IOException e)
+		{
+			System.err.println("[SessionReplay] Unable to read the capture: " + e);
+		}
+		catch (IllegalStateException e)
+		{
+			System.err.println("[SessionReplay] " + e.getMessage());
+		}
+		catch (InterruptedException e)
+		{
+			e.printStackTrace();
+		}
+
+		controller.shutdown();
+		System.exit(status);
+	}
+}
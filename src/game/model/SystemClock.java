@@ -0,0 +1,27 @@
+package game.model;
+
+/**
+ * A {@link GameClock} running in real time.
+ *
+ * @author Jose Uusitalo
+ */
+public class SystemClock implements GameClock
+{
+	@Override
+	public long currentTimeMillis()
+	{
+		return System.currentTimeMillis();
+	}
+
+	@Override
+	public void sleep(final long _millis) throws InterruptedException
+	{
+		Thread.sleep(_millis);
+	}
+
+	@Override
+	public long toRealNanos(final long _millis)
+	{
+		return _millis * 1000000l;
+	}
+}
@@ -5,17 +5,23 @@ import game.controller.Controller;
 
 /**
  * The shot timer class counts the number of seconds left to aim and fire the
- * cannon.
+ * cannon. The timer runs as a loop of the game session and only counts while
+ * it has been started.
  *
- * @see Controller#SHOT_TIMER
+ * @see GameConfig#getShotTimer()
  * @author Ilkka Varjokunnas &amp; Jose Uusitalo
  */
-public class Timer extends Thread
+public class Timer implements Runnable
 {
+	/**
+	 * Time in milliseconds to wait between checks while the timer is stopped.
+	 */
+	private static final long PAUSE_CHECK_INTERVAL = 100l;
+
 	/**
 	 * Whether or not to run the timer.
 	 */
-	private boolean run;
+	private volatile boolean run;
 
 	/**
 	 * Time left in seconds.
@@ -47,7 +53,7 @@ public class Timer extends Thread
 
 	public Timer(final EV3Robot _robot, final Controller _controller)
 	{
-		seconds = Controller.SHOT_TIMER;
+		seconds = GameConfig.get().getShotTimer();
 		rand = new Random();
 		robot = _robot;
 		controller = _controller;
@@ -55,22 +61,34 @@ public class Timer extends Thread
 	}
 
 	/**
-	 * Starts the thread.
+	 * Counts the seconds while started until the game session is closed.
 	 */
 	@Override
 	public void run()
 	{
 		double prosenttiarvo;
-		while (run)
+
+		try
 		{
-			try
+			while (!Thread.currentThread().isInterrupted())
 			{
+				if (!run)
+				{
+					controller.getClock().sleep(PAUSE_CHECK_INTERVAL);
+					continue;
+				}
+
 				System.out.println("[Timer] Second: " + seconds);
 
-				prosenttiarvo = (double) seconds / (double) Controller.SHOT_TIMER;
+				prosenttiarvo = (double) seconds / (double) GameConfig.get().getShotTimer();
 				controller.setTimeLeft(prosenttiarvo);
 				System.out.println("[Timer] Percent: " + prosenttiarvo);
-				Thread.sleep(1000l);
+				controller.getClock().sleep(1000l);
+
+				// Stopped while sleeping.
+				if (!run)
+					continue;
+
 				seconds = seconds - 1;
 				if (seconds == 0)
 				{
@@ -91,19 +109,17 @@ public class Timer extends Thread
 					// Wait for shooting to complete before resetting timer.
 					while (robot.getShootingInProgress())
 					{
-						Thread.sleep(10l);
+						controller.getClock().sleep(10l);
 					}
-					seconds = Controller.SHOT_TIMER;
+					seconds = GameConfig.get().getShotTimer();
 				}
 				System.out.println("[Timer] Reloop.");
 			}
-			catch (InterruptedException e)
-			{
-
-				e.printStackTrace();
-			}
 		}
-
+		catch (InterruptedException e)
+		{
+			// The game session was closed.
+		}
 	}
 
 	/**
@@ -129,7 +145,7 @@ public class Timer extends Thread
 	 */
 	public void resetTimer()
 	{
-		seconds = Controller.SHOT_TIMER;
+		seconds = GameConfig.get().getShotTimer();
 		System.out.println("[Timer] TIMER RESET");
 	}
 
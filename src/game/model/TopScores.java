@@ -0,0 +1,182 @@
+package game.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * A bounded list of the best highscores kept in descending order by score.
+ * Finding the place of a new highscore is a binary search and a highscore that
+ * does not qualify is rejected by comparing it to the lowest score only.
+ * </p>
+ * <p>
+ * Highscores with equal scores are kept in the order they were added, so an
+ * earlier highscore stays above a later one with the same score. When the list
+ * is full, a new highscore has to beat the lowest score to get on the list.
+ * </p>
+ *
+ * @see HighscoreList
+ * @author Jose Uusitalo
+ */
+public class TopScores
+{
+	/**
+	 * The highscores in descending order by score.
+	 */
+	private final Highscore[] entries;
+
+	/**
+	 * Number of highscores in the list.
+	 */
+	private int size;
+
+	/**
+	 * @param _capacity
+	 *            Maximum number of highscores to keep.
+	 */
+	public TopScores(final int _capacity)
+	{
+		if (_capacity < 1)
+			throw new IllegalArgumentException("Capacity must be at least 1.");
+
+		entries = new Highscore[_capacity];
+	}
+
+	/**
+	 * @param _score
+	 *            Score to check.
+	 * @return <code>true</code> if a highscore with the given score would be
+	 *         added to the list, <code>false</code> otherwise
+	 */
+	public boolean qualifies(final double _score)
+	{
+		return size < entries.length || _score > entries[size - 1].getScore();
+	}
+
+	/**
+	 * Adds a highscore to the list if it qualifies. The lowest highscore is
+	 * dropped if the list was full.
+	 *
+	 * @param _highscore
+	 *            The highscore.
+	 * @return the position of the highscore in the list starting from 0,
+	 *         <code>-1</code> if it did not qualify
+	 */
+	public int offer(final Highscore _highscore)
+	{
+		double score = _highscore.getScore();
+
+		if (!qualifies(score))
+			return -1;
+
+		int index = insertionIndex(score);
+		int moved = Math.min(size, entries.length - 1) - index;
+
+		if (moved > 0)
+			System.arraycopy(entries, index, entries, index + 1, moved);
+
+		entries[index] = _highscore;
+
+		if (size < entries.length)
+			size++;
+
+		return index;
+	}
+
+	/**
+	 * Finds the index after the last highscore with a score greater than or
+	 * equal to the given score.
+	 *
+	 * @param _score
+	 *            The score.
+	 * @return the index where a highscore with the given score belongs
+	 */
+	private int insertionIndex(final double _score)
+	{
+		int low = 0;
+		int high = size;
+
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+
+			if (Double.compare(entries[middle].getScore(), _score) >= 0)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+
+		return low;
+	}
+
+	/**
+	 * Removes the highscore at the given position.
+	 *
+	 * @param _index
+	 *            Position of the highscore starting from 0.
+	 * @return the removed highscore
+	 */
+	public Highscore remove(final int _index)
+	{
+		if (_index < 0 || _index >= size)
+			throw new IndexOutOfBoundsException("Index: " + _index + ", size: " + size);
+
+		Highscore removed = entries[_index];
+		System.arraycopy(entries, _index + 1, entries, _index, size - _index - 1);
+		entries[--size] = null;
+		return removed;
+	}
+
+	/**
+	 * Removes all highscores.
+	 */
+	public void clear()
+	{
+		for (int i = 0; i < size; i++)
+			entries[i] = null;
+
+		size = 0;
+	}
+
+	/**
+	 * @param _index
+	 *            Position of the highscore starting from 0.
+	 * @return the highscore at the given position
+	 */
+	public Highscore get(final int _index)
+	{
+		if (_index < 0 || _index >= size)
+			throw new IndexOutOfBoundsException("Index: " + _index + ", size: " + size);
+
+		return entries[_index];
+	}
+
+	/**
+	 * @return the number of highscores in the list
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return the maximum number of highscores in the list
+	 */
+	public int capacity()
+	{
+		return entries.length;
+	}
+
+	/**
+	 * @return a copy of the highscores in descending order by score
+	 */
+	public List<Highscore> toList()
+	{
+		List<Highscore> list = new ArrayList<Highscore>(size);
+
+		for (int i = 0; i < size; i++)
+			list.add(entries[i]);
+
+		return list;
+	}
+}
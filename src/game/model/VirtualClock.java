@@ -0,0 +1,89 @@
+package game.model;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>
+ * A {@link GameClock} running a given number of times faster than real time.
+ * Used for running tests and simulations faster than real time.
+ * </p>
+ * <p>
+ * All waits are shortened by the same factor instead of skipped entirely,
+ * because the game threads rely on the relative order of their waits: for
+ * example the reader thread must get to read a message before the next one
+ * arrives.
+ * </p>
+ *
+ * @author Jose Uusitalo
+ */
+public class VirtualClock implements GameClock
+{
+	/**
+	 * How many times faster than real time this clock runs.
+	 */
+	private final double speedup;
+
+	/**
+	 * Real time in nanoseconds when this clock was created.
+	 */
+	private final long startNanos;
+
+	/**
+	 * Game time in milliseconds when this clock was created.
+	 */
+	private final long startMillis;
+
+	/**
+	 * @param _speedup
+	 *            How many times faster than real time this clock runs.
+	 */
+	public VirtualClock(final double _speedup)
+	{
+		if (_speedup <= 0.0)
+			throw new IllegalArgumentException("Speedup must be positive.");
+
+		speedup = _speedup;
+		startNanos = System.nanoTime();
+		startMillis = System.currentTimeMillis();
+	}
+
+	@Override
+	public long currentTimeMillis()
+	{
+		return startMillis + Math.round((System.nanoTime() - startNanos) * speedup / 1000000.0);
+	}
+
+	@Override
+	public void sleep(final long _millis) throws InterruptedException
+	{
+		// Thread.sleep() does not wait for less than a millisecond.
+		long deadline = System.nanoTime() + Math.round(_millis * 1000000.0 / speedup);
+		long remaining;
+
+		do
+		{
+			if (Thread.interrupted())
+				throw new InterruptedException();
+
+			remaining = deadline - System.nanoTime();
+
+			if (remaining > 0)
+				LockSupport.parkNanos(remaining);
+		}
+		while (remaining > 0);
+	}
+
+	@Override
+	public long toRealNanos(final long _millis)
+	{
+		return Math.round(_millis * 1000000.0 / speedup);
+	}
+
+	/**
+	 * @return how many times faster than real time this clock runs
+	 */
+	public double getSpeedup()
+	{
+		return speedup;
+	}
+}
@@ -1,12 +1,13 @@
 package game.view;
 
 import game.controller.Controller;
-import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
@@ -17,7 +18,7 @@ import javafx.scene.layout.VBox;
  *
  * @author Jose Uusitalo
  */
-public class CenterPane implements EventHandler<ActionEvent>
+public class CenterPane implements EventHandler<MouseEvent>
 {
 	/**
 	 * The root pane for this section of the user interface.
@@ -82,6 +83,13 @@ public class CenterPane implements EventHandler<ActionEvent>
 	 */
 	static Label lblPlayerName;
 
+	/**
+	 * Displays the place of the player's score among all scores.
+	 *
+	 * @see model.ScoreRankIndex
+	 */
+	static Label lblPlayerRank;
+
 	/**
 	 * Displays the number of cannonballs left in the cannon.
 	 *
@@ -142,6 +150,9 @@ public class CenterPane implements EventHandler<ActionEvent>
 			lblPlayerScoreText = new Label("");
 			lblPlayerScoreText.getStyleClass().add("player-score");
 
+			lblPlayerRank = new Label("");
+			lblPlayerRank.getStyleClass().add("player-name");
+
 			HBox ballCounter = new HBox();
 			Label ballLabel = new Label("Cannonballs: ");
 			ballLabel.getStyleClass().add("player-name");
@@ -156,6 +167,7 @@ public class CenterPane implements EventHandler<ActionEvent>
 			// This is dumb if you ask me.
 			lblPlayerName.setMaxWidth(Double.MAX_VALUE);
 			lblPlayerScoreText.setMaxWidth(Double.MAX_VALUE);
+			lblPlayerRank.setMaxWidth(Double.MAX_VALUE);
 			ballCounter.setMaxWidth(Double.MAX_VALUE);
 			timeLeftLabel.setMaxWidth(Double.MAX_VALUE);
 
@@ -165,7 +177,7 @@ public class CenterPane implements EventHandler<ActionEvent>
 
 			// playerInfo.getChildren().addAll(lblPlayerName,
 			// lblPlayerScoreText, timeLeftLabel, progbarTimeLeft);
-			playerInfo.getChildren().addAll(lblPlayerName, lblPlayerScoreText, ballCounter);
+			playerInfo.getChildren().addAll(lblPlayerName, lblPlayerScoreText, lblPlayerRank, ballCounter);
 		}
 		return playerInfo;
 	}
@@ -206,10 +218,11 @@ public class CenterPane implements EventHandler<ActionEvent>
 			btnTurnLeft.getStyleClass().add("bevelGray");
 			btnTurnRight.getStyleClass().add("bevelGray");
 
-			btnShootUp.setOnAction(this);
-			btnShootDown.setOnAction(this);
-			btnTurnLeft.setOnAction(this);
-			btnTurnRight.setOnAction(this);
+			for (Button b : new Button[] { btnShootUp, btnShootDown, btnTurnLeft, btnTurnRight })
+			{
+				b.setOnMousePressed(this);
+				b.setOnMouseReleased(this);
+			}
 
 			controlPanel = new GridPane();
 			controlPanel.setHgap(20);
@@ -225,15 +238,24 @@ public class CenterPane implements EventHandler<ActionEvent>
 	}
 
 	/**
-	 * Handles the <b>mouse click</b> on the buttons used for robot remote
-	 * control. Keyboard events are handled in {@link View}.
+	 * Handles the <b>mouse presses and releases</b> on the buttons used for
+	 * robot remote control. The cannon turns for as long as a turn button is
+	 * held down. Keyboard events are handled in {@link View}.
 	 *
 	 * @param event
-	 *            Mouse click event.
+	 *            Mouse pressed or released event.
 	 */
 	@Override
-	public void handle(ActionEvent event)
+	public void handle(MouseEvent event)
 	{
-		controller.mousePress(event);
+		if (event.getButton() != MouseButton.PRIMARY)
+			return;
+
+		int button = View.BUTTONS.indexOf(((Button) event.getSource()).getId());
+
+		if (event.getEventType() == MouseEvent.MOUSE_PRESSED)
+			controller.mousePress(button);
+		else
+			controller.mouseRelease(button);
 	}
 }
@@ -1,6 +1,7 @@
 package game.view;
 
 import game.controller.Controller;
+import game.model.GameConfig;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.event.ActionEvent;
@@ -69,6 +70,11 @@ public class LeftPane
 	 */
 	private Controller controller;
 
+	/**
+	 * The window listing all stations.
+	 */
+	private StationsPane stationsPane;
+
 	/**
 	 * The root pane for this section of the user interface.
 	 */
@@ -79,9 +85,10 @@ public class LeftPane
 	 */
 	private final double prefWidth = 140.0;
 
-	public LeftPane(final Controller _controller)
+	public LeftPane(final Controller _controller, final StationsPane _stationsPane)
 	{
 		controller = _controller;
+		stationsPane = _stationsPane;
 		vbox = null;
 	}
 
@@ -125,10 +132,13 @@ public class LeftPane
 
 					if (validateConnectionFields())
 					{
-						if (Controller.DEBUG)
-							controller.debugConnect();
+						String ip = fieldRobotIP.getText();
+						int port = Integer.parseInt(fieldRobotPort.getText());
+
+						if (GameConfig.get().isDebug())
+							controller.debugConnect(ip, port);
 						else
-							controller.connect();
+							controller.connect(ip, port);
 					}
 				}
 
@@ -319,7 +329,7 @@ public class LeftPane
 
 				if (validateName())
 				{
-					controller.startGame();
+					controller.startGame(fieldPlayerName.getText());
 				}
 			}
 
@@ -417,8 +427,20 @@ public class LeftPane
 		btnDisconnectFromRobot = new Button("Disconnect");
 		btnDisconnectFromRobot.setPrefWidth(prefWidth);
 
+		Button btnStations = new Button("Stations");
+		btnStations.setPrefWidth(prefWidth);
+
+		btnStations.setOnAction(new EventHandler<ActionEvent>()
+		{
+			@Override
+			public void handle(ActionEvent event)
+			{
+				stationsPane.show();
+			}
+		});
+
 		_vbox.getChildren().addAll(ip, fieldRobotIP, port, fieldRobotPort, btnDefaults, btnConnectToRobot,
-				btnDisconnectFromRobot);
+				btnDisconnectFromRobot, btnStations);
 		return _vbox;
 	}
 }
@@ -1,22 +1,42 @@
 package game.view;
 
+import java.util.List;
+
+import game.controller.Controller;
 import game.model.HighscoreListRow;
+import game.model.LeaderboardWindow;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.scene.control.Label;
+import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TableView.ResizeFeatures;
+import javafx.scene.control.Toggle;
+import javafx.scene.control.ToggleButton;
+import javafx.scene.control.ToggleGroup;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
 import javafx.util.Callback;
 
 /**
- * The right panel of the user interface. Contains the highscore list.
+ * The right panel of the user interface. Contains the highscore list and the
+ * buttons for choosing its time window.
  *
  * @author Jose Uusitalo
  */
 public class RightPane
 {
+	/**
+	 * The {@link Controller}.
+	 */
+	private Controller controller;
+
 	/**
 	 * The container for the highscore list.
 	 */
@@ -27,8 +47,17 @@ public class RightPane
 	 */
 	static TableView<HighscoreListRow> highscores;
 
-	public RightPane()
+	/**
+	 * The rows of the highscore table. The same list is used for the whole
+	 * lifetime of the table and only the changed rows are inserted and removed,
+	 * so the table keeps its scroll position and only lays out the changed
+	 * rows.
+	 */
+	static final ObservableList<HighscoreListRow> rows = FXCollections.observableArrayList();
+
+	public RightPane(final Controller _controller)
 	{
+		controller = _controller;
 		bpane = null;
 	}
 
@@ -74,7 +103,27 @@ public class RightPane
 			});
 
 			TableColumn<HighscoreListRow, Integer> colPosition = new TableColumn<HighscoreListRow, Integer>("Pos.");
-			colPosition.setCellValueFactory(new PropertyValueFactory<HighscoreListRow, Integer>("position"));
+			colPosition.setCellFactory(new Callback<TableColumn<HighscoreListRow, Integer>, TableCell<HighscoreListRow, Integer>>()
+			{
+				@Override
+				public TableCell<HighscoreListRow, Integer> call(TableColumn<HighscoreListRow, Integer> _column)
+				{
+					// The position is the index of the row, so inserting a row does not change the other rows.
+					return new TableCell<HighscoreListRow, Integer>()
+					{
+						@Override
+						public void updateIndex(final int _index)
+						{
+							super.updateIndex(_index);
+
+							if (_index < 0 || _index >= getTableView().getItems().size())
+								setText(null);
+							else
+								setText(Integer.toString(_index + 1));
+						}
+					};
+				}
+			});
 			colPosition.prefWidthProperty().bind(highscores.widthProperty().multiply(0.15));
 
 			TableColumn<HighscoreListRow, String> colName = new TableColumn<HighscoreListRow, String>("Name");
@@ -88,11 +137,117 @@ public class RightPane
 			colScore.prefWidthProperty().bind(highscores.widthProperty().multiply(0.29));
 
 			highscores.getColumns().addAll(colPosition, colName, colScore);
+			highscores.setItems(rows);
 
-			bpane.setTop(highscoresTitle);
+			bpane.setTop(new VBox(highscoresTitle, getWindowButtons()));
 			bpane.setRight(highscores);
 		}
 		return bpane;
 	}
 
+	/**
+	 * Creates the buttons for choosing the time window of the highscore list.
+	 *
+	 * @return a box with a button for each window
+	 */
+	private HBox getWindowButtons()
+	{
+		HBox buttons = new HBox();
+		final ToggleGroup group = new ToggleGroup();
+
+		for (LeaderboardWindow window : LeaderboardWindow.values())
+		{
+			ToggleButton button = new ToggleButton(window.getTitle());
+			button.setUserData(window);
+			button.setToggleGroup(group);
+			button.setFocusTraversable(false);
+			button.setSelected(window == LeaderboardWindow.ALL_TIME);
+			buttons.getChildren().add(button);
+		}
+
+		group.selectedToggleProperty().addListener(new ChangeListener<Toggle>()
+		{
+			@Override
+			public void changed(ObservableValue<? extends Toggle> _observable, Toggle _old, Toggle _new)
+			{
+				// Keep one window always selected.
+				if (_new == null)
+					group.selectToggle(_old);
+				else
+					controller.setLeaderboardWindow((LeaderboardWindow) _new.getUserData());
+			}
+		});
+
+		return buttons;
+	}
+
+	/**
+	 * Changes the rows of the highscore table to the given rows by inserting
+	 * the new rows and removing the rows that are no longer on the list. Must
+	 * be called in the JavaFX application thread.
+	 *
+	 * @param _scores
+	 *            The new rows in descending order by score.
+	 */
+	static void updateRows(final List<HighscoreListRow> _scores)
+	{
+		int i = 0;
+		int j = 0;
+
+		while (i < rows.size() && j < _scores.size())
+		{
+			HighscoreListRow current = rows.get(i);
+			HighscoreListRow updated = _scores.get(j);
+
+			if (isSameRow(current, updated))
+			{
+				i++;
+				j++;
+			}
+			else if (current.getScore() > updated.getScore() || !containsRow(_scores, j, current))
+			{
+				rows.remove(i);
+			}
+			else
+			{
+				rows.add(i++, updated);
+				j++;
+			}
+		}
+
+		if (i < rows.size())
+			rows.remove(i, rows.size());
+
+		if (j < _scores.size())
+			rows.addAll(_scores.subList(j, _scores.size()));
+	}
+
+	/**
+	 * @param _rows
+	 *            Rows in descending order by score.
+	 * @param _from
+	 *            Index to start searching from.
+	 * @param _row
+	 *            The row to find.
+	 * @return <code>true</code> if a row with the same name and score is in the
+	 *         given rows after the given index
+	 */
+	private static boolean containsRow(final List<HighscoreListRow> _rows, final int _from, final HighscoreListRow _row)
+	{
+		for (int k = _from; k < _rows.size() && _rows.get(k).getScore() >= _row.getScore(); k++)
+		{
+			if (isSameRow(_rows.get(k), _row))
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * @return <code>true</code> if the rows have the same name and score
+	 */
+	private static boolean isSameRow(final HighscoreListRow _a, final HighscoreListRow _b)
+	{
+		return _a.getScore() == _b.getScore() && _a.getName().equals(_b.getName());
+	}
 }
@@ -0,0 +1,404 @@
+package game.view;
+
+import game.controller.Controller;
+import game.controller.HeadlessListener;
+import game.controller.Station;
+import game.controller.StationManager;
+import game.model.GameConfig;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+/**
+ * A window listing every station run from this PC with the state of its game.
+ * Stations other than the one played in the main window can be connected to
+ * their robots, played and removed here: the arrow keys control the robot of
+ * the selected station while this window is focused.
+ *
+ * @see StationManager
+ * @author Jose Uusitalo
+ */
+public class StationsPane
+{
+	/**
+	 * Runs the stations.
+	 */
+	private final StationManager manager;
+
+	/**
+	 * The main window, which shows the error messages.
+	 */
+	private final View view;
+
+	/**
+	 * The station played in the main window.
+	 */
+	private final Station mainStation;
+
+	/**
+	 * Refreshes the table once per pulse when stations have changed.
+	 */
+	private final ViewUpdateBus.Slot<Boolean> stationsChanged;
+
+	/**
+	 * The rows of the table, one for each station.
+	 */
+	private final ObservableList<Station> rows;
+
+	/**
+	 * A TableView displaying the stations, <code>null</code> until the window
+	 * is opened.
+	 */
+	private TableView<Station> table;
+
+	/**
+	 * The window, <code>null</code> until it is opened.
+	 */
+	private Stage stage;
+
+	/**
+	 * Receives the state changes of a station added in this window. The
+	 * state is shown in the table, so only the error messages are passed on.
+	 */
+	private class AddedStationListener extends HeadlessListener
+	{
+		/**
+		 * The station, <code>null</code> until it has been added.
+		 */
+		private volatile Station station;
+
+		public AddedStationListener()
+		{
+			super(false);
+		}
+
+		@Override
+		public void errorMessage(final String _message)
+		{
+			view.errorMessage("Station " + (station == null ? "?" : station.getNumber()) + ": " + _message);
+		}
+	}
+
+	/**
+	 * @param _manager
+	 *            Runs the stations.
+	 * @param _updates
+	 *            Delivers the changes to the table.
+	 * @param _view
+	 *            The main window.
+	 * @param _mainStation
+	 *            The station played in the main window.
+	 */
+	public StationsPane(final StationManager _manager, final ViewUpdateBus _updates, final View _view,
+			final Station _mainStation)
+	{
+		manager = _manager;
+		view = _view;
+		mainStation = _mainStation;
+		rows = FXCollections.observableArrayList(manager.getStations());
+
+		stationsChanged = _updates.new Slot<Boolean>()
+		{
+			@Override
+			protected void apply(final Boolean _value)
+			{
+				rows.setAll(manager.getStations());
+
+				// The state of a station is not observable, so redraw the cells.
+				if (table != null)
+					table.refresh();
+			}
+		};
+
+		manager.addListener(new StationManager.StationListener()
+		{
+			@Override
+			public void stationChanged(final Station _station)
+			{
+				stationsChanged.post(Boolean.TRUE);
+			}
+		});
+	}
+
+	/**
+	 * Opens the window or brings it to the front if it is already open.
+	 */
+	public void show()
+	{
+		if (stage == null)
+		{
+			Scene scene = new Scene(createPane());
+
+			scene.addEventFilter(KeyEvent.KEY_PRESSED, new EventHandler<KeyEvent>()
+			{
+				@Override
+				public void handle(KeyEvent _keyEvent)
+				{
+					int button = View.toButton(_keyEvent.getCode());
+					Station station = table.getSelectionModel().getSelectedItem();
+
+					if (button > -1 && station != null && station != mainStation
+							&& !(_keyEvent.getTarget() instanceof TextField))
+					{
+						station.getController().keyPress(button);
+						_keyEvent.consume();
+					}
+				}
+			});
+
+			scene.addEventFilter(KeyEvent.KEY_RELEASED, new EventHandler<KeyEvent>()
+			{
+				@Override
+				public void handle(KeyEvent _keyEvent)
+				{
+					int button = View.toButton(_keyEvent.getCode());
+					Station station = table.getSelectionModel().getSelectedItem();
+
+					if (button > -1 && station != null && station != mainStation
+							&& !(_keyEvent.getTarget() instanceof TextField))
+					{
+						station.getController().keyRelease(button);
+						_keyEvent.consume();
+					}
+				}
+			});
+
+			// The key releases are not seen by a station that is no longer selected or focused.
+			table.getSelectionModel().selectedItemProperty().addListener(new ChangeListener<Station>()
+			{
+				@Override
+				public void changed(ObservableValue<? extends Station> _observable, Station _old, Station _new)
+				{
+					if (_old != null)
+						_old.getController().releaseControls();
+				}
+			});
+
+			stage = new Stage();
+			stage.setTitle("Stations");
+			stage.setScene(scene);
+			stage.focusedProperty().addListener(new ChangeListener<Boolean>()
+			{
+				@Override
+				public void changed(ObservableValue<? extends Boolean> _observable, Boolean _oldValue,
+						Boolean _newValue)
+				{
+					Station station = table.getSelectionModel().getSelectedItem();
+
+					if (!_newValue && station != null && station != mainStation)
+						station.getController().releaseControls();
+				}
+			});
+		}
+
+		stage.show();
+		stage.toFront();
+	}
+
+	/**
+	 * Closes the window if it is open.
+	 */
+	public void close()
+	{
+		if (stage != null)
+			stage.close();
+	}
+
+	/**
+	 * Creates the contents of the window.
+	 *
+	 * @return the border pane with the station table and controls
+	 */
+	private BorderPane createPane()
+	{
+		BorderPane bpane = new BorderPane();
+		bpane.setPadding(new Insets(10, 10, 10, 10));
+
+		Label title = new Label("Stations");
+		title.getStyleClass().add("highscores-title");
+
+		table = new TableView<Station>();
+		table.setEditable(false);
+		table.setPrefSize(560, 300);
+		table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+
+		TableColumn<Station, Integer> colNumber = new TableColumn<Station, Integer>("No.");
+		colNumber.setCellValueFactory(new PropertyValueFactory<Station, Integer>("number"));
+
+		TableColumn<Station, String> colState = new TableColumn<Station, String>("State");
+		colState.setCellValueFactory(new PropertyValueFactory<Station, String>("state"));
+
+		TableColumn<Station, String> colPlayer = new TableColumn<Station, String>("Player");
+		colPlayer.setCellValueFactory(new PropertyValueFactory<Station, String>("playerName"));
+
+		TableColumn<Station, String> colScore = new TableColumn<Station, String>("Score");
+		colScore.setCellValueFactory(new PropertyValueFactory<Station, String>("playerScore"));
+
+		TableColumn<Station, String> colBalls = new TableColumn<Station, String>("Cannonballs");
+		colBalls.setCellValueFactory(new PropertyValueFactory<Station, String>("cannonballsLeft"));
+
+		TableColumn<Station, Integer> colGames = new TableColumn<Station, Integer>("Games");
+		colGames.setCellValueFactory(new PropertyValueFactory<Station, Integer>("gamesEnded"));
+
+		table.getColumns().add(colNumber);
+		table.getColumns().add(colState);
+		table.getColumns().add(colPlayer);
+		table.getColumns().add(colScore);
+		table.getColumns().add(colBalls);
+		table.getColumns().add(colGames);
+		table.setItems(rows);
+
+		bpane.setTop(title);
+		bpane.setCenter(table);
+		bpane.setBottom(createControls());
+		return bpane;
+	}
+
+	/**
+	 * Creates the controls for adding, playing and removing stations.
+	 *
+	 * @return a box with the controls
+	 */
+	private VBox createControls()
+	{
+		HBox connection = new HBox(10.0);
+		HBox game = new HBox(10.0);
+		VBox controls = new VBox(10.0, connection, game);
+		controls.setPadding(new Insets(10, 0, 0, 0));
+
+		final TextField fieldIP = new TextField();
+		fieldIP.setPromptText("IP");
+		fieldIP.setPrefWidth(120);
+
+		final TextField fieldPort = new TextField();
+		fieldPort.setPromptText("Port");
+		fieldPort.setPrefWidth(60);
+
+		Button btnAdd = new Button("Add");
+		btnAdd.setOnAction(new EventHandler<ActionEvent>()
+		{
+			@Override
+			public void handle(ActionEvent event)
+			{
+				int port;
+
+				try
+				{
+					port = Integer.parseInt(fieldPort.getText());
+				}
+				catch (NumberFormatException e)
+				{
+					view.errorMessage("Input an integer as the port.");
+					return;
+				}
+
+				AddedStationListener listener = new AddedStationListener();
+				Station station = manager.addStation(listener);
+				listener.station = station;
+
+				if (GameConfig.get().isDebug())
+					station.getController().debugConnect(fieldIP.getText(), port);
+				else
+					station.getController().connect(fieldIP.getText(), port);
+
+				if (!station.getController().isConnected())
+					manager.removeStation(station);
+			}
+		});
+
+		final TextField fieldPlayerName = new TextField();
+		fieldPlayerName.setPromptText("Player");
+		fieldPlayerName.setPrefWidth(190);
+
+		Button btnStart = new Button("Start");
+		btnStart.setOnAction(new EventHandler<ActionEvent>()
+		{
+			@Override
+			public void handle(ActionEvent event)
+			{
+				Station station = getSelectedAddedStation();
+				String name = fieldPlayerName.getText().trim();
+
+				if (station == null)
+					return;
+
+				if (name.isEmpty())
+					view.errorMessage("Input a player name.");
+				else if (name.length() > Controller.PLAYER_NAME_MAX_LENGTH)
+					view.errorMessage("The player name can have at most " + Controller.PLAYER_NAME_MAX_LENGTH
+							+ " characters.");
+				else if (!station.getController().isConnected())
+					view.errorMessage("Station " + station.getNumber() + " is not connected.");
+				else
+				{
+					station.getController().startGame(name);
+					fieldPlayerName.clear();
+					table.requestFocus();
+				}
+			}
+		});
+
+		Button btnEnd = new Button("End");
+		btnEnd.setOnAction(new EventHandler<ActionEvent>()
+		{
+			@Override
+			public void handle(ActionEvent event)
+			{
+				Station station = getSelectedAddedStation();
+
+				if (station != null)
+					station.getController().endGame();
+			}
+		});
+
+		Button btnRemove = new Button("Remove");
+		btnRemove.setOnAction(new EventHandler<ActionEvent>()
+		{
+			@Override
+			public void handle(ActionEvent event)
+			{
+				Station station = getSelectedAddedStation();
+
+				if (station != null)
+					manager.removeStation(station);
+			}
+		});
+
+		connection.getChildren().addAll(fieldIP, fieldPort, btnAdd, btnRemove);
+		game.getChildren().addAll(fieldPlayerName, btnStart, btnEnd);
+		return controls;
+	}
+
+	/**
+	 * @return the selected station, <code>null</code> if none is selected or
+	 *         the station is played in the main window
+	 */
+	private Station getSelectedAddedStation()
+	{
+		Station station = table.getSelectionModel().getSelectedItem();
+
+		if (station == mainStation)
+		{
+			view.errorMessage("The station of the main window is controlled from the main window.");
+			return null;
+		}
+
+		return station;
+	}
+}
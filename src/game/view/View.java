@@ -4,12 +4,17 @@ import java.util.Arrays;
 import java.util.List;
 
 import game.controller.Controller;
-import game.model.EV3Robot;
+import game.controller.GameListener;
+import game.controller.Station;
+import game.controller.StationManager;
+import game.model.GameConfig;
 import game.model.HighscoreListRow;
 import javafx.animation.Animation;
 import javafx.animation.Transition;
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
 import javafx.collections.ObservableList;
 import javafx.event.EventHandler;
 import javafx.geometry.Insets;
@@ -20,7 +25,6 @@ import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
-import javafx.scene.control.TableView;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.BorderPane;
@@ -32,63 +36,287 @@ import javafx.scene.layout.VBox;
  *
  * @author Jose Uusitalo
  */
-public class View extends Application
+public class View extends Application implements GameListener
 {
 	/**
-	 * A magic number representing the "Shoot Up" button in the user interface.
+	 * A list of button ID strings used in the interface. The order of these
+	 * strings is hardcoded and must not be changed.
+	 *
+	 * @see Controller#BUTTON_SHOOT_UP
 	 */
-	public static final int BUTTON_SHOOT_UP = 0;
+	public static final List<String> BUTTONS = Arrays.asList("shootUp", "shootDown", "turnLeft", "turnRight");
 
 	/**
-	 * A magic number representing the "Shoot Down" button in the user
-	 * interface.
+	 * @see Controller
 	 */
-	public static final int BUTTON_SHOOT_DOWN = 1;
+	private Controller controller;
 
 	/**
-	 * A magic number representing the "Turn Left" button in the user interface.
+	 * Runs the robot played in this window and any other robots run from this
+	 * PC.
 	 */
-	public static final int BUTTON_TURN_LEFT = 2;
+	private StationManager stations;
 
 	/**
-	 * A magic number representing the "Turn Right" button in the user
-	 * interface.
+	 * The window listing all stations.
 	 */
-	public static final int BUTTON_TURN_RIGHT = 3;
+	private StationsPane stationsPane;
 
 	/**
-	 * A list of button ID strings used in the interface. The order of these
-	 * strings is hardcoded and must not be changed.
+	 * The root panel of the window, which contains all the nodes.
 	 */
-	public static final List<String> BUTTONS = Arrays.asList("shootUp", "shootDown", "turnLeft", "turnRight");
+	private BorderPane rootBorderPane;
 
 	/**
-	 * @see Controller
+	 * The main control panel which contains the user interface elements the
+	 * user interacts with.
 	 */
-	private Controller controller;
+	private BorderPane controlPane;
 
 	/**
-	 * The root panel of the window, which contains all the nodes.
+	 * Whether or not the control pane controls are enabled. Set when the
+	 * change is posted, so the keyboard follows it before the controls are
+	 * grayed out in the next pulse.
 	 */
-	private BorderPane rootBorderPane;
+	private volatile boolean controlsEnabled;
 
 	/**
-	 * The main control panel which contains the user interface elements the
-	 * user interacts with.
+	 * Delivers the updates from the game threads to the interface once per
+	 * pulse.
 	 */
-	private BorderPane controlPane;
+	private final ViewUpdateBus updates;
+
+	/**
+	 * Whether or not the connection controls are disabled.
+	 */
+	private final ViewUpdateBus.Slot<Boolean> connectionControlsDisabled;
+
+	/**
+	 * Whether or not the disconnect button is disabled.
+	 */
+	private final ViewUpdateBus.Slot<Boolean> disconnectButtonDisabled;
+
+	/**
+	 * Whether or not the game controls and the end game button are disabled.
+	 */
+	private final ViewUpdateBus.Slot<boolean[]> gameControlsDisabled;
+
+	/**
+	 * Whether or not the robot controls are disabled.
+	 */
+	private final ViewUpdateBus.Slot<Boolean> robotControlsDisabled;
+
+	/**
+	 * The time left indicator.
+	 */
+	private final ViewUpdateBus.Slot<Double> timeLeft;
+
+	/**
+	 * The cannon angle indicator.
+	 */
+	private final ViewUpdateBus.Slot<Double> cannonAngle;
+
+	/**
+	 * Flashes the cannon angle indicator.
+	 */
+	private final ViewUpdateBus.Slot<Boolean> cannonAngleFlash;
+
+	/**
+	 * The highscore table.
+	 */
+	private final ViewUpdateBus.Slot<List<HighscoreListRow>> highscores;
 
 	/**
-	 * Whether or not the control pane controls are disabled. (Grayed out.)
+	 * The score of the player.
 	 */
-	private boolean controlsEnabled;
+	private final ViewUpdateBus.Slot<String> playerScore;
 
 	/**
-	 * Initializes the controller.
+	 * The name of the player.
+	 */
+	private final ViewUpdateBus.Slot<String> playerName;
+
+	/**
+	 * The number of cannonballs left.
+	 */
+	private final ViewUpdateBus.Slot<String> cannonballsLeft;
+
+	/**
+	 * The rank of the player's score among all games.
+	 */
+	private final ViewUpdateBus.Slot<int[]> playerRank;
+
+	/**
+	 * The player name text field.
+	 */
+	private final ViewUpdateBus.Slot<String> playerNameTextField;
+
+	/**
+	 * Creates the slots for the updates of the interface.
 	 */
 	public View()
 	{
-		controller = new Controller(this);
+		updates = new ViewUpdateBus();
+
+		connectionControlsDisabled = updates.new Slot<Boolean>()
+		{
+			@Override
+			protected void apply(final Boolean _disabled)
+			{
+				ObservableList<Node> connectionControls = ((VBox) (((VBox) rootBorderPane.getLeft()).getChildren())
+						.get(0)).getChildren();
+
+				for (Node n : connectionControls)
+				{
+					// The disconnect button has a slot of its own.
+					if (n != LeftPane.btnDisconnectFromRobot)
+						n.setDisable(_disabled);
+				}
+			}
+		};
+
+		disconnectButtonDisabled = updates.new Slot<Boolean>()
+		{
+			@Override
+			protected void apply(final Boolean _disabled)
+			{
+				LeftPane.btnDisconnectFromRobot.setDisable(_disabled);
+			}
+		};
+
+		gameControlsDisabled = updates.new Slot<boolean[]>()
+		{
+			@Override
+			protected void apply(final boolean[] _disabled)
+			{
+				ObservableList<Node> gameControls = ((VBox) (((VBox) rootBorderPane.getLeft()).getChildren()).get(1))
+						.getChildren();
+
+				for (Node n : gameControls)
+				{
+					n.setDisable(_disabled[0]);
+				}
+
+				LeftPane.btnEndGame.setDisable(_disabled[1]);
+			}
+		};
+
+		robotControlsDisabled = updates.new Slot<Boolean>()
+		{
+			@Override
+			protected void apply(final Boolean _disabled)
+			{
+				ObservableList<Node> centerNodes = ((GridPane) controlPane.getCenter()).getChildren();
+				ObservableList<Node> bottomNodes = ((VBox) controlPane.getBottom()).getChildren();
+				for (Node n : centerNodes)
+				{
+					n.setDisable(_disabled);
+				}
+				for (Node n : bottomNodes)
+				{
+					n.setDisable(_disabled);
+				}
+			}
+		};
+
+		timeLeft = updates.new Slot<Double>()
+		{
+			@Override
+			protected void apply(final Double _percentOfTotal)
+			{
+				CenterPane.progbarTimeLeft.setProgress(_percentOfTotal);
+			}
+		};
+
+		cannonAngle = updates.new Slot<Double>()
+		{
+			@Override
+			protected void apply(final Double _value)
+			{
+				BottomPane.progbarCannonAngle.setProgress(_value);
+			}
+		};
+
+		cannonAngleFlash = updates.new Slot<Boolean>()
+		{
+			@Override
+			protected void apply(final Boolean _flash)
+			{
+				playAngleBarFlash();
+			}
+		};
+
+		highscores = updates.new Slot<List<HighscoreListRow>>()
+		{
+			@Override
+			protected void apply(final List<HighscoreListRow> _scores)
+			{
+				RightPane.updateRows(_scores);
+			}
+		};
+
+		playerScore = updates.new Slot<String>()
+		{
+			@Override
+			protected void apply(final String _score)
+			{
+				CenterPane.lblPlayerScoreText.setText(_score);
+			}
+		};
+
+		playerName = updates.new Slot<String>()
+		{
+			@Override
+			protected void apply(final String _name)
+			{
+				CenterPane.lblPlayerName.setText(_name);
+			}
+		};
+
+		cannonballsLeft = updates.new Slot<String>()
+		{
+			@Override
+			protected void apply(final String _cannonballsLeft)
+			{
+				CenterPane.lblCannonballsLeft.setText(_cannonballsLeft);
+			}
+		};
+
+		playerRank = updates.new Slot<int[]>()
+		{
+			@Override
+			protected void apply(final int[] _rank)
+			{
+				if (_rank[0] > 0)
+					CenterPane.lblPlayerRank.setText(String.format("Rank: %,d / %,d", _rank[0], _rank[1]));
+				else
+					CenterPane.lblPlayerRank.setText("");
+			}
+		};
+
+		playerNameTextField = updates.new Slot<String>()
+		{
+			@Override
+			protected void apply(final String _name)
+			{
+				LeftPane.fieldPlayerName.setText(_name);
+			}
+		};
+
+	}
+
+	/**
+	 * Adds the station played in this window and initializes the controller.
+	 * Called after the view has been constructed and before it is opened, so
+	 * the station never sees a view that is not fully constructed.
+	 */
+	@Override
+	public void init()
+	{
+		stations = new StationManager();
+		Station station = stations.addStation(this);
+		controller = station.getController();
+		stationsPane = new StationsPane(stations, updates, this, station);
 	}
 
 	/**
@@ -126,8 +354,10 @@ public class View extends Application
 				@Override
 				public void handle(KeyEvent _keyEvent)
 				{
-					if (controlsEnabled)
-						controller.keyPress(_keyEvent);
+					int button = toButton(_keyEvent.getCode());
+
+					if (controlsEnabled && button > -1)
+						controller.keyPress(button);
 				}
 			});
 
@@ -136,8 +366,22 @@ public class View extends Application
 				@Override
 				public void handle(KeyEvent _keyEvent)
 				{
-					if (controlsEnabled)
-						controller.keyRelease(_keyEvent);
+					int button = toButton(_keyEvent.getCode());
+
+					if (controlsEnabled && button > -1)
+						controller.keyRelease(button);
+				}
+			});
+
+			// The key releases are not seen while the window is not focused.
+			_primaryStage.focusedProperty().addListener(new ChangeListener<Boolean>()
+			{
+				@Override
+				public void changed(ObservableValue<? extends Boolean> _observable, Boolean _oldValue,
+						Boolean _newValue)
+				{
+					if (!_newValue)
+						controller.releaseControls();
 				}
 			});
 
@@ -151,7 +395,11 @@ public class View extends Application
 				public void handle(WindowEvent event)
 				{
 					System.out.println("[View] Shutting down.");
-					controller.disconnect();
+					stationsPane.close();
+					stations.shutdown();
+					updates.stop();
+					System.out.println("[View] " + updates.getPosted() + " interface updates posted, "
+							+ updates.getApplied() + " shown.");
 				}
 			});
 
@@ -161,6 +409,10 @@ public class View extends Application
 			System.out.println("[View] Updating highscores.");
 			controller.updateHighscores();
 
+			// Show the initial state before the window opens.
+			updates.drain();
+			updates.start();
+
 			_primaryStage.show();
 		}
 		catch (Exception e)
@@ -181,10 +433,10 @@ public class View extends Application
 		rootBorderPane = new BorderPane();
 		controlPane = new BorderPane();
 
-		LeftPane leftPane = new LeftPane(controller);
+		LeftPane leftPane = new LeftPane(controller, stationsPane);
 		CenterPane centerPane = new CenterPane(controller);
 		BottomPane bottomPane = new BottomPane();
-		RightPane rightPane = new RightPane();
+		RightPane rightPane = new RightPane(controller);
 
 		controlPane.setCenter(centerPane.getPane());
 		controlPane.setBottom(bottomPane.getPane());
@@ -197,38 +449,29 @@ public class View extends Application
 	}
 
 	/**
-	 * Gets the string the player input into the
-	 * {@link LeftPane#fieldPlayerName} text field in the connection controls of
-	 * {@link LeftPane}.
-	 *
-	 * @return the player name
-	 */
-	public String getName()
-	{
-		return LeftPane.fieldPlayerName.getText();
-	}
-
-	/**
-	 * Gets the string the player input into the
-	 * {@link LeftPane#fieldPlayerName} text field in the connection controls of
-	 * {@link LeftPane}.
+	 * Maps the arrow keys to the robot controls.
 	 *
-	 * @return the robot IP address as a String
-	 */
-	public String getIP()
-	{
-		return LeftPane.fieldRobotIP.getText();
-	}
-
-	/**
-	 * Gets the number the player input into the {@link LeftPane#fieldRobotIP}
-	 * text field in the connection controls of {@link LeftPane}.
-	 *
-	 * @return the robot port as an int
+	 * @param _code
+	 *            A KeyCode representing the keyboard key.
+	 * @return ID of the robot control the key is bound to or <code>-1</code>
+	 *         if the key is not bound to anything
+	 * @see Controller#BUTTON_SHOOT_UP
 	 */
-	public int getPort()
+	static int toButton(final KeyCode _code)
 	{
-		return Integer.parseInt(LeftPane.fieldRobotPort.getText());
+		switch (_code)
+		{
+			case UP:
+				return Controller.BUTTON_SHOOT_UP;
+			case DOWN:
+				return Controller.BUTTON_SHOOT_DOWN;
+			case LEFT:
+				return Controller.BUTTON_TURN_LEFT;
+			case RIGHT:
+				return Controller.BUTTON_TURN_RIGHT;
+			default:
+				return -1;
+		}
 	}
 
 	/**
@@ -237,12 +480,21 @@ public class View extends Application
 	 * @param _message
 	 *            the string to be shown to the user
 	 */
+	@Override
 	public void errorMessage(final String _message)
 	{
-		Alert alert = new Alert(AlertType.ERROR);
-		alert.setTitle("Error");
-		alert.setContentText(_message);
-		alert.showAndWait();
+		// Every message is shown, so this does not go through the update bus.
+		Platform.runLater(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				Alert alert = new Alert(AlertType.ERROR);
+				alert.setTitle("Error");
+				alert.setContentText(_message);
+				alert.showAndWait();
+			}
+		});
 	}
 
 	/**
@@ -258,16 +510,10 @@ public class View extends Application
 	 *            controls, but disable the disconnect button.
 	 * @see LeftPane
 	 */
+	@Override
 	public void disableConnectionControls(final boolean _disabled)
 	{
-		ObservableList<Node> connectionControls = ((VBox) (((VBox) rootBorderPane.getLeft()).getChildren()).get(0))
-				.getChildren();
-
-		for (Node n : connectionControls)
-		{
-			n.setDisable(_disabled);
-		}
-
+		connectionControlsDisabled.post(_disabled);
 		setDisconnectButtonDisabled(!_disabled);
 	}
 
@@ -278,15 +524,10 @@ public class View extends Application
 	 *            <code>true</code> to disable the interface controls,
 	 *            <code>false</code> to enable them.
 	 */
+	@Override
 	public void disableGameControls(final boolean _disabled)
 	{
-		ObservableList<Node> gameControls = ((VBox) (((VBox) rootBorderPane.getLeft()).getChildren()).get(1))
-				.getChildren();
-
-		for (Node n : gameControls)
-		{
-			n.setDisable(_disabled);
-		}
+		gameControlsDisabled.post(new boolean[] { _disabled, _disabled });
 	}
 
 	/**
@@ -303,24 +544,10 @@ public class View extends Application
 	 *            <code>false</code> to enable/disable it with the rest of the
 	 *            game controls.
 	 */
+	@Override
 	public void disableGameControls(final boolean _disabled, final boolean _toggleEndGame)
 	{
-		if (!_toggleEndGame)
-		{
-			disableGameControls(_disabled);
-		}
-		else
-		{
-			ObservableList<Node> gameControls = ((VBox) (((VBox) rootBorderPane.getLeft()).getChildren()).get(1))
-					.getChildren();
-
-			for (Node n : gameControls)
-			{
-				n.setDisable(_disabled);
-			}
-
-			LeftPane.btnEndGame.setDisable(!_disabled);
-		}
+		gameControlsDisabled.post(new boolean[] { _disabled, _toggleEndGame ? !_disabled : _disabled });
 	}
 
 	/**
@@ -332,19 +559,11 @@ public class View extends Application
 	 *            to enable all controls.
 	 * @see CenterPane
 	 */
+	@Override
 	public void disableRobotControls(final boolean _disabled)
 	{
 		controlsEnabled = !(_disabled);
-		ObservableList<Node> centerNodes = ((GridPane) controlPane.getCenter()).getChildren();
-		ObservableList<Node> bottomNodes = ((VBox) controlPane.getBottom()).getChildren();
-		for (Node n : centerNodes)
-		{
-			n.setDisable(_disabled);
-		}
-		for (Node n : bottomNodes)
-		{
-			n.setDisable(_disabled);
-		}
+		robotControlsDisabled.post(_disabled);
 	}
 
 	/**
@@ -355,114 +574,45 @@ public class View extends Application
 	 *            fields.
 	 * @see controller.Controller#getConnectionDefaults()
 	 */
+	@Override
 	public void setConnectionDefaults(final String[] _connectionDefaults)
 	{
 		LeftPane.fieldRobotIP.setText(_connectionDefaults[0]);
 		LeftPane.fieldRobotPort.setText(_connectionDefaults[1]);
 	}
 
-	/**
-	 * Changes the visual style of the {@link CenterPane} robot control buttons
-	 * to their pushed down state. The change is pure cosmetic.
-	 *
-	 * @param _code
-	 *            A KeyCode representing the keyboard key that was pressed.
-	 * @see Controller#keyPress(KeyEvent)
-	 */
-	public void visualPressControlButton(final KeyCode _code)
-	{
-		if (Controller.DEBUG_INFO)
-			System.out.println("[View] VIS PRESS: " + _code);
-		switch (_code)
-		{
-			case UP:
-				CenterPane.btnShootUp.getStyleClass().remove(1);
-				CenterPane.btnShootUp.getStyleClass().add("bevelGrayFakePress");
-				break;
-			case DOWN:
-				CenterPane.btnShootDown.getStyleClass().remove(1);
-				CenterPane.btnShootDown.getStyleClass().add("bevelGrayFakePress");
-				break;
-			case RIGHT:
-				CenterPane.btnTurnRight.getStyleClass().remove(1);
-				CenterPane.btnTurnRight.getStyleClass().add("bevelGrayFakePress");
-				break;
-			case LEFT:
-				CenterPane.btnTurnLeft.getStyleClass().remove(1);
-				CenterPane.btnTurnLeft.getStyleClass().add("bevelGrayFakePress");
-				break;
-			default:
-				break;
-		}
-	}
-
-	/**
-	 * Changes the visual style of the {@link CenterPane} robot control buttons
-	 * to their default idle state. The change is pure cosmetic.
-	 *
-	 * @param _code
-	 *            A KeyCode representing the keyboard key that was released.
-	 * @see Controller#keyRelease(KeyEvent)
-	 */
-	public void visualReleaseControlButton(final KeyCode _code)
-	{
-		if (Controller.DEBUG_INFO)
-			System.out.println("[View] VIS RELEASE: " + _code);
-		switch (_code)
-		{
-			case UP:
-				CenterPane.btnShootUp.getStyleClass().remove(1);
-				CenterPane.btnShootUp.getStyleClass().add("bevelGray");
-				break;
-			case DOWN:
-				CenterPane.btnShootDown.getStyleClass().remove(1);
-				CenterPane.btnShootDown.getStyleClass().add("bevelGray");
-				break;
-			case RIGHT:
-				CenterPane.btnTurnRight.getStyleClass().remove(1);
-				CenterPane.btnTurnRight.getStyleClass().add("bevelGray");
-				break;
-			case LEFT:
-				CenterPane.btnTurnLeft.getStyleClass().remove(1);
-				CenterPane.btnTurnLeft.getStyleClass().add("bevelGray");
-				break;
-			default:
-				System.err.println("[View] Unknown key code!");
-				break;
-		}
-	}
-
 	/**
 	 * Visually simulates pressing down the robot remote control buttons without
 	 * firing any actions.
 	 *
-	 * @param _code
+	 * @param _button
 	 *            ID of the button to press.
-	 * @see View#BUTTON_SHOOT_UP
-	 * @see View#BUTTON_SHOOT_DOWN
-	 * @see View#BUTTON_TURN_LEFT
-	 * @see View#BUTTON_TURN_RIGHT
+	 * @see Controller#BUTTON_SHOOT_UP
+	 * @see Controller#BUTTON_SHOOT_DOWN
+	 * @see Controller#BUTTON_TURN_LEFT
+	 * @see Controller#BUTTON_TURN_RIGHT
 	 */
-	public void visualPressControlButton(final int _code)
+	@Override
+	public void visualPressControlButton(final int _button)
 	{
-		if (Controller.DEBUG_INFO)
-			//System.out.println("[View] VIS PRESS: " + _code);
+		if (GameConfig.get().isDebugInfo())
+			System.out.println("[View] VIS PRESS: " + _button);
 
-		switch (_code)
+		switch (_button)
 		{
-			case BUTTON_SHOOT_UP:
+			case Controller.BUTTON_SHOOT_UP:
 				CenterPane.btnShootUp.getStyleClass().remove(1);
 				CenterPane.btnShootUp.getStyleClass().add("bevelGrayFakePress");
 				break;
-			case BUTTON_SHOOT_DOWN:
+			case Controller.BUTTON_SHOOT_DOWN:
 				CenterPane.btnShootDown.getStyleClass().remove(1);
 				CenterPane.btnShootDown.getStyleClass().add("bevelGrayFakePress");
 				break;
-			case BUTTON_TURN_RIGHT:
+			case Controller.BUTTON_TURN_RIGHT:
 				CenterPane.btnTurnRight.getStyleClass().remove(1);
 				CenterPane.btnTurnRight.getStyleClass().add("bevelGrayFakePress");
 				break;
-			case BUTTON_TURN_LEFT:
+			case Controller.BUTTON_TURN_LEFT:
 				CenterPane.btnTurnLeft.getStyleClass().remove(1);
 				CenterPane.btnTurnLeft.getStyleClass().add("bevelGrayFakePress");
 				break;
@@ -476,33 +626,34 @@ public class View extends Application
 	 * Visually simulates releasing the robot remote control buttons without
 	 * firing any actions.
 	 *
-	 * @param _code
-	 *            ID of the button to press.
-	 * @see View#BUTTON_SHOOT_UP
-	 * @see View#BUTTON_SHOOT_DOWN
-	 * @see View#BUTTON_TURN_LEFT
-	 * @see View#BUTTON_TURN_RIGHT
+	 * @param _button
+	 *            ID of the button to release.
+	 * @see Controller#BUTTON_SHOOT_UP
+	 * @see Controller#BUTTON_SHOOT_DOWN
+	 * @see Controller#BUTTON_TURN_LEFT
+	 * @see Controller#BUTTON_TURN_RIGHT
 	 */
-	public void visualReleaseControlButton(final int _code)
+	@Override
+	public void visualReleaseControlButton(final int _button)
 	{
-		if (Controller.DEBUG_INFO)
-			//System.out.println("[View] VIS RELEASE: " + _code);
+		if (GameConfig.get().isDebugInfo())
+			System.out.println("[View] VIS RELEASE: " + _button);
 
-		switch (_code)
+		switch (_button)
 		{
-			case BUTTON_SHOOT_UP:
+			case Controller.BUTTON_SHOOT_UP:
 				CenterPane.btnShootUp.getStyleClass().remove(1);
 				CenterPane.btnShootUp.getStyleClass().add("bevelGray");
 				break;
-			case BUTTON_SHOOT_DOWN:
+			case Controller.BUTTON_SHOOT_DOWN:
 				CenterPane.btnShootDown.getStyleClass().remove(1);
 				CenterPane.btnShootDown.getStyleClass().add("bevelGray");
 				break;
-			case BUTTON_TURN_RIGHT:
+			case Controller.BUTTON_TURN_RIGHT:
 				CenterPane.btnTurnRight.getStyleClass().remove(1);
 				CenterPane.btnTurnRight.getStyleClass().add("bevelGray");
 				break;
-			case BUTTON_TURN_LEFT:
+			case Controller.BUTTON_TURN_LEFT:
 				CenterPane.btnTurnLeft.getStyleClass().remove(1);
 				CenterPane.btnTurnLeft.getStyleClass().add("bevelGray");
 				break;
@@ -519,16 +670,10 @@ public class View extends Application
 	 *            A double in the range [0.0, 1.0].
 	 * @see CenterPane#progbarTimeLeft
 	 */
+	@Override
 	public void setTimeLeft(final double _percentOfTotal)
 	{
-		Platform.runLater(new Runnable()
-		{
-			@Override
-			public void run()
-			{
-				CenterPane.progbarTimeLeft.setProgress(_percentOfTotal);
-			}
-		});
+		timeLeft.post(_percentOfTotal);
 	}
 
 	/**
@@ -544,26 +689,29 @@ public class View extends Application
 	 * @see BottomPane#progbarCannonAngle
 	 * @see Controller#toPercentage(double, double, double)
 	 */
+	@Override
 	public void setCannonAngleIndicator(final double _value)
 	{
-		Platform.runLater(new Runnable()
-		{
-			@Override
-			public void run()
-			{
-				BottomPane.progbarCannonAngle.setProgress(_value);
-			}
-		});
+		cannonAngle.post(_value);
 	}
 
 	/**
 	 * Flashes the robot angle indicator at the bottom of the interface and
 	 * briefly shows a warning text to notify the user they attempted to rotate
-	 * the robot over its {@link EV3Robot#LIMIT_ANGLE_MIN}.
+	 * the robot over its {@link GameConfig#getAngleMin()}.
 	 *
 	 * @see BottomPane#progbarCannonAngle
 	 */
+	@Override
 	public void flashRobotAngleBar()
+	{
+		cannonAngleFlash.post(true);
+	}
+
+	/**
+	 * Plays the flash animation of the robot angle indicator.
+	 */
+	private void playAngleBarFlash()
 	{
 		final Animation flashAngleBar = new Transition()
 		{
@@ -597,16 +745,14 @@ public class View extends Application
 	 * Set new data into the highscore list.
 	 *
 	 * @param _scores
-	 *            An observable list containing {@link HighscoreListRow} data of
-	 *            the new highscores.
-	 * @see RightPane#highscores
+	 *            A list containing {@link HighscoreListRow} data of the new
+	 *            highscores.
+	 * @see RightPane#rows
 	 */
-	public void setHighscores(final ObservableList<HighscoreListRow> _scores)
+	@Override
+	public void setHighscores(final List<HighscoreListRow> _scores)
 	{
-		@SuppressWarnings("unchecked")
-		TableView<HighscoreListRow> tableView = (TableView<HighscoreListRow>) ((BorderPane) rootBorderPane.getRight())
-				.getRight();
-		tableView.setItems(_scores);
+		highscores.post(_scores);
 	}
 
 	/**
@@ -616,16 +762,10 @@ public class View extends Application
 	 *            New score value as text.
 	 * @author Ilkka Varjokunnas
 	 */
+	@Override
 	public void setPlayerScore(final String score)
 	{
-		Platform.runLater(new Runnable()
-		{
-			@Override
-			public void run()
-			{
-				CenterPane.lblPlayerScoreText.setText(score);
-			}
-		});
+		playerScore.post(score);
 	}
 
 	/**
@@ -634,16 +774,10 @@ public class View extends Application
 	 * @param _name
 	 *            String of the player name.
 	 */
+	@Override
 	public void setPlayerName(final String _name)
 	{
-		Platform.runLater(new Runnable()
-		{
-			@Override
-			public void run()
-			{
-				CenterPane.lblPlayerName.setText(_name);
-			}
-		});
+		playerName.post(_name);
 	}
 
 	/**
@@ -652,16 +786,16 @@ public class View extends Application
 	 * @param _cannonballsLeft
 	 *            String of the amount of remaining cannonballs.
 	 */
+	@Override
 	public void setCannonballsLeft(final String _cannonballsLeft)
 	{
-		Platform.runLater(new Runnable()
-		{
-			@Override
-			public void run()
-			{
-				CenterPane.lblCannonballsLeft.setText(_cannonballsLeft);
-			}
-		});
+		cannonballsLeft.post(_cannonballsLeft);
+	}
+
+	@Override
+	public void setPlayerRank(final int _rank, final int _total)
+	{
+		playerRank.post(new int[] { _rank, _total });
 	}
 
 	/**
@@ -670,24 +804,10 @@ public class View extends Application
 	 * @param _name
 	 *            New player name String.
 	 */
+	@Override
 	public void setPlayerNameTextField(final String _name)
 	{
-		Platform.runLater(new Runnable()
-		{
-			@Override
-			public void run()
-			{
-				LeftPane.fieldPlayerName.setText(_name);
-			}
-		});
-	}
-
-	/**
-	 * @return the progress value of the cannon angle indicator progress bar
-	 */
-	public double getCannonAngleBarProgress()
-	{
-		return BottomPane.progbarCannonAngle.getProgress();
+		playerNameTextField.post(_name);
 	}
 
 	/**
@@ -696,8 +816,18 @@ public class View extends Application
 	 * @param _value
 	 *            <code>true</code> to enable, <code>false</code> to disable.
 	 */
+	@Override
 	public void setDisconnectButtonDisabled(boolean _value)
 	{
-		LeftPane.btnDisconnectFromRobot.setDisable(_value);
+		disconnectButtonDisabled.post(_value);
+	}
+
+	/**
+	 * Nothing to do, the interface is already reset for the next game.
+	 */
+	@Override
+	public void gameEnded(final String _name, final double _score)
+	{
+		System.out.println("[View] Game ended: " + _name + " " + _score);
 	}
 }
@@ -0,0 +1,244 @@
+package game.view;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+/**
+ * <p>
+ * Delivers updates from the game threads to the user interface once per
+ * JavaFX pulse. Every property of the interface has its own {@link Slot}
+ * which only keeps the latest value posted to it, so no matter how often the
+ * robot reports its angle the interface is updated at most once per frame.
+ * </p>
+ * <p>
+ * Posting never blocks: the value is swapped into the slot and the slot is
+ * added to a lock-free queue of changed slots if it was empty. The JavaFX
+ * application thread drains the queue at the start of the next pulse. The
+ * pulse timer only runs while there are values waiting: it is started by a
+ * post and stops itself when a pulse finds nothing to show.
+ * </p>
+ *
+ * @see View
+ * @author Jose Uusitalo
+ */
+public class ViewUpdateBus
+{
+	/**
+	 * Marks a slot that has no value waiting.
+	 */
+	private static final Object EMPTY = new Object();
+
+	/**
+	 * A property of the user interface.
+	 *
+	 * @param <T>
+	 *            Type of the value.
+	 */
+	public abstract class Slot<T>
+	{
+		/**
+		 * The latest value posted, {@link ViewUpdateBus#EMPTY} if it has been
+		 * shown already.
+		 */
+		private final AtomicReference<Object> value = new AtomicReference<Object>(EMPTY);
+
+		/**
+		 * Shows the value in the next pulse, replacing any value posted
+		 * earlier that has not been shown yet. Can be called from any thread.
+		 *
+		 * @param _value
+		 *            The new value.
+		 */
+		public void post(final T _value)
+		{
+			posted.incrementAndGet();
+
+			if (value.getAndSet(_value) == EMPTY)
+			{
+				changed.add(this);
+				schedule();
+			}
+		}
+
+		/**
+		 * Shows the latest value if there is one.
+		 */
+		@SuppressWarnings("unchecked")
+		private void drain()
+		{
+			Object latest = value.getAndSet(EMPTY);
+
+			if (latest != EMPTY)
+			{
+				applied++;
+				apply((T) latest);
+			}
+		}
+
+		/**
+		 * Shows the value in the user interface. Called in the JavaFX
+		 * application thread.
+		 *
+		 * @param _value
+		 *            The value.
+		 */
+		protected abstract void apply(T _value);
+	}
+
+	/**
+	 * The slots that have a value waiting.
+	 */
+	private final ConcurrentLinkedQueue<Slot<?>> changed;
+
+	/**
+	 * Number of values posted.
+	 */
+	private final AtomicLong posted;
+
+	/**
+	 * Number of values shown in the user interface, only used in the JavaFX
+	 * application thread.
+	 */
+	private long applied;
+
+	/**
+	 * Drains the slots on every pulse while there are values waiting,
+	 * <code>null</code> if not started. Only used in the JavaFX application
+	 * thread.
+	 */
+	private AnimationTimer timer;
+
+	/**
+	 * Whether or not the values posted are shown.
+	 */
+	private volatile boolean started;
+
+	/**
+	 * Whether or not the timer is running or about to be started.
+	 */
+	private final AtomicBoolean scheduled;
+
+	/**
+	 * Starts the timer in the JavaFX application thread.
+	 */
+	private final Runnable startTimer;
+
+	public ViewUpdateBus()
+	{
+		changed = new ConcurrentLinkedQueue<Slot<?>>();
+		posted = new AtomicLong();
+		scheduled = new AtomicBoolean();
+		startTimer = new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				if (timer != null)
+					timer.start();
+				else
+					scheduled.set(false);
+			}
+		};
+	}
+
+	/**
+	 * Starts showing the posted values. Must be called in the JavaFX
+	 * application thread.
+	 */
+	public void start()
+	{
+		if (timer != null)
+			return;
+
+		timer = new AnimationTimer()
+		{
+			@Override
+			public void handle(final long _now)
+			{
+				if (!changed.isEmpty())
+				{
+					drain();
+					return;
+				}
+
+				timer.stop();
+				scheduled.set(false);
+
+				// A value posted after the queue was found empty did not start the timer.
+				if (!changed.isEmpty() && scheduled.compareAndSet(false, true))
+					timer.start();
+			}
+		};
+
+		started = true;
+		scheduled.set(true);
+		timer.start();
+	}
+
+	/**
+	 * Stops showing the posted values. Must be called in the JavaFX
+	 * application thread.
+	 */
+	public void stop()
+	{
+		started = false;
+
+		if (timer != null)
+		{
+			timer.stop();
+			timer = null;
+		}
+	}
+
+	/**
+	 * Starts the timer for the next pulse if it is not running.
+	 */
+	private void schedule()
+	{
+		if (!started || !scheduled.compareAndSet(false, true))
+			return;
+
+		if (Platform.isFxApplicationThread())
+			startTimer.run();
+		else
+			Platform.runLater(startTimer);
+	}
+
+	/**
+	 * Shows the latest values of the slots that have changed. Values posted
+	 * while draining are shown in the next pulse.
+	 */
+	public void drain()
+	{
+		for (int i = changed.size(); i > 0; i--)
+		{
+			Slot<?> slot = changed.poll();
+
+			if (slot == null)
+				break;
+
+			slot.drain();
+		}
+	}
+
+	/**
+	 * @return the number of values posted
+	 */
+	public long getPosted()
+	{
+		return posted.get();
+	}
+
+	/**
+	 * @return the number of values shown in the user interface
+	 */
+	public long getApplied()
+	{
+		return applied;
+	}
+}
@@ -33,6 +33,10 @@ public class DataReaderThread extends Thread
 	 * Creates an object to transfer data from the robot.
 	 */
 	private DataWriterThread dataWriter;
+	/**
+	 * The normal speed of the turning motor in degrees per second.
+	 */
+	private int turningSpeed;
 
 	/**
 	 * Constructor for the class.
@@ -50,6 +54,7 @@ public class DataReaderThread extends Thread
 		shootingMotor = _shootingMotor;
 		run = true;
 		dataWriter = _dataOutput;
+		turningSpeed = _turningMotor.getSpeed();
 	}
 
 	public void run()
@@ -114,6 +119,10 @@ public class DataReaderThread extends Thread
 				dataWriter.finishedShooting();
 				turningMotor.stop();
 				break;
+			case 'v':
+				System.out.println("Turning speed " + input.substring(1) + "%");
+				turningMotor.setSpeed(turningSpeed * Integer.parseInt(input.substring(1)) / 100);
+				break;
 			case 'a':
 				turningMotor.rotateTo(Integer.parseInt(input.substring(1)));
 				turningMotor.stop();
@@ -139,10 +148,12 @@ public class DataReaderThread extends Thread
 				break;
 			case 'i':
 				InfraredSensor.MAX_IR_DISTANCE = Integer.parseInt(input.substring(1));
+				dataWriter.settingsReceived();
 				break;
 			case 'c':
 				ColorSensor.MINIMUM_RED_VALUE = Double.parseDouble(input.substring(1));
 				System.out.println("MIN RED: " + ColorSensor.MINIMUM_RED_VALUE);
+				dataWriter.settingsReceived();
 				break;
 			case ' ':
 				// No data
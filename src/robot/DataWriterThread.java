@@ -203,6 +203,14 @@ public class DataWriterThread extends Thread
 		data.add("t");
 	}
 
+	/**
+	 * Notifies PC when a sensor setting has been changed.
+	 */
+	public void settingsReceived()
+	{
+		data.add("k");
+	}
+
 	public void clearBuffer()
 	{
 		System.out.println("Buffer cleared");
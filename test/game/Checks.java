@@ -0,0 +1,115 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Helpers for the check programs in the test folder. Each check program is
+ * run with its main method, prints what it measured and exits with status
+ * <code>1</code> if any check failed, so the programs can be rerun from a
+ * script after a change.
+ *
+ * @author Jose Uusitalo
+ */
+public final class Checks
+{
+	/**
+	 * A piece of work to time.
+	 */
+	public interface Task
+	{
+		/**
+		 * Does the work once.
+		 *
+		 * @throws Exception
+		 *             when the work fails, which fails the check
+		 */
+		void run() throws Exception;
+	}
+
+	/**
+	 * Number of checks that have failed.
+	 */
+	private static int failures;
+
+	/**
+	 * Number of checks made.
+	 */
+	private static int checks;
+
+	private Checks()
+	{
+		// Only static methods.
+	}
+
+	/**
+	 * Fails the check if the condition is not true.
+	 *
+	 * @param _condition
+	 *            The condition that should hold.
+	 * @param _message
+	 *            Describes the check.
+	 */
+	public static synchronized void check(final boolean _condition, final String _message)
+	{
+		checks++;
+
+		if (!_condition)
+		{
+			failures++;
+			System.out.println("[Checks] FAILED: " + _message);
+		}
+	}
+
+	/**
+	 * Times the given task. The task is run the given number of times after
+	 * one run to warm up and the median time is returned.
+	 *
+	 * @param _name
+	 *            Name of the task in the output.
+	 * @param _runs
+	 *            Number of timed runs.
+	 * @param _task
+	 *            The task.
+	 * @return the median time of a run in milliseconds
+	 */
+	public static double measure(final String _name, final int _runs, final Task _task)
+	{
+		double[] millis = new double[_runs];
+
+		try
+		{
+			_task.run();
+
+			for (int i = 0; i < _runs; i++)
+			{
+				long start = System.nanoTime();
+				_task.run();
+				millis[i] = (System.nanoTime() - start) / 1e6;
+			}
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			check(false, _name + " threw " + e);
+			return Double.NaN;
+		}
+
+		Arrays.sort(millis);
+		double median = millis[_runs / 2];
+		System.out.println(String.format("[Checks] %-40s %10.3f ms (median of %d)", _name, median, _runs));
+		return median;
+	}
+
+	/**
+	 * Prints the number of failed checks and exits with status <code>1</code>
+	 * if there were any, <code>0</code> otherwise.
+	 *
+	 * @param _name
+	 *            Name of the check program.
+	 */
+	public static synchronized void finish(final String _name)
+	{
+		System.out.println("[" + _name + "] " + (checks - failures) + "/" + checks + " checks passed.");
+		System.exit(failures == 0 ? 0 : 1);
+	}
+}
@@ -0,0 +1,183 @@
+package game.controller;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import game.Checks;
+import game.model.GameRecords;
+import game.model.HighscoreList;
+import game.model.SessionCapture;
+import game.model.SystemClock;
+
+/**
+ * Holds the turn key down on a simulated robot like the operating system does,
+ * with a delay before the key starts repeating and a repeat every
+ * {@link #REPEAT_INTERVAL} milliseconds, and counts the turn and speed
+ * commands queued for the robot from the recorded session. Before every key
+ * repeat was sent as a turn command, so the number of key events is the
+ * number of commands the old version queued. Checks that a hold queues the
+ * same few commands no matter how long the key is held.
+ * <p>
+ * Usage: <code>HeldKeyBenchmark [hold times in milliseconds...]</code>, by
+ * default 500, 2 000 and 5 000 ms.
+ * </p>
+ *
+ * @author Jose Uusitalo
+ */
+public class HeldKeyBenchmark
+{
+	/**
+	 * Delay before a held key starts repeating in milliseconds.
+	 */
+	private static final long REPEAT_DELAY = 500;
+
+	/**
+	 * Time between two key repeats in milliseconds.
+	 */
+	private static final long REPEAT_INTERVAL = 33;
+
+	/**
+	 * Most commands a single hold may queue: turn, speed up, stop at the limit
+	 * angle, stop and normal speed.
+	 */
+	private static final int COMMANDS_PER_HOLD = 5;
+
+	/**
+	 * Maximum time to wait for a game to start or end in milliseconds.
+	 */
+	private static final long TIMEOUT = 30000;
+
+	public static void main(final String[] args) throws Exception
+	{
+		long[] holds = args.length == 0 ? new long[] { 500, 2000, 5000 } : new long[args.length];
+
+		for (int i = 0; i < args.length; i++)
+			holds[i] = Long.parseLong(args[i]);
+
+		File directory = Files.createTempDirectory("highscores").toFile();
+		File archive = new File(GameRecords.ARCHIVE_FILENAME);
+		boolean archiveExisted = archive.exists();
+		Set<File> oldCaptures = new HashSet<File>(Arrays.asList(captures()));
+
+		System.setProperty(HighscoreList.DIRECTORY_PROPERTY, directory.getPath());
+		System.setProperty(Controller.RECORD_PROPERTY, "true");
+
+		HeadlessListener listener = new HeadlessListener(false);
+		Controller controller = new Controller(listener, new SystemClock());
+		controller.debugConnect("DEBUG", 0);
+
+		int[] events = new int[holds.length];
+
+		for (int i = 0; i < holds.length; i++)
+		{
+			int gamesEnded = listener.getGamesEnded();
+			controller.startGame("Hold " + holds[i]).get(TIMEOUT, TimeUnit.MILLISECONDS);
+			events[i] = hold(controller, holds[i]);
+			controller.endGame();
+			Checks.check(listener.awaitGamesEnded(gamesEnded + 1, TIMEOUT), "the game of hold " + i + " ends");
+		}
+
+		controller.shutdown();
+
+		File[] captures = captures();
+		Arrays.sort(captures);
+		int hold = 0;
+
+		for (File capture : captures)
+		{
+			if (oldCaptures.contains(capture))
+				continue;
+
+			if (hold < holds.length)
+			{
+				List<String> queued = turnCommands(SessionCapture.load(capture.getPath()));
+				int commands = queued.size();
+				double seconds = holds[hold] / 1000.0;
+
+				System.out.println(String.format("[HeldKeyBenchmark] Held %d ms: %d key events (%.1f per second),"
+						+ " %d commands queued (%.1f per second): %s", holds[hold], events[hold],
+						events[hold] / seconds, commands, commands / seconds, queued));
+				Checks.check(commands > 0 && commands <= COMMANDS_PER_HOLD, "a hold of " + holds[hold]
+						+ " ms queues at most " + COMMANDS_PER_HOLD + " commands, queued " + commands);
+			}
+
+			hold++;
+			capture.delete();
+		}
+
+		Checks.check(hold == holds.length, "a session was recorded for every hold");
+
+		if (!archiveExisted)
+			archive.delete();
+
+		for (File file : directory.listFiles())
+			file.delete();
+
+		directory.delete();
+		Checks.finish("HeldKeyBenchmark");
+	}
+
+	/**
+	 * Holds the turn left key down for the given time.
+	 *
+	 * @return the number of key presses, including the repeats
+	 */
+	private static int hold(final Controller _controller, final long _millis) throws InterruptedException
+	{
+		long end = System.currentTimeMillis() + _millis;
+		int events = 1;
+
+		_controller.keyPress(Controller.BUTTON_TURN_LEFT);
+		Thread.sleep(Math.min(REPEAT_DELAY, _millis));
+
+		while (System.currentTimeMillis() < end)
+		{
+			_controller.keyPress(Controller.BUTTON_TURN_LEFT);
+			events++;
+			Thread.sleep(REPEAT_INTERVAL);
+		}
+
+		_controller.keyRelease(Controller.BUTTON_TURN_LEFT);
+		return events;
+	}
+
+	/**
+	 * @return the turn, stop and speed commands queued for the robot
+	 */
+	private static List<String> turnCommands(final List<SessionCapture.Entry> _entries)
+	{
+		List<String> commands = new ArrayList<String>();
+
+		for (SessionCapture.Entry entry : _entries)
+		{
+			if (entry.getDirection() == SessionCapture.OUTBOUND && entry.getMessage().matches("[lrs]|v\\d+"))
+				commands.add(entry.getMessage());
+		}
+
+		return commands;
+	}
+
+	/**
+	 * @return the session capture files in the working folder
+	 */
+	private static File[] captures()
+	{
+		File[] files = new File(".").getAbsoluteFile().listFiles(new FilenameFilter()
+		{
+			@Override
+			public boolean accept(final File _folder, final String _name)
+			{
+				return _name.startsWith("session-") && _name.endsWith(".capture");
+			}
+		});
+
+		return files == null ? new File[0] : files;
+	}
+}
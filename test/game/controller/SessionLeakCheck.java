@@ -0,0 +1,232 @@
+package game.controller;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import game.Checks;
+import game.model.GameConfig;
+import game.model.GameRecords;
+import game.model.GameSession;
+import game.model.HighscoreList;
+import game.model.VirtualClock;
+
+/**
+ * Ends games on a simulated robot in every way a game can end, over and over,
+ * and checks after each game that none of its loops is left running, both by
+ * the count kept by {@link GameSession} and by looking for live threads still
+ * running a game loop. Also checks that a session reports a loop which does
+ * not end when it is closed.
+ * <p>
+ * Usage: <code>SessionLeakCheck [rounds]</code>, by default 20 rounds of
+ * four games each.
+ * </p>
+ *
+ * @author Jose Uusitalo
+ */
+public class SessionLeakCheck
+{
+	/**
+	 * Names of the threads while they run a game loop.
+	 */
+	private static final List<String> LOOP_NAMES = Arrays.asList("DataReaderThread", "DataWriterThread", "Timer",
+			"DemoMode");
+
+	/**
+	 * Maximum time to wait for a game to start or end in milliseconds.
+	 */
+	private static final long TIMEOUT = 30000;
+
+	/**
+	 * How many times faster than real time the games run.
+	 */
+	private static final double SPEEDUP = 20.0;
+
+	public static void main(final String[] args) throws Exception
+	{
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+		stubbornLoop();
+
+		File directory = Files.createTempDirectory("highscores").toFile();
+		File archive = new File(GameRecords.ARCHIVE_FILENAME);
+		boolean archiveExisted = archive.exists();
+		System.setProperty(HighscoreList.DIRECTORY_PROPERTY, directory.getPath());
+
+		HeadlessListener listener = new HeadlessListener(false);
+		Controller controller = new Controller(listener, new VirtualClock(SPEEDUP));
+		controller.debugConnect("DEBUG", 0);
+
+		int leaks = 0;
+		long start = System.currentTimeMillis();
+
+		for (int round = 0; round < rounds; round++)
+		{
+			leaks += endGame(controller, listener) ? 0 : 1;
+			leaks += endDemo(controller, listener) ? 0 : 1;
+			leaks += playToEnd(controller, listener) ? 0 : 1;
+			leaks += disconnect(controller) ? 0 : 1;
+		}
+
+		System.out.println(String.format("[SessionLeakCheck] %d games in %d ms.", rounds * 4,
+				System.currentTimeMillis() - start));
+		Checks.check(leaks == 0, leaks + " of " + rounds * 4 + " games left loops running");
+
+		controller.shutdown();
+
+		if (!archiveExisted)
+			archive.delete();
+
+		for (File file : directory.listFiles())
+			file.delete();
+
+		directory.delete();
+		Checks.finish("SessionLeakCheck");
+	}
+
+	/**
+	 * A loop which ignores being interrupted is reported when its session is
+	 * closed and counted until it ends.
+	 */
+	private static void stubbornLoop() throws InterruptedException
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch started = new CountDownLatch(1);
+		GameSession session = new GameSession("Stubborn");
+
+		session.start("Stubborn", new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				started.countDown();
+
+				while (release.getCount() > 0)
+				{
+					try
+					{
+						release.await();
+					}
+					catch (InterruptedException e)
+					{
+						// Ignored on purpose.
+					}
+				}
+			}
+		});
+
+		started.await();
+		Checks.check(!session.close(200), "closing a session reports a loop that does not end");
+		Checks.check(GameSession.getRunningInAllCount() == 1, "the loop that did not end is still counted");
+
+		release.countDown();
+		Checks.check(session.close(TIMEOUT), "the session closes once the loop ends");
+		Checks.check(GameSession.getRunningInAllCount() == 0, "no loop is counted after the loop ends");
+		Checks.check(!threadNames().contains("Stubborn"), "the thread has its own name back when the session closes");
+	}
+
+	/**
+	 * Starts a game and ends it from the user interface.
+	 *
+	 * @return <code>true</code> if no loop was left running
+	 */
+	private static boolean endGame(final Controller _controller, final HeadlessListener _listener)
+			throws Exception
+	{
+		int gamesEnded = _listener.getGamesEnded();
+		_controller.startGame("End").get(TIMEOUT, TimeUnit.MILLISECONDS);
+		_controller.endGame();
+		return _listener.awaitGamesEnded(gamesEnded + 1, TIMEOUT) && noLoopsLeft("ended game");
+	}
+
+	/**
+	 * Starts a game in the demo mode and ends it from the user interface.
+	 *
+	 * @return <code>true</code> if no loop was left running
+	 */
+	private static boolean endDemo(final Controller _controller, final HeadlessListener _listener)
+			throws Exception
+	{
+		int gamesEnded = _listener.getGamesEnded();
+		_controller.startGame("Demo").get(TIMEOUT, TimeUnit.MILLISECONDS);
+		_controller.startDemoMode();
+		Thread.sleep(100);
+		_controller.endGame();
+		return _listener.awaitGamesEnded(gamesEnded + 1, TIMEOUT) && noLoopsLeft("demo game");
+	}
+
+	/**
+	 * Plays a game until the cannonballs run out.
+	 *
+	 * @return <code>true</code> if no loop was left running
+	 */
+	private static boolean playToEnd(final Controller _controller, final HeadlessListener _listener)
+			throws Exception
+	{
+		int gamesEnded = _listener.getGamesEnded();
+		_controller.startGame("Play").get(TIMEOUT, TimeUnit.MILLISECONDS);
+
+		while (!_controller.isGameOver())
+		{
+			_controller.keyPress(Controller.BUTTON_SHOOT_UP);
+			_controller.keyRelease(Controller.BUTTON_SHOOT_UP);
+			_controller.getClock().sleep(GameConfig.get().getSleepTime());
+		}
+
+		return _listener.awaitGamesEnded(gamesEnded + 1, TIMEOUT) && noLoopsLeft("played game");
+	}
+
+	/**
+	 * Starts a game, disconnects in the middle of it and connects again.
+	 *
+	 * @return <code>true</code> if no loop was left running
+	 */
+	private static boolean disconnect(final Controller _controller) throws Exception
+	{
+		_controller.startGame("Disconnect").get(TIMEOUT, TimeUnit.MILLISECONDS);
+		_controller.disconnect();
+		boolean clean = noLoopsLeft("disconnected game");
+		_controller.debugConnect("DEBUG", 0);
+		return clean;
+	}
+
+	/**
+	 * @return <code>true</code> if no game loop is running
+	 */
+	private static boolean noLoopsLeft(final String _game)
+	{
+		List<String> running = new ArrayList<String>();
+
+		for (String name : threadNames())
+		{
+			if (LOOP_NAMES.contains(name))
+				running.add(name);
+		}
+
+		int counted = GameSession.getRunningInAllCount();
+
+		if (counted == 0 && running.isEmpty())
+			return true;
+
+		System.err.println("[SessionLeakCheck] After the " + _game + ": " + counted + " loops counted, threads "
+				+ running + " running.");
+		return false;
+	}
+
+	/**
+	 * @return the names of the live threads
+	 */
+	private static List<String> threadNames()
+	{
+		List<String> names = new ArrayList<String>();
+
+		for (Thread thread : Thread.getAllStackTraces().keySet())
+			names.add(thread.getName());
+
+		return names;
+	}
+}
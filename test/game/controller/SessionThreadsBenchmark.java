@@ -0,0 +1,220 @@
+package game.controller;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import game.Checks;
+import game.model.GameRecords;
+import game.model.GameThreads;
+import game.model.HighscoreList;
+import game.model.SystemClock;
+
+/**
+ * Starts a game on many simulated stations at the same time, once with the
+ * game loops on platform threads and once on virtual threads, and measures the
+ * live threads, the heap and the resident memory used per running game. The
+ * mode is chosen when the game starts, so every mode runs in a process of its
+ * own.
+ * <p>
+ * Usage: <code>SessionThreadsBenchmark [stations]</code>, by default 50
+ * stations. Virtual threads need Java 21, so run the benchmark on it to
+ * compare the modes; an older runtime runs both on platform threads.
+ * </p>
+ *
+ * @see GameThreads
+ * @author Jose Uusitalo
+ */
+public class SessionThreadsBenchmark
+{
+	/**
+	 * Maximum time to wait for the games to start or end in milliseconds.
+	 */
+	private static final long TIMEOUT = 120000;
+
+	/**
+	 * Start of the line a measuring process reports its results on.
+	 */
+	private static final String RESULT = "RESULT";
+
+	public static void main(final String[] args) throws Exception
+	{
+		if (args.length > 0 && args[0].equals("measure"))
+		{
+			measure(Integer.parseInt(args[1]));
+			return;
+		}
+
+		int stations = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+		File directory = Files.createTempDirectory("highscores").toFile();
+		String[] platform = run(GameThreads.Mode.PLATFORM, stations, directory);
+		String[] virtual = run(GameThreads.Mode.VIRTUAL, stations, directory);
+
+		for (File file : directory.listFiles())
+			file.delete();
+
+		directory.delete();
+
+		if (platform != null && virtual != null && virtual[1].equals(GameThreads.Mode.VIRTUAL.name()))
+		{
+			Checks.check(Double.parseDouble(virtual[3]) < Double.parseDouble(platform[3]),
+					"virtual threads use fewer live threads per game than platform threads");
+		}
+		else if (virtual != null)
+		{
+			System.out.println("[SessionThreadsBenchmark] Virtual threads are not available on this runtime.");
+		}
+
+		Checks.finish("SessionThreadsBenchmark");
+	}
+
+	/**
+	 * Runs the measurement in a new process with the given mode.
+	 *
+	 * @return the reported results or <code>null</code> if the process failed
+	 */
+	private static String[] run(final GameThreads.Mode _mode, final int _stations, final File _directory)
+			throws IOException, InterruptedException
+	{
+		String name = _mode.name().toLowerCase();
+		File log = new File(_directory, name + ".log");
+		ProcessBuilder builder = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(),
+				"-cp", System.getProperty("java.class.path"), "-D" + GameThreads.MODE_PROPERTY + "=" + name,
+				"-D" + HighscoreList.DIRECTORY_PROPERTY + "=" + _directory.getPath(),
+				SessionThreadsBenchmark.class.getName(), "measure", String.valueOf(_stations));
+		builder.redirectErrorStream(true);
+		builder.redirectOutput(log);
+
+		int status = builder.start().waitFor();
+		String[] result = null;
+		BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(log.toPath()), "UTF-8"));
+
+		try
+		{
+			String line;
+
+			while ((line = reader.readLine()) != null)
+			{
+				if (line.startsWith(RESULT))
+					result = line.split(" ");
+				else if (line.startsWith("[Checks] FAILED"))
+					System.out.println("[SessionThreadsBenchmark] " + name + ": " + line);
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		Checks.check(status == 0 && result != null, "the " + name + " thread measurement succeeds, see " + log);
+
+		if (result != null)
+		{
+			System.out.println(String.format("[SessionThreadsBenchmark] %s mode (%s threads), %d games: %s live "
+					+ "threads (%s per game), %s KB heap and %s KB resident memory per game.", name,
+					result[1].toLowerCase(), _stations, result[2], result[3], result[4],
+					result[5].equals("-1.0") ? "unknown" : result[5]));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Starts a game on the given number of stations, measures them while they
+	 * run and ends them. Reports the results on a line of its own.
+	 */
+	private static void measure(final int _stations) throws Exception
+	{
+		File archive = new File(GameRecords.ARCHIVE_FILENAME);
+		boolean archiveExisted = archive.exists();
+		StationManager manager = new StationManager(new SystemClock());
+		int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+		long heapBefore = usedHeap();
+		long residentBefore = residentMemory();
+		List<HeadlessListener> listeners = new ArrayList<HeadlessListener>();
+		List<Controller> controllers = new ArrayList<Controller>();
+
+		for (int i = 0; i < _stations; i++)
+		{
+			HeadlessListener listener = new HeadlessListener(false);
+			Controller controller = manager.addStation(listener).getController();
+			controller.debugConnect("DEBUG", 0);
+			listeners.add(listener);
+			controllers.add(controller);
+		}
+
+		List<CompletableFuture<Void>> starts = new ArrayList<CompletableFuture<Void>>();
+
+		for (int i = 0; i < _stations; i++)
+			starts.add(controllers.get(i).startGame("Station " + (i + 1)));
+
+		for (CompletableFuture<Void> start : starts)
+			start.get(TIMEOUT, TimeUnit.MILLISECONDS);
+
+		int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+		long heap = usedHeap();
+		long resident = residentMemory();
+		int loops = GameThreads.getRunningCount();
+		int ended = 0;
+
+		for (Controller controller : controllers)
+			controller.endGame();
+
+		for (HeadlessListener listener : listeners)
+			ended += listener.awaitGamesEnded(1, TIMEOUT) ? 1 : 0;
+
+		Checks.check(loops > 0, "the game loops run while the games are played");
+		Checks.check(ended == _stations, ended + " of " + _stations + " games ended");
+
+		manager.shutdown();
+
+		if (!archiveExisted)
+			archive.delete();
+
+		System.out.println(String.format(Locale.ROOT, "%s %s %d %.1f %.1f %.1f", RESULT, GameThreads.getMode().name(),
+				threads, (threads - threadsBefore) / (double) _stations, (heap - heapBefore) / 1024.0 / _stations,
+				residentBefore < 0 ? -1.0 : (resident - residentBefore) / 1024.0 / _stations));
+		Checks.finish("SessionThreadsBenchmark");
+	}
+
+	/**
+	 * @return the heap in use after a garbage collection in bytes
+	 */
+	private static long usedHeap()
+	{
+		System.gc();
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * Reads the memory of the process held in RAM, which unlike the heap
+	 * includes the stacks of the platform threads.
+	 *
+	 * @return the resident memory in bytes or <code>-1</code> if it is not
+	 *         known on this operating system
+	 */
+	private static long residentMemory() throws IOException
+	{
+		File status = new File("/proc/self/status");
+
+		if (!status.exists())
+			return -1;
+
+		for (String line : Files.readAllLines(status.toPath()))
+		{
+			// For example "VmRSS:	  123456 kB".
+			if (line.startsWith("VmRSS:"))
+				return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+		}
+
+		return -1;
+	}
+}
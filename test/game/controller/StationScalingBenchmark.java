@@ -0,0 +1,235 @@
+package game.controller;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import game.Checks;
+import game.model.GameRecords;
+import game.model.HighscoreList;
+
+/**
+ * Runs a game on a growing number of simulated stations at the same time and
+ * measures the processor time the game uses and how long a turn key press
+ * takes to move the cannon angle indicator of its station. Tells how many
+ * stations one computer can drive.
+ * <p>
+ * Usage: <code>StationScalingBenchmark [station counts...]</code>, by
+ * default 1, 4, 16 and 64 stations. The simulated robots run in the same
+ * process, so the processor time includes them.
+ * </p>
+ *
+ * @see StationManager
+ * @author Jose Uusitalo
+ */
+public class StationScalingBenchmark
+{
+	/**
+	 * A view which remembers when the cannon angle indicator last changed.
+	 */
+	private static class AngleListener extends HeadlessListener
+	{
+		/**
+		 * Time of the latest angle change in nanoseconds.
+		 */
+		private volatile long angleChanged;
+
+		public AngleListener()
+		{
+			super(false);
+		}
+
+		@Override
+		public void setCannonAngleIndicator(final double _value)
+		{
+			angleChanged = System.nanoTime();
+			super.setCannonAngleIndicator(_value);
+		}
+	}
+
+	/**
+	 * Time the processor use is measured over while the games run, in
+	 * milliseconds.
+	 */
+	private static final long IDLE_TIME = 3000;
+
+	/**
+	 * Number of turn key presses on every station.
+	 */
+	private static final int PRESSES = 10;
+
+	/**
+	 * Time a turn key is held down in milliseconds.
+	 */
+	private static final long HOLD = 250;
+
+	/**
+	 * Longest allowed time from a key press to the cannon angle changing in
+	 * milliseconds.
+	 */
+	private static final long MAX_LATENCY = 1000;
+
+	/**
+	 * Maximum time to wait for the games to start or end in milliseconds.
+	 */
+	private static final long TIMEOUT = 60000;
+
+	public static void main(final String[] args) throws Exception
+	{
+		int[] counts = args.length == 0 ? new int[] { 1, 4, 16, 64 } : new int[args.length];
+
+		for (int i = 0; i < args.length; i++)
+			counts[i] = Integer.parseInt(args[i]);
+
+		File directory = Files.createTempDirectory("highscores").toFile();
+		File archive = new File(GameRecords.ARCHIVE_FILENAME);
+		boolean archiveExisted = archive.exists();
+		System.setProperty(HighscoreList.DIRECTORY_PROPERTY, directory.getPath());
+
+		for (int count : counts)
+			run(count);
+
+		if (!archiveExisted)
+			archive.delete();
+
+		for (File file : directory.listFiles())
+			file.delete();
+
+		directory.delete();
+		Checks.finish("StationScalingBenchmark");
+	}
+
+	/**
+	 * Measures a game on the given number of stations.
+	 */
+	private static void run(final int _stations) throws Exception
+	{
+		StationManager manager = new StationManager();
+		final List<AngleListener> listeners = new ArrayList<AngleListener>();
+		final List<Controller> controllers = new ArrayList<Controller>();
+
+		for (int i = 0; i < _stations; i++)
+		{
+			AngleListener listener = new AngleListener();
+			Controller controller = manager.addStation(listener).getController();
+			controller.debugConnect("DEBUG", 0);
+			listeners.add(listener);
+			controllers.add(controller);
+		}
+
+		List<CompletableFuture<Void>> starts = new ArrayList<CompletableFuture<Void>>();
+
+		for (int i = 0; i < _stations; i++)
+			starts.add(controllers.get(i).startGame("Station " + (i + 1)));
+
+		for (CompletableFuture<Void> start : starts)
+			start.get(TIMEOUT, TimeUnit.MILLISECONDS);
+
+		long cpuBefore = processCpuTime();
+		long wallBefore = System.nanoTime();
+		Thread.sleep(IDLE_TIME);
+		double cpu = cpuBefore < 0 ? -1 : (processCpuTime() - cpuBefore) * 100.0 / (System.nanoTime() - wallBefore);
+
+		final List<Long> latencies = Collections.synchronizedList(new ArrayList<Long>());
+		List<Thread> players = new ArrayList<Thread>();
+
+		for (int i = 0; i < _stations; i++)
+		{
+			final Controller controller = controllers.get(i);
+			final AngleListener listener = listeners.get(i);
+
+			Thread player = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						for (int press = 0; press < PRESSES; press++)
+							latencies.add(turn(controller, listener, press % 2 == 0 ? Controller.BUTTON_TURN_LEFT
+									: Controller.BUTTON_TURN_RIGHT));
+					}
+					catch (InterruptedException e)
+					{
+						return;
+					}
+				}
+			}, "Player-" + (i + 1));
+			player.start();
+			players.add(player);
+		}
+
+		for (Thread player : players)
+			player.join();
+
+		int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+		int ended = 0;
+
+		for (Controller controller : controllers)
+			controller.endGame();
+
+		for (AngleListener listener : listeners)
+			ended += listener.awaitGamesEnded(1, TIMEOUT) ? 1 : 0;
+
+		manager.shutdown();
+
+		List<Long> sorted = new ArrayList<Long>(latencies);
+		Collections.sort(sorted);
+		double median = sorted.get(sorted.size() / 2) / 1e6;
+		double p99 = sorted.get((int) (sorted.size() * 0.99)) / 1e6;
+		double max = sorted.get(sorted.size() - 1) / 1e6;
+
+		System.out.println(String.format("[StationScalingBenchmark] %d stations: %s of one core while playing, "
+				+ "turn latency median %.1f ms, 99th percentile %.1f ms, longest %.1f ms, %d live threads.",
+				_stations, cpu < 0 ? "unknown" : String.format("%.0f %%", cpu), median, p99, max, threads));
+		Checks.check(max <= MAX_LATENCY, "with " + _stations + " stations every turn starts in " + MAX_LATENCY
+				+ " ms, longest took " + String.format("%.0f", max) + " ms");
+		Checks.check(ended == _stations, "with " + _stations + " stations " + ended + " of " + _stations
+				+ " games ended");
+	}
+
+	/**
+	 * Holds a turn key down until the cannon angle changes or twice
+	 * {@link #MAX_LATENCY} has passed, then for the rest of {@link #HOLD}.
+	 *
+	 * @return time from pressing the key to the angle changing in nanoseconds
+	 */
+	private static long turn(final Controller _controller, final AngleListener _listener, final int _button)
+			throws InterruptedException
+	{
+		long pressed = System.nanoTime();
+		long limit = pressed + TimeUnit.MILLISECONDS.toNanos(MAX_LATENCY * 2);
+
+		_controller.keyPress(_button);
+
+		while (_listener.angleChanged < pressed && System.nanoTime() < limit)
+			Thread.sleep(1);
+
+		long changed = _listener.angleChanged;
+		long latency = changed < pressed ? limit - pressed : changed - pressed;
+		Thread.sleep(Math.max(0, HOLD - TimeUnit.NANOSECONDS.toMillis(latency)));
+		_controller.keyRelease(_button);
+		Thread.sleep(HOLD);
+		return latency;
+	}
+
+	/**
+	 * @return the processor time used by this process in nanoseconds or
+	 *         <code>-1</code> if it is not known on this runtime
+	 */
+	private static long processCpuTime()
+	{
+		OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+
+		if (os instanceof com.sun.management.OperatingSystemMXBean)
+			return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+
+		return -1;
+	}
+}
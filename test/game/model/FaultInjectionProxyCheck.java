@@ -0,0 +1,184 @@
+package game.model;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import game.Checks;
+
+/**
+ * Sends a steady stream of messages through a {@link FaultInjectionProxy} and
+ * checks that the latency delays every message by about the same time instead
+ * of piling up, and that partial writes with a gap between the pieces reach a
+ * reader with a short read timeout in the middle of messages, yet whole.
+ *
+ * @author Jose Uusitalo
+ */
+public class FaultInjectionProxyCheck
+{
+	/**
+	 * Latency of the first profile in milliseconds.
+	 */
+	private static final int LATENCY = 100;
+
+	/**
+	 * Allowed delay on top of the latency in milliseconds.
+	 */
+	private static final int SLACK = 50;
+
+	/**
+	 * Time between the messages sent in milliseconds.
+	 */
+	private static final long SEND_INTERVAL = 5;
+
+	/**
+	 * Read timeout of the receiving side in the partial write check in
+	 * milliseconds, shorter than the gap between the pieces.
+	 */
+	private static final int READ_TIMEOUT = 1;
+
+	public static void main(final String[] args) throws Exception
+	{
+		long[] delays = send("0 latency=" + LATENCY, 200, 0);
+		long max = 0;
+
+		for (long delay : delays)
+			max = Math.max(max, delay);
+
+		System.out.println("[FaultInjectionProxyCheck] " + delays.length + " messages with " + LATENCY
+				+ " ms latency: longest delay " + max + " ms.");
+		Checks.check(delays.length == 200, "every message arrives");
+		Checks.check(max <= LATENCY + SLACK, "no message is delayed over " + (LATENCY + SLACK) + " ms, longest "
+				+ max + " ms");
+
+		send("0 partial=1 gap=3", 20, READ_TIMEOUT);
+
+		Checks.finish("FaultInjectionProxyCheck");
+	}
+
+	/**
+	 * Sends messages from a fake robot through a proxy with the given profile
+	 * and reads them on the other side.
+	 *
+	 * @param _profile
+	 *            One line of a profile file.
+	 * @param _messages
+	 *            Number of messages to send.
+	 * @param _readTimeout
+	 *            Read timeout of the receiving side in milliseconds, 0 for
+	 *            none.
+	 * @return the delay of every message in milliseconds
+	 */
+	private static long[] send(final String _profile, final int _messages, final int _readTimeout)
+			throws Exception
+	{
+		File file = File.createTempFile("profile", ".txt");
+		Files.write(file.toPath(), _profile.getBytes(StandardCharsets.UTF_8));
+		FaultProfile profile = FaultProfile.load(file.getPath());
+		file.delete();
+
+		final ServerSocket robot = new ServerSocket(0);
+		int listenPort = freePort();
+		FaultInjectionProxy proxy = new FaultInjectionProxy(listenPort, "127.0.0.1", robot.getLocalPort(), profile);
+		proxy.setDaemon(true);
+		proxy.start();
+
+		Thread sender = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					Socket socket = robot.accept();
+					socket.setTcpNoDelay(true);
+					DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+
+					for (int i = 0; i < _messages; i++)
+					{
+						out.writeUTF(i + "," + System.nanoTime());
+						out.flush();
+						Thread.sleep(SEND_INTERVAL);
+					}
+				}
+				catch (Exception e)
+				{
+					Checks.check(false, "the fake robot sends every message: " + e);
+				}
+			}
+		}, "FaultInjectionProxyCheck robot");
+		sender.setDaemon(true);
+		sender.start();
+
+		Socket socket = connect(listenPort);
+		socket.setSoTimeout(_readTimeout);
+		MessageReader reader = new MessageReader(socket.getInputStream());
+		long[] delays = new long[_messages];
+		boolean inOrder = true;
+		int timeouts = 0;
+		int received = 0;
+
+		while (received < _messages)
+		{
+			try
+			{
+				String[] message = reader.readMessage().split(",");
+				delays[received] = (System.nanoTime() - Long.parseLong(message[1])) / 1000000;
+				inOrder &= Integer.parseInt(message[0]) == received;
+				received++;
+			}
+			catch (SocketTimeoutException e)
+			{
+				timeouts++;
+			}
+		}
+
+		socket.close();
+		robot.close();
+
+		Checks.check(inOrder, _profile + ": every message arrives whole and in order");
+
+		if (_readTimeout > 0)
+			Checks.check(timeouts > 0, _profile + ": the reader timed out " + timeouts
+					+ " times waiting for the pieces");
+
+		return Arrays.copyOf(delays, received);
+	}
+
+	/**
+	 * @return a port nothing listens on at the moment
+	 */
+	private static int freePort() throws IOException
+	{
+		ServerSocket socket = new ServerSocket(0);
+		int port = socket.getLocalPort();
+		socket.close();
+		return port;
+	}
+
+	/**
+	 * Connects to the proxy once it listens.
+	 */
+	private static Socket connect(final int _port) throws Exception
+	{
+		for (int attempt = 0; attempt < 100; attempt++)
+		{
+			try
+			{
+				return new Socket("127.0.0.1", _port);
+			}
+			catch (IOException e)
+			{
+				Thread.sleep(20);
+			}
+		}
+
+		return new Socket("127.0.0.1", _port);
+	}
+}
@@ -0,0 +1,222 @@
+package game.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import game.Checks;
+
+/**
+ * Measures recording games into the {@link GameArchive}, opening a large
+ * archive and the queries made at the end of every game, and checks the
+ * answers of the indexes against the games that were recorded.
+ * <p>
+ * Usage: <code>GameArchiveBenchmark [games]</code>, by default 1 000 000
+ * games, one per minute by 1 000 players.
+ * </p>
+ *
+ * @author Jose Uusitalo
+ */
+public class GameArchiveBenchmark
+{
+	/**
+	 * Number of different players.
+	 */
+	private static final int PLAYERS = 1000;
+
+	/**
+	 * Time between two games in milliseconds.
+	 */
+	private static final long GAME_INTERVAL = 60 * 1000;
+
+	/**
+	 * Length of a day in milliseconds.
+	 */
+	private static final long DAY = 24 * 60 * 60 * 1000;
+
+	/**
+	 * Number of queries timed.
+	 */
+	private static final int QUERIES = 100000;
+
+	public static void main(final String[] args) throws IOException
+	{
+		final int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		final File file = File.createTempFile("games", ".archive");
+		file.delete();
+		file.deleteOnExit();
+
+		final GameArchive archive = new GameArchive(file.getPath());
+		archive.open();
+
+		Checks.measure("record " + games + " games", 1, new Checks.Task()
+		{
+			@Override
+			public void run() throws Exception
+			{
+				// The warm-up run records the games, the timed run reopens the file.
+				if (archive.size() > 0)
+				{
+					archive.close();
+					file.delete();
+					archive.open();
+				}
+
+				for (int i = 0; i < games; i++)
+					archive.record("Player " + i % PLAYERS, i % 1201 / 10.0, i * GAME_INTERVAL, 6);
+			}
+		});
+
+		archive.close();
+
+		Checks.measure("open " + games + " games", 3, new Checks.Task()
+		{
+			@Override
+			public void run() throws Exception
+			{
+				archive.close();
+				archive.open();
+			}
+		});
+
+		Checks.check(archive.size() == games, "all " + games + " games are read back");
+		checkIndexes(archive, games);
+		query(archive, games);
+
+		archive.close();
+		cutLastRecord(file);
+		archive.open();
+		Checks.check(archive.size() == games - 1, "a partially written record is discarded");
+		archive.close();
+
+		checkDamagedRecords(archive, file, games - 1);
+		file.delete();
+
+		Checks.finish("GameArchiveBenchmark");
+	}
+
+	/**
+	 * Checks the player statistics, the time index and the ranks.
+	 */
+	private static void checkIndexes(final GameArchive _archive, final int _games) throws IOException
+	{
+		GameArchive.PlayerStats stats = _archive.getPlayerStats("Player 0");
+		int expected = (_games + PLAYERS - 1) / PLAYERS;
+
+		Checks.check(stats != null && stats.getCount() == expected, "Player 0 has played " + expected + " games");
+		Checks.check(_archive.getPlayerStats("Nobody") == null, "unknown player has no statistics");
+
+		long from = _games / 2 * GAME_INTERVAL;
+		int count = _archive.countGames(from, from + DAY);
+		List<GameArchive.Entry> day = _archive.getGames(from, from + DAY);
+		int inDay = (int) Math.min(DAY / GAME_INTERVAL, _games - _games / 2);
+
+		Checks.check(count == inDay, "a day has " + inDay + " games, counted " + count);
+		Checks.check(day.size() == count && (day.isEmpty() || day.get(0).getTimestamp() == from),
+				"the games of a day are read from the file in order");
+		Checks.check(_archive.getRankIndex().size() == _games, "every score is ranked");
+		Checks.check(_archive.getRankIndex().rankOf(120.0) == 1, "the best score is ranked first");
+	}
+
+	/**
+	 * Times the queries made at the end of a game.
+	 */
+	private static void query(final GameArchive _archive, final int _games)
+	{
+		final long last = _games * GAME_INTERVAL;
+
+		Checks.measure(QUERIES + " player, day and rank queries", 5, new Checks.Task()
+		{
+			@Override
+			public void run()
+			{
+				long sum = 0;
+
+				for (int i = 0; i < QUERIES; i++)
+				{
+					long time = (long) i * 7919 % (last + 1);
+					sum += _archive.getPlayerStats("Player " + i % PLAYERS).getCount();
+					sum += _archive.countGames(time - DAY, time);
+					sum += _archive.getRankIndex().rankOf(i % 1201 / 10.0);
+				}
+
+				Checks.check(sum > 0, "the queries find games");
+			}
+		});
+	}
+
+	/**
+	 * Damages a record in the middle of the file and one at the end, and
+	 * checks that only the damaged records are lost.
+	 */
+	private static void checkDamagedRecords(final GameArchive _archive, final File _file, final int _games)
+			throws IOException
+	{
+		int middle = _games / 2;
+		flipBit(_file, middle);
+		_archive.open();
+
+		long time = middle * GAME_INTERVAL;
+		Checks.check(_archive.size() == _games - 1 && _archive.getDamagedCount() == 1,
+				"a damaged record in the middle is skipped, " + _archive.size() + " of " + (_games - 1) + " games read");
+		Checks.check(_archive.countGames(time, time + 1) == 0 && _archive.countGames(time + 1, Long.MAX_VALUE)
+				== _games - middle - 1, "the games after the damaged record are kept");
+		Checks.check(_archive.getGames(time + GAME_INTERVAL, time + GAME_INTERVAL + 1).size() == 1,
+				"the game after the damaged record is read from the file");
+
+		_archive.record("After damage", 50.0, _games * GAME_INTERVAL, 6);
+		_archive.close();
+		_archive.open();
+		Checks.check(_archive.size() == _games && _archive.getPlayerStats("After damage") != null,
+				"a game recorded after a damaged record is kept");
+		_archive.close();
+
+		flipBit(_file, _games);
+		_archive.open();
+		Checks.check(_archive.size() == _games - 1 && _archive.getDamagedCount() == 1,
+				"a damaged record at the end is discarded");
+		Checks.check(_file.length() == GameArchive.HEADER_SIZE + (long) _games * GameArchive.RECORD_SIZE,
+				"only the damaged record at the end is cut off");
+		_archive.close();
+	}
+
+	/**
+	 * Flips a bit in the time of the given record.
+	 */
+	private static void flipBit(final File _file, final int _record) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(_file, "rw");
+
+		try
+		{
+			long position = GameArchive.HEADER_SIZE + (long) _record * GameArchive.RECORD_SIZE
+					+ HighscoreFile.RECORD_SIZE;
+			file.seek(position);
+			int b = file.read();
+			file.seek(position);
+			file.write(b ^ 1);
+		}
+		finally
+		{
+			file.close();
+		}
+	}
+
+	/**
+	 * Cuts the last record in half like a crash while writing.
+	 */
+	private static void cutLastRecord(final File _file) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(_file, "rw");
+
+		try
+		{
+			file.setLength(file.length() - GameArchive.RECORD_SIZE / 2);
+		}
+		finally
+		{
+			file.close();
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package game.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import game.Checks;
+
+/**
+ * Compares saving and loading highscores in the binary {@link HighscoreFile}
+ * format with the Java object serialization used by older versions of the
+ * game, and checks that both read back what was written.
+ * <p>
+ * Usage: <code>HighscoreFileBenchmark [sizes...]</code>, by default 20, 10 000
+ * and 1 000 000 highscores.
+ * </p>
+ *
+ * @author Jose Uusitalo
+ */
+public class HighscoreFileBenchmark
+{
+	/**
+	 * Number of timed runs of each task.
+	 */
+	private static final int RUNS = 5;
+
+	public static void main(final String[] args) throws IOException
+	{
+		int[] sizes = args.length == 0 ? new int[] { 20, 10000, 1000000 } : new int[args.length];
+
+		for (int i = 0; i < args.length; i++)
+			sizes[i] = Integer.parseInt(args[i]);
+
+		File binary = File.createTempFile("highscores", ".data");
+		File serialized = File.createTempFile("highscores", ".ser");
+		binary.deleteOnExit();
+		serialized.deleteOnExit();
+
+		for (int size : sizes)
+			run(size, binary, serialized);
+
+		Checks.finish("HighscoreFileBenchmark");
+	}
+
+	/**
+	 * Times both formats with the given number of highscores.
+	 */
+	private static void run(final int _size, final File _binary, final File _serialized) throws IOException
+	{
+		final List<Highscore> highscores = new ArrayList<Highscore>(_size);
+
+		for (int i = 0; i < _size; i++)
+			highscores.add(new Highscore("Player \u00c4\u00d6 " + i % 10000, (i * 7919) % 1200 / 10.0));
+
+		System.out.println("[HighscoreFileBenchmark] " + _size + " highscores:");
+
+		Checks.measure("serialization save", RUNS, new Checks.Task()
+		{
+			@Override
+			public void run() throws Exception
+			{
+				writeSerialized(_serialized, highscores);
+			}
+		});
+
+		Checks.measure("serialization load", RUNS, new Checks.Task()
+		{
+			@Override
+			public void run() throws Exception
+			{
+				checkSame(highscores, readSerialized(_serialized), "serialization");
+			}
+		});
+
+		Checks.measure("binary save", RUNS, new Checks.Task()
+		{
+			@Override
+			public void run() throws Exception
+			{
+				writeBinary(_binary, highscores);
+			}
+		});
+
+		Checks.measure("binary load", RUNS, new Checks.Task()
+		{
+			@Override
+			public void run() throws Exception
+			{
+				checkSame(highscores, readBinary(_binary), "binary");
+			}
+		});
+
+		System.out.println("[HighscoreFileBenchmark] File sizes: serialization " + _serialized.length()
+				+ " bytes, binary " + _binary.length() + " bytes.");
+	}
+
+	private static void writeBinary(final File _file, final List<Highscore> _highscores) throws IOException
+	{
+		HighscoreFile.Writer writer = new HighscoreFile.Writer(new FileOutputStream(_file), _highscores.size());
+
+		try
+		{
+			for (Highscore h : _highscores)
+				writer.write(h);
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	private static List<Highscore> readBinary(final File _file) throws IOException
+	{
+		HighscoreFile.Reader reader = new HighscoreFile.Reader(new FileInputStream(_file));
+		List<Highscore> highscores = new ArrayList<Highscore>(reader.getCount());
+		Highscore h;
+
+		try
+		{
+			while ((h = reader.next()) != null)
+				highscores.add(h);
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		return highscores;
+	}
+
+	private static void writeSerialized(final File _file, final List<Highscore> _highscores) throws IOException
+	{
+		ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(_file)));
+
+		try
+		{
+			for (Highscore h : _highscores)
+				out.writeObject(h);
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	private static List<Highscore> readSerialized(final File _file) throws IOException, ClassNotFoundException
+	{
+		ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(_file)));
+		List<Highscore> highscores = new ArrayList<Highscore>();
+
+		try
+		{
+			while (true)
+				highscores.add((Highscore) in.readObject());
+		}
+		catch (EOFException e)
+		{
+			// End of file.
+		}
+		finally
+		{
+			in.close();
+		}
+
+		return highscores;
+	}
+
+	/**
+	 * Checks that the highscores read are the ones written.
+	 */
+	private static void checkSame(final List<Highscore> _written, final List<Highscore> _read, final String _format)
+	{
+		boolean same = _written.size() == _read.size();
+
+		for (int i = 0; same && i < _written.size(); i++)
+		{
+			same = _written.get(i).getName().equals(_read.get(i).getName())
+					&& _written.get(i).getScore() == _read.get(i).getScore();
+		}
+
+		Checks.check(same, _format + " reads back the " + _written.size() + " highscores written");
+	}
+}
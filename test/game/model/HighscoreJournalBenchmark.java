@@ -0,0 +1,167 @@
+package game.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import game.Checks;
+
+/**
+ * Measures the latency of appending a highscore to the
+ * {@link HighscoreJournal}, which syncs every append to the disk, and the time
+ * it takes to recover the highscores from the files at startup. Checks that
+ * every appended highscore is recovered and that a partially written entry
+ * left by a crash is discarded.
+ * <p>
+ * Usage: <code>HighscoreJournalBenchmark [appends] [journal entries]</code>,
+ * by default 200 appends and a journal of 10 000 entries.
+ * </p>
+ *
+ * @author Jose Uusitalo
+ */
+public class HighscoreJournalBenchmark
+{
+	public static void main(final String[] args) throws IOException
+	{
+		int appends = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int longJournal = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+
+		File directory = createDirectory();
+
+		appendLatency(directory, appends);
+		recovery(directory, HighscoreJournal.COMPACT_THRESHOLD);
+		recovery(directory, longJournal);
+		partialEntry(directory);
+
+		Checks.finish("HighscoreJournalBenchmark");
+	}
+
+	/**
+	 * Appends highscores one at a time like the game does after each game.
+	 */
+	private static void appendLatency(final File _directory, final int _appends) throws IOException
+	{
+		HighscoreJournal journal = open(_directory);
+		journal.recover();
+
+		double[] millis = new double[_appends];
+
+		for (int i = 0; i < _appends; i++)
+		{
+			long start = System.nanoTime();
+			journal.append(Collections.singletonList(new Highscore("Player " + i, i)));
+			millis[i] = (System.nanoTime() - start) / 1e6;
+		}
+
+		journal.close();
+		Arrays.sort(millis);
+		System.out.println(String.format("[HighscoreJournalBenchmark] Append with sync: median %.3f ms, p99 %.3f ms,"
+				+ " max %.3f ms over %d appends.", millis[_appends / 2], millis[_appends * 99 / 100],
+				millis[_appends - 1], _appends));
+
+		journal = open(_directory);
+		Checks.check(journal.recover().size() == _appends, "all " + _appends + " appended highscores are recovered");
+		journal.close();
+		clear(_directory);
+	}
+
+	/**
+	 * Times recovering a full snapshot and a journal of the given length.
+	 */
+	private static void recovery(final File _directory, final int _entries) throws IOException
+	{
+		HighscoreJournal journal = open(_directory);
+		Highscore[] snapshot = new Highscore[HighscoreList.HIGHSCORE_LIST_MAX_SIZE];
+
+		for (int i = 0; i < snapshot.length; i++)
+			snapshot[i] = new Highscore("Snapshot " + i, 1000 - i);
+
+		journal.recover();
+		journal.compact(Arrays.asList(snapshot));
+
+		Highscore[] entries = new Highscore[_entries];
+
+		for (int i = 0; i < _entries; i++)
+			entries[i] = new Highscore("Journal " + i, i % 500);
+
+		journal.append(Arrays.asList(entries));
+		journal.close();
+
+		final int expected = snapshot.length + _entries;
+
+		Checks.measure("recover 20 + " + _entries + " journal entries", 5, new Checks.Task()
+		{
+			@Override
+			public void run() throws Exception
+			{
+				HighscoreJournal journal = open(_directory);
+				List<Highscore> recovered = journal.recover();
+				journal.close();
+				Checks.check(recovered.size() == expected, "recovers " + expected + " highscores");
+			}
+		});
+
+		clear(_directory);
+	}
+
+	/**
+	 * Cuts the last entry of the journal in half like a crash while writing.
+	 */
+	private static void partialEntry(final File _directory) throws IOException
+	{
+		HighscoreJournal journal = open(_directory);
+		journal.recover();
+		journal.append(Arrays.asList(new Highscore("Complete", 10), new Highscore("Torn", 20)));
+		journal.close();
+
+		RandomAccessFile file = new RandomAccessFile(new File(_directory, "highscores.journal"), "rw");
+
+		try
+		{
+			file.setLength(file.length() - HighscoreJournal.ENTRY_SIZE / 2);
+		}
+		finally
+		{
+			file.close();
+		}
+
+		journal = open(_directory);
+		List<Highscore> recovered = journal.recover();
+		journal.close();
+
+		Checks.check(recovered.size() == 1 && recovered.get(0).getName().equals("Complete"),
+				"a partially written entry is discarded");
+		Checks.check(new File(_directory, "highscores.journal").length() == HighscoreJournal.ENTRY_SIZE,
+				"the partial entry is cut from the journal");
+		clear(_directory);
+	}
+
+	private static HighscoreJournal open(final File _directory)
+	{
+		return new HighscoreJournal(new File(_directory, "highscores.data").getPath(),
+				new File(_directory, "highscores.journal").getPath(), HighscoreList.HIGHSCORE_LIST_MAX_SIZE);
+	}
+
+	private static File createDirectory() throws IOException
+	{
+		File directory = File.createTempFile("journal", "");
+
+		if (!directory.delete() || !directory.mkdir())
+			throw new IOException("Unable to create " + directory);
+
+		directory.deleteOnExit();
+		return directory;
+	}
+
+	/**
+	 * Deletes the files in the given folder.
+	 */
+	private static void clear(final File _directory)
+	{
+		for (File file : _directory.listFiles())
+			file.delete();
+	}
+}
@@ -0,0 +1,165 @@
+package game.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import game.Checks;
+
+/**
+ * Runs several copies of the game writing highscores into the same folder at
+ * the same time, like game stations sharing a network folder, and checks that
+ * the highscore list read afterwards holds exactly the best highscores written
+ * by all of them. The journal is compacted many times during the run, so a
+ * compaction that dropped the highscores of another copy is caught.
+ * <p>
+ * Usage: <code>HighscoreStressCheck [writers] [highscores per writer]</code>,
+ * by default 8 writer processes adding 200 highscores each.
+ * </p>
+ *
+ * @see HighscoreJournal
+ * @author Jose Uusitalo
+ */
+public class HighscoreStressCheck
+{
+	/**
+	 * A player with a fixed score.
+	 */
+	private static class FixedPlayer extends Player
+	{
+		/**
+		 * The score.
+		 */
+		private final double fixedScore;
+
+		public FixedPlayer(final String _name, final double _score)
+		{
+			super(_name, null);
+			fixedScore = _score;
+		}
+
+		@Override
+		public double getScore()
+		{
+			return fixedScore;
+		}
+	}
+
+	public static void main(final String[] args) throws Exception
+	{
+		if (args.length > 0 && args[0].equals("writer"))
+		{
+			write(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+			return;
+		}
+
+		int writers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		int highscores = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		File directory = Files.createTempDirectory("highscores").toFile();
+
+		long start = System.nanoTime();
+		List<Process> processes = new ArrayList<Process>();
+
+		for (int w = 0; w < writers; w++)
+		{
+			ProcessBuilder builder = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(),
+					"-cp", System.getProperty("java.class.path"),
+					"-D" + HighscoreList.DIRECTORY_PROPERTY + "=" + directory.getPath(),
+					HighscoreStressCheck.class.getName(), "writer", String.valueOf(w), String.valueOf(writers),
+					String.valueOf(highscores));
+			builder.redirectErrorStream(true);
+			builder.redirectOutput(new File(directory, "writer-" + w + ".log"));
+			processes.add(builder.start());
+		}
+
+		for (int w = 0; w < writers; w++)
+		{
+			int status = processes.get(w).waitFor();
+			Checks.check(status == 0, "writer " + w + " exits normally, see " + new File(directory, "writer-" + w
+					+ ".log"));
+		}
+
+		System.out.println(String.format("[HighscoreStressCheck] %d writers added %d highscores in %.0f ms.", writers,
+				writers * highscores, (System.nanoTime() - start) / 1e6));
+
+		System.setProperty(HighscoreList.DIRECTORY_PROPERTY, directory.getPath());
+		HighscoreList list = new HighscoreList();
+		list.reload();
+		List<Highscore> read = list.getList();
+		list.close();
+
+		List<Highscore> expected = expectedTop(writers, highscores);
+		Set<String> names = new HashSet<String>();
+		boolean same = read.size() == expected.size();
+
+		for (int i = 0; same && i < read.size(); i++)
+		{
+			same = read.get(i).getName().equals(expected.get(i).getName())
+					&& read.get(i).getScore() == expected.get(i).getScore();
+			names.add(read.get(i).getName());
+		}
+
+		Checks.check(same, "the list holds the best " + expected.size() + " highscores of all writers");
+		Checks.check(names.size() == read.size(), "no highscore is on the list twice");
+
+		for (File file : directory.listFiles())
+			file.delete();
+
+		directory.delete();
+		Checks.finish("HighscoreStressCheck");
+	}
+
+	/**
+	 * Adds highscores as one copy of the game, reading the highscores of the
+	 * others in between.
+	 */
+	private static void write(final int _writer, final int _writers, final int _highscores) throws IOException
+	{
+		HighscoreList list = new HighscoreList();
+		list.reload();
+
+		for (int i = 0; i < _highscores; i++)
+		{
+			list.addScore(new FixedPlayer(name(_writer, i), score(_writer, i, _writers, _highscores)));
+
+			if (i % 10 == 0)
+				list.refresh();
+		}
+
+		list.close();
+	}
+
+	/**
+	 * @return the best highscores written by all writers in order
+	 */
+	private static List<Highscore> expectedTop(final int _writers, final int _highscores)
+	{
+		TopScores top = new TopScores(HighscoreList.HIGHSCORE_LIST_MAX_SIZE);
+
+		for (int w = 0; w < _writers; w++)
+		{
+			for (int i = 0; i < _highscores; i++)
+				top.offer(new Highscore(name(w, i), score(w, i, _writers, _highscores)));
+		}
+
+		return top.toList();
+	}
+
+	private static String name(final int _writer, final int _index)
+	{
+		return "W" + _writer + "-" + _index;
+	}
+
+	/**
+	 * @return a score that no other highscore has, spread over the writers
+	 */
+	private static double score(final int _writer, final int _index, final int _writers, final int _highscores)
+	{
+		int total = _writers * _highscores;
+		return (long) (_index * _writers + _writer) * 7919 % total;
+	}
+}
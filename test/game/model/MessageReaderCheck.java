@@ -0,0 +1,120 @@
+package game.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+
+import game.Checks;
+
+/**
+ * Checks that {@link MessageReader} reads every message whole when the data
+ * arrives one byte at a time with a read timeout before every byte, like over
+ * a stalling link, and that the end of the connection is reported.
+ *
+ * @author Jose Uusitalo
+ */
+public class MessageReaderCheck
+{
+	/**
+	 * Gives one byte per read and times out before every byte.
+	 */
+	private static class StallingStream extends InputStream
+	{
+		/**
+		 * The data to give.
+		 */
+		private final byte[] data;
+
+		/**
+		 * Index of the next byte to give.
+		 */
+		private int position;
+
+		/**
+		 * <code>true</code> if the next read times out.
+		 */
+		private boolean stall;
+
+		/**
+		 * Number of timeouts thrown.
+		 */
+		private int timeouts;
+
+		public StallingStream(final byte[] _data)
+		{
+			data = _data;
+			stall = true;
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			byte[] b = new byte[1];
+			return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(final byte[] _buffer, final int _offset, final int _length) throws IOException
+		{
+			if (position == data.length)
+				return -1;
+
+			if (stall)
+			{
+				stall = false;
+				timeouts++;
+				throw new SocketTimeoutException("Stalled.");
+			}
+
+			stall = true;
+			_buffer[_offset] = data[position++];
+			return 1;
+		}
+	}
+
+	public static void main(final String[] args) throws IOException
+	{
+		String[] sent = { "a12", "", "c255,198,5", "zä€\u0000", "t" };
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		for (String message : sent)
+			out.writeUTF(message);
+
+		StallingStream in = new StallingStream(bytes.toByteArray());
+		MessageReader reader = new MessageReader(in);
+		int read = 0;
+		boolean same = true;
+
+		while (read < sent.length)
+		{
+			try
+			{
+				same &= reader.readMessage().equals(sent[read]);
+				read++;
+			}
+			catch (SocketTimeoutException e)
+			{
+				// Try again like the reading loop does.
+			}
+		}
+
+		Checks.check(same, "every message is read whole although a timeout comes before every byte");
+		Checks.check(in.timeouts == bytes.size(), in.timeouts + " timeouts for " + bytes.size() + " bytes");
+
+		try
+		{
+			reader.readMessage();
+			Checks.check(false, "the end of the connection is reported");
+		}
+		catch (EOFException e)
+		{
+			Checks.check(true, "the end of the connection is reported");
+		}
+
+		Checks.finish("MessageReaderCheck");
+	}
+}
@@ -0,0 +1,216 @@
+package game.model;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import game.Checks;
+import game.controller.Controller;
+import game.controller.HeadlessListener;
+
+/**
+ * Drives the state machine of an {@link EV3Robot} from several threads at
+ * once, like the user interface, the data reader and the timer do in a game,
+ * and checks that every state change is one the robot allows, that no more
+ * cannonballs are fired than the robot has and that the robot ends every
+ * round in a state it can be left in.
+ * <p>
+ * Usage: <code>RobotStateStressCheck [rounds] [threads]</code>, by default
+ * 2 000 rounds with 4 player threads and 2 robot threads.
+ * </p>
+ *
+ * @see RobotState
+ * @author Jose Uusitalo
+ */
+public class RobotStateStressCheck
+{
+	/**
+	 * Commands given by each thread in a round.
+	 */
+	private static final int COMMANDS = 200;
+
+	/**
+	 * Number of state changes that were not allowed.
+	 */
+	private static final AtomicInteger illegal = new AtomicInteger();
+
+	/**
+	 * Number of shots fired in the current round.
+	 */
+	private static final AtomicInteger shots = new AtomicInteger();
+
+	/**
+	 * Number of state changes seen.
+	 */
+	private static final AtomicInteger changes = new AtomicInteger();
+
+	public static void main(final String[] args) throws Exception
+	{
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int players = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+		File directory = Files.createTempDirectory("highscores").toFile();
+		File archive = new File(GameRecords.ARCHIVE_FILENAME);
+		boolean archiveExisted = archive.exists();
+		System.setProperty(HighscoreList.DIRECTORY_PROPERTY, directory.getPath());
+
+		Controller controller = new Controller(new HeadlessListener(false), new SystemClock());
+		EV3Robot robot = new EV3Robot("STRESS", 0, controller);
+		Player player = new Player("Stress", controller);
+		int maxBalls = GameConfig.get().getMaxBalls();
+		int tooManyShots = 0;
+		int stuck = 0;
+
+		robot.addStateListener(new EV3Robot.StateListener()
+		{
+			@Override
+			public void stateChanged(final RobotState _from, final RobotState _to)
+			{
+				changes.incrementAndGet();
+
+				if (_to == RobotState.SHOOTING)
+					shots.incrementAndGet();
+
+				if (!isAllowed(_from, _to))
+					illegal.incrementAndGet();
+			}
+		});
+
+		// The robot prints every command, which would take longer than the commands.
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(new OutputStream()
+		{
+			@Override
+			public void write(final int _b)
+			{
+				// Discarded.
+			}
+		}));
+
+		long start = System.nanoTime();
+
+		for (int round = 0; round < rounds; round++)
+		{
+			shots.set(0);
+			robot.prepareReplay(player);
+			runRound(robot, players, round);
+
+			// Finish whatever the robot was doing, like the robot itself would.
+			robot.turnCompleted();
+			robot.shotCompleted();
+			robot.turnCompleted();
+
+			if (shots.get() > maxBalls || robot.getShotsFired() != shots.get())
+				tooManyShots++;
+
+			if (robot.getState() != RobotState.IDLE)
+				stuck++;
+		}
+
+		double millis = (System.nanoTime() - start) / 1e6;
+		System.setOut(out);
+
+		System.out.println(String.format("[RobotStateStressCheck] %d rounds, %d state changes in %.0f ms.", rounds,
+				changes.get(), millis));
+		Checks.check(illegal.get() == 0, illegal.get() + " state changes were not allowed");
+		Checks.check(tooManyShots == 0, tooManyShots
+				+ " rounds fired more cannonballs than there were or lost count of them");
+		Checks.check(stuck == 0, stuck + " rounds left the robot busy after every command had finished");
+
+		controller.shutdown();
+
+		if (!archiveExisted)
+			archive.delete();
+
+		for (File file : directory.listFiles())
+			file.delete();
+
+		directory.delete();
+		Checks.finish("RobotStateStressCheck");
+	}
+
+	/**
+	 * Runs the player threads giving commands and the robot threads reporting
+	 * the ends of the shots and turns at the same time.
+	 */
+	private static void runRound(final EV3Robot _robot, final int _players, final int _round)
+			throws InterruptedException
+	{
+		final CountDownLatch ready = new CountDownLatch(1);
+		Thread[] threads = new Thread[_players + 2];
+
+		for (int t = 0; t < threads.length; t++)
+		{
+			final boolean robotThread = t >= _players;
+			final Random random = new Random(_round * 31 + t);
+
+			threads[t] = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						ready.await();
+					}
+					catch (InterruptedException e)
+					{
+						return;
+					}
+
+					for (int i = 0; i < COMMANDS; i++)
+					{
+						int command = random.nextInt(3);
+
+						if (robotThread && command == 0)
+							_robot.shotCompleted();
+						else if (robotThread)
+							_robot.turnCompleted();
+						else if (command == 0)
+							_robot.shootCannonHigh();
+						else if (command == 1)
+							_robot.shootCannonLow();
+						else
+							_robot.turnToAngle(random.nextInt(90) - 45);
+
+						// Let the other threads in between even on a single core.
+						Thread.yield();
+					}
+				}
+			});
+			threads[t].start();
+		}
+
+		ready.countDown();
+
+		for (Thread thread : threads)
+			thread.join();
+	}
+
+	/**
+	 * @return <code>true</code> if the robot may change from the first state to
+	 *         the second one
+	 */
+	private static boolean isAllowed(final RobotState _from, final RobotState _to)
+	{
+		// The robot can be disabled and the game ended whatever the robot is doing.
+		if (EnumSet.of(RobotState.DISABLED, RobotState.GAME_OVER).contains(_to) || _from == _to)
+			return true;
+
+		switch (_from)
+		{
+			case DISABLED:
+			case GAME_OVER:
+				return _to == RobotState.IDLE;
+			case IDLE:
+				return _to == RobotState.TURNING || _to == RobotState.SHOOTING;
+			default:
+				return _to == _from.afterShot() || _to == _from.afterTurn();
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package game.model;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import game.Checks;
+
+/**
+ * Checks the ranks and the scores at percentiles given by
+ * {@link ScoreRankIndex} against sorting all the scores, and times both
+ * queries on a large index.
+ * <p>
+ * Usage: <code>ScoreRankIndexCheck [scores]</code>, by default 1 000 000
+ * scores in the benchmark.
+ * </p>
+ *
+ * @author Jose Uusitalo
+ */
+public class ScoreRankIndexCheck
+{
+	/**
+	 * Highest score in the checks.
+	 */
+	private static final double MAX_SCORE = 120.0;
+
+	/**
+	 * Size of a bucket in points.
+	 */
+	private static final double RESOLUTION = 0.1;
+
+	/**
+	 * Number of queries timed.
+	 */
+	private static final int QUERIES = 1000000;
+
+	public static void main(final String[] args)
+	{
+		int scores = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+		edges();
+		compareWithSorted(1);
+		compareWithSorted(7);
+		compareWithSorted(5000);
+		benchmark(scores);
+
+		Checks.finish("ScoreRankIndexCheck");
+	}
+
+	/**
+	 * Empty index, percentiles outside 0-100 and scores outside the range.
+	 */
+	private static void edges()
+	{
+		ScoreRankIndex index = new ScoreRankIndex(MAX_SCORE, RESOLUTION);
+
+		Checks.check(index.scoreAtPercentile(50) == 0.0, "an empty index gives 0 at every percentile");
+		Checks.check(index.rankOf(10) == 1, "any score is first in an empty index");
+
+		index.add(-5);
+		index.add(10);
+		index.add(500);
+
+		Checks.check(index.scoreAtPercentile(0) == 0.0, "percentile 0 gives the lowest score");
+		Checks.check(index.scoreAtPercentile(-10) == 0.0, "a negative percentile is treated as 0");
+		Checks.check(Math.abs(index.scoreAtPercentile(50) - 10.0) < 1e-9, "percentile 50 gives the middle score");
+		Checks.check(Math.abs(index.scoreAtPercentile(100) - MAX_SCORE) < 1e-9,
+				"percentile 100 gives the last bucket for a score above the maximum");
+		Checks.check(index.scoreAtPercentile(150) == index.scoreAtPercentile(100),
+				"a percentile above 100 is treated as 100");
+		Checks.check(index.rankOf(500) == 1 && index.rankOf(-5) == 3, "scores outside the range are ranked");
+	}
+
+	/**
+	 * Adds random scores and checks every query against the sorted scores.
+	 */
+	private static void compareWithSorted(final int _count)
+	{
+		Random random = new Random(_count);
+		ScoreRankIndex index = new ScoreRankIndex(MAX_SCORE, RESOLUTION);
+		int[] buckets = new int[_count];
+
+		for (int i = 0; i < _count; i++)
+		{
+			// Whole tenths like the game gives, with many ties.
+			int tenths = random.nextInt(1201);
+			index.add(tenths / 10.0);
+			buckets[i] = tenths;
+		}
+
+		Arrays.sort(buckets);
+		boolean percentiles = true;
+		boolean ranks = true;
+
+		for (int p = 0; p <= 1000; p++)
+		{
+			double percentile = p / 10.0;
+			int target = Math.max(1, (int) Math.ceil(percentile / 100.0 * _count));
+			double expected = buckets[target - 1] * RESOLUTION;
+			percentiles &= Math.abs(index.scoreAtPercentile(percentile) - expected) < 1e-9;
+		}
+
+		for (int tenths = 0; tenths <= 1200; tenths += 7)
+		{
+			int higher = 0;
+
+			for (int b : buckets)
+				higher += b > tenths ? 1 : 0;
+
+			ranks &= index.rankOf(tenths / 10.0) == higher + 1;
+		}
+
+		Checks.check(percentiles, _count + " scores: every percentile matches the sorted scores");
+		Checks.check(ranks, _count + " scores: every rank matches the sorted scores");
+	}
+
+	/**
+	 * Times adding scores and both queries.
+	 */
+	private static void benchmark(final int _scores)
+	{
+		final ScoreRankIndex index = new ScoreRankIndex(MAX_SCORE, RESOLUTION);
+		final Random random = new Random(1);
+
+		Checks.measure("add " + _scores + " scores", 1, new Checks.Task()
+		{
+			@Override
+			public void run()
+			{
+				for (int i = 0; i < _scores; i++)
+					index.add(random.nextInt(1201) / 10.0);
+			}
+		});
+
+		Checks.measure(QUERIES + " percentile queries", 5, new Checks.Task()
+		{
+			@Override
+			public void run()
+			{
+				double sum = 0;
+
+				for (int i = 0; i < QUERIES; i++)
+					sum += index.scoreAtPercentile(i % 1001 / 10.0);
+
+				Checks.check(sum > 0, "the percentile queries find scores");
+			}
+		});
+
+		Checks.measure(QUERIES + " rank queries", 5, new Checks.Task()
+		{
+			@Override
+			public void run()
+			{
+				long sum = 0;
+
+				for (int i = 0; i < QUERIES; i++)
+					sum += index.rankOf(i % 1201 / 10.0);
+
+				Checks.check(sum > 0, "the rank queries find places");
+			}
+		});
+	}
+}
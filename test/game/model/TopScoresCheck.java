@@ -0,0 +1,206 @@
+package game.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import game.Checks;
+
+/**
+ * Checks how {@link TopScores} orders equal scores and what it does when it is
+ * full, compares it with a sorted list on random scores with many ties and
+ * times offering scores to lists of different sizes.
+ * <p>
+ * Usage: <code>TopScoresCheck [offers]</code>, by default 1 000 000 offers
+ * in the benchmark.
+ * </p>
+ *
+ * @author Jose Uusitalo
+ */
+public class TopScoresCheck
+{
+	/**
+	 * Orders highscores from the highest score to the lowest.
+	 */
+	private static final Comparator<Highscore> DESCENDING = new Comparator<Highscore>()
+	{
+		@Override
+		public int compare(final Highscore _a, final Highscore _b)
+		{
+			return Double.compare(_b.getScore(), _a.getScore());
+		}
+	};
+
+	public static void main(final String[] args)
+	{
+		int offers = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+		ties();
+		full();
+		bounds();
+		compareWithSortedList(20, 5);
+		compareWithSortedList(1, 3);
+		compareWithSortedList(100, 1000);
+		benchmark(offers);
+
+		Checks.finish("TopScoresCheck");
+	}
+
+	/**
+	 * An equal score goes after the scores already on the list.
+	 */
+	private static void ties()
+	{
+		TopScores top = new TopScores(5);
+
+		Checks.check(top.offer(new Highscore("A", 10)) == 0, "first highscore goes to the top");
+		Checks.check(top.offer(new Highscore("B", 10)) == 1, "equal score goes after the earlier one");
+		Checks.check(top.offer(new Highscore("C", 20)) == 0, "higher score goes above equal scores");
+		Checks.check(top.offer(new Highscore("D", 10)) == 3, "third equal score goes last");
+		Checks.check(names(top).equals("C A B D"), "order is C A B D, was " + names(top));
+	}
+
+	/**
+	 * A full list only takes scores that beat the lowest one.
+	 */
+	private static void full()
+	{
+		TopScores top = new TopScores(3);
+		top.offer(new Highscore("A", 30));
+		top.offer(new Highscore("B", 20));
+		top.offer(new Highscore("C", 10));
+
+		Checks.check(!top.qualifies(10), "score equal to the lowest does not qualify when full");
+		Checks.check(top.offer(new Highscore("D", 10)) == -1, "score equal to the lowest is rejected when full");
+		Checks.check(top.offer(new Highscore("E", 5)) == -1, "lower score is rejected when full");
+		Checks.check(top.qualifies(11), "score above the lowest qualifies when full");
+		Checks.check(top.offer(new Highscore("F", 20)) == 2, "equal score goes after the earlier one when full");
+		Checks.check(names(top).equals("A B F"), "lowest is dropped, order is A B F, was " + names(top));
+		Checks.check(top.size() == 3, "size stays at the capacity");
+	}
+
+	/**
+	 * Removing and reading outside the list fails.
+	 */
+	private static void bounds()
+	{
+		TopScores top = new TopScores(2);
+		top.offer(new Highscore("A", 1));
+
+		try
+		{
+			top.get(1);
+			Checks.check(false, "get past the end throws");
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			Checks.check(true, "get past the end throws");
+		}
+
+		Checks.check(top.remove(0).getName().equals("A") && top.size() == 0, "remove returns the highscore");
+		top.offer(new Highscore("B", 2));
+		top.clear();
+		Checks.check(top.size() == 0 && top.qualifies(0), "clear empties the list");
+
+		try
+		{
+			new TopScores(0);
+			Checks.check(false, "capacity 0 is rejected");
+		}
+		catch (IllegalArgumentException e)
+		{
+			Checks.check(true, "capacity 0 is rejected");
+		}
+	}
+
+	/**
+	 * Offers random scores from a small range, so there are many ties, to
+	 * TopScores and to a list that is stably sorted and trimmed after every
+	 * insert like the highscore list used to be.
+	 */
+	private static void compareWithSortedList(final int _capacity, final int _range)
+	{
+		Random random = new Random(_capacity * 31 + _range);
+		TopScores top = new TopScores(_capacity);
+		List<Highscore> sorted = new ArrayList<Highscore>();
+		boolean same = true;
+
+		for (int i = 0; i < 20000 && same; i++)
+		{
+			Highscore h = new Highscore("P" + i, random.nextInt(_range));
+			boolean qualified = top.qualifies(h.getScore());
+			int index = top.offer(h);
+
+			sorted.add(h);
+			Collections.sort(sorted, DESCENDING);
+
+			if (sorted.size() > _capacity)
+				sorted.remove(_capacity);
+
+			same = qualified == (index >= 0) && (index < 0 || sorted.get(index) == h) && top.toList().equals(sorted);
+		}
+
+		Checks.check(same, "capacity " + _capacity + ", scores 0-" + (_range - 1) + " match a sorted list");
+	}
+
+	/**
+	 * Times offering random scores to lists of different sizes and to the
+	 * sorted list.
+	 */
+	private static void benchmark(final int _offers)
+	{
+		final Highscore[] highscores = new Highscore[_offers];
+		Random random = new Random(1);
+
+		for (int i = 0; i < _offers; i++)
+			highscores[i] = new Highscore("P" + i, random.nextInt(1200) / 10.0);
+
+		for (final int capacity : new int[] { 20, 1000, 100000 })
+		{
+			Checks.measure(_offers + " offers, capacity " + capacity, 5, new Checks.Task()
+			{
+				@Override
+				public void run()
+				{
+					TopScores top = new TopScores(capacity);
+
+					for (Highscore h : highscores)
+						top.offer(h);
+				}
+			});
+		}
+
+		Checks.measure(_offers / 100 + " inserts into a sorted list of 20", 5, new Checks.Task()
+		{
+			@Override
+			public void run()
+			{
+				List<Highscore> sorted = new ArrayList<Highscore>();
+
+				for (int i = 0; i < highscores.length / 100; i++)
+				{
+					sorted.add(highscores[i]);
+					Collections.sort(sorted, DESCENDING);
+
+					if (sorted.size() > 20)
+						sorted.remove(20);
+				}
+			}
+		});
+	}
+
+	/**
+	 * @return the names of the highscores on the list separated by spaces
+	 */
+	private static String names(final TopScores _top)
+	{
+		StringBuilder names = new StringBuilder();
+
+		for (Highscore h : _top.toList())
+			names.append(names.length() == 0 ? "" : " ").append(h.getName());
+
+		return names.toString();
+	}
+}
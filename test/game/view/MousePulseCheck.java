@@ -0,0 +1,199 @@
+package game.view;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import game.Checks;
+import game.controller.Controller;
+import game.controller.HeadlessListener;
+import game.model.GameRecords;
+import game.model.HighscoreList;
+import game.model.SystemClock;
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.stage.Stage;
+
+/**
+ * Clicks and holds the turn buttons of the {@link CenterPane} on a simulated
+ * robot and measures the gaps between the JavaFX pulses meanwhile. A mouse
+ * press used to sleep for 100 ms on the JavaFX application thread, which
+ * showed as a pulse gap of over 100 ms for every click. Checks that no gap
+ * while clicking is longer than {@link #MAX_PULSE_GAP}.
+ * <p>
+ * Usage: <code>MousePulseCheck [clicks] [hold time in milliseconds]</code>,
+ * by default 20 clicks held for 150 ms each. Needs a display.
+ * </p>
+ *
+ * @author Jose Uusitalo
+ */
+public class MousePulseCheck extends Application
+{
+	/**
+	 * Longest allowed time between two pulses in milliseconds, three frames
+	 * at 60 frames per second.
+	 */
+	private static final double MAX_PULSE_GAP = 50;
+
+	/**
+	 * Time between releasing a button and clicking the next one in
+	 * milliseconds.
+	 */
+	private static final long CLICK_INTERVAL = 100;
+
+	/**
+	 * Maximum time to wait for the game to start in milliseconds.
+	 */
+	private static final long TIMEOUT = 30000;
+
+	/**
+	 * Gaps between the pulses in milliseconds, only touched on the JavaFX
+	 * application thread.
+	 */
+	private final List<Double> gaps = new ArrayList<Double>();
+
+	/**
+	 * Time of the previous pulse in nanoseconds, <code>0</code> if none.
+	 */
+	private long previousPulse;
+
+	/**
+	 * <code>true</code> while the pulse gaps are recorded.
+	 */
+	private volatile boolean measuring;
+
+	public static void main(final String[] args)
+	{
+		launch(args);
+	}
+
+	@Override
+	public void start(final Stage _stage) throws Exception
+	{
+		List<String> args = getParameters().getRaw();
+		final int clicks = args.size() > 0 ? Integer.parseInt(args.get(0)) : 20;
+		final long hold = args.size() > 1 ? Long.parseLong(args.get(1)) : 150;
+
+		final File directory = Files.createTempDirectory("highscores").toFile();
+		final File archive = new File(GameRecords.ARCHIVE_FILENAME);
+		final boolean archiveExisted = archive.exists();
+		System.setProperty(HighscoreList.DIRECTORY_PROPERTY, directory.getPath());
+
+		final Controller controller = new Controller(new HeadlessListener(false), new SystemClock());
+		controller.debugConnect("DEBUG", 0);
+
+		_stage.setScene(new Scene(new CenterPane(controller).getPane()));
+		_stage.show();
+
+		new AnimationTimer()
+		{
+			@Override
+			public void handle(final long _now)
+			{
+				if (measuring && previousPulse != 0)
+					gaps.add((_now - previousPulse) / 1e6);
+
+				previousPulse = _now;
+			}
+		}.start();
+
+		Thread clicker = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					controller.startGame("Mouse").get(TIMEOUT, TimeUnit.MILLISECONDS);
+					measuring = true;
+
+					for (int i = 0; i < clicks; i++)
+					{
+						Button button = i % 2 == 0 ? CenterPane.btnTurnLeft : CenterPane.btnTurnRight;
+						fire(button, MouseEvent.MOUSE_PRESSED);
+						Thread.sleep(hold);
+						fire(button, MouseEvent.MOUSE_RELEASED);
+						Thread.sleep(CLICK_INTERVAL);
+					}
+
+					measuring = false;
+					controller.endGame();
+				}
+				catch (Exception e)
+				{
+					Checks.check(false, "the game starts and the buttons can be clicked: " + e);
+				}
+
+				Platform.runLater(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						report(clicks, hold);
+						controller.shutdown();
+						_stage.close();
+
+						if (!archiveExisted)
+							archive.delete();
+
+						for (File file : directory.listFiles())
+							file.delete();
+
+						directory.delete();
+						Checks.finish("MousePulseCheck");
+					}
+				});
+			}
+		}, "MousePulseCheck");
+		clicker.setDaemon(true);
+		clicker.start();
+	}
+
+	/**
+	 * Prints the pulse gaps and checks the longest one.
+	 */
+	private void report(final int _clicks, final long _hold)
+	{
+		List<Double> sorted = new ArrayList<Double>(gaps);
+		Collections.sort(sorted);
+
+		Checks.check(!sorted.isEmpty(), "pulses are seen while clicking");
+
+		if (sorted.isEmpty())
+			return;
+
+		double median = sorted.get(sorted.size() / 2);
+		double max = sorted.get(sorted.size() - 1);
+
+		System.out.println(String.format("[MousePulseCheck] %d clicks held %d ms: %d pulses, median gap %.1f ms,"
+				+ " longest gap %.1f ms.", _clicks, _hold, sorted.size(), median, max));
+		Checks.check(max <= MAX_PULSE_GAP, "no pulse gap while clicking is longer than " + MAX_PULSE_GAP
+				+ " ms, longest was " + String.format("%.1f", max) + " ms");
+	}
+
+	/**
+	 * Fires a primary mouse button event on the given button on the JavaFX
+	 * application thread, like a real click would.
+	 */
+	private static void fire(final Button _button, final javafx.event.EventType<MouseEvent> _type)
+	{
+		Platform.runLater(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				boolean down = _type == MouseEvent.MOUSE_PRESSED;
+				_button.fireEvent(new MouseEvent(_type, 1, 1, 1, 1, MouseButton.PRIMARY, 1, false, false, false,
+						false, down, false, false, false, false, true, null));
+			}
+		});
+	}
+}